@@ -0,0 +1,22 @@
+package asteroids.model.exceptions.programExceptions;
+
+/**
+ * A class for signaling that a program has executed the maximal number of statements it may execute during a single execution.
+ * 
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ * 
+ * @note This exception may only be caught in executeProgram() of ProgramExecutor. 
+ */
+
+
+public class InstructionBudgetExceededException extends HoldException {
+	/**
+	 * Initialize this new InstructionBudgetExceededException
+	 */
+	public InstructionBudgetExceededException() {
+		super();
+	}
+	
+	private static final long serialVersionUID = 1L;
+}
@@ -41,7 +41,7 @@ public abstract class Executable {
 	
 	public void executeBodyStatement(ProgramExecutor executor) throws IllegalMethodCallException, HoldException, NullPointerException, IndexOutOfBoundsException,
 															BreakException, ReturnException, NoReturnException, IllegalArgumentException, ArithmeticException {
-		getBodyStatement().execute(executor);
+		getBodyStatement().executeProfiled(executor);
 	}
 	
 	private final Statement bodyStatement;
@@ -0,0 +1,165 @@
+package asteroids.model.programs;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of print sinks writing the printed values, one per line, to a file channel.
+ *
+ * The values are converted to text by the thread executing the program and handed to a background thread writing them to the
+ * channel, such that the execution of a program never waits for the file system. If the background thread cannot keep up and its
+ * queue is full, printed values are dropped and counted.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+public class FileChannelPrintSink implements PrintSink, AutoCloseable {
+
+	public FileChannelPrintSink(FileChannel channel, int queueCapacity) throws IllegalArgumentException {
+		if (channel == null || queueCapacity <= 0)
+			throw new IllegalArgumentException();
+		this.channel = channel;
+		this.queue = new ArrayBlockingQueue<>(queueCapacity);
+		this.writer = new Thread(this::writeLines, "print-sink-writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+	}
+
+	/**
+	 * Return a new sink appending the printed values to the file with the given path, creating the file if necessary.
+	 */
+	public static FileChannelPrintSink open(Path path) throws IOException {
+		return new FileChannelPrintSink(FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.APPEND), DEFAULT_QUEUE_CAPACITY);
+	}
+
+	public static final int DEFAULT_QUEUE_CAPACITY = 8192;
+
+	@Override
+	public void print(ProgramExecutor executor, Object item) {
+		if (isClosed() || !queue.offer(String.valueOf(item)))
+			nbOfDroppedItems.increment();
+	}
+
+	/**
+	 * Return the number of printed values that were not written because the queue of this sink was full or this sink was closed.
+	 */
+	public long getNbOfDroppedItems() {
+		return nbOfDroppedItems.sum();
+	}
+
+	private final LongAdder nbOfDroppedItems = new LongAdder();
+
+	/**
+	 * Write the lines in the queue of this sink to its channel until this sink is closed.
+	 * Lines are written in batches, reusing a single byte buffer.
+	 */
+	private void writeLines() {
+		List<String> batch = new ArrayList<>();
+		ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		try {
+			while (true) {
+				String line = queue.take();
+				if (line == END_OF_QUEUE)
+					break;
+				batch.add(line);
+				queue.drainTo(batch);
+				boolean ended = batch.removeIf(item -> item == END_OF_QUEUE);
+				for (String item : batch) {
+					byte[] bytes = (item + "\n").getBytes(StandardCharsets.UTF_8);
+					if (bytes.length > buffer.remaining())
+						flush(buffer);
+					if (bytes.length > buffer.capacity())
+						writeFully(ByteBuffer.wrap(bytes));
+					else
+						buffer.put(bytes);
+				}
+				flush(buffer);
+				batch.clear();
+				if (ended)
+					break;
+			}
+		}
+		catch (IOException exc) {
+			failure = exc;
+		}
+		catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void flush(ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		writeFully(buffer);
+		buffer.clear();
+	}
+
+	private void writeFully(ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+
+	private static final long CLOSE_POLL_INTERVAL = 10;
+
+	/**
+	 * A line marking the end of the queue. It is compared by identity, such that no printed value can be mistaken for it.
+	 */
+	private static final String END_OF_QUEUE = new String("");
+
+	/**
+	 * Close this sink: all values printed before are written, after which the channel of this sink is closed.
+	 *
+	 * @throws IOException
+	 * 			Writing the printed values or closing the channel failed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (isClosed())
+			return;
+		closed = true;
+		try {
+			// The writer only stops taking lines from the queue if writing failed.
+			while (writer.isAlive() && !queue.offer(END_OF_QUEUE, CLOSE_POLL_INTERVAL, TimeUnit.MILLISECONDS))
+				;
+			writer.join();
+		}
+		catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+		finally {
+			channel.close();
+		}
+		if (failure != null)
+			throw failure;
+	}
+
+	@Basic
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	private volatile boolean closed;
+
+	private volatile IOException failure;
+
+	private final FileChannel channel;
+
+	private final BlockingQueue<String> queue;
+
+	private final Thread writer;
+}
@@ -1,11 +1,14 @@
 package asteroids.model.programs;
 
+import java.util.concurrent.atomic.LongAdder;
+
 import asteroids.model.exceptions.IllegalMethodCallException;
 import asteroids.model.exceptions.programExceptions.BreakException;
 import asteroids.model.exceptions.programExceptions.HoldException;
 import asteroids.model.exceptions.programExceptions.NoReturnException;
 import asteroids.model.exceptions.programExceptions.ReturnException;
 import asteroids.model.programs.statements.Statement;
+import asteroids.part3.programs.SourceLocation;
 import be.kuleuven.cs.som.annotate.*;
 
 /**
@@ -76,4 +79,46 @@ public class Function extends Executable {
 	}
 	
 	private final String name;
+	
+	/**
+	 * Return the location in the source code of the program at which this function is defined, or null if it is unknown.
+	 */
+	@Basic
+	public SourceLocation getSourceLocation() {
+		return this.sourceLocation;
+	}
+	
+	public void setSourceLocation(SourceLocation location) {
+		if (this.sourceLocation == null)
+			this.sourceLocation = location;
+	}
+	
+	private SourceLocation sourceLocation;
+	
+	/**
+	 * Return the number of calls of this function whose result was found in the function cache of a program executor.
+	 */
+	public long getNbOfCacheHits() {
+		return nbOfCacheHits.sum();
+	}
+	
+	/**
+	 * Return the number of calls of this function whose result could be memoized, but was not found in the function cache
+	 * of a program executor.
+	 */
+	public long getNbOfCacheMisses() {
+		return nbOfCacheMisses.sum();
+	}
+	
+	void registerCacheHit() {
+		nbOfCacheHits.increment();
+	}
+	
+	void registerCacheMiss() {
+		nbOfCacheMisses.increment();
+	}
+	
+	private final LongAdder nbOfCacheHits = new LongAdder();
+	
+	private final LongAdder nbOfCacheMisses = new LongAdder();
 }
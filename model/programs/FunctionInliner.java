@@ -0,0 +1,143 @@
+package asteroids.model.programs;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import asteroids.model.programs.expressions.*;
+import asteroids.model.programs.statements.*;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class representing a pass replacing calls of small functions by the expression returned by those functions.
+ *
+ * A function can be inlined if its body consists of a single return statement and the returned expression is small.
+ * Calls of recursive functions are never inlined. The body of a function that does not return a value is never inlined, such that
+ * calls of such a function still raise a NoReturnException.
+ * An inlined call still evaluates its actual arguments once and in order, but it does not look up the function, execute statements,
+ * push an execution scope or return its value by means of a ReturnException.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+public class FunctionInliner extends ProgramTransformer {
+
+	public FunctionInliner(int maximalInlinedSize) throws IllegalArgumentException {
+		if (!isValidMaximalInlinedSize(maximalInlinedSize))
+			throw new IllegalArgumentException();
+		this.maximalInlinedSize = maximalInlinedSize;
+	}
+
+	public FunctionInliner() {
+		this(DEFAULT_MAXIMAL_INLINED_SIZE);
+	}
+
+	/**
+	 * Return the maximal number of nodes of an expression returned by a function that is inlined.
+	 */
+	@Basic @Immutable
+	public int getMaximalInlinedSize() {
+		return this.maximalInlinedSize;
+	}
+
+	public static boolean isValidMaximalInlinedSize(int size) {
+		return size > 0;
+	}
+
+	private final int maximalInlinedSize;
+
+	public static final int DEFAULT_MAXIMAL_INLINED_SIZE = 16;
+
+	@Override
+	public Program transform(Program program) throws IllegalArgumentException {
+		if (program == null)
+			throw new IllegalArgumentException();
+		this.program = program;
+		this.expandedBodies.clear();
+		this.functionsBeingExpanded.clear();
+		try {
+			return super.transform(program);
+		}
+		finally {
+			this.program = null;
+		}
+	}
+
+	/**
+	 * The program that is being transformed.
+	 */
+	private Program program;
+
+	@Override
+	protected Expression<?> transformExpression(Expression<?> expression) throws IllegalArgumentException {
+		if (!(expression instanceof FunctionCallExpression))
+			return super.transformExpression(expression);
+		FunctionCallExpression<?> call = (FunctionCallExpression<?>)expression;
+		Expression<?>[] arguments = call.getActualArgumentExpressions();
+		for (int i = 0; i < arguments.length; i++)
+			arguments[i] = transformExpression(arguments[i]);
+		Function function = program.getFunctionWithName(call.getName());
+		Expression<?> body = (function == null) ? null : getExpandedBody(function);
+		if (body == null)
+			return withSourceLocationOf(new FunctionCallExpression<>(call.getName(), arguments), call);
+		return withSourceLocationOf(new InlinedFunctionCallExpression<>(call.getName(), arguments, body), call);
+	}
+
+	/**
+	 * Return the expression returned by the given function in which all calls that can be inlined are inlined, or null if
+	 * the given function cannot be inlined.
+	 */
+	private Expression<?> getExpandedBody(Function function) {
+		if (expandedBodies.containsKey(function))
+			return expandedBodies.get(function);
+		if (functionsBeingExpanded.contains(function))
+			// The function is (mutually) recursive.
+			return null;
+		Expression<?> returnedExpression = getReturnedExpression(function.getBodyStatement());
+		Expression<?> result = null;
+		if (returnedExpression != null && getSize(returnedExpression) <= getMaximalInlinedSize()) {
+			functionsBeingExpanded.add(function);
+			try {
+				result = transformExpression(returnedExpression);
+			}
+			finally {
+				functionsBeingExpanded.remove(function);
+			}
+			if (containsCallOf(result, function))
+				result = null;
+		}
+		expandedBodies.put(function, result);
+		return result;
+	}
+
+	private final Map<Function, Expression<?>> expandedBodies = new HashMap<>();
+
+	private final Set<Function> functionsBeingExpanded = new HashSet<>();
+
+	private static Expression<?> getReturnedExpression(Statement body) {
+		if (body instanceof SequenceStatement && ((SequenceStatement)body).getNbOfEnclosedStatements() == 1)
+			body = ((SequenceStatement)body).getEnclosedStatementAt(1);
+		if (body instanceof ReturnStatement)
+			return ((ReturnStatement)body).getExpression();
+		return null;
+	}
+
+	private static int getSize(Expression<?> expression) {
+		int result = 1;
+		for (Expression<?> subExpression : expression.getSubExpressions())
+			result += getSize(subExpression);
+		return result;
+	}
+
+	private static boolean containsCallOf(Expression<?> expression, Function function) {
+		if (expression instanceof FunctionCallExpression && ((FunctionCallExpression<?>)expression).getName().equals(function.getName()))
+			return true;
+		for (Expression<?> subExpression : expression.getSubExpressions()) {
+			if (containsCallOf(subExpression, function))
+				return true;
+		}
+		return false;
+	}
+}
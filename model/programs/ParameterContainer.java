@@ -45,6 +45,11 @@ public class ParameterContainer {
 		parameters.pop();
 	}
 	
+	@Basic
+	Stack<Object[]> getParameters() {
+		return this.parameters;
+	}
+	
 	/**
 	 * A stack of arrays containing the parameters for the execution of a function.
 	 */
@@ -0,0 +1,201 @@
+package asteroids.model.programs;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of ring buffers storing the values printed by a program.
+ *
+ * A buffer is either bounded or unbounded. When a value is printed while a bounded buffer is full, either the oldest value in the
+ * buffer or the printed value is dropped, depending on the drop policy of the buffer. An unbounded buffer grows instead, and never
+ * drops values. Adding to a bounded buffer, and clearing, iterating and draining any buffer do not allocate memory.
+ *
+ * @invar | isValidCapacity(getCapacity())
+ * @invar | 0 <= size() && size() <= getCapacity()
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+public class PrintBuffer {
+
+	/**
+	 * Initialize this new buffer as a bounded buffer with the given capacity and drop policy.
+	 */
+	public PrintBuffer(int capacity, DropPolicy dropPolicy) throws IllegalArgumentException {
+		if (!isValidCapacity(capacity) || dropPolicy == null)
+			throw new IllegalArgumentException();
+		this.items = new Object[capacity];
+		this.dropPolicy = dropPolicy;
+		this.bounded = true;
+	}
+
+	/**
+	 * Initialize this new buffer as an unbounded buffer.
+	 * This is the buffer of a new program executor, such that all values printed during an execution of a program are returned.
+	 */
+	public PrintBuffer() {
+		this.items = new Object[INITIAL_UNBOUNDED_LENGTH];
+		this.dropPolicy = DropPolicy.DROP_OLDEST;
+		this.bounded = false;
+	}
+
+	private static final int INITIAL_UNBOUNDED_LENGTH = 16;
+
+	/**
+	 * An enumeration of the policies deciding which value is dropped when a value is added to a full bounded buffer.
+	 */
+	public enum DropPolicy {
+		/**
+		 * The oldest value in the buffer is dropped, such that the buffer contains the most recently printed values.
+		 */
+		DROP_OLDEST,
+		/**
+		 * The added value is dropped, such that the buffer contains the first printed values.
+		 */
+		DROP_NEWEST
+	}
+
+	@Basic @Immutable
+	public DropPolicy getDropPolicy() {
+		return this.dropPolicy;
+	}
+
+	private final DropPolicy dropPolicy;
+
+	/**
+	 * Check whether this buffer drops values when it is full.
+	 */
+	@Basic @Immutable
+	public boolean isBounded() {
+		return this.bounded;
+	}
+
+	private final boolean bounded;
+
+	/**
+	 * Return the maximal number of values in this buffer, or Integer.MAX_VALUE if this buffer is unbounded.
+	 */
+	@Immutable
+	public int getCapacity() {
+		return isBounded() ? items.length : Integer.MAX_VALUE;
+	}
+
+	public static boolean isValidCapacity(int capacity) {
+		return capacity > 0;
+	}
+
+	@Basic
+	public int size() {
+		return this.size;
+	}
+
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Add the given value to this buffer, dropping a value if this buffer is bounded and full.
+	 */
+	public void add(Object item) {
+		if (size == items.length && !isBounded())
+			grow();
+		if (size == items.length) {
+			nbOfDroppedItems++;
+			if (getDropPolicy() == DropPolicy.DROP_NEWEST)
+				return;
+			items[head] = null;
+			head = next(head);
+			size--;
+		}
+		items[(head + size) % items.length] = item;
+		size++;
+	}
+
+	/**
+	 * Return the value at the given index in this buffer, where the oldest value has index 0.
+	 */
+	public Object get(int index) throws IndexOutOfBoundsException {
+		if (index < 0 || index >= size())
+			throw new IndexOutOfBoundsException();
+		return items[(head + index) % items.length];
+	}
+
+	/**
+	 * Apply the given action to all values in this buffer, from the oldest to the most recent value.
+	 */
+	public void forEach(Consumer<Object> action) {
+		for (int i = 0, index = head; i < size; i++, index = next(index))
+			action.accept(items[index]);
+	}
+
+	/**
+	 * Apply the given action to all values in this buffer, from the oldest to the most recent value, and remove them.
+	 */
+	public void drain(Consumer<Object> action) {
+		while (size > 0) {
+			Object item = items[head];
+			items[head] = null;
+			head = next(head);
+			size--;
+			action.accept(item);
+		}
+	}
+
+	/**
+	 * Return a list containing the values in this buffer, from the oldest to the most recent value.
+	 */
+	public List<Object> toList() {
+		List<Object> result = new ArrayList<>(size);
+		forEach(result::add);
+		return result;
+	}
+
+	/**
+	 * Remove all values from this buffer and reset its number of dropped values.
+	 */
+	public void clear() {
+		for (int i = 0, index = head; i < size; i++, index = next(index))
+			items[index] = null;
+		head = 0;
+		size = 0;
+		nbOfDroppedItems = 0;
+	}
+
+	/**
+	 * Return the number of values that were dropped since this buffer was last cleared.
+	 */
+	@Basic
+	public long getNbOfDroppedItems() {
+		return this.nbOfDroppedItems;
+	}
+
+	/**
+	 * Double the length of the array of this unbounded buffer, moving the oldest value to index 0.
+	 */
+	private void grow() {
+		Object[] grown = new Object[items.length * 2];
+		for (int i = 0, index = head; i < size; i++, index = next(index))
+			grown[i] = items[index];
+		items = grown;
+		head = 0;
+	}
+
+	private int next(int index) {
+		return (index + 1 == items.length) ? 0 : index + 1;
+	}
+
+	private Object[] items;
+
+	/**
+	 * The index of the oldest value in this buffer.
+	 */
+	private int head;
+
+	private int size;
+
+	private long nbOfDroppedItems;
+}
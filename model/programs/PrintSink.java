@@ -0,0 +1,26 @@
+package asteroids.model.programs;
+
+/**
+ * An interface for sinks receiving the values printed by programs, in addition to the print buffers of their program executors.
+ *
+ * A sink may be shared by several program executors, possibly executing their programs in parallel. Program executors print to
+ * the standard output until another sink is set.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+@FunctionalInterface
+public interface PrintSink {
+
+	/**
+	 * Receive the given value, printed by the program of the given executor.
+	 * This method is invoked during the execution of the program; it should return quickly.
+	 */
+	void print(ProgramExecutor executor, Object item);
+
+	/**
+	 * A sink writing the printed values, one per line, to the standard output. Each value is written synchronously.
+	 */
+	PrintSink STANDARD_OUTPUT = (executor, item) -> System.out.println(String.valueOf(item));
+}
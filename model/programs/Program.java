@@ -1,5 +1,6 @@
 package asteroids.model.programs;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
@@ -23,6 +24,7 @@ public class Program extends Executable {
 		for (Function function : functions) {
 			addFunction(function);
 		}
+		this.purityAnalyzer = new PurityAnalyzer(this);
 	}
 	
 	@Basic @Override
@@ -40,6 +42,10 @@ public class Program extends Executable {
 		return functions.get(name);
 	}
 	
+	public List<Function> getFunctions() {
+		return new ArrayList<>(functions.values());
+	}
+	
 	public boolean hasFunctionWithName(String name) {
 		return getFunctionWithName(name) != null;
 	}
@@ -63,4 +69,28 @@ public class Program extends Executable {
 	}
 	
 	private Map<String, Function> functions = new HashMap<>();
+	
+	/**
+	 * Return the analysis of the purity of the functions of this program.
+	 */
+	@Basic @Immutable
+	public PurityAnalyzer getPurityAnalyzer() {
+		return this.purityAnalyzer;
+	}
+	
+	private final PurityAnalyzer purityAnalyzer;
+	
+	/**
+	 * Check whether this program has been verified by a program verifier.
+	 */
+	@Basic
+	public boolean isVerified() {
+		return this.verified;
+	}
+	
+	void setVerified() {
+		this.verified = true;
+	}
+	
+	private volatile boolean verified;
 }
\ No newline at end of file
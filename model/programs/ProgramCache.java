@@ -0,0 +1,217 @@
+package asteroids.model.programs;
+
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+import asteroids.model.programs.expressions.*;
+import asteroids.model.programs.statements.*;
+import asteroids.part3.programs.SourceLocation;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class representing a bounded cache of analysed programs, shared by all program factories.
+ *
+ * Programs are keyed by their structure: two programs with the same functions and the same body statement, built from the same
+ * expressions and literals, share a single analysed program. This is safe since the statements and expressions of a program do
+ * not change after the program is created; all state of an execution of a program is stored in its program executor.
+ * The source locations of the nodes are part of the structure, such that programs parsed from the same source share a single
+ * analysed program.
+ * When the cache is full, the least recently used program is evicted.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ * @invar	| isValidCapacity(getCapacity())
+ */
+public class ProgramCache {
+
+	public ProgramCache(int capacity) throws IllegalArgumentException {
+		if (!isValidCapacity(capacity))
+			throw new IllegalArgumentException();
+		this.capacity = capacity;
+	}
+
+	public static final int DEFAULT_CAPACITY = 256;
+
+	/**
+	 * Return the cache shared by all program factories.
+	 */
+	public static ProgramCache getSharedCache() {
+		return sharedCache;
+	}
+
+	private static final ProgramCache sharedCache = new ProgramCache(DEFAULT_CAPACITY);
+
+	@Basic @Immutable
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	public static boolean isValidCapacity(int capacity) {
+		return capacity > 0;
+	}
+
+	private final int capacity;
+
+	/**
+	 * Return the analysed program for the given program, applying the given analysis only if no program with the same
+	 * structure was analysed with the same configuration before.
+	 *
+	 * @param program
+	 * 			The program that has been created.
+	 * @param configuration
+	 * 			A description of the analysis, such as the passes that are enabled.
+	 * @param analysis
+	 * 			The analysis to apply to the program.
+	 */
+	public Program getAnalysedProgram(Program program, String configuration, UnaryOperator<Program> analysis) throws IllegalArgumentException {
+		if (program == null || configuration == null || analysis == null)
+			throw new IllegalArgumentException();
+		Key key = new Key(configuration, program);
+		synchronized (this) {
+			Program result = programs.get(key);
+			if (result != null) {
+				nbOfHits++;
+				return result;
+			}
+			nbOfMisses++;
+		}
+		// The analysis is executed without holding the lock; if another thread analysed the same program in the meantime,
+		// the program analysed first is kept.
+		Program analysed = analysis.apply(program);
+		synchronized (this) {
+			Program result = programs.putIfAbsent(key, analysed);
+			return (result == null) ? analysed : result;
+		}
+	}
+
+	public synchronized int getNbOfPrograms() {
+		return programs.size();
+	}
+
+	public synchronized long getNbOfHits() {
+		return this.nbOfHits;
+	}
+
+	public synchronized long getNbOfMisses() {
+		return this.nbOfMisses;
+	}
+
+	public synchronized long getNbOfEvictions() {
+		return this.nbOfEvictions;
+	}
+
+	public synchronized void clear() {
+		programs.clear();
+	}
+
+	private long nbOfHits;
+
+	private long nbOfMisses;
+
+	private long nbOfEvictions;
+
+	/**
+	 * A map containing the analysed programs, ordered from least to most recently used.
+	 */
+	private final Map<Key, Program> programs = new LinkedHashMap<Key, Program>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Key, Program> eldest) {
+			if (size() > getCapacity()) {
+				nbOfEvictions++;
+				return true;
+			}
+			return false;
+		}
+
+		private static final long serialVersionUID = 1L;
+	};
+
+	/**
+	 * A class of keys describing the structure of a program.
+	 */
+	private static final class Key {
+
+		private Key(String configuration, Program program) {
+			StringBuilder builder = new StringBuilder(configuration).append('|');
+			List<Function> functions = program.getFunctions();
+			functions.sort(Comparator.comparing(Function::getName));
+			for (Function function : functions) {
+				builder.append("def ").append(function.getName());
+				describe(function.getSourceLocation(), builder);
+				builder.append(' ');
+				describe(function.getBodyStatement(), builder);
+			}
+			describe(program.getBodyStatement(), builder);
+			this.description = builder.toString();
+			this.hash = description.hashCode();
+		}
+
+		private final String description;
+
+		private final int hash;
+
+		@Override
+		public boolean equals(Object other) {
+			return (other instanceof Key) && ((Key)other).hash == hash && ((Key)other).description.equals(description);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		private static void describe(Statement statement, StringBuilder builder) {
+			builder.append(statement.getClass().getSimpleName());
+			describe(statement.getSourceLocation(), builder);
+			builder.append('(');
+			if (statement instanceof AssignmentStatement)
+				builder.append(((AssignmentStatement)statement).getVariableName()).append(',');
+			if (statement instanceof SingleExpressionStatement)
+				describe(((SingleExpressionStatement<?>)statement).getExpression(), builder);
+			if (statement instanceof SequenceStatement) {
+				for (int i = 1; i <= ((SequenceStatement)statement).getNbOfEnclosedStatements(); i++)
+					describe(((SequenceStatement)statement).getEnclosedStatementAt(i), builder);
+			}
+			else if (statement instanceof WhileStatement)
+				describe(((WhileStatement)statement).getBodyStatement(), builder);
+			else if (statement instanceof IfThenElseStatement) {
+				describe(((IfThenElseStatement)statement).getIfStatement(), builder);
+				if (((IfThenElseStatement)statement).getElseStatement() != null)
+					describe(((IfThenElseStatement)statement).getElseStatement(), builder);
+			}
+			builder.append(')');
+		}
+
+		private static void describe(Expression<?> expression, StringBuilder builder) {
+			builder.append(expression.getClass().getSimpleName());
+			describe(expression.getSourceLocation(), builder);
+			builder.append('(');
+			if (expression instanceof ConstantExpression)
+				builder.append(Long.toHexString(Double.doubleToRawLongBits(((ConstantExpression)expression).getValue())));
+			else if (expression instanceof BooleanConstantExpression)
+				builder.append(((BooleanConstantExpression)expression).getValue());
+			else if (expression instanceof UnknownTypeExpression)
+				builder.append(((UnknownTypeExpression<?>)expression).getName()).append(',');
+			else if (expression instanceof InlinedFunctionCallExpression)
+				builder.append(((InlinedFunctionCallExpression<?>)expression).getName()).append(',');
+			else if (expression instanceof NearestEntityExpression)
+				builder.append(((NearestEntityExpression)expression).getEntityType().getName());
+			for (Expression<?> subExpression : expression.getSubExpressions())
+				describe(subExpression, builder);
+			builder.append(')');
+		}
+
+		/**
+		 * Describe the given source location, such that the analysed program of a cached program reports the source locations of
+		 * the program that is looked up.
+		 */
+		private static void describe(SourceLocation location, StringBuilder builder) {
+			if (location != null)
+				builder.append('@').append(location.getLine()).append(':').append(location.getColumn());
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package asteroids.model.programs;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events registering a single execution of the program of a ship.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+@Name("asteroids.ProgramExecution")
+@Label("Program Execution")
+@Category({"Asteroids", "Programs"})
+@Description("An execution of the program of a ship during a given duration")
+class ProgramExecutionEvent extends jdk.jfr.Event {
+
+	@Label("Ship")
+	@Description("The identity of the ship executing the program")
+	String ship;
+
+	@Label("Simulated Duration")
+	@Description("The execution time given to the program, in simulated seconds")
+	double simulatedDuration;
+
+	@Label("Held")
+	@Description("Whether the execution ended holding at an action or at the instruction budget, rather than finishing the program")
+	boolean held;
+
+	@Label("Statements Executed")
+	long nbOfExecutedInstructions;
+}
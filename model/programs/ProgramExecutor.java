@@ -1,11 +1,18 @@
 package asteroids.model.programs;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Stack;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 
 import asteroids.model.exceptions.IllegalMethodCallException;
 import asteroids.model.exceptions.programExceptions.HoldException;
+import asteroids.model.exceptions.programExceptions.InstructionBudgetExceededException;
 import asteroids.model.representation.Ship;
 import be.kuleuven.cs.som.annotate.*;
 
@@ -114,7 +121,16 @@ public class ProgramExecutor {
 		currentExecutionScope.remove(currentExecutionScope.size() - 1);
 	}
 	
+	/**
+	 * Check whether this executor is executing the body of a function.
+	 */
+	public boolean isExecutingFunction() {
+		return getExecutionStack().size() > 1;
+	}
+	
 	public void addExecutionScope() {
+		if (!isExecutingFunction())
+			functionCallStart = nbOfExecutedInstructions;
 		getExecutionStack().push(new ArrayList<Integer>());
 	}
 	
@@ -129,7 +145,7 @@ public class ProgramExecutor {
 		executionStack.push(new ArrayList<>());
 	}
 	@Basic @Model
-	private Stack<List<Integer>> getExecutionStack() {
+	Stack<List<Integer>> getExecutionStack() {
 		return this.executionStack;
 	}
 	
@@ -144,7 +160,7 @@ public class ProgramExecutor {
 		return (duration >= 0) && Double.isFinite(duration);
 	}
 	
-	private void setRemainingExecutionTime(double newRemainingTime) throws IllegalArgumentException {
+	void setRemainingExecutionTime(double newRemainingTime) throws IllegalArgumentException {
 		if (!isValidRemainingExecutionTime(newRemainingTime))
 			throw new IllegalArgumentException();
 		this.remainingExecutionTime = newRemainingTime;
@@ -168,20 +184,69 @@ public class ProgramExecutor {
 	
 	private double remainingExecutionTime;
 	
-	@Basic
+	/**
+	 * Return a new list of the values printed during the current execution of the program of this executor that are still in
+	 * its print buffer. The list is copied, since the buffer is reused by the next execution of the program.
+	 */
 	public List<Object> getPrintList() {
-		return new ArrayList<>(printList);
+		return getPrintBuffer().toList();
 	}
 	
+	/**
+	 * Register the given value as printed by the program of this executor.
+	 * The value is added to the print buffer of this executor and passed to its print sink, if any.
+	 */
 	public void addToPrintList(Object item) {
-		printList.add(item);
+		getPrintBuffer().add(item);
+		if (getPrintSink() != null)
+			getPrintSink().print(this, item);
 	}
 	
 	private void resetPrintList() {
-		printList = new ArrayList<>();
+		getPrintBuffer().clear();
+	}
+	
+	/**
+	 * Return the buffer containing the values printed during the current execution of the program of this executor.
+	 */
+	@Basic
+	public PrintBuffer getPrintBuffer() {
+		return this.printBuffer;
+	}
+	
+	/**
+	 * Set the print buffer of this executor to the given buffer.
+	 * If the given buffer is bounded, the values it drops are not part of the list returned by executeProgram().
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			| buffer == null
+	 */
+	public void setPrintBuffer(PrintBuffer buffer) throws IllegalArgumentException {
+		if (buffer == null)
+			throw new IllegalArgumentException();
+		this.printBuffer = buffer;
+	}
+	
+	private PrintBuffer printBuffer = new PrintBuffer();
+	
+	/**
+	 * Return the sink receiving all values printed by the program of this executor, or null if there is none.
+	 * The sink of a new executor writes to the standard output.
+	 */
+	@Basic
+	public PrintSink getPrintSink() {
+		return this.printSink;
+	}
+	
+	/**
+	 * Set the print sink of this executor to the given sink. If the given sink is not effective, the printed values are only
+	 * added to the print buffer of this executor.
+	 */
+	public void setPrintSink(PrintSink sink) {
+		this.printSink = sink;
 	}
 	
-	private List<Object> printList = new ArrayList<>();
+	private PrintSink printSink = PrintSink.STANDARD_OUTPUT;
 	
 	public VariableContainer getVariableContainer() {
 		return this.variableContainer;
@@ -213,7 +278,37 @@ public class ProgramExecutor {
 	}
 	
 	public List<Object> executeProgram(double duration) {
+		ProgramExecutionEvent event = new ProgramExecutionEvent();
+		event.begin();
+		long nbOfExecutedInstructions = getTotalNbOfExecutedInstructions();
+		List<Object> result = executeProgramBody(duration);
+		if (event.shouldCommit()) {
+			event.ship = (getShip() == null) ? null : "Ship@" + Integer.toHexString(System.identityHashCode(getShip()));
+			event.simulatedDuration = duration;
+			event.held = (result == null);
+			event.nbOfExecutedInstructions = getTotalNbOfExecutedInstructions() - nbOfExecutedInstructions;
+			event.commit();
+		}
+		return result;
+	}
+	
+	private List<Object> executeProgramBody(double duration) {
+		nbOfExecutions++;
+		if (isAborted())
+			// An aborted program is never resumed.
+			return null;
 		increaseRemainingExecutionTime(duration);
+		if (!isProgramFinished() && getPendingActionTime() > getRemainingExecutionTime()) {
+			// The program would immediately hold again at the same action; the given duration is only banked.
+			nbOfCoalescedExecutions++;
+			nbOfHolds++;
+			return null;
+		}
+		setPendingActionTime(0);
+		// The state of the world has changed since the previous execution.
+		clearFunctionCache();
+		currentInstructionBudget = getInstructionBudget();
+		nbOfExecutedInstructions = 0;
 		if (isProgramFinished())
 			this.reset();
 		try {
@@ -223,19 +318,355 @@ public class ProgramExecutor {
 			return getPrintList();
 		}
 		catch (HoldException exc) {
-			//The program did not terminate, but an action had to be executed for which not enough time was available.
+			//The program did not terminate, but an action had to be executed for which not enough time was available, or the
+			// instruction budget was exhausted.
+			if (!isAborted())
+				nbOfHolds++;
 			return null;
 		}
 	}
 	
+	/**
+	 * Return the number of executions of the program of this executor since this executor was created.
+	 */
+	@Basic
+	public long getNbOfExecutions() {
+		return this.nbOfExecutions;
+	}
+	
+	private long nbOfExecutions;
+	
+	/**
+	 * Return the number of executions of the program of this executor that ended holding at an action or at the instruction budget,
+	 * including the executions that only banked their duration.
+	 */
+	@Basic
+	public long getNbOfHolds() {
+		return this.nbOfHolds;
+	}
+	
+	private long nbOfHolds;
+	
 	private final Program program;
 	
+	/**
+	 * Return the time needed to execute the action at which the program of this executor is holding, or zero if the program
+	 * is not holding at an action.
+	 * The program is not resumed before this much execution time is available: resuming it earlier would only descend to that
+	 * action again and hold.
+	 */
+	@Basic
+	public double getPendingActionTime() {
+		return this.pendingActionTime;
+	}
+	
+	/**
+	 * Register that the program of this executor holds at an action needing the given time to execute.
+	 */
+	public void setPendingActionTime(double time) throws IllegalArgumentException {
+		if (time < 0 || !Double.isFinite(time))
+			throw new IllegalArgumentException();
+		this.pendingActionTime = time;
+	}
+	
+	private double pendingActionTime;
+	
+	/**
+	 * Return the number of executions of the program of this executor that only banked their duration because not enough
+	 * time was available to execute the pending action.
+	 */
+	@Basic
+	public long getNbOfCoalescedExecutions() {
+		return this.nbOfCoalescedExecutions;
+	}
+	
+	private long nbOfCoalescedExecutions;
+	
+	/**
+	 * Let the ship of this executor perform the given command.
+	 * If this executor is deferring commands, the command is stored and only performed when the deferred commands are applied.
+	 */
+	public void performCommand(Consumer<Ship> command) throws IllegalArgumentException {
+		if (command == null)
+			throw new IllegalArgumentException();
+		if (isDeferringCommands())
+			deferredCommands.add(command);
+		else
+			command.accept(getShip());
+	}
+	
+	/**
+	 * Perform all deferred commands in the order in which they were given and stop deferring commands.
+	 * Commands given to a ship that is terminated in the meantime are discarded.
+	 */
+	public void applyDeferredCommands() {
+		setDeferringCommands(false);
+		for (Consumer<Ship> command : deferredCommands) {
+			if (getShip() == null || getShip().isTerminated())
+				break;
+			command.accept(getShip());
+		}
+		deferredCommands.clear();
+	}
+	
+	/**
+	 * Discard all deferred commands and stop deferring commands.
+	 */
+	public void discardDeferredCommands() {
+		setDeferringCommands(false);
+		deferredCommands.clear();
+	}
+	
+	/**
+	 * Check whether this executor stores the commands of its program instead of performing them immediately.
+	 * Commands are deferred while programs are executed in parallel against an unchanging world.
+	 */
+	@Basic
+	public boolean isDeferringCommands() {
+		return this.deferringCommands;
+	}
+	
+	public void setDeferringCommands(boolean flag) {
+		this.deferringCommands = flag;
+	}
+	
+	private boolean deferringCommands;
+	
+	private final List<Consumer<Ship>> deferredCommands = new ArrayList<>();
+	
+	/**
+	 * Return the profiler registering the execution of the program of this executor, or null if the program is not profiled.
+	 */
+	@Basic
+	public ProgramProfiler getProfiler() {
+		return this.profiler;
+	}
+	
+	/**
+	 * Set the profiler of this executor to the given profiler. Profiling is disabled if the given profiler is null.
+	 */
+	public void setProfiler(ProgramProfiler profiler) {
+		this.profiler = profiler;
+	}
+	
+	private ProgramProfiler profiler;
+	
+	/**
+	 * Return the source of randomness used by the expressions of the program of this executor.
+	 * If no source has been set, a thread-local source is used.
+	 */
+	public Random getRandom() {
+		return (random != null) ? random : ThreadLocalRandom.current();
+	}
+	
+	/**
+	 * Set the source of randomness of this executor to the given source.
+	 * If the given source is not effective, a thread-local source is used.
+	 */
+	public void setRandom(Random random) {
+		this.random = random;
+	}
+	
+	/**
+	 * Return the source of randomness of this executor, or null if it uses the source of the current thread.
+	 */
+	@Basic
+	Random getOwnRandom() {
+		return this.random;
+	}
+	
+	private Random random;
+	
+	/**
+	 * Return the maximal number of statements the program of this executor may execute during a single execution.
+	 * The budget of the ship of this executor applies if it is effective, otherwise the budget of the world of that ship applies if
+	 * it is effective. If neither budget is effective, the default budget applies.
+	 */
+	public long getInstructionBudget() {
+		if (getShip() != null && getShip().getInstructionBudget() > 0)
+			return getShip().getInstructionBudget();
+		if (getShip() != null && getShip().getWorld() != null && getShip().getWorld().getInstructionBudget() > 0)
+			return getShip().getWorld().getInstructionBudget();
+		return DEFAULT_INSTRUCTION_BUDGET;
+	}
+	
+	public static final long DEFAULT_INSTRUCTION_BUDGET = 1000000;
+	
+	/**
+	 * Register the execution of a statement of the program of this executor.
+	 * The execution of the body of the program is suspended when the budget is exhausted. A function call cannot be suspended,
+	 * since its scopes are discarded, hence a function call that started is completed unless it executes more statements than the
+	 * budget allows on its own, including the statements of the calls it makes. Such a call cannot be completed in any execution,
+	 * so the program is aborted instead.
+	 * 
+	 * @throws InstructionBudgetExceededException
+	 * 			The program has already executed as many statements as its budget allows during the current execution,
+	 * 			and no function is being executed.
+	 * 			| getNbOfExecutedInstructions() >= getInstructionBudget() && ! isExecutingFunction()
+	 * 			The execution is suspended like for an action for which not enough time is left, and it is resumed at the same
+	 * 			statement during the next execution.
+	 * @throws InstructionBudgetExceededException
+	 * 			The function call being executed has executed as many statements as the budget allows.
+	 * 			The program is aborted.
+	 * 			| isExecutingFunction() && (the number of statements executed since the call started >= getInstructionBudget())
+	 */
+	public void countInstruction() throws InstructionBudgetExceededException {
+		if (isExecutingFunction() ? (nbOfExecutedInstructions - functionCallStart >= currentInstructionBudget) :
+				(nbOfExecutedInstructions >= currentInstructionBudget)) {
+			nbOfBudgetExhaustions++;
+			if (isExecutingFunction())
+				aborted = true;
+			throw new InstructionBudgetExceededException();
+		}
+		nbOfExecutedInstructions++;
+		totalNbOfExecutedInstructions++;
+	}
+	
+	/**
+	 * Check whether the program of this executor has been aborted because a function call exceeded the instruction budget.
+	 * An aborted program is not executed anymore: every later execution returns null.
+	 */
+	@Basic
+	public boolean isAborted() {
+		return this.aborted;
+	}
+	
+	void setAborted(boolean flag) {
+		this.aborted = flag;
+	}
+	
+	private boolean aborted;
+	
+	/**
+	 * The number of statements executed during the current execution when the outermost function call being executed started.
+	 */
+	private long functionCallStart;
+	
+	/**
+	 * Return the number of statements executed during the current (or last) execution of the program of this executor.
+	 */
+	@Basic
+	public long getNbOfExecutedInstructions() {
+		return this.nbOfExecutedInstructions;
+	}
+	
+	/**
+	 * Return the number of statements executed by this executor since it was created.
+	 */
+	@Basic
+	public long getTotalNbOfExecutedInstructions() {
+		return this.totalNbOfExecutedInstructions;
+	}
+	
+	/**
+	 * Return the number of executions of the program of this executor that were suspended because the instruction budget was exhausted.
+	 */
+	@Basic
+	public long getNbOfBudgetExhaustions() {
+		return this.nbOfBudgetExhaustions;
+	}
+	
+	private long currentInstructionBudget = DEFAULT_INSTRUCTION_BUDGET;
+	
+	private long nbOfExecutedInstructions;
+	
+	private long totalNbOfExecutedInstructions;
+	
+	private long nbOfBudgetExhaustions;
+	
+	/**
+	 * Return the result of the given function for the given arguments.
+	 * The results of memoizable functions are cached until the state of the world may have changed, i.e. until the next
+	 * execution of the program or until an action changing the ship is executed. Results of functions reading variables are
+	 * only reused as long as no global variables are assigned.
+	 */
+	public Object evaluateFunction(Function function, Object[] arguments) throws IllegalMethodCallException, HoldException,
+			IndexOutOfBoundsException, IllegalArgumentException, ArithmeticException {
+		if (function == null || getProfiler() == null)
+			return evaluateFunctionUsingCache(function, arguments);
+		getProfiler().enter(function);
+		try {
+			return evaluateFunctionUsingCache(function, arguments);
+		}
+		finally {
+			getProfiler().exit();
+		}
+	}
+	
+	private Object evaluateFunctionUsingCache(Function function, Object[] arguments) throws IllegalMethodCallException, HoldException,
+			IndexOutOfBoundsException, IllegalArgumentException, ArithmeticException {
+		if (function == null || !isMemoizing() || !getProgram().getPurityAnalyzer().isMemoizable(function))
+			return function.evaluate(this, arguments);
+		List<Object> key = new ArrayList<>(arguments.length + 1);
+		key.add(function);
+		key.addAll(Arrays.asList(arguments));
+		CachedResult cached = functionCache.get(key);
+		long version = getProgram().getPurityAnalyzer().readsVariables(function) ? getVariableContainer().getNbOfGlobalAssignments() : -1;
+		if (cached != null && cached.version == version) {
+			function.registerCacheHit();
+			// A function call never returns a double that is used elsewhere, hence the result is copied.
+			return (cached.value instanceof Double) ? Double.valueOf(((Double)cached.value).doubleValue()) : cached.value;
+		}
+		function.registerCacheMiss();
+		Object result = function.evaluate(this, arguments);
+		if (functionCache.size() >= MAXIMAL_FUNCTION_CACHE_SIZE)
+			clearFunctionCache();
+		functionCache.put(key, new CachedResult(result, version));
+		return result;
+	}
+	
+	/**
+	 * Check whether this program executor memoizes the results of memoizable functions.
+	 */
+	@Basic
+	public boolean isMemoizing() {
+		return this.memoizing;
+	}
+	
+	public void setMemoizing(boolean flag) {
+		this.memoizing = flag;
+		clearFunctionCache();
+	}
+	
+	private boolean memoizing = true;
+	
+	/**
+	 * Remove all memoized function results of this program executor.
+	 */
+	public void clearFunctionCache() {
+		if (!functionCache.isEmpty())
+			functionCache.clear();
+	}
+	
+	/**
+	 * A map containing the memoized results of function calls. The keys are lists containing the called function followed by its
+	 * arguments.
+	 */
+	private final Map<List<Object>, CachedResult> functionCache = new HashMap<>();
+	
+	public static final int MAXIMAL_FUNCTION_CACHE_SIZE = 1024;
+	
+	private static class CachedResult {
+		
+		private CachedResult(Object value, long version) {
+			this.value = value;
+			this.version = version;
+		}
+		
+		private final Object value;
+		
+		/**
+		 * The number of global assignments at the time the result was computed, or -1 if the result does not depend on variables.
+		 */
+		private final long version;
+	}
+	
 	@Basic @Raw
 	public boolean isProgramFinished() {
 		return programFinished;
 	}
 	
-	private void setProgramFinished(boolean flag) {
+	void setProgramFinished(boolean flag) {
 		programFinished = flag;
 	}
 	
@@ -15,200 +15,284 @@ public class ProgramFactory implements IProgramFactory<Expression, Statement, Fu
 
 	@Override
 	public Program createProgram(List<Function> functions, Statement main) {
-		return new Program(main, functions);
+		Program program = new Program(main, functions);
+		if (!isCaching())
+			return analyse(program);
+		String configuration = "inlining=" + isInlining() + ",optimizing=" + isOptimizing() + ",verifying=" + isVerifying();
+		return ProgramCache.getSharedCache().getAnalysedProgram(program, configuration, this::analyse);
+	}
+	
+	private Program analyse(Program program) {
+		if (isInlining())
+			program = new FunctionInliner().transform(program);
+		if (isOptimizing())
+			program = new ProgramOptimizer(isVerifying()).transform(program);
+		return program;
+	}
+	
+	/**
+	 * Return whether programs created by this factory with the same structure as a program created before share a single
+	 * analysed program.
+	 */
+	public boolean isCaching() {
+		return this.caching;
+	}
+	
+	public void setCaching(boolean flag) {
+		this.caching = flag;
+	}
+	
+	private boolean caching = true;
+	
+	/**
+	 * Return whether calls of small functions are inlined in the programs created by this factory.
+	 */
+	public boolean isInlining() {
+		return this.inlining;
+	}
+	
+	public void setInlining(boolean flag) {
+		this.inlining = flag;
+	}
+	
+	private boolean inlining = true;
+	
+	/**
+	 * Return whether the programs created by this factory are optimized when they are created.
+	 */
+	public boolean isOptimizing() {
+		return this.optimizing;
+	}
+	
+	public void setOptimizing(boolean flag) {
+		this.optimizing = flag;
+	}
+	
+	private boolean optimizing = true;
+	
+	/**
+	 * Return whether the optimized programs created by this factory check each optimized expression against the unoptimized
+	 * expression at run time.
+	 */
+	public boolean isVerifying() {
+		return this.verifying;
+	}
+	
+	public void setVerifying(boolean flag) {
+		this.verifying = flag;
+	}
+	
+	private boolean verifying = false;
+	
+	/**
+	 * Give the given node the given source location and return it.
+	 */
+	private static Statement withSourceLocation(Statement statement, SourceLocation location) {
+		statement.setSourceLocation(location);
+		return statement;
+	}
+	
+	private static Expression withSourceLocation(Expression expression, SourceLocation location) {
+		expression.setSourceLocation(location);
+		return expression;
+	}
+	
+	private static Function withSourceLocation(Function function, SourceLocation location) {
+		function.setSourceLocation(location);
+		return function;
 	}
 
 	@Override
 	public Function createFunctionDefinition(String functionName, Statement body, SourceLocation sourceLocation) {
-		return new Function(functionName, body);
+		return withSourceLocation(new Function(functionName, body), sourceLocation);
 	}
 
 	@Override
 	public Statement createAssignmentStatement(String variableName, Expression value,
 			SourceLocation sourceLocation) {
-		return new AssignmentStatement(variableName, value);
+		return withSourceLocation(new AssignmentStatement(variableName, value), sourceLocation);
 	}
 
 	@Override
 	public Statement createWhileStatement(Expression condition, Statement body, SourceLocation sourceLocation) {
-		return new WhileStatement(condition, body);
+		return withSourceLocation(new WhileStatement(condition, body), sourceLocation);
 	}
 
 	@Override
 	public Statement createBreakStatement(SourceLocation sourceLocation) {
-		return new BreakStatement();
+		return withSourceLocation(new BreakStatement(), sourceLocation);
 	}
 
 	@Override
 	public Statement createReturnStatement(Expression value, SourceLocation sourceLocation) {
-		return new ReturnStatement(value);
+		return withSourceLocation(new ReturnStatement(value), sourceLocation);
 	}
 
 	@Override
 	public Statement createIfStatement(Expression condition, Statement ifBody, Statement elseBody,
 			SourceLocation sourceLocation) {
-		return new IfThenElseStatement(condition, ifBody, elseBody);
+		return withSourceLocation(new IfThenElseStatement(condition, ifBody, elseBody), sourceLocation);
 	}
 
 	@Override
 	public Statement createPrintStatement(Expression value, SourceLocation sourceLocation) {
-		return new PrintStatement(value);
+		return withSourceLocation(new PrintStatement(value), sourceLocation);
 	}
 
 	@Override
 	public Statement createSequenceStatement(List<Statement> statements, SourceLocation sourceLocation) {
-		return new SequenceStatement(statements.toArray(new Statement[] {}));
+		return withSourceLocation(new SequenceStatement(statements.toArray(new Statement[] {})), sourceLocation);
 	}
 
 	@Override
 	public Expression createReadVariableExpression(String variableName, SourceLocation sourceLocation) {
-		return new ReadVariableExpression<>(variableName);
+		return withSourceLocation(new ReadVariableExpression<>(variableName), sourceLocation);
 	}
 
 	@Override
 	public Expression createReadParameterExpression(String parameterName, SourceLocation sourceLocation) {
-		return new ReadParameterExpression<>(parameterName);
+		return withSourceLocation(new ReadParameterExpression<>(parameterName), sourceLocation);
 	}
 
 	@Override
 	public Expression createFunctionCallExpression(String functionName, List<Expression> actualArgs,
 			SourceLocation sourceLocation) {
-		return new FunctionCallExpression<>(functionName, actualArgs.toArray(new Expression[] {}));
+		return withSourceLocation(new FunctionCallExpression<>(functionName, actualArgs.toArray(new Expression[] {})), sourceLocation);
 	}
 
 	@Override
 	public Expression<Double> createChangeSignExpression(Expression expression, SourceLocation sourceLocation) {
-		return new ChangeSignExpression(expression);
+		return withSourceLocation(new ChangeSignExpression(expression), sourceLocation);
 	}
 
 	@Override
 	public Expression<Boolean> createNotExpression(Expression expression, SourceLocation sourceLocation) {
-		return new NotExpression(expression);
+		return withSourceLocation(new NotExpression(expression), sourceLocation);
 	}
 
 	@Override
 	public Expression<Double> createDoubleLiteralExpression(double value, SourceLocation location) {
-		return new ConstantExpression(value);
+		return withSourceLocation(new ConstantExpression(value), location);
 	}
 
 	@Override
 	public Expression<Entity> createNullExpression(SourceLocation location) {
-		return new NullExpression();
+		return withSourceLocation(new NullExpression(), location);
 	}
 
 	@Override
 	public Expression<Entity> createSelfExpression(SourceLocation location) {
-		return new SelfExpression();
+		return withSourceLocation(new SelfExpression(), location);
 	}
 
 	@Override
 	public Expression<Entity> createShipExpression(SourceLocation location) {
-		return new NearestEntityExpression(Ship.class);
+		return withSourceLocation(new NearestEntityExpression(Ship.class), location);
 	}
 
 	@Override
 	public Expression<Entity> createAsteroidExpression(SourceLocation location) {
-		return new NearestEntityExpression(Asteroid.class);
+		return withSourceLocation(new NearestEntityExpression(Asteroid.class), location);
 	}
 
 	@Override
 	public Expression<Entity> createPlanetoidExpression(SourceLocation location) {
-		return new NearestEntityExpression(Planetoid.class);
+		return withSourceLocation(new NearestEntityExpression(Planetoid.class), location);
 	}
 
 	@Override
 	public Expression<Bullet> createBulletExpression(SourceLocation location) {
-		return new BulletExpression();
+		return withSourceLocation(new BulletExpression(), location);
 	}
 
 	@Override
 	public Expression<Entity> createPlanetExpression(SourceLocation location) {
-		return new NearestEntityExpression(MinorPlanet.class);
+		return withSourceLocation(new NearestEntityExpression(MinorPlanet.class), location);
 	}
 
 	@Override
 	public Expression<Entity> createAnyExpression(SourceLocation location) {
-		return new AnyExpression();
+		return withSourceLocation(new AnyExpression(), location);
 	}
 
 	@Override
 	public Expression<Double> createGetXExpression(Expression e, SourceLocation location) {
-		return new GetXExpression(e);
+		return withSourceLocation(new GetXExpression(e), location);
 	}
 
 	@Override
 	public Expression<Double> createGetYExpression(Expression e, SourceLocation location) {
-		return new GetYExpression(e);
+		return withSourceLocation(new GetYExpression(e), location);
 	}
 
 	@Override
 	public Expression<Double> createGetVXExpression(Expression e, SourceLocation location) {
-		return new GetVxExpression(e);
+		return withSourceLocation(new GetVxExpression(e), location);
 	}
 
 	@Override
 	public Expression<Double> createGetVYExpression(Expression e, SourceLocation location) {
-		return new GetVyExpression(e);
+		return withSourceLocation(new GetVyExpression(e), location);
 	}
 
 	@Override
 	public Expression<Double> createGetRadiusExpression(Expression e, SourceLocation location) {
-		return new GetRadiusExpression(e);
+		return withSourceLocation(new GetRadiusExpression(e), location);
 	}
 
 	@Override
 	public Expression<Boolean> createLessThanExpression(Expression e1, Expression e2, SourceLocation location) {
-		return new LessThanExpression(e1, e2);
+		return withSourceLocation(new LessThanExpression(e1, e2), location);
 	}
 
 	@Override
 	public Expression<Boolean> createEqualityExpression(Expression e1, Expression e2, SourceLocation location) {
-		return new EqualityExpression(e1, e2);
+		return withSourceLocation(new EqualityExpression(e1, e2), location);
 	}
 
 	@Override
 	public Expression<Double> createAdditionExpression(Expression e1, Expression e2, SourceLocation location) {
-		return new AdditionExpression(e1, e2);
+		return withSourceLocation(new AdditionExpression(e1, e2), location);
 	}
 
 	@Override
 	public Expression<Double> createMultiplicationExpression(Expression e1, Expression e2, SourceLocation location) {
-		return new MultiplicationExpression(e1, e2);
+		return withSourceLocation(new MultiplicationExpression(e1, e2), location);
 	}
 
 	@Override
 	public Expression<Double> createSqrtExpression(Expression e, SourceLocation location) {
-		return new SquareRootExpression(e);
+		return withSourceLocation(new SquareRootExpression(e), location);
 	}
 
 	@Override
 	public Expression<Double> createGetDirectionExpression(SourceLocation location) {
-		return new GetDirExpression();
+		return withSourceLocation(new GetDirExpression(), location);
 	}
 
 	@Override
 	public Statement createThrustOnStatement(SourceLocation location) {
-		return new ThrustOnAction();
+		return withSourceLocation(new ThrustOnAction(), location);
 	}
 
 	@Override
 	public Statement createThrustOffStatement(SourceLocation location) {
-		return new ThrustOffAction();
+		return withSourceLocation(new ThrustOffAction(), location);
 	}
 
 	@Override
 	public Statement createFireStatement(SourceLocation location) {
-		return new FireAction();
+		return withSourceLocation(new FireAction(), location);
 	}
 
 	@Override
 	public Statement createTurnStatement(Expression angle, SourceLocation location) {
-		return new TurnAction(angle);
+		return withSourceLocation(new TurnAction(angle), location);
 	}
 
 	@Override
 	public Statement createSkipStatement(SourceLocation location) {
-		return new SkipAction();
+		return withSourceLocation(new SkipAction(), location);
 	}
 
 }
@@ -0,0 +1,277 @@
+package asteroids.model.programs;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import asteroids.model.programs.expressions.*;
+import asteroids.model.programs.statements.*;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class representing an optimizing pass over a program, executed once when the program is created.
+ *
+ * The optimizer folds constant expressions, removes branches of if-then-else statements that can never be executed, simplifies
+ * double negations and hoists loop-invariant subexpressions of the condition of while statements out of the loop.
+ *
+ * In verifying mode, every expression that is folded, simplified or replaced by a hoisted variable is wrapped in a verified
+ * expression that also evaluates the unoptimized expression at run time, and throws an IllegalStateException if the values differ.
+ * Expressions that call functions or pick random entities are not wrapped, since evaluating them twice would change the
+ * execution. Because folded conditions are wrapped as well, branches and loops with constant conditions are not removed in
+ * verifying mode: their conditions are checked each time they are evaluated instead.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class ProgramOptimizer extends ProgramTransformer {
+
+	public ProgramOptimizer(boolean verifying) {
+		this.verifying = verifying;
+	}
+
+	public ProgramOptimizer() {
+		this(false);
+	}
+
+	@Basic @Immutable
+	public boolean isVerifying() {
+		return this.verifying;
+	}
+
+	private final boolean verifying;
+
+	@Override
+	public Program transform(Program program) throws IllegalArgumentException {
+		nbOfHoistedExpressions = 0;
+		return super.transform(program);
+	}
+
+	@Override
+	protected Statement transformStatement(Statement statement) throws IllegalArgumentException {
+		return withSourceLocationOf(optimizeStatement(statement), statement);
+	}
+
+	private Statement optimizeStatement(Statement statement) throws IllegalArgumentException {
+		if (statement instanceof SequenceStatement) {
+			SequenceStatement sequence = (SequenceStatement)statement;
+			List<Statement> enclosedStatements = new ArrayList<>();
+			for (int i = 1; i <= sequence.getNbOfEnclosedStatements(); i++) {
+				Statement enclosed = sequence.getEnclosedStatementAt(i);
+				boolean isLast = (i == sequence.getNbOfEnclosedStatements());
+				// A sequence statement must contain at least one statement.
+				if (!isNeverExecuted(enclosed) || (isLast && enclosedStatements.isEmpty()))
+					addToSequence(enclosedStatements, transformStatement(enclosed));
+			}
+			return new SequenceStatement(enclosedStatements.toArray(new Statement[] {}));
+		}
+		if (statement instanceof IfThenElseStatement) {
+			IfThenElseStatement ifStatement = (IfThenElseStatement)statement;
+			Expression<?> condition = transformExpression(ifStatement.getExpression());
+			if (condition instanceof BooleanConstantExpression) {
+				boolean value = ((BooleanConstantExpression)condition).getValue();
+				if (value)
+					return transformStatement(ifStatement.getIfStatement());
+				if (ifStatement.getElseStatement() != null)
+					return transformStatement(ifStatement.getElseStatement());
+			}
+			return new IfThenElseStatement((Expression<Boolean>)condition, transformStatement(ifStatement.getIfStatement()),
+					ifStatement.getElseStatement() == null ? null : transformStatement(ifStatement.getElseStatement()));
+		}
+		if (statement instanceof WhileStatement) {
+			WhileStatement whileStatement = (WhileStatement)statement;
+			List<Statement> hoistedAssignments = new ArrayList<>();
+			Expression<?> condition = hoistLoopInvariants(transformExpression(whileStatement.getExpression()),
+					getAssignedVariableNames(whileStatement.getBodyStatement()), hoistedAssignments);
+			WhileStatement result = new WhileStatement((Expression<Boolean>)condition, transformStatement(whileStatement.getBodyStatement()));
+			if (hoistedAssignments.isEmpty())
+				return result;
+			hoistedAssignments.add(result);
+			return new SequenceStatement(hoistedAssignments.toArray(new Statement[] {}));
+		}
+		return super.transformStatement(statement);
+	}
+
+	/**
+	 * Check whether the given statement can never be executed, i.e. whether it is an if-then-else statement without else statement
+	 * or a while statement whose condition always evaluates to false.
+	 */
+	private boolean isNeverExecuted(Statement statement) {
+		if ((statement instanceof IfThenElseStatement && ((IfThenElseStatement)statement).getElseStatement() == null)
+				|| statement instanceof WhileStatement) {
+			Expression<?> condition = transformExpression(((SingleExpressionStatement<?>)statement).getExpression());
+			if (condition instanceof BooleanConstantExpression && !((BooleanConstantExpression)condition).getValue())
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	protected Expression<?> transformExpression(Expression<?> expression) throws IllegalArgumentException {
+		Expression<?> copy = super.transformExpression(expression);
+		Expression<?> result = simplify(copy);
+		if (result.isConstant() && !isLiteral(result))
+			result = fold(result);
+		if (result != copy)
+			result = verified(result, expression);
+		return withSourceLocationOf(result, expression);
+	}
+
+	/**
+	 * Return the given optimized expression, checked against the given original expression if this optimizer is verifying and
+	 * the original expression can be evaluated again without changing the execution.
+	 */
+	private Expression<?> verified(Expression<?> optimized, Expression<?> original) {
+		if (!isVerifying() || !isReevaluable(original))
+			return optimized;
+		return withSourceLocationOf(new VerifiedExpression<>(optimized, original), original);
+	}
+
+	/**
+	 * Check whether evaluating the given expression an extra time does not change the execution of the program: it does not
+	 * execute the statements of a function, nor does it draw from the source of randomness of the program executor.
+	 */
+	private static boolean isReevaluable(Expression<?> expression) {
+		if (expression instanceof FunctionCallExpression || expression instanceof InlinedFunctionCallExpression
+				|| expression instanceof AnyExpression)
+			return false;
+		for (Expression<?> subExpression : expression.getSubExpressions()) {
+			if (!isReevaluable(subExpression))
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Remove a double negation at the top of the given expression. Double negations are only removed if the type of the negated
+	 * expression is known before execution; otherwise the type error raised by the negations would be lost.
+	 */
+	private Expression<?> simplify(Expression<?> expression) {
+		if (expression instanceof NotExpression) {
+			Expression<?> subExpression = ((NotExpression)expression).getSubExpression();
+			if (subExpression instanceof NotExpression
+					&& ((NotExpression)subExpression).getSubExpression().getStaticType() == Boolean.class)
+				return ((NotExpression)subExpression).getSubExpression();
+		}
+		if (expression instanceof ChangeSignExpression) {
+			Expression<?> subExpression = ((ChangeSignExpression)expression).getSubExpression();
+			if (subExpression instanceof ChangeSignExpression
+					&& ((ChangeSignExpression)subExpression).getSubExpression().getStaticType() == Double.class)
+				return ((ChangeSignExpression)subExpression).getSubExpression();
+		}
+		return expression;
+	}
+
+	private static boolean isLiteral(Expression<?> expression) {
+		return expression instanceof ConstantExpression || expression instanceof BooleanConstantExpression
+				|| expression instanceof NullExpression;
+	}
+
+	/**
+	 * Replace the given constant expression by a literal with the same value.
+	 * If the evaluation of the given expression fails, the expression is not folded, such that the failure still occurs when
+	 * the program is executed.
+	 */
+	private static Expression<?> fold(Expression<?> expression) {
+		Object value;
+		try {
+			value = expression.evaluate(null);
+		}
+		catch (RuntimeException exc) {
+			return expression;
+		}
+		if (value instanceof Double && ConstantExpression.isValidValue((Double)value))
+			return new ConstantExpression((Double)value);
+		if (value instanceof Boolean)
+			return new BooleanConstantExpression((Boolean)value);
+		return expression;
+	}
+
+	/**
+	 * Replace the maximal loop-invariant subexpressions of the given condition by reads of fresh variables, and add the
+	 * assignments of those variables to the given list.
+	 * Only the condition of a while statement is considered, since it is evaluated completely every time the loop is entered.
+	 * Hence, the hoisted assignments raise the same errors at (nearly) the same moment as the unoptimized condition.
+	 */
+	private Expression<?> hoistLoopInvariants(Expression<?> condition, Set<String> assignedVariableNames, List<Statement> hoistedAssignments) {
+		return new ProgramTransformer() {
+			@Override
+			protected Expression<?> transformExpression(Expression<?> expression) {
+				if (expression instanceof ComposedExpression && !expression.isConstant() && isLoopInvariant(expression, assignedVariableNames)) {
+					String name = HOISTED_VARIABLE_PREFIX + nbOfHoistedExpressions++;
+					Statement assignment = new AssignmentStatement(name, expression);
+					assignment.setSourceLocation(expression.getSourceLocation());
+					hoistedAssignments.add(assignment);
+					return verified(withSourceLocationOf(new ReadVariableExpression<>(name), expression), expression);
+				}
+				if (expression instanceof VerifiedExpression) {
+					// The original expression is left as it is, such that it is still checked in every iteration.
+					VerifiedExpression<?> verified = (VerifiedExpression<?>)expression;
+					return withSourceLocationOf(new VerifiedExpression<>(transformExpression(verified.getOptimizedExpression()),
+							verified.getOriginalExpression()), verified);
+				}
+				if (expression instanceof InlinedFunctionCallExpression) {
+					// The parameters read by the returned expression are not those of the code containing the loop.
+					InlinedFunctionCallExpression<?> call = (InlinedFunctionCallExpression<?>)expression;
+					Expression<?>[] arguments = call.getActualArgumentExpressions();
+					for (int i = 0; i < arguments.length; i++)
+						arguments[i] = transformExpression(arguments[i]);
+					return withSourceLocationOf(new InlinedFunctionCallExpression<>(call.getName(), arguments, call.getReturnedExpression()), call);
+				}
+				return super.transformExpression(expression);
+			}
+		}.transformExpression(condition);
+	}
+
+	/**
+	 * Check whether the given expression evaluates to the same value in every iteration of a loop whose body assigns the
+	 * variables with the given names.
+	 * Functions cannot assign variables of the code invoking them, and entity properties may change during the execution of a loop.
+	 */
+	private static boolean isLoopInvariant(Expression<?> expression, Set<String> assignedVariableNames) {
+		if (expression.isConstant() || expression instanceof ReadParameterExpression)
+			return true;
+		if (expression instanceof ReadVariableExpression)
+			return !assignedVariableNames.contains(((ReadVariableExpression<?>)expression).getName());
+		if (expression instanceof ChangeSignExpression || expression instanceof NotExpression || expression instanceof SquareRootExpression)
+			return isLoopInvariant(((UnaryExpression<?,?>)expression).getSubExpression(), assignedVariableNames);
+		if (expression instanceof AdditionExpression || expression instanceof MultiplicationExpression
+				|| expression instanceof LessThanExpression || expression instanceof EqualityExpression
+				|| expression instanceof VerifiedExpression)
+			return isLoopInvariant(((BinaryExpression<?,?,?>)expression).getLeftSubExpression(), assignedVariableNames)
+					&& isLoopInvariant(((BinaryExpression<?,?,?>)expression).getRightSubExpression(), assignedVariableNames);
+		return false;
+	}
+
+	private static Set<String> getAssignedVariableNames(Statement statement) {
+		Set<String> result = new HashSet<>();
+		addAssignedVariableNames(statement, result);
+		return result;
+	}
+
+	private static void addAssignedVariableNames(Statement statement, Set<String> names) {
+		if (statement instanceof AssignmentStatement)
+			names.add(((AssignmentStatement)statement).getVariableName());
+		else if (statement instanceof SequenceStatement) {
+			for (int i = 1; i <= ((SequenceStatement)statement).getNbOfEnclosedStatements(); i++)
+				addAssignedVariableNames(((SequenceStatement)statement).getEnclosedStatementAt(i), names);
+		}
+		else if (statement instanceof WhileStatement)
+			addAssignedVariableNames(((WhileStatement)statement).getBodyStatement(), names);
+		else if (statement instanceof IfThenElseStatement) {
+			addAssignedVariableNames(((IfThenElseStatement)statement).getIfStatement(), names);
+			if (((IfThenElseStatement)statement).getElseStatement() != null)
+				addAssignedVariableNames(((IfThenElseStatement)statement).getElseStatement(), names);
+		}
+	}
+
+	/**
+	 * The prefix of the names of the variables introduced by hoisting. Variables with this prefix cannot be read or assigned
+	 * by the programs that are parsed, since the prefix is not a valid identifier.
+	 */
+	public static final String HOISTED_VARIABLE_PREFIX = "%invariant";
+
+	private int nbOfHoistedExpressions;
+}
@@ -0,0 +1,273 @@
+package asteroids.model.programs;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import asteroids.model.programs.expressions.Expression;
+import asteroids.model.programs.statements.Statement;
+import asteroids.part3.programs.SourceLocation;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of profilers registering the number of invocations, the self time and the total time of the nodes and functions of the
+ * programs executed by a program executor.
+ *
+ * The nodes of a program are registered by their kind and their source location, i.e. the location passed to the program factory
+ * when the node was created. Nodes of the same kind at the same source location share a single entry. Functions are registered
+ * by their name.
+ * The self time of an entry excludes the time spent in the nodes it invokes. The total time of an entry includes that time, but
+ * it counts the time of recursive invocations of the entry only once.
+ *
+ * A profiler is not thread-safe; it must not be shared by program executors executing their programs in parallel.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+public class ProgramProfiler {
+
+	/**
+	 * Register the start of the execution of the given statement.
+	 */
+	public void enter(Statement statement) {
+		enter(getEntry(statement, statement.getClass().getSimpleName(), statement.getSourceLocation()));
+	}
+
+	/**
+	 * Register the start of the evaluation of the given expression.
+	 */
+	public void enter(Expression<?> expression) {
+		enter(getEntry(expression, expression.getClass().getSimpleName(), expression.getSourceLocation()));
+	}
+
+	/**
+	 * Register the start of the evaluation of the given function.
+	 */
+	public void enter(Function function) {
+		enter(getEntry(function, "function:" + function.getName(), function.getSourceLocation()));
+	}
+
+	private void enter(Entry entry) {
+		CallTreeNode parent = frames.isEmpty() ? root : frames.peek().node;
+		CallTreeNode node = parent.children.computeIfAbsent(entry, CallTreeNode::new);
+		entry.nbOfInvocations++;
+		entry.nbOfActiveInvocations++;
+		frames.push(new Frame(node, System.nanoTime()));
+	}
+
+	/**
+	 * Register the end of the execution or evaluation of the node or function that was entered last.
+	 * The end must be registered even if the execution is interrupted by an exception.
+	 *
+	 * @throws IllegalStateException
+	 * 			No node or function is being executed.
+	 */
+	public void exit() throws IllegalStateException {
+		if (frames.isEmpty())
+			throw new IllegalStateException();
+		Frame frame = frames.pop();
+		long elapsed = System.nanoTime() - frame.start;
+		long self = elapsed - frame.childTime;
+		Entry entry = frame.node.entry;
+		frame.node.selfTime += self;
+		entry.selfTime += self;
+		if (--entry.nbOfActiveInvocations == 0)
+			entry.totalTime += elapsed;
+		if (!frames.isEmpty())
+			frames.peek().childTime += elapsed;
+	}
+
+	/**
+	 * Return the entry registering the given node or function.
+	 * Entries are looked up by identity first, such that the key of a node is only computed once.
+	 */
+	private Entry getEntry(Object node, String kind, SourceLocation location) {
+		Entry entry = entriesByNode.get(node);
+		if (entry == null) {
+			String label = (location == null) ? kind : kind + "@" + location.getLine() + ":" + location.getColumn();
+			entry = entries.computeIfAbsent(label, key -> new Entry(key, location));
+			entriesByNode.put(node, entry);
+		}
+		return entry;
+	}
+
+	/**
+	 * Return the entries of this profiler, ordered by decreasing self time.
+	 */
+	public List<Entry> getEntries() {
+		List<Entry> result = new ArrayList<>(entries.values());
+		result.sort((entry1, entry2) -> Long.compare(entry2.getSelfTime(), entry1.getSelfTime()));
+		return result;
+	}
+
+	/**
+	 * Return the entries of this profiler registering nodes or functions at the given source location.
+	 */
+	public List<Entry> getEntriesAt(SourceLocation location) throws IllegalArgumentException {
+		if (location == null)
+			throw new IllegalArgumentException();
+		List<Entry> result = new ArrayList<>();
+		for (Entry entry : getEntries()) {
+			if (entry.getSourceLocation() != null && entry.getSourceLocation().getLine() == location.getLine()
+					&& entry.getSourceLocation().getColumn() == location.getColumn())
+				result.add(entry);
+		}
+		return result;
+	}
+
+	/**
+	 * Remove all registered invocations from this profiler.
+	 *
+	 * @throws IllegalStateException
+	 * 			Some node or function is being executed.
+	 */
+	public void reset() throws IllegalStateException {
+		if (!frames.isEmpty())
+			throw new IllegalStateException();
+		entries.clear();
+		entriesByNode.clear();
+		root.children.clear();
+	}
+
+	/**
+	 * Write the registered self times to the given writer in the folded stack format used by flame graph tools.
+	 * Every line contains the labels of the entries on a call stack separated by semicolons, followed by a space and the self
+	 * time in nanoseconds of the last entry on that stack.
+	 */
+	public void writeFoldedStacks(Writer writer) throws IOException {
+		for (CallTreeNode child : root.children.values())
+			writeFoldedStacks(writer, child, child.entry.getLabel());
+		writer.flush();
+	}
+
+	/**
+	 * Write the registered self times to the file with the given path in the folded stack format.
+	 *
+	 * @see #writeFoldedStacks(Writer)
+	 */
+	public void writeFoldedStacks(Path path) throws IOException {
+		try (Writer writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8)) {
+			writeFoldedStacks(writer);
+		}
+	}
+
+	private static void writeFoldedStacks(Writer writer, CallTreeNode node, String stack) throws IOException {
+		if (node.selfTime > 0)
+			writer.write(stack + " " + node.selfTime + "\n");
+		for (CallTreeNode child : node.children.values())
+			writeFoldedStacks(writer, child, stack + ";" + child.entry.getLabel());
+	}
+
+	private final Map<String, Entry> entries = new LinkedHashMap<>();
+
+	private final Map<Object, Entry> entriesByNode = new IdentityHashMap<>();
+
+	private final CallTreeNode root = new CallTreeNode(null);
+
+	private final Deque<Frame> frames = new ArrayDeque<>();
+
+	/**
+	 * A class of entries of a profiler, registering the invocations of all nodes or functions with the same label.
+	 */
+	public static class Entry {
+
+		private Entry(String label, SourceLocation location) {
+			this.label = label;
+			this.sourceLocation = location;
+		}
+
+		/**
+		 * Return the label of this entry, consisting of the kind of the registered nodes followed by their source location.
+		 */
+		@Basic @Immutable
+		public String getLabel() {
+			return this.label;
+		}
+
+		private final String label;
+
+		@Basic @Immutable
+		public SourceLocation getSourceLocation() {
+			return this.sourceLocation;
+		}
+
+		private final SourceLocation sourceLocation;
+
+		@Basic
+		public long getNbOfInvocations() {
+			return this.nbOfInvocations;
+		}
+
+		private long nbOfInvocations;
+
+		/**
+		 * Return the time in nanoseconds spent in the registered nodes, excluding the time spent in the nodes they invoke.
+		 */
+		@Basic
+		public long getSelfTime() {
+			return this.selfTime;
+		}
+
+		private long selfTime;
+
+		/**
+		 * Return the time in nanoseconds spent in the registered nodes, including the time spent in the nodes they invoke.
+		 */
+		@Basic
+		public long getTotalTime() {
+			return this.totalTime;
+		}
+
+		private long totalTime;
+
+		/**
+		 * The number of invocations of this entry that have not ended yet.
+		 */
+		private int nbOfActiveInvocations;
+
+		@Override
+		public String toString() {
+			return getLabel() + " invocations=" + getNbOfInvocations() + " self=" + getSelfTime() + "ns total=" + getTotalTime() + "ns";
+		}
+	}
+
+	/**
+	 * A class of nodes of the call tree of a profiler, registering the self time of an entry invoked along a specific call stack.
+	 */
+	private static class CallTreeNode {
+
+		private CallTreeNode(Entry entry) {
+			this.entry = entry;
+		}
+
+		private final Entry entry;
+
+		private final Map<Entry, CallTreeNode> children = new LinkedHashMap<>();
+
+		private long selfTime;
+	}
+
+	private static class Frame {
+
+		private Frame(CallTreeNode node, long start) {
+			this.node = node;
+			this.start = start;
+		}
+
+		private final CallTreeNode node;
+
+		private final long start;
+
+		private long childTime;
+	}
+}
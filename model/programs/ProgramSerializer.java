@@ -0,0 +1,723 @@
+package asteroids.model.programs;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Stack;
+import java.util.function.IntFunction;
+import java.util.function.ToIntFunction;
+import java.util.function.UnaryOperator;
+
+import asteroids.model.programs.expressions.*;
+import asteroids.model.programs.statements.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.SourceLocation;
+
+/**
+ * A class of utilities converting programs to and from a compact binary format.
+ *
+ * The format starts with a magic number and a format version, followed by the functions of the program and its body statement.
+ * Every node is written in prefix order as a tag, its source location and its attributes. Loading a program builds its nodes
+ * directly, without parsing its source code or analysing it again; programs that were analysed by a program factory before they
+ * were written are loaded in their analysed form.
+ * Files are loaded by mapping them into memory.
+ * The state of a program executor, i.e. its variables, parameters, execution stack, remaining time and printed values, can be
+ * converted as well. Entities referenced by that state are written as indices, which are resolved when the state is loaded.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public class ProgramSerializer {
+
+	private ProgramSerializer() {
+	}
+
+	/**
+	 * The magic number at the start of every serialized program ("ASTP").
+	 */
+	public static final int MAGIC_NUMBER = 0x41535450;
+
+	/**
+	 * The version of the format written by this class. Programs written in another version cannot be loaded.
+	 */
+	public static final short FORMAT_VERSION = 1;
+
+	/**
+	 * Write the given program to the file with the given path, replacing the file if it exists.
+	 */
+	public static void write(Program program, Path path) throws IllegalArgumentException, IOException {
+		Files.write(path, toBytes(program));
+	}
+
+	/**
+	 * Return the serialized form of the given program.
+	 */
+	public static byte[] toBytes(Program program) throws IllegalArgumentException {
+		if (program == null)
+			throw new IllegalArgumentException();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeInt(MAGIC_NUMBER);
+			out.writeShort(FORMAT_VERSION);
+			List<Function> functions = program.getFunctions();
+			out.writeInt(functions.size());
+			for (Function function : functions) {
+				writeString(out, function.getName());
+				writeLocation(out, function.getSourceLocation());
+				writeStatement(out, function.getBodyStatement());
+			}
+			writeStatement(out, program.getBodyStatement());
+		}
+		catch (IOException exc) {
+			// A byte array output stream never throws I/O exceptions.
+			throw new AssertionError(exc);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Load the program in the file with the given path.
+	 *
+	 * @throws IOException
+	 * 			The file cannot be read, or it does not contain a program in the current format.
+	 */
+	public static Program read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return fromBytes(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Load the program serialized in the remaining bytes of the given buffer.
+	 *
+	 * @throws IOException
+	 * 			The given buffer does not contain a program in the current format.
+	 */
+	public static Program fromBytes(ByteBuffer buffer) throws IOException {
+		try {
+			if (buffer.getInt() != MAGIC_NUMBER)
+				throw new IOException("Not a serialized program.");
+			short version = buffer.getShort();
+			if (version != FORMAT_VERSION)
+				throw new IOException("Unsupported program format version: " + version);
+			int nbOfFunctions = buffer.getInt();
+			List<Function> functions = new ArrayList<>();
+			for (int i = 0; i < nbOfFunctions; i++) {
+				String name = readString(buffer);
+				SourceLocation location = readLocation(buffer);
+				Function function = new Function(name, readStatement(buffer));
+				function.setSourceLocation(location);
+				functions.add(function);
+			}
+			Program result = new Program(readStatement(buffer), functions);
+			if (buffer.hasRemaining())
+				throw new IOException("Unexpected data after the serialized program.");
+			return result;
+		}
+		catch (BufferUnderflowException | IllegalArgumentException | ClassCastException exc) {
+			throw new IOException("Corrupt serialized program.", exc);
+		}
+	}
+
+	/**
+	 * Return the serialized form of the execution state of the given executor.
+	 * The entities referenced by that state are written as the indices given by the given function; a negative index stands for
+	 * an entity that is not written, which is loaded as null.
+	 * The source of randomness of the executor is only written if it is a seeded random, whose state is accessible; an executor
+	 * with another source continues with the source of its thread when it is restored.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| executor == null || entityIndices == null
+	 */
+	public static byte[] executorStateToBytes(ProgramExecutor executor, ToIntFunction<Entity> entityIndices)
+			throws IllegalArgumentException {
+		if (executor == null || entityIndices == null)
+			throw new IllegalArgumentException();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeBoolean(executor.isProgramFinished());
+			out.writeBoolean(executor.isAborted());
+			out.writeDouble(executor.getRemainingExecutionTime());
+			out.writeDouble(executor.getPendingActionTime());
+			out.writeInt(executor.getExecutionStack().size());
+			for (List<Integer> scope : executor.getExecutionStack()) {
+				out.writeInt(scope.size());
+				for (int position : scope)
+					out.writeInt(position);
+			}
+			writeVariables(out, executor.getVariableContainer().getGlobalVariables(), entityIndices);
+			out.writeInt(executor.getVariableContainer().getLocalVariables().size());
+			for (Map<String, Variable> scope : executor.getVariableContainer().getLocalVariables())
+				writeVariables(out, scope, entityIndices);
+			out.writeInt(executor.getParameterContainer().getParameters().size());
+			for (Object[] scope : executor.getParameterContainer().getParameters()) {
+				out.writeInt(scope.length);
+				for (Object value : scope)
+					writeValue(out, value, entityIndices);
+			}
+			List<Object> printed = executor.getPrintList();
+			out.writeInt(printed.size());
+			for (Object value : printed)
+				writeValue(out, value, entityIndices);
+			if (executor.getOwnRandom() instanceof SeededRandom) {
+				out.writeBoolean(true);
+				out.writeLong(((SeededRandom)executor.getOwnRandom()).getState());
+			}
+			else
+				out.writeBoolean(false);
+		}
+		catch (IOException exc) {
+			// A byte array output stream never throws I/O exceptions.
+			throw new AssertionError(exc);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Replace the execution state of the given executor by the state serialized in the remaining bytes of the given buffer.
+	 * The entities referenced by that state are looked up by their index using the given function.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| executor == null || entities == null
+	 * @throws IOException
+	 * 			The given buffer does not contain an execution state in the current format.
+	 */
+	public static void readExecutorState(ProgramExecutor executor, ByteBuffer buffer, IntFunction<Entity> entities)
+			throws IllegalArgumentException, IOException {
+		if (executor == null || entities == null)
+			throw new IllegalArgumentException();
+		try {
+			executor.setProgramFinished(buffer.get() != 0);
+			executor.setAborted(buffer.get() != 0);
+			executor.setRemainingExecutionTime(buffer.getDouble());
+			executor.setPendingActionTime(buffer.getDouble());
+			int nbOfScopes = readLength(buffer);
+			if (nbOfScopes == 0)
+				throw new IOException("Corrupt execution state.");
+			executor.getExecutionStack().clear();
+			for (int i = 0; i < nbOfScopes; i++) {
+				List<Integer> scope = new ArrayList<>();
+				for (int j = readLength(buffer); j > 0; j--)
+					scope.add(buffer.getInt());
+				executor.getExecutionStack().push(scope);
+			}
+			executor.getVariableContainer().getGlobalVariables().clear();
+			readVariables(buffer, executor.getVariableContainer().getGlobalVariables(), entities);
+			executor.getVariableContainer().getLocalVariables().clear();
+			for (int i = readLength(buffer); i > 0; i--) {
+				Map<String, Variable> scope = new HashMap<>();
+				readVariables(buffer, scope, entities);
+				executor.getVariableContainer().getLocalVariables().push(scope);
+			}
+			executor.getParameterContainer().getParameters().clear();
+			for (int i = readLength(buffer); i > 0; i--) {
+				Object[] scope = new Object[readLength(buffer)];
+				for (int j = 0; j < scope.length; j++)
+					scope[j] = readValue(buffer, entities);
+				executor.getParameterContainer().getParameters().push(scope);
+			}
+			executor.getPrintBuffer().clear();
+			for (int i = readLength(buffer); i > 0; i--)
+				executor.getPrintBuffer().add(readValue(buffer, entities));
+			if (buffer.get() != 0) {
+				SeededRandom random = new SeededRandom(0);
+				random.setState(buffer.getLong());
+				executor.setRandom(random);
+			}
+			executor.clearFunctionCache();
+		}
+		catch (BufferUnderflowException | IllegalArgumentException exc) {
+			throw new IOException("Corrupt execution state.", exc);
+		}
+	}
+
+	/**
+	 * Replace the execution state of the given target executor by the execution state of the given source executor, without
+	 * converting it. The entities referenced by that state are replaced by the entities given by the given function; variables
+	 * and parameters not referencing entities are shared, since they are never modified.
+	 * The source of randomness of the source executor is only copied if it is a seeded random, as for serialized states.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| source == null || target == null || entities == null
+	 */
+	public static void copyExecutorState(ProgramExecutor source, ProgramExecutor target, UnaryOperator<Entity> entities)
+			throws IllegalArgumentException {
+		if (source == null || target == null || entities == null)
+			throw new IllegalArgumentException();
+		target.setProgramFinished(source.isProgramFinished());
+		target.setAborted(source.isAborted());
+		target.setRemainingExecutionTime(source.getRemainingExecutionTime());
+		target.setPendingActionTime(source.getPendingActionTime());
+		target.getExecutionStack().clear();
+		for (List<Integer> scope : source.getExecutionStack())
+			target.getExecutionStack().push(new ArrayList<>(scope));
+		copyVariables(source.getVariableContainer().getGlobalVariables(), target.getVariableContainer().getGlobalVariables(),
+				entities);
+		target.getVariableContainer().getLocalVariables().clear();
+		for (Map<String, Variable> scope : source.getVariableContainer().getLocalVariables()) {
+			Map<String, Variable> scopeCopy = new HashMap<>();
+			copyVariables(scope, scopeCopy, entities);
+			target.getVariableContainer().getLocalVariables().push(scopeCopy);
+		}
+		Stack<Object[]> parameters = target.getParameterContainer().getParameters();
+		parameters.clear();
+		for (Object[] scope : source.getParameterContainer().getParameters()) {
+			Object[] scopeCopy = new Object[scope.length];
+			for (int i = 0; i < scope.length; i++)
+				scopeCopy[i] = copyValue(scope[i], entities);
+			parameters.push(scopeCopy);
+		}
+		target.getPrintBuffer().clear();
+		source.getPrintBuffer().forEach(value -> target.getPrintBuffer().add(copyValue(value, entities)));
+		if (source.getOwnRandom() instanceof SeededRandom)
+			target.setRandom(((SeededRandom)source.getOwnRandom()).copy());
+		target.clearFunctionCache();
+	}
+
+	private static void copyVariables(Map<String, Variable> variables, Map<String, Variable> copies, UnaryOperator<Entity> entities) {
+		copies.clear();
+		for (Map.Entry<String, Variable> entry : variables.entrySet()) {
+			Variable variable = entry.getValue();
+			if (variable.getValue() instanceof Entity)
+				variable = new Variable(entities.apply((Entity)variable.getValue()), variable.getType());
+			copies.put(entry.getKey(), variable);
+		}
+	}
+
+	private static Object copyValue(Object value, UnaryOperator<Entity> entities) {
+		return (value instanceof Entity) ? entities.apply((Entity)value) : value;
+	}
+
+	private static final byte NULL_VALUE = 0, DOUBLE_VALUE = 1, BOOLEAN_VALUE = 2, ENTITY_VALUE = 3;
+
+	private static void writeVariables(DataOutputStream out, Map<String, Variable> variables, ToIntFunction<Entity> entityIndices)
+			throws IOException {
+		out.writeInt(variables.size());
+		for (Map.Entry<String, Variable> entry : variables.entrySet()) {
+			writeString(out, entry.getKey());
+			Class<?> type = entry.getValue().getType();
+			out.writeByte(type == null ? NULL_VALUE : type == Double.class ? DOUBLE_VALUE : type == Boolean.class ? BOOLEAN_VALUE
+					: ENTITY_VALUE);
+			writeValue(out, entry.getValue().getValue(), entityIndices);
+		}
+	}
+
+	private static void writeValue(DataOutputStream out, Object value, ToIntFunction<Entity> entityIndices) throws IOException {
+		if (value == null)
+			out.writeByte(NULL_VALUE);
+		else if (value instanceof Double) {
+			out.writeByte(DOUBLE_VALUE);
+			out.writeDouble((Double)value);
+		}
+		else if (value instanceof Boolean) {
+			out.writeByte(BOOLEAN_VALUE);
+			out.writeBoolean((Boolean)value);
+		}
+		else if (value instanceof Entity) {
+			out.writeByte(ENTITY_VALUE);
+			out.writeInt(entityIndices.applyAsInt((Entity)value));
+		}
+		else
+			throw new IllegalArgumentException("Values of this type cannot be serialized.");
+	}
+
+	private static void readVariables(ByteBuffer buffer, Map<String, Variable> variables, IntFunction<Entity> entities)
+			throws IOException {
+		for (int i = readLength(buffer); i > 0; i--) {
+			String name = readString(buffer);
+			byte typeTag = buffer.get();
+			Class<?> type = (typeTag == NULL_VALUE) ? null : (typeTag == DOUBLE_VALUE) ? Double.class
+					: (typeTag == BOOLEAN_VALUE) ? Boolean.class : Entity.class;
+			variables.put(name, new Variable(readValue(buffer, entities), type));
+		}
+	}
+
+	private static Object readValue(ByteBuffer buffer, IntFunction<Entity> entities) throws IOException {
+		byte tag = buffer.get();
+		switch (tag) {
+			case NULL_VALUE:
+				return null;
+			case DOUBLE_VALUE:
+				return buffer.getDouble();
+			case BOOLEAN_VALUE:
+				return buffer.get() != 0;
+			case ENTITY_VALUE:
+				int index = buffer.getInt();
+				return (index < 0) ? null : entities.apply(index);
+			default:
+				throw new IOException("Unknown value tag: " + tag);
+		}
+	}
+
+	private static final byte SEQUENCE = 1, WHILE = 2, IF = 3, ASSIGNMENT = 4, PRINT = 5, RETURN = 6, TURN = 7, BREAK = 8,
+			THRUST_ON = 9, THRUST_OFF = 10, FIRE = 11, SKIP = 12;
+
+	private static final byte CONSTANT = 1, BOOLEAN_CONSTANT = 2, NULL = 3, SELF = 4, NEAREST_ENTITY = 5, BULLET = 6, ANY = 7,
+			GET_DIR = 8, READ_VARIABLE = 9, READ_PARAMETER = 10, CHANGE_SIGN = 11, NOT = 12, SQUARE_ROOT = 13, GET_X = 14,
+			GET_Y = 15, GET_VX = 16, GET_VY = 17, GET_RADIUS = 18, ADDITION = 19, MULTIPLICATION = 20, LESS_THAN = 21,
+			EQUALITY = 22, FUNCTION_CALL = 23, INLINED_FUNCTION_CALL = 24;
+
+	/**
+	 * The types of entities of nearest entity expressions, indexed by their code in the serialized format.
+	 */
+	private static final Class<?>[] ENTITY_TYPES = {Ship.class, Asteroid.class, Planetoid.class, MinorPlanet.class};
+
+	private static void writeStatement(DataOutputStream out, Statement statement) throws IOException {
+		if (statement instanceof SequenceStatement) {
+			SequenceStatement sequence = (SequenceStatement)statement;
+			writeHeader(out, SEQUENCE, statement.getSourceLocation());
+			out.writeInt(sequence.getNbOfEnclosedStatements());
+			for (int i = 1; i <= sequence.getNbOfEnclosedStatements(); i++)
+				writeStatement(out, sequence.getEnclosedStatementAt(i));
+		}
+		else if (statement instanceof WhileStatement) {
+			writeHeader(out, WHILE, statement.getSourceLocation());
+			writeExpression(out, ((WhileStatement)statement).getExpression());
+			writeStatement(out, ((WhileStatement)statement).getBodyStatement());
+		}
+		else if (statement instanceof IfThenElseStatement) {
+			IfThenElseStatement ifStatement = (IfThenElseStatement)statement;
+			writeHeader(out, IF, statement.getSourceLocation());
+			writeExpression(out, ifStatement.getExpression());
+			writeStatement(out, ifStatement.getIfStatement());
+			out.writeBoolean(ifStatement.getElseStatement() != null);
+			if (ifStatement.getElseStatement() != null)
+				writeStatement(out, ifStatement.getElseStatement());
+		}
+		else if (statement instanceof AssignmentStatement) {
+			writeHeader(out, ASSIGNMENT, statement.getSourceLocation());
+			writeString(out, ((AssignmentStatement)statement).getVariableName());
+			writeExpression(out, ((AssignmentStatement)statement).getExpression());
+		}
+		else if (statement instanceof PrintStatement) {
+			writeHeader(out, PRINT, statement.getSourceLocation());
+			writeExpression(out, ((PrintStatement)statement).getExpression());
+		}
+		else if (statement instanceof ReturnStatement) {
+			writeHeader(out, RETURN, statement.getSourceLocation());
+			writeExpression(out, ((ReturnStatement)statement).getExpression());
+		}
+		else if (statement instanceof TurnAction) {
+			writeHeader(out, TURN, statement.getSourceLocation());
+			writeExpression(out, ((TurnAction)statement).getExpression());
+		}
+		else if (statement instanceof BreakStatement)
+			writeHeader(out, BREAK, statement.getSourceLocation());
+		else if (statement instanceof ThrustOnAction)
+			writeHeader(out, THRUST_ON, statement.getSourceLocation());
+		else if (statement instanceof ThrustOffAction)
+			writeHeader(out, THRUST_OFF, statement.getSourceLocation());
+		else if (statement instanceof FireAction)
+			writeHeader(out, FIRE, statement.getSourceLocation());
+		else if (statement instanceof SkipAction)
+			writeHeader(out, SKIP, statement.getSourceLocation());
+		else
+			throw new IllegalArgumentException("Unknown statement: " + statement);
+	}
+
+	private static void writeExpression(DataOutputStream out, Expression<?> expression) throws IOException {
+		SourceLocation location = expression.getSourceLocation();
+		if (expression instanceof VerifiedExpression)
+			// Only the optimized expression is written: a program that is read back is no longer verified.
+			writeExpression(out, ((VerifiedExpression<?>)expression).getOptimizedExpression());
+		else if (expression instanceof ConstantExpression) {
+			writeHeader(out, CONSTANT, location);
+			out.writeDouble(((ConstantExpression)expression).getValue());
+		}
+		else if (expression instanceof BooleanConstantExpression) {
+			writeHeader(out, BOOLEAN_CONSTANT, location);
+			out.writeBoolean(((BooleanConstantExpression)expression).getValue());
+		}
+		else if (expression instanceof NullExpression)
+			writeHeader(out, NULL, location);
+		else if (expression instanceof SelfExpression)
+			writeHeader(out, SELF, location);
+		else if (expression instanceof NearestEntityExpression) {
+			writeHeader(out, NEAREST_ENTITY, location);
+			out.writeByte(getEntityTypeCode(((NearestEntityExpression)expression).getEntityType()));
+		}
+		else if (expression instanceof BulletExpression)
+			writeHeader(out, BULLET, location);
+		else if (expression instanceof AnyExpression)
+			writeHeader(out, ANY, location);
+		else if (expression instanceof GetDirExpression)
+			writeHeader(out, GET_DIR, location);
+		else if (expression instanceof ReadVariableExpression) {
+			writeHeader(out, READ_VARIABLE, location);
+			writeString(out, ((ReadVariableExpression<?>)expression).getName());
+		}
+		else if (expression instanceof ReadParameterExpression) {
+			writeHeader(out, READ_PARAMETER, location);
+			writeString(out, ((ReadParameterExpression<?>)expression).getName());
+		}
+		else if (expression instanceof FunctionCallExpression) {
+			writeHeader(out, FUNCTION_CALL, location);
+			writeString(out, ((FunctionCallExpression<?>)expression).getName());
+			writeExpressions(out, ((FunctionCallExpression<?>)expression).getActualArgumentExpressions());
+		}
+		else if (expression instanceof InlinedFunctionCallExpression) {
+			writeHeader(out, INLINED_FUNCTION_CALL, location);
+			writeString(out, ((InlinedFunctionCallExpression<?>)expression).getName());
+			writeExpressions(out, ((InlinedFunctionCallExpression<?>)expression).getActualArgumentExpressions());
+			writeExpression(out, ((InlinedFunctionCallExpression<?>)expression).getReturnedExpression());
+		}
+		else {
+			writeHeader(out, getComposedExpressionTag(expression), location);
+			for (Expression<?> subExpression : expression.getSubExpressions())
+				writeExpression(out, subExpression);
+		}
+	}
+
+	private static byte getComposedExpressionTag(Expression<?> expression) throws IllegalArgumentException {
+		if (expression instanceof ChangeSignExpression)
+			return CHANGE_SIGN;
+		if (expression instanceof NotExpression)
+			return NOT;
+		if (expression instanceof SquareRootExpression)
+			return SQUARE_ROOT;
+		if (expression instanceof GetXExpression)
+			return GET_X;
+		if (expression instanceof GetYExpression)
+			return GET_Y;
+		if (expression instanceof GetVxExpression)
+			return GET_VX;
+		if (expression instanceof GetVyExpression)
+			return GET_VY;
+		if (expression instanceof GetRadiusExpression)
+			return GET_RADIUS;
+		if (expression instanceof AdditionExpression)
+			return ADDITION;
+		if (expression instanceof MultiplicationExpression)
+			return MULTIPLICATION;
+		if (expression instanceof LessThanExpression)
+			return LESS_THAN;
+		if (expression instanceof EqualityExpression)
+			return EQUALITY;
+		throw new IllegalArgumentException("Unknown expression: " + expression);
+	}
+
+	private static int getEntityTypeCode(Class<?> entityType) throws IllegalArgumentException {
+		for (int i = 0; i < ENTITY_TYPES.length; i++) {
+			if (ENTITY_TYPES[i] == entityType)
+				return i;
+		}
+		throw new IllegalArgumentException("Unknown entity type: " + entityType);
+	}
+
+	private static void writeExpressions(DataOutputStream out, Expression<?>[] expressions) throws IOException {
+		out.writeInt(expressions.length);
+		for (Expression<?> expression : expressions)
+			writeExpression(out, expression);
+	}
+
+	private static void writeHeader(DataOutputStream out, byte tag, SourceLocation location) throws IOException {
+		out.writeByte(tag);
+		writeLocation(out, location);
+	}
+
+	/**
+	 * Write the given source location. An unknown source location is written as a negative line.
+	 */
+	private static void writeLocation(DataOutputStream out, SourceLocation location) throws IOException {
+		out.writeInt(location == null ? -1 : location.getLine());
+		out.writeInt(location == null ? -1 : location.getColumn());
+	}
+
+	private static void writeString(DataOutputStream out, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		out.writeInt(bytes.length);
+		out.write(bytes);
+	}
+
+	private static Statement readStatement(ByteBuffer buffer) throws IOException {
+		byte tag = buffer.get();
+		SourceLocation location = readLocation(buffer);
+		Statement result;
+		switch (tag) {
+			case SEQUENCE:
+				Statement[] enclosedStatements = new Statement[readLength(buffer)];
+				for (int i = 0; i < enclosedStatements.length; i++)
+					enclosedStatements[i] = readStatement(buffer);
+				result = new SequenceStatement(enclosedStatements);
+				break;
+			case WHILE:
+				Expression condition = readExpression(buffer);
+				result = new WhileStatement(condition, readStatement(buffer));
+				break;
+			case IF:
+				Expression ifCondition = readExpression(buffer);
+				Statement ifStatement = readStatement(buffer);
+				result = new IfThenElseStatement(ifCondition, ifStatement, (buffer.get() != 0) ? readStatement(buffer) : null);
+				break;
+			case ASSIGNMENT:
+				String name = readString(buffer);
+				result = new AssignmentStatement(name, readExpression(buffer));
+				break;
+			case PRINT:
+				result = new PrintStatement((Expression)readExpression(buffer));
+				break;
+			case RETURN:
+				result = new ReturnStatement(readExpression(buffer));
+				break;
+			case TURN:
+				result = new TurnAction((Expression)readExpression(buffer));
+				break;
+			case BREAK:
+				result = new BreakStatement();
+				break;
+			case THRUST_ON:
+				result = new ThrustOnAction();
+				break;
+			case THRUST_OFF:
+				result = new ThrustOffAction();
+				break;
+			case FIRE:
+				result = new FireAction();
+				break;
+			case SKIP:
+				result = new SkipAction();
+				break;
+			default:
+				throw new IOException("Unknown statement tag: " + tag);
+		}
+		result.setSourceLocation(location);
+		return result;
+	}
+
+	private static Expression<?> readExpression(ByteBuffer buffer) throws IOException {
+		byte tag = buffer.get();
+		SourceLocation location = readLocation(buffer);
+		Expression result;
+		switch (tag) {
+			case CONSTANT:
+				result = new ConstantExpression(buffer.getDouble());
+				break;
+			case BOOLEAN_CONSTANT:
+				result = new BooleanConstantExpression(buffer.get() != 0);
+				break;
+			case NULL:
+				result = new NullExpression();
+				break;
+			case SELF:
+				result = new SelfExpression();
+				break;
+			case NEAREST_ENTITY:
+				int code = buffer.get();
+				if (code < 0 || code >= ENTITY_TYPES.length)
+					throw new IOException("Unknown entity type code: " + code);
+				result = new NearestEntityExpression((Class<? extends Entity>)ENTITY_TYPES[code]);
+				break;
+			case BULLET:
+				result = new BulletExpression();
+				break;
+			case ANY:
+				result = new AnyExpression();
+				break;
+			case GET_DIR:
+				result = new GetDirExpression();
+				break;
+			case READ_VARIABLE:
+				result = new ReadVariableExpression<>(readString(buffer));
+				break;
+			case READ_PARAMETER:
+				result = new ReadParameterExpression<>(readString(buffer));
+				break;
+			case FUNCTION_CALL:
+				String name = readString(buffer);
+				result = new FunctionCallExpression<>(name, readExpressions(buffer));
+				break;
+			case INLINED_FUNCTION_CALL:
+				String inlinedName = readString(buffer);
+				Expression<?>[] arguments = readExpressions(buffer);
+				result = new InlinedFunctionCallExpression<>(inlinedName, arguments, readExpression(buffer));
+				break;
+			case CHANGE_SIGN:
+				result = new ChangeSignExpression((Expression)readExpression(buffer));
+				break;
+			case NOT:
+				result = new NotExpression((Expression)readExpression(buffer));
+				break;
+			case SQUARE_ROOT:
+				result = new SquareRootExpression((Expression)readExpression(buffer));
+				break;
+			case GET_X:
+				result = new GetXExpression((Expression)readExpression(buffer));
+				break;
+			case GET_Y:
+				result = new GetYExpression((Expression)readExpression(buffer));
+				break;
+			case GET_VX:
+				result = new GetVxExpression((Expression)readExpression(buffer));
+				break;
+			case GET_VY:
+				result = new GetVyExpression((Expression)readExpression(buffer));
+				break;
+			case GET_RADIUS:
+				result = new GetRadiusExpression((Expression)readExpression(buffer));
+				break;
+			case ADDITION:
+				Expression addend = readExpression(buffer);
+				result = new AdditionExpression(addend, (Expression)readExpression(buffer));
+				break;
+			case MULTIPLICATION:
+				Expression factor = readExpression(buffer);
+				result = new MultiplicationExpression(factor, (Expression)readExpression(buffer));
+				break;
+			case LESS_THAN:
+				Expression left = readExpression(buffer);
+				result = new LessThanExpression(left, (Expression)readExpression(buffer));
+				break;
+			case EQUALITY:
+				Expression leftOperand = readExpression(buffer);
+				result = new EqualityExpression(leftOperand, (Expression)readExpression(buffer));
+				break;
+			default:
+				throw new IOException("Unknown expression tag: " + tag);
+		}
+		result.setSourceLocation(location);
+		return result;
+	}
+
+	private static Expression<?>[] readExpressions(ByteBuffer buffer) throws IOException {
+		Expression<?>[] result = new Expression<?>[readLength(buffer)];
+		for (int i = 0; i < result.length; i++)
+			result[i] = readExpression(buffer);
+		return result;
+	}
+
+	private static SourceLocation readLocation(ByteBuffer buffer) {
+		int line = buffer.getInt();
+		int column = buffer.getInt();
+		return (line < 0) ? null : new SourceLocation(line, column);
+	}
+
+	private static String readString(ByteBuffer buffer) throws IOException {
+		byte[] bytes = new byte[readLength(buffer)];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Read a length, checking that it does not exceed the number of remaining bytes such that corrupt data cannot cause huge
+	 * allocations.
+	 */
+	private static int readLength(ByteBuffer buffer) throws IOException {
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining())
+			throw new IOException("Corrupt serialized program.");
+		return length;
+	}
+}
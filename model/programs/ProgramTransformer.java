@@ -0,0 +1,184 @@
+package asteroids.model.programs;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import asteroids.model.programs.expressions.*;
+import asteroids.model.programs.statements.*;
+import asteroids.model.representation.Entity;
+
+/**
+ * A class representing a transformation of the abstract syntax tree of a program.
+ *
+ * By default, a program transformer builds a structural copy of the program it transforms. Subclasses override the methods
+ * transformStatement() and transformExpression() to rewrite specific nodes and invoke the overridden method for all other nodes.
+ * A copy is needed because the statements of a program are bound to their enclosing statement and executable when they are created.
+ * Expressions are not bound to their enclosing nodes, such that unchanged expressions may be shared between the original and the
+ * transformed program.
+ * The nodes and functions of the transformed program keep the source locations of the nodes and functions they are derived from.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+@SuppressWarnings({"unchecked", "rawtypes"})
+public abstract class ProgramTransformer {
+
+	public Program transform(Program program) throws IllegalArgumentException {
+		if (program == null)
+			throw new IllegalArgumentException();
+		List<Function> functions = new ArrayList<>();
+		for (Function function : program.getFunctions())
+			functions.add(transformFunction(function));
+		return new Program(transformStatement(program.getBodyStatement()), functions);
+	}
+
+	protected Function transformFunction(Function function) {
+		Function result = new Function(function.getName(), transformStatement(function.getBodyStatement()));
+		result.setSourceLocation(function.getSourceLocation());
+		return result;
+	}
+
+	protected Statement transformStatement(Statement statement) throws IllegalArgumentException {
+		return withSourceLocationOf(copyStatement(statement), statement);
+	}
+
+	private Statement copyStatement(Statement statement) throws IllegalArgumentException {
+		if (statement instanceof SequenceStatement) {
+			SequenceStatement sequence = (SequenceStatement)statement;
+			List<Statement> enclosedStatements = new ArrayList<>();
+			for (int i = 1; i <= sequence.getNbOfEnclosedStatements(); i++)
+				addToSequence(enclosedStatements, transformStatement(sequence.getEnclosedStatementAt(i)));
+			return new SequenceStatement(enclosedStatements.toArray(new Statement[] {}));
+		}
+		if (statement instanceof WhileStatement) {
+			WhileStatement whileStatement = (WhileStatement)statement;
+			return new WhileStatement((Expression<Boolean>)transformExpression(whileStatement.getExpression()),
+					transformStatement(whileStatement.getBodyStatement()));
+		}
+		if (statement instanceof IfThenElseStatement) {
+			IfThenElseStatement ifStatement = (IfThenElseStatement)statement;
+			return new IfThenElseStatement((Expression<Boolean>)transformExpression(ifStatement.getExpression()),
+					transformStatement(ifStatement.getIfStatement()),
+					ifStatement.getElseStatement() == null ? null : transformStatement(ifStatement.getElseStatement()));
+		}
+		if (statement instanceof AssignmentStatement) {
+			AssignmentStatement assignment = (AssignmentStatement)statement;
+			return new AssignmentStatement(assignment.getVariableName(), transformExpression(assignment.getExpression()));
+		}
+		if (statement instanceof PrintStatement)
+			return new PrintStatement((Expression<Object>)transformExpression(((PrintStatement)statement).getExpression()));
+		if (statement instanceof ReturnStatement)
+			return new ReturnStatement(transformExpression(((ReturnStatement)statement).getExpression()));
+		if (statement instanceof TurnAction)
+			return new TurnAction((Expression<Double>)transformExpression(((TurnAction)statement).getExpression()));
+		if (statement instanceof BreakStatement)
+			return new BreakStatement();
+		if (statement instanceof ThrustOnAction)
+			return new ThrustOnAction();
+		if (statement instanceof ThrustOffAction)
+			return new ThrustOffAction();
+		if (statement instanceof FireAction)
+			return new FireAction();
+		if (statement instanceof SkipAction)
+			return new SkipAction();
+		throw new IllegalArgumentException("Unknown statement: " + statement);
+	}
+
+	/**
+	 * Add the given statement to the given list of statements of a sequence.
+	 * A nested sequence statement is flattened into the list: the execution position of a sequence statement cannot be resumed
+	 * correctly if that sequence statement directly follows a while statement in its enclosing sequence.
+	 */
+	protected static void addToSequence(List<Statement> enclosedStatements, Statement statement) {
+		if (statement instanceof SequenceStatement) {
+			SequenceStatement sequence = (SequenceStatement)statement;
+			for (int i = 1; i <= sequence.getNbOfEnclosedStatements(); i++)
+				enclosedStatements.add(COPIER.transformStatement(sequence.getEnclosedStatementAt(i)));
+		}
+		else
+			enclosedStatements.add(statement);
+	}
+
+	/**
+	 * A program transformer building plain structural copies.
+	 */
+	private static final ProgramTransformer COPIER = new ProgramTransformer() {};
+
+	/**
+	 * Give the given transformed statement the source location of the given original statement, unless it has a source
+	 * location already, and return it.
+	 */
+	protected static Statement withSourceLocationOf(Statement result, Statement original) {
+		result.setSourceLocation(original.getSourceLocation());
+		return result;
+	}
+
+	/**
+	 * Give the given transformed expression the source location of the given original expression, unless it has a source
+	 * location already, and return it.
+	 */
+	protected static <E extends Expression<?>> E withSourceLocationOf(E result, Expression<?> original) {
+		result.setSourceLocation(original.getSourceLocation());
+		return result;
+	}
+
+	protected Expression<?> transformExpression(Expression<?> expression) throws IllegalArgumentException {
+		if (expression == null)
+			throw new IllegalArgumentException();
+		return withSourceLocationOf(copyExpression(expression), expression);
+	}
+
+	private Expression<?> copyExpression(Expression<?> expression) throws IllegalArgumentException {
+		if (expression instanceof ChangeSignExpression)
+			return new ChangeSignExpression((Expression<Double>)transformExpression(((ChangeSignExpression)expression).getSubExpression()));
+		if (expression instanceof NotExpression)
+			return new NotExpression((Expression<Boolean>)transformExpression(((NotExpression)expression).getSubExpression()));
+		if (expression instanceof SquareRootExpression)
+			return new SquareRootExpression((Expression<Double>)transformExpression(((SquareRootExpression)expression).getSubExpression()));
+		if (expression instanceof GetXExpression)
+			return new GetXExpression((Expression<Entity>)transformExpression(((GetXExpression)expression).getSubExpression()));
+		if (expression instanceof GetYExpression)
+			return new GetYExpression((Expression<Entity>)transformExpression(((GetYExpression)expression).getSubExpression()));
+		if (expression instanceof GetVxExpression)
+			return new GetVxExpression((Expression<Entity>)transformExpression(((GetVxExpression)expression).getSubExpression()));
+		if (expression instanceof GetVyExpression)
+			return new GetVyExpression((Expression<Entity>)transformExpression(((GetVyExpression)expression).getSubExpression()));
+		if (expression instanceof GetRadiusExpression)
+			return new GetRadiusExpression((Expression<Entity>)transformExpression(((GetRadiusExpression)expression).getSubExpression()));
+		if (expression instanceof BinaryExpression) {
+			BinaryExpression<?,?,?> binary = (BinaryExpression<?,?,?>)expression;
+			Expression left = transformExpression(binary.getLeftSubExpression());
+			Expression right = transformExpression(binary.getRightSubExpression());
+			if (binary instanceof AdditionExpression)
+				return new AdditionExpression((Expression<Double>)left, (Expression<Double>)right);
+			if (binary instanceof MultiplicationExpression)
+				return new MultiplicationExpression((Expression<Double>)left, (Expression<Double>)right);
+			if (binary instanceof LessThanExpression)
+				return new LessThanExpression((Expression<Double>)left, (Expression<Double>)right);
+			if (binary instanceof EqualityExpression)
+				return new EqualityExpression((Expression<Object>)left, (Expression<Object>)right);
+			if (binary instanceof VerifiedExpression)
+				return new VerifiedExpression<>(left, right);
+		}
+		if (expression instanceof FunctionCallExpression) {
+			FunctionCallExpression<?> call = (FunctionCallExpression<?>)expression;
+			Expression<?>[] arguments = call.getActualArgumentExpressions();
+			for (int i = 0; i < arguments.length; i++)
+				arguments[i] = transformExpression(arguments[i]);
+			return new FunctionCallExpression<>(call.getName(), arguments);
+		}
+		if (expression instanceof InlinedFunctionCallExpression) {
+			InlinedFunctionCallExpression<?> call = (InlinedFunctionCallExpression<?>)expression;
+			Expression<?>[] arguments = call.getActualArgumentExpressions();
+			for (int i = 0; i < arguments.length; i++)
+				arguments[i] = transformExpression(arguments[i]);
+			return new InlinedFunctionCallExpression<>(call.getName(), arguments, transformExpression(call.getReturnedExpression()));
+		}
+		if (expression == null)
+			throw new IllegalArgumentException();
+		// All other expressions are leaves that are not bound to their enclosing node.
+		return expression;
+	}
+
+}
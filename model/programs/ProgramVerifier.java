@@ -0,0 +1,119 @@
+package asteroids.model.programs;
+
+import asteroids.model.programs.expressions.*;
+import asteroids.model.programs.statements.*;
+import asteroids.model.representation.Entity;
+
+/**
+ * A class of verifiers checking programs once before they are executed.
+ *
+ * A program is well-formed if its functions do not contain actions or print statements, if its body does not contain break
+ * statements outside of while statements, if it only calls functions it defines and if no expression has an operand of which
+ * the type is known to be wrong before execution.
+ * A break statement in a function body is allowed, since it breaks the while statement in which the function is called.
+ *
+ * Once a program has been verified, statements executing that program no longer check whether they are executed in the body of
+ * the program.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+public class ProgramVerifier {
+
+	private ProgramVerifier(Program program) {
+		this.program = program;
+	}
+
+	private final Program program;
+
+	/**
+	 * Check whether the given program is well-formed.
+	 */
+	public static boolean isWellFormed(Program program) {
+		try {
+			if (program == null)
+				return false;
+			new ProgramVerifier(program).check();
+			return true;
+		}
+		catch (IllegalArgumentException exc) {
+			return false;
+		}
+	}
+
+	/**
+	 * Verify the given program and register it as verified.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			The given program is not well-formed.
+	 * 			| ! isWellFormed(program)
+	 */
+	public static void verify(Program program) throws IllegalArgumentException {
+		if (program == null)
+			throw new IllegalArgumentException();
+		if (!program.isVerified()) {
+			new ProgramVerifier(program).check();
+			program.setVerified();
+		}
+	}
+
+	private void check() throws IllegalArgumentException {
+		for (Function function : program.getFunctions())
+			checkStatement(function.getBodyStatement(), true, true);
+		checkStatement(program.getBodyStatement(), false, false);
+	}
+
+	private void checkStatement(Statement statement, boolean inFunction, boolean inLoop) throws IllegalArgumentException {
+		if (inFunction && (statement instanceof Action || statement instanceof PrintStatement))
+			throw new IllegalArgumentException("Actions and print statements are not allowed in a function body.");
+		if (statement instanceof BreakStatement && !inLoop)
+			throw new IllegalArgumentException("A break statement must be enclosed by a while statement.");
+		if (statement instanceof SequenceStatement) {
+			for (int i = 1; i <= ((SequenceStatement)statement).getNbOfEnclosedStatements(); i++)
+				checkStatement(((SequenceStatement)statement).getEnclosedStatementAt(i), inFunction, inLoop);
+		}
+		else if (statement instanceof WhileStatement) {
+			checkExpression(((WhileStatement)statement).getExpression(), Boolean.class);
+			checkStatement(((WhileStatement)statement).getBodyStatement(), inFunction, true);
+		}
+		else if (statement instanceof IfThenElseStatement) {
+			IfThenElseStatement ifStatement = (IfThenElseStatement)statement;
+			checkExpression(ifStatement.getExpression(), Boolean.class);
+			checkStatement(ifStatement.getIfStatement(), inFunction, inLoop);
+			if (ifStatement.getElseStatement() != null)
+				checkStatement(ifStatement.getElseStatement(), inFunction, inLoop);
+		}
+		else if (statement instanceof TurnAction)
+			checkExpression(((TurnAction)statement).getExpression(), Double.class);
+		else if (statement instanceof SingleExpressionStatement)
+			checkExpression(((SingleExpressionStatement<?>)statement).getExpression(), Object.class);
+	}
+
+	private void checkExpression(Expression<?> expression, Class<?> expectedType) throws IllegalArgumentException {
+		Class<?> type = expression.getStaticType();
+		if (type != Object.class && !expectedType.isAssignableFrom(type))
+			throw new IllegalArgumentException("An expression of type " + type.getSimpleName() + " is used where a value of type "
+					+ expectedType.getSimpleName() + " is expected.");
+		if (expression instanceof FunctionCallExpression && !program.hasFunctionWithName(((FunctionCallExpression<?>)expression).getName()))
+			throw new IllegalArgumentException("The function " + ((FunctionCallExpression<?>)expression).getName() + " is not defined.");
+		Class<?> operandType = getOperandType(expression);
+		for (Expression<?> subExpression : expression.getSubExpressions())
+			checkExpression(subExpression, (expression instanceof InlinedFunctionCallExpression) ? Object.class : operandType);
+	}
+
+	/**
+	 * Return the type of the operands of the given expression.
+	 */
+	private static Class<?> getOperandType(Expression<?> expression) {
+		if (expression instanceof ChangeSignExpression || expression instanceof SquareRootExpression || expression instanceof AdditionExpression
+				|| expression instanceof MultiplicationExpression || expression instanceof LessThanExpression)
+			return Double.class;
+		if (expression instanceof NotExpression)
+			return Boolean.class;
+		if (expression instanceof GetXExpression || expression instanceof GetYExpression || expression instanceof GetVxExpression
+				|| expression instanceof GetVyExpression || expression instanceof GetRadiusExpression)
+			return Entity.class;
+		return Object.class;
+	}
+}
@@ -0,0 +1,213 @@
+package asteroids.model.programs;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import asteroids.model.programs.expressions.*;
+import asteroids.model.programs.statements.*;
+
+/**
+ * A class representing an analysis of the functions of a program that determines which of those functions are pure.
+ *
+ * A function is pure if its result only depends on its arguments, the variables it reads and the state of the world, and if
+ * its execution does not change anything but its own local variables. Hence, a pure function does not execute actions or
+ * print statements, does not evaluate any-expressions and only calls pure functions.
+ * Assignments in a function body always assign local variables, such that they do not make a function impure.
+ *
+ * A pure function is memoizable if none of its return statements directly returns the value of a parameter, a variable or
+ * another function call. The result of a memoizable function is always a new object, such that a memoized result can be
+ * replaced by a copy of that result without changing the outcome of equality expressions.
+ * Moreover, a memoizable function does not evaluate equality expressions, nor does any function it calls. Equality expressions
+ * compare their operands by reference, whereas memoized results are looked up by the values of the arguments: a function comparing
+ * its arguments may return different results for arguments that are equal but not identical.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+public class PurityAnalyzer {
+
+	public PurityAnalyzer(Program program) throws IllegalArgumentException {
+		if (program == null)
+			throw new IllegalArgumentException();
+		this.program = program;
+		pureFunctions.addAll(program.getFunctions());
+		// Recursive functions are assumed to be pure, until one of the functions they call turns out to be impure.
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Function function : program.getFunctions()) {
+				if (pureFunctions.contains(function) && !isPure(function.getBodyStatement())) {
+					pureFunctions.remove(function);
+					changed = true;
+				}
+			}
+		}
+		addFunctionsEvaluating(ReadVariableExpression.class, functionsReadingVariables);
+		addFunctionsEvaluating(EqualityExpression.class, functionsComparingReferences);
+	}
+
+	/**
+	 * Add the functions of the program of this analyzer that evaluate an expression of the given type, or that call a function
+	 * evaluating such an expression, to the given set.
+	 */
+	private void addFunctionsEvaluating(Class<?> type, Set<Function> functions) {
+		for (Function function : program.getFunctions()) {
+			if (contains(function.getBodyStatement(), type))
+				functions.add(function);
+		}
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (Function function : program.getFunctions()) {
+				if (!functions.contains(function) && callsFunctionIn(function.getBodyStatement(), functions)) {
+					functions.add(function);
+					changed = true;
+				}
+			}
+		}
+	}
+
+	private final Program program;
+
+	/**
+	 * Check whether the given function is pure.
+	 */
+	public boolean isPure(Function function) {
+		return pureFunctions.contains(function);
+	}
+
+	/**
+	 * Check whether the result of the given function can be memoized.
+	 */
+	public boolean isMemoizable(Function function) {
+		return isPure(function) && !returnsSharedValue(function.getBodyStatement()) && !functionsComparingReferences.contains(function);
+	}
+
+	/**
+	 * Check whether the given function, or one of the functions it calls, reads variables.
+	 * The result of such a function may depend on the global variables of the program.
+	 */
+	public boolean readsVariables(Function function) {
+		return functionsReadingVariables.contains(function);
+	}
+
+	private final Set<Function> pureFunctions = new HashSet<>();
+
+	private final Set<Function> functionsReadingVariables = new HashSet<>();
+
+	private final Set<Function> functionsComparingReferences = new HashSet<>();
+
+	private boolean isPure(Statement statement) {
+		if (statement instanceof Action || statement instanceof PrintStatement)
+			return false;
+		if (statement instanceof SequenceStatement) {
+			for (int i = 1; i <= ((SequenceStatement)statement).getNbOfEnclosedStatements(); i++) {
+				if (!isPure(((SequenceStatement)statement).getEnclosedStatementAt(i)))
+					return false;
+			}
+			return true;
+		}
+		if (statement instanceof WhileStatement)
+			return isPure(((WhileStatement)statement).getExpression()) && isPure(((WhileStatement)statement).getBodyStatement());
+		if (statement instanceof IfThenElseStatement) {
+			IfThenElseStatement ifStatement = (IfThenElseStatement)statement;
+			return isPure(ifStatement.getExpression()) && isPure(ifStatement.getIfStatement())
+					&& (ifStatement.getElseStatement() == null || isPure(ifStatement.getElseStatement()));
+		}
+		if (statement instanceof SingleExpressionStatement)
+			return isPure(((SingleExpressionStatement<?>)statement).getExpression());
+		return true;
+	}
+
+	private boolean isPure(Expression<?> expression) {
+		if (expression instanceof AnyExpression)
+			return false;
+		if (expression instanceof FunctionCallExpression) {
+			Function callee = program.getFunctionWithName(((FunctionCallExpression<?>)expression).getName());
+			if (callee == null || !pureFunctions.contains(callee))
+				return false;
+		}
+		for (Expression<?> subExpression : expression.getSubExpressions()) {
+			if (!isPure(subExpression))
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean returnsSharedValue(Statement statement) {
+		if (statement instanceof ReturnStatement) {
+			Expression<?> expression = ((ReturnStatement)statement).getExpression();
+			return expression instanceof ReadParameterExpression || expression instanceof ReadVariableExpression
+					|| expression instanceof FunctionCallExpression || expression instanceof InlinedFunctionCallExpression;
+		}
+		for (Statement enclosed : getEnclosedStatements(statement)) {
+			if (returnsSharedValue(enclosed))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean contains(Statement statement, Class<?> type) {
+		if (statement instanceof SingleExpressionStatement && contains(((SingleExpressionStatement<?>)statement).getExpression(), type))
+			return true;
+		for (Statement enclosed : getEnclosedStatements(statement)) {
+			if (contains(enclosed, type))
+				return true;
+		}
+		return false;
+	}
+
+	private static boolean contains(Expression<?> expression, Class<?> type) {
+		if (type.isInstance(expression))
+			return true;
+		for (Expression<?> subExpression : expression.getSubExpressions()) {
+			if (contains(subExpression, type))
+				return true;
+		}
+		return false;
+	}
+
+	private boolean callsFunctionIn(Statement statement, Set<Function> functions) {
+		if (statement instanceof SingleExpressionStatement
+				&& callsFunctionIn(((SingleExpressionStatement<?>)statement).getExpression(), functions))
+			return true;
+		for (Statement enclosed : getEnclosedStatements(statement)) {
+			if (callsFunctionIn(enclosed, functions))
+				return true;
+		}
+		return false;
+	}
+
+	private boolean callsFunctionIn(Expression<?> expression, Set<Function> functions) {
+		if (expression instanceof FunctionCallExpression) {
+			Function callee = program.getFunctionWithName(((FunctionCallExpression<?>)expression).getName());
+			if (callee != null && functions.contains(callee))
+				return true;
+		}
+		for (Expression<?> subExpression : expression.getSubExpressions()) {
+			if (callsFunctionIn(subExpression, functions))
+				return true;
+		}
+		return false;
+	}
+
+	private static Statement[] getEnclosedStatements(Statement statement) {
+		if (statement instanceof SequenceStatement) {
+			SequenceStatement sequence = (SequenceStatement)statement;
+			Statement[] result = new Statement[sequence.getNbOfEnclosedStatements()];
+			for (int i = 1; i <= result.length; i++)
+				result[i - 1] = sequence.getEnclosedStatementAt(i);
+			return result;
+		}
+		if (statement instanceof WhileStatement)
+			return new Statement[] {((WhileStatement)statement).getBodyStatement()};
+		if (statement instanceof IfThenElseStatement) {
+			IfThenElseStatement ifStatement = (IfThenElseStatement)statement;
+			if (ifStatement.getElseStatement() == null)
+				return new Statement[] {ifStatement.getIfStatement()};
+			return new Statement[] {ifStatement.getIfStatement(), ifStatement.getElseStatement()};
+		}
+		return new Statement[] {};
+	}
+}
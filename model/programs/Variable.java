@@ -46,8 +46,17 @@ public class Variable {
 	
 	public static Class<?> getMostGeneralSupportedTypeFor(Object value) {
 		Class<?> result = value.getClass();
+		if (result == Double.class || result == Boolean.class)
+			// These classes are final, hence they are their own most general supported type.
+			return result;
 		boolean supportedTypeFound = false;
-		for (Class<?> supportedType : Variable.getSupportedTypes()) {
+		for (Class<?> supportedType : supportedValueTypes) {
+			if (supportedType.isAssignableFrom(result)) {
+				result = supportedType;
+				supportedTypeFound = true;
+			}
+		}
+		for (Class<?> supportedType : supportedReferenceTypes) {
 			if (supportedType.isAssignableFrom(result)) {
 				result = supportedType;
 				supportedTypeFound = true;
@@ -76,6 +85,8 @@ public class Variable {
 	public static boolean isValidVariable(Class<?> type, Object value) {
 		if (type == null)
 			return value == null;
+		else if (value != null && (type == Double.class || type == Boolean.class))
+			return value.getClass() == type;
 		else
 			return (value == null) ? hasAsSupportedReferenceType(type) : (hasAsSupportedType(type) && type.isAssignableFrom(value.getClass())); 
 	}
@@ -69,8 +69,21 @@ public class VariableContainer {
 			Variable newVariable = new Variable(value);
 			scope.put(name, newVariable);
 		}
+		if (scope == globalVariables)
+			nbOfGlobalAssignments++;
 	}
 	
+	/**
+	 * Return the number of assignments of global variables since this variable container was created.
+	 * The number is never decreased, such that it can be used to detect changes of the global variables.
+	 */
+	@Basic
+	public long getNbOfGlobalAssignments() {
+		return this.nbOfGlobalAssignments;
+	}
+	
+	private long nbOfGlobalAssignments;
+	
 	/**
 	 * Method to create a new scope when a function call is being processed.
 	 */
@@ -87,10 +100,21 @@ public class VariableContainer {
 	}
 	
 	public void reset() {
+		nbOfGlobalAssignments++;
 		globalVariables = new HashMap<>();
 		localVariables = new Stack<>();
 	}
 	
+	@Basic
+	Map<String,Variable> getGlobalVariables() {
+		return this.globalVariables;
+	}
+	
+	@Basic
+	Stack<Map<String,Variable>> getLocalVariables() {
+		return this.localVariables;
+	}
+	
 	/**
 	 * Map containing the global variables. The keys are the names of the variables, the values are variable objects.
 	 */
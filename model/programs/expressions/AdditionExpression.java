@@ -36,4 +36,14 @@ public class AdditionExpression extends BinaryExpression<Double, Double, Double>
 	public Double evaluate(ProgramExecutor executor)  throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
 		return evaluateLeftSubExpression(executor) + evaluateRightSubExpression(executor);
 	}
+	
+	@Override
+	public boolean isConstant() {
+		return getLeftSubExpression().isConstant() && getRightSubExpression().isConstant();
+	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Double.class;
+	}
 }
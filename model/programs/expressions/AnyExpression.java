@@ -17,8 +17,11 @@ public class AnyExpression extends Expression<Entity> {
 	public Entity evaluate(ProgramExecutor executor) throws IllegalMethodCallException {
 		if (executor == null || executor.getShip() == null || executor.getShip().getWorld() == null)
 			throw new IllegalMethodCallException();
-		Entity[] entitiesInWorldOfShip = executor.getShip().getWorld().getEntities().toArray(new Entity[] {});
-		return entitiesInWorldOfShip.length == 0 ? null : entitiesInWorldOfShip[(int)(Math.random() * entitiesInWorldOfShip.length)];
+		return executor.getShip().getWorld().getRandomEntity(executor.getRandom());
+	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Entity.class;
 	}
-
 }
@@ -34,12 +34,17 @@ public abstract class BinaryExpression<T, L, R> extends ComposedExpression<T> {
 		return false;
 	}
 	
+	@Override
+	public Expression<?>[] getSubExpressions() {
+		return new Expression<?>[] {getLeftSubExpression(), getRightSubExpression()};
+	}
+	
 	public Expression<? extends L> getLeftSubExpression() {
 		return this.leftSubExpression;
 	}
 	
 	public L evaluateLeftSubExpression(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
-		return getLeftSubExpression().evaluate(executor);
+		return getLeftSubExpression().evaluateProfiled(executor);
 	}
 	
 	private final Expression<? extends L> leftSubExpression;
@@ -50,7 +55,7 @@ public abstract class BinaryExpression<T, L, R> extends ComposedExpression<T> {
 	}
 	
 	public R evaluateRightSubExpression(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
-		return getRightSubExpression().evaluate(executor);
+		return getRightSubExpression().evaluateProfiled(executor);
 	}
 	
 	private final Expression<? extends R> rightSubExpression;
@@ -0,0 +1,40 @@
+package asteroids.model.programs.expressions;
+
+import asteroids.model.programs.ProgramExecutor;
+import be.kuleuven.cs.som.annotate.Basic;
+
+/**
+ * A class representing an expression evaluating to a constant of type boolean.
+ * 
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ * 
+ */
+public class BooleanConstantExpression extends Expression<Boolean> {
+	
+	public BooleanConstantExpression(boolean value) {
+		this.value = value;
+	}
+	
+	@Override
+	public Boolean evaluate(ProgramExecutor executor) {
+		return value;
+	}
+	
+	@Override
+	public boolean isConstant() {
+		return true;
+	}
+	
+	@Basic
+	public boolean getValue() {
+		return this.value;
+	}
+	
+	private final boolean value;
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Boolean.class;
+	}
+}
@@ -36,10 +36,14 @@ public class BulletExpression extends Expression<Bullet> {
 		Optional<Bullet> result = bulletStream.filter(b -> !b.isTerminated())
 							.reduce(new BinaryOperator<Bullet>() {
 								public Bullet apply(Bullet b1, Bullet b2) {
-									return Math.random() <= 0.5 ? b1 : b2;
+									return executor.getRandom().nextDouble() <= 0.5 ? b1 : b2;
 								}
 							});
 		return result.isPresent() ? result.get() : null;
 	}
 	
+	@Override
+	public Class<?> getStaticType() {
+		return Bullet.class;
+	}
 }
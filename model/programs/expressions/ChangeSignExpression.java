@@ -24,4 +24,14 @@ public class ChangeSignExpression extends UnaryExpression<Double, Double> {
 	public Double evaluate(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
 		return -evaluateSubExpression(executor); 
 	}
+	
+	@Override
+	public boolean isConstant() {
+		return getSubExpression().isConstant();
+	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Double.class;
+	}
 }
@@ -1,6 +1,7 @@
 package asteroids.model.programs.expressions;
 
 import asteroids.model.programs.ProgramExecutor;
+import be.kuleuven.cs.som.annotate.Basic;
 
 /**
  * A class representing an expression evaluating to a constant of type double.
@@ -22,10 +23,24 @@ public class ConstantExpression extends Expression<Double> {
 		return value;
 	}
 	
+	@Override
+	public boolean isConstant() {
+		return true;
+	}
+	
+	@Basic
+	public double getValue() {
+		return this.value;
+	}
+	
 	public static boolean isValidValue(double value) {
 		return Double.isFinite(value); 
 	}
 	
 	private final double value;
 	
+	@Override
+	public Class<?> getStaticType() {
+		return Double.class;
+	}
 }
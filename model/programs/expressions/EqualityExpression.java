@@ -21,5 +21,14 @@ public class EqualityExpression extends BinaryExpression<Boolean, Object, Object
 	public Boolean evaluate(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
 		return evaluateLeftSubExpression(executor) == evaluateRightSubExpression(executor);
 	}
-
+	
+	@Override
+	public boolean isConstant() {
+		return getLeftSubExpression().isConstant() && getRightSubExpression().isConstant();
+	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Boolean.class;
+	}
 }
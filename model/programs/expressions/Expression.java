@@ -2,6 +2,9 @@ package asteroids.model.programs.expressions;
 
 import asteroids.model.exceptions.IllegalMethodCallException;
 import asteroids.model.programs.ProgramExecutor;
+import asteroids.model.programs.ProgramProfiler;
+import asteroids.part3.programs.SourceLocation;
+import be.kuleuven.cs.som.annotate.*;
 
 /**
  * A class representing an expression.
@@ -13,4 +16,63 @@ import asteroids.model.programs.ProgramExecutor;
 public abstract class Expression<T> {
 	
 	public abstract T evaluate(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException;
+	
+	/**
+	 * Evaluate this expression, registering the evaluation with the profiler of the given program executor if it has one.
+	 * Enclosing nodes evaluate their subexpressions by means of this method.
+	 */
+	public final T evaluateProfiled(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
+		ProgramProfiler profiler = (executor == null) ? null : executor.getProfiler();
+		if (profiler == null)
+			return evaluate(executor);
+		profiler.enter(this);
+		try {
+			return evaluate(executor);
+		}
+		finally {
+			profiler.exit();
+		}
+	}
+	
+	/**
+	 * Return the location in the source code of the program at which this expression was created, or null if it is unknown.
+	 */
+	@Basic
+	public SourceLocation getSourceLocation() {
+		return this.sourceLocation;
+	}
+	
+	/*
+	 * The source location of this expression is only set if it is still null, such that expressions shared between programs
+	 * keep the location at which they were created.
+	 */
+	public void setSourceLocation(SourceLocation location) {
+		if (this.sourceLocation == null)
+			this.sourceLocation = location;
+	}
+	
+	private SourceLocation sourceLocation;
+	
+	/**
+	 * Check whether this expression always evaluates to the same value, independent of the program executor evaluating it.
+	 * Constant expressions can be evaluated without a program executor.
+	 */
+	public boolean isConstant() {
+		return false;
+	}
+	
+	/**
+	 * Return the most specific type that is known for the evaluation of this expression before the program is executed.
+	 * If that type can only be determined at runtime, Object.class is returned.
+	 */
+	public Class<?> getStaticType() {
+		return Object.class;
+	}
+	
+	/**
+	 * Return the subexpressions of this expression, in the order in which they are evaluated.
+	 */
+	public Expression<?>[] getSubExpressions() {
+		return new Expression<?>[] {};
+	}
 }
\ No newline at end of file
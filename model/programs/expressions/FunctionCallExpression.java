@@ -1,6 +1,7 @@
 package asteroids.model.programs.expressions;
 
 import asteroids.model.exceptions.IllegalMethodCallException;
+import asteroids.model.programs.Function;
 import asteroids.model.programs.ProgramExecutor;
 
 /**
@@ -30,9 +31,25 @@ public class FunctionCallExpression<T> extends UnknownTypeExpression<T> {
 	public T evaluate(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
 		Object[] values = new Object[actualArgumentExpressions.length];
 		for (int i = 0; i < actualArgumentExpressions.length; i++) {
-			values[i] = actualArgumentExpressions[i].evaluate(executor);
+			values[i] = actualArgumentExpressions[i].evaluateProfiled(executor);
 		}
-		return (T)executor.getProgram().getFunctionWithName(getName()).evaluate(executor, values);
+		Function function = executor.getProgram().getFunctionWithName(getName());
+		if (function == null)
+			throw new IllegalMethodCallException();
+		return (T)executor.evaluateFunction(function, values);
+	}
+	
+	public Expression<?>[] getActualArgumentExpressions() {
+		return actualArgumentExpressions.clone();
+	}
+	
+	@Override
+	public Expression<?>[] getSubExpressions() {
+		return getActualArgumentExpressions();
+	}
+	
+	public int getNbOfActualArgumentExpressions() {
+		return actualArgumentExpressions.length;
 	}
 	
 	public static boolean isValidActualArgumentExpression(Expression<?> argumentExpression) {
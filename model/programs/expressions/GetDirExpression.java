@@ -19,4 +19,8 @@ public class GetDirExpression extends Expression<Double> {
 		return executor.getShip().getOrientation();
 	}
 	
+	@Override
+	public Class<?> getStaticType() {
+		return Double.class;
+	}
 }
@@ -26,4 +26,8 @@ public class GetRadiusExpression extends UnaryExpression<Double, Entity> {
 		return evaluateSubExpression(executor).getRadius();
 	}
 	
+	@Override
+	public Class<?> getStaticType() {
+		return Double.class;
+	}
 }
@@ -25,4 +25,9 @@ public class GetVxExpression extends UnaryExpression<Double, Entity> {
 	public Double evaluate(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
 		return evaluateSubExpression(executor).getVelocity().getxComponent();
 	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Double.class;
+	}
 }
@@ -25,4 +25,9 @@ public class GetVyExpression extends UnaryExpression<Double, Entity> {
 	public Double evaluate(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
 		return evaluateSubExpression(executor).getVelocity().getyComponent();
 	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Double.class;
+	}
 }
\ No newline at end of file
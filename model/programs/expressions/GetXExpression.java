@@ -25,4 +25,9 @@ public class GetXExpression extends UnaryExpression<Double, Entity> {
 	public Double evaluate(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
 		return evaluateSubExpression(executor).getPosition().getxComponent();
 	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Double.class;
+	}
 }
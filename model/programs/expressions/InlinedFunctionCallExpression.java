@@ -0,0 +1,112 @@
+package asteroids.model.programs.expressions;
+
+import asteroids.model.exceptions.IllegalMethodCallException;
+import asteroids.model.programs.ProgramExecutor;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class representing a call of a function whose body consists of a single return statement, in which the expression returned
+ * by that function replaces the execution of its body.
+ *
+ * The actual arguments are evaluated once, in order, before the returned expression is evaluated in a new parameter scope. If the
+ * returned expression reads variables, it is evaluated in a new variable scope as well, just like the body of the function.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ */
+public class InlinedFunctionCallExpression<T> extends ComposedExpression<T> {
+
+	public InlinedFunctionCallExpression(String name, Expression<?>[] actualArgumentExpressions, Expression<? extends T> returnedExpression)
+			throws IllegalArgumentException {
+		if (name == null || actualArgumentExpressions == null || ! canHaveAsSubExpression(returnedExpression))
+			throw new IllegalArgumentException();
+		for (Expression<?> expression : actualArgumentExpressions)
+			if (! canHaveAsSubExpression(expression))
+				throw new IllegalArgumentException();
+		this.name = name;
+		this.actualArgumentExpressions = actualArgumentExpressions.clone();
+		this.returnedExpression = returnedExpression;
+		this.readsVariables = readsVariable(returnedExpression);
+	}
+
+	@Override
+	public T evaluate(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
+		Object[] values = new Object[actualArgumentExpressions.length];
+		for (int i = 0; i < actualArgumentExpressions.length; i++)
+			values[i] = actualArgumentExpressions[i].evaluateProfiled(executor);
+		executor.getParameterContainer().createNewScope(values);
+		if (readsVariables)
+			executor.getVariableContainer().createNewScope();
+		try {
+			return getReturnedExpression().evaluateProfiled(executor);
+		}
+		finally {
+			executor.getParameterContainer().deleteCurrentScope();
+			if (readsVariables)
+				executor.getVariableContainer().deleteCurrentScope();
+		}
+	}
+
+	private static boolean readsVariable(Expression<?> expression) {
+		if (expression instanceof ReadVariableExpression)
+			return true;
+		for (Expression<?> subExpression : expression.getSubExpressions()) {
+			if (readsVariable(subExpression))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Variable registering whether the returned expression of this inlined function call reads variables.
+	 */
+	private final boolean readsVariables;
+
+	@Override
+	public boolean hasAsSubExpression(Expression<?> expression) {
+		for (Expression<?> subExpression : getSubExpressions()) {
+			if (subExpression == expression)
+				return true;
+			if (subExpression instanceof ComposedExpression<?> && ((ComposedExpression<?>)subExpression).hasAsSubExpression(expression))
+				return true;
+		}
+		return false;
+	}
+
+	@Override
+	public Expression<?>[] getSubExpressions() {
+		Expression<?>[] result = new Expression<?>[actualArgumentExpressions.length + 1];
+		System.arraycopy(actualArgumentExpressions, 0, result, 0, actualArgumentExpressions.length);
+		result[actualArgumentExpressions.length] = getReturnedExpression();
+		return result;
+	}
+
+	@Override
+	public Class<?> getStaticType() {
+		return getReturnedExpression().getStaticType();
+	}
+
+	/**
+	 * Return the name of the function whose call is inlined.
+	 */
+	@Basic @Immutable
+	public String getName() {
+		return this.name;
+	}
+
+	private final String name;
+
+	public Expression<?>[] getActualArgumentExpressions() {
+		return actualArgumentExpressions.clone();
+	}
+
+	private final Expression<?>[] actualArgumentExpressions;
+
+	@Basic @Immutable
+	public Expression<? extends T> getReturnedExpression() {
+		return this.returnedExpression;
+	}
+
+	private final Expression<? extends T> returnedExpression;
+}
@@ -36,5 +36,14 @@ public class LessThanExpression extends BinaryExpression<Boolean, Double, Double
 	public Boolean evaluate(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
 		return evaluateLeftSubExpression(executor) < evaluateRightSubExpression(executor);
 	}
-
+	
+	@Override
+	public boolean isConstant() {
+		return getLeftSubExpression().isConstant() && getRightSubExpression().isConstant();
+	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Boolean.class;
+	}
 }
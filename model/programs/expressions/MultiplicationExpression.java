@@ -37,4 +37,13 @@ public class MultiplicationExpression extends BinaryExpression<Double, Double, D
 		return evaluateLeftSubExpression(executor) * evaluateRightSubExpression(executor);
 	}
 	
+	@Override
+	public boolean isConstant() {
+		return getLeftSubExpression().isConstant() && getRightSubExpression().isConstant();
+	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Double.class;
+	}
 }
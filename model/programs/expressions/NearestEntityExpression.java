@@ -1,6 +1,5 @@
 package asteroids.model.programs.expressions;
 
-import java.util.Optional;
 import java.util.stream.Stream;
 
 import asteroids.model.exceptions.IllegalMethodCallException;
@@ -35,14 +34,9 @@ public class NearestEntityExpression extends Expression<Entity> {
 	
 	@Override
 	public Entity evaluate(ProgramExecutor executor) throws IllegalMethodCallException {
-		if (executor == null || executor.getShip() == null)
+		if (executor == null || executor.getShip() == null || executor.getShip().getWorld() == null)
 			throw new IllegalMethodCallException();
-		Stream<Entity> entityStream = stream(executor);
-		Ship currentShip = executor.getShip();
-		Optional<Entity> result = entityStream.filter(e -> getEntityType().isAssignableFrom(e.getClass()))
-					.filter(e -> e != currentShip)
-					.reduce( (e1, e2) -> (Entity.getDistanceBetween(e1, currentShip) <= Entity.getDistanceBetween(e2, currentShip)) ? e1 : e2);
-		return result.isPresent() ? result.get() : null;
+		return executor.getShip().getWorld().getNearestEntity(executor.getShip(), getEntityType());
 	}
 	
 	@Basic
@@ -55,5 +49,10 @@ public class NearestEntityExpression extends Expression<Entity> {
 	}
 	
 	
-	private final Class<? extends Entity> entityType; 
+	private final Class<? extends Entity> entityType;
+	
+	@Override
+	public Class<?> getStaticType() {
+		return getEntityType();
+	}
 }
@@ -26,4 +26,13 @@ public class NotExpression extends UnaryExpression<Boolean, Boolean> {
 		return ! evaluateSubExpression(executor);
 	}
 	
+	@Override
+	public boolean isConstant() {
+		return getSubExpression().isConstant();
+	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Boolean.class;
+	}
 }
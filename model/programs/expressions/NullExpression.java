@@ -16,5 +16,14 @@ public class NullExpression extends Expression<Entity> {
 	public Entity evaluate(ProgramExecutor executor) {
 		return null;
 	}
-
+	
+	@Override
+	public boolean isConstant() {
+		return true;
+	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Entity.class;
+	}
 }
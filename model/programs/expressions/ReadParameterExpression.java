@@ -22,7 +22,9 @@ public class ReadParameterExpression<T> extends UnknownTypeExpression<T> {
 
 	@Override
 	public <S> ReadParameterExpression<S> convertToType(Class<S> type) {
-		return new ReadParameterExpression<S>(getName());
+		ReadParameterExpression<S> result = new ReadParameterExpression<S>(getName());
+		result.setSourceLocation(getSourceLocation());
+		return result;
 	}
 	
 	@Override
@@ -17,7 +17,9 @@ public class ReadVariableExpression<T> extends UnknownTypeExpression<T> {
 
 	@Override
 	public <S> ReadVariableExpression<S> convertToType(Class<S> type) {
-		return new ReadVariableExpression<S>(getName());
+		ReadVariableExpression<S> result = new ReadVariableExpression<S>(getName());
+		result.setSourceLocation(getSourceLocation());
+		return result;
 	}
 
 	@Override
@@ -19,5 +19,9 @@ public class SelfExpression extends Expression<Entity> {
 			throw new IllegalMethodCallException();
 		return executor.getShip();
 	}
-
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Entity.class;
+	}
 }
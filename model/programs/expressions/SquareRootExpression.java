@@ -28,4 +28,13 @@ public class SquareRootExpression extends UnaryExpression<Double, Double> {
 		return Math.sqrt(radicand);
 	}
 	
+	@Override
+	public boolean isConstant() {
+		return getSubExpression().isConstant();
+	}
+	
+	@Override
+	public Class<?> getStaticType() {
+		return Double.class;
+	}
 }
@@ -29,8 +29,13 @@ public abstract class UnaryExpression<T, S> extends ComposedExpression<T> {
 		return false;
 	}
 	
+	@Override
+	public Expression<?>[] getSubExpressions() {
+		return new Expression<?>[] {getSubExpression()};
+	}
+	
 	public S evaluateSubExpression(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
-		return getSubExpression().evaluate(executor);
+		return getSubExpression().evaluateProfiled(executor);
 	}
 	
 	public Expression<? extends S> getSubExpression() {
@@ -0,0 +1,55 @@
+package asteroids.model.programs.expressions;
+
+import java.util.Objects;
+
+import asteroids.model.exceptions.IllegalMethodCallException;
+import asteroids.model.programs.ProgramExecutor;
+
+/**
+ * A class representing an optimized expression that is checked against the unoptimized expression it was derived from.
+ * Each time the expression is evaluated, both expressions are evaluated in the same context, and an IllegalStateException is
+ * thrown if their values differ. Hence, the unoptimized expression must not have side effects.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ *
+ * @param <T> Return type of this.evaluate()
+ */
+public class VerifiedExpression<T> extends BinaryExpression<T, T, Object> {
+
+	public VerifiedExpression(Expression<? extends T> optimizedExpression, Expression<?> originalExpression) throws IllegalArgumentException {
+		super(optimizedExpression, originalExpression);
+	}
+
+	public Expression<? extends T> getOptimizedExpression() {
+		return getLeftSubExpression();
+	}
+
+	public Expression<?> getOriginalExpression() {
+		return getRightSubExpression();
+	}
+
+	/**
+	 * @throws IllegalStateException
+	 * 			The value of the optimized expression differs from the value of the original expression.
+	 */
+	@Override
+	public T evaluate(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException,
+			IllegalStateException {
+		T result = evaluateLeftSubExpression(executor);
+		Object expected = evaluateRightSubExpression(executor);
+		if (!Objects.equals(result, expected))
+			throw new IllegalStateException("The optimized expression evaluates to " + result + " instead of " + expected + ".");
+		return result;
+	}
+
+	@Override
+	public boolean isConstant() {
+		return getLeftSubExpression().isConstant() && getRightSubExpression().isConstant();
+	}
+
+	@Override
+	public Class<?> getStaticType() {
+		return getLeftSubExpression().getStaticType();
+	}
+}
@@ -28,10 +28,12 @@ public abstract class Action<T> extends SingleExpressionStatement<T> {
 	
 	@Override
 	public void execute(ProgramExecutor executor) throws IllegalMethodCallException, HoldException, NullPointerException {
-		if (!(getExecutable() instanceof Program))
+		if (!executor.getProgram().isVerified() && !(getExecutable() instanceof Program))
 			throw new IllegalMethodCallException();
-		if (getTimeToExecute() > executor.getRemainingExecutionTime())
+		if (getTimeToExecute() > executor.getRemainingExecutionTime()) {
+			executor.setPendingActionTime(getTimeToExecute());
 			throw new HoldException();
+		}
 		executor.decreaseRemainingTime(getTimeToExecute());
 		// decreaseRemainingTime() cannot throw an IllegalArgumentException: it only throws such an exception if
 		// executor.getRemainingExecutionTime() - getTimeToExecute() is less than zero; but this is already checked by the previous if-statement.
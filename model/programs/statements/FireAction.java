@@ -21,7 +21,8 @@ public class FireAction extends Action<Object> {
 	@Override
 	public void execute(ProgramExecutor executor) throws IllegalMethodCallException, HoldException, NullPointerException {
 		super.execute(executor);
-		executor.getShip().fireBullet();
+		executor.performCommand(ship -> ship.fireBullet());
+		executor.clearFunctionCache();
 	}
 	
 	public static final double TIME_TO_EXECUTE = 0.2;
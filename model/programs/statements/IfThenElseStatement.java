@@ -37,12 +37,12 @@ public class IfThenElseStatement extends SingleExpressionStatement<Boolean> impl
 			executor.setExecutionPositionAt(getDepth(), CONDITION);
 		if (evaluateExpression(executor) || executor.getExecutionPositionAt(getDepth()) == IF) {
 			setExecutionPosition(IF, executor);
-			getIfStatement().execute(executor);
+			getIfStatement().executeProfiled(executor);
 			setExecutionPosition(CONDITION, executor);
 		}
 		else if (getElseStatement() != null || executor.getExecutionPositionAt(getDepth()) == ELSE) {
 			setExecutionPosition(ELSE, executor);			
-			getElseStatement().execute(executor);
+			getElseStatement().executeProfiled(executor);
 			setExecutionPosition(CONDITION, executor);
 		}
 		executor.removeExecutionPosition();
@@ -20,14 +20,9 @@ public class PrintStatement extends SingleExpressionStatement<Object> {
 	
 	@Override
 	public void execute(ProgramExecutor executor) throws NullPointerException, IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
-		if (! (getExecutable() instanceof Program))
+		if (! executor.getProgram().isVerified() && ! (getExecutable() instanceof Program))
 			throw new IllegalMethodCallException();
-		Object evaluation = evaluateExpression(executor);
-		if (evaluation == null)
-			System.out.println("null");
-		else
-			System.out.println(evaluation.toString());
-		executor.addToPrintList(evaluation);
+		executor.addToPrintList(evaluateExpression(executor));
 	}
 
 }
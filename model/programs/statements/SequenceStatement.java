@@ -38,7 +38,8 @@ public class SequenceStatement extends Statement implements ComposedStatement {
 		if (executor.getCurrentExecutionListLength() <= getDepth())
 			executor.setExecutionPositionAt(getDepth(), 1);
 		for (int i = executor.getExecutionPositionAt(getDepth()); i <= getNbOfEnclosedStatements(); i++) {
-			getEnclosedStatementAt(i).execute(executor);
+			executor.countInstruction();
+			getEnclosedStatementAt(i).executeProfiled(executor);
 			stepExecutionPosition(executor);
 		}
 		executor.removeExecutionPosition();
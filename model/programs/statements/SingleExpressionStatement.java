@@ -29,7 +29,7 @@ public abstract class SingleExpressionStatement<T> extends Statement {
 	}
 	
 	public T evaluateExpression(ProgramExecutor executor) throws IllegalMethodCallException, IndexOutOfBoundsException, ArithmeticException {
-		return getExpression().evaluate(executor);
+		return getExpression().evaluateProfiled(executor);
 	}
 	
 	
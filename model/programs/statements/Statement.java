@@ -6,6 +6,7 @@ import asteroids.model.exceptions.programExceptions.HoldException;
 import asteroids.model.exceptions.programExceptions.NoReturnException;
 import asteroids.model.exceptions.programExceptions.ReturnException;
 import asteroids.model.programs.*;
+import asteroids.part3.programs.SourceLocation;
 import be.kuleuven.cs.som.annotate.*;
 
 /**
@@ -23,6 +24,44 @@ public abstract class Statement {
 	public abstract void execute(ProgramExecutor executor) throws IllegalMethodCallException, HoldException, NullPointerException, IndexOutOfBoundsException,
 																	BreakException, ReturnException, NoReturnException, IllegalArgumentException, ArithmeticException;
 	
+	/**
+	 * Execute this statement, registering the execution with the profiler of the given program executor if it has one.
+	 * Enclosing nodes execute their enclosed statements by means of this method.
+	 */
+	public final void executeProfiled(ProgramExecutor executor) throws IllegalMethodCallException, HoldException, NullPointerException, IndexOutOfBoundsException,
+																	BreakException, ReturnException, NoReturnException, IllegalArgumentException, ArithmeticException {
+		ProgramProfiler profiler = executor.getProfiler();
+		if (profiler == null) {
+			execute(executor);
+			return;
+		}
+		profiler.enter(this);
+		try {
+			execute(executor);
+		}
+		finally {
+			profiler.exit();
+		}
+	}
+	
+	/**
+	 * Return the location in the source code of the program at which this statement was created, or null if it is unknown.
+	 */
+	@Basic
+	public SourceLocation getSourceLocation() {
+		return this.sourceLocation;
+	}
+	
+	/*
+	 * The source location of this statement is only set if it is still null.
+	 */
+	public void setSourceLocation(SourceLocation location) {
+		if (this.sourceLocation == null)
+			this.sourceLocation = location;
+	}
+	
+	private SourceLocation sourceLocation;
+	
 	public Executable getExecutable() {
 		if (getEnclosingStatement() == null)
 			return getDirectExecutable();
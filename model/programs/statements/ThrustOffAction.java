@@ -21,7 +21,7 @@ public class ThrustOffAction extends Action<Object> {
 	@Override
 	public void execute(ProgramExecutor executor) throws IllegalMethodCallException, HoldException, NullPointerException {
 		super.execute(executor);
-		executor.getShip().thrustOff();
+		executor.performCommand(ship -> ship.thrustOff());
 	}
 	
 	public static final double TIME_TO_EXECUTE = 0.2;
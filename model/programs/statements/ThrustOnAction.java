@@ -21,7 +21,7 @@ public class ThrustOnAction extends Action<Object> {
 	@Override
 	public void execute(ProgramExecutor executor) throws IllegalMethodCallException, HoldException, NullPointerException {
 		super.execute(executor);
-		executor.getShip().thrustOn();
+		executor.performCommand(ship -> ship.thrustOn());
 	}
 	
 	public static final double TIME_TO_EXECUTE = 0.2;
@@ -22,16 +22,20 @@ public class TurnAction extends Action<Double> {
 	@Override
 	public void execute(ProgramExecutor executor) throws IllegalMethodCallException, HoldException, NullPointerException {
 		super.execute(executor);
-		try {
-//			double turnAngle = evaluateExpression(executor);
-//			turnAngle = InternalUtils.toProperAngleDelta(executor.getShip().getOrientation(), turnAngle);
-//			executor.getShip().turn(turnAngle);
-			executor.getShip().turn(evaluateExpression(executor));
-		}
-		catch (AssertionError err) {
-			//By using toProperAngleDelta, this assertion error should not be thrown. We include this catcher as a safety measure.
-			;
-		}
+		double angle = evaluateExpression(executor);
+		executor.performCommand(ship -> {
+			try {
+//				double turnAngle = evaluateExpression(executor);
+//				turnAngle = InternalUtils.toProperAngleDelta(executor.getShip().getOrientation(), turnAngle);
+//				executor.getShip().turn(turnAngle);
+				ship.turn(angle);
+			}
+			catch (AssertionError err) {
+				//By using toProperAngleDelta, this assertion error should not be thrown. We include this catcher as a safety measure.
+				;
+			}
+		});
+		executor.clearFunctionCache();
 	}
 	
 	public static final double TIME_TO_EXECUTE = 0.2;
@@ -31,9 +31,10 @@ public class WhileStatement extends SingleExpressionStatement<Boolean> implement
 		if (executor.getCurrentExecutionListLength() <= getDepth())
 			executor.setExecutionPositionAt(getDepth(), NOT_EXECUTING_BODY);
 		while (evaluateExpression(executor) || executor.getExecutionPositionAt(getDepth()) == EXECUTING_BODY) {
+			executor.countInstruction();
 			setIsExecutingBody(EXECUTING_BODY, executor);
 			try {
-				getBodyStatement().execute(executor);
+				getBodyStatement().executeProfiled(executor);
 			}
 			catch (BreakException exc) {
 				break;
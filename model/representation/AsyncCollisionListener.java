@@ -0,0 +1,348 @@
+package asteroids.model.representation;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of collision listeners forwarding the collisions they are shown to another listener on a thread of their own.
+ *
+ * A world evolving with an asynchronous listener only enqueues a small record per collision, holding the colliding entities and the
+ * coordinates of the collision, in a lock-free queue. A consumer thread drains the queue in batches and invokes the target listener
+ * for each record, in the order in which the collisions occurred. Hence, a slow target listener does not stall the evolution of the
+ * world. Note that the target listener observes the entities as they are when the record is delivered, which may be later than the
+ * collision; only the coordinates are those of the collision.
+ * The number of records waiting in the queue is bounded by the capacity of the listener. The overflow policy of the listener
+ * determines what happens to a collision that is shown while the queue is full.
+ *
+ * @invar | getCapacity() > 0
+ * @invar | getBatchSize() > 0
+ * @invar | getOverflowPolicy() != null
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+public class AsyncCollisionListener implements CollisionListener, AutoCloseable {
+
+	/**
+	 * An enumeration of the policies applied to a collision that is shown while the queue of a listener is full.
+	 */
+	public static enum OverflowPolicy {
+		/**
+		 * The new collision is dropped.
+		 */
+		DROP_NEWEST,
+		/**
+		 * The oldest collision in the queue is dropped to make room for the new collision.
+		 */
+		DROP_OLDEST,
+		/**
+		 * The thread showing the new collision waits until there is room in the queue.
+		 */
+		BLOCK
+	}
+
+	/**
+	 * Initialize this new listener forwarding collisions to the given target listener, with the given capacity, batch size and
+	 * overflow policy, and start its consumer thread.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| target == null || capacity <= 0 || batchSize <= 0 || overflowPolicy == null
+	 */
+	public AsyncCollisionListener(CollisionListener target, int capacity, int batchSize, OverflowPolicy overflowPolicy)
+			throws IllegalArgumentException {
+		if (target == null || capacity <= 0 || batchSize <= 0 || overflowPolicy == null)
+			throw new IllegalArgumentException();
+		this.target = target;
+		this.capacity = capacity;
+		this.batchSize = batchSize;
+		this.overflowPolicy = overflowPolicy;
+		this.consumer = new Thread(this::dispatch, "collision-dispatch");
+		this.consumer.setDaemon(true);
+		this.consumer.start();
+	}
+
+	/**
+	 * Initialize this new listener forwarding collisions to the given target listener, with the default capacity and batch size,
+	 * dropping the oldest collisions when the queue is full.
+	 */
+	public AsyncCollisionListener(CollisionListener target) throws IllegalArgumentException {
+		this(target, DEFAULT_CAPACITY, DEFAULT_BATCH_SIZE, OverflowPolicy.DROP_OLDEST);
+	}
+
+	public static final int DEFAULT_CAPACITY = 4096;
+
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	@Basic @Immutable
+	public CollisionListener getTarget() {
+		return this.target;
+	}
+
+	private final CollisionListener target;
+
+	/**
+	 * Return the maximal number of collisions waiting in the queue of this listener.
+	 */
+	@Basic @Immutable
+	public int getCapacity() {
+		return this.capacity;
+	}
+
+	private final int capacity;
+
+	/**
+	 * Return the maximal number of collisions the consumer thread of this listener takes from its queue at once.
+	 */
+	@Basic @Immutable
+	public int getBatchSize() {
+		return this.batchSize;
+	}
+
+	private final int batchSize;
+
+	@Basic @Immutable
+	public OverflowPolicy getOverflowPolicy() {
+		return this.overflowPolicy;
+	}
+
+	private final OverflowPolicy overflowPolicy;
+
+	/**
+	 * Enqueue the collision of the given entity with the boundary at the given coordinates.
+	 *
+	 * @throws IllegalStateException
+	 * 			| isClosed()
+	 */
+	@Override
+	public void boundaryCollision(Object entity, double x, double y) throws IllegalStateException {
+		enqueue(new CollisionRecord(entity, null, x, y));
+	}
+
+	/**
+	 * Enqueue the collision between the given entities at the given coordinates.
+	 *
+	 * @throws IllegalStateException
+	 * 			| isClosed()
+	 */
+	@Override
+	public void objectCollision(Object entity1, Object entity2, double x, double y) throws IllegalStateException {
+		enqueue(new CollisionRecord(entity1, entity2, x, y));
+	}
+
+	private void enqueue(CollisionRecord record) throws IllegalStateException {
+		if (isClosed())
+			throw new IllegalStateException();
+		// A place in the queue is reserved before the record is added, such that the queue never exceeds its capacity.
+		while (size.incrementAndGet() > getCapacity()) {
+			size.decrementAndGet();
+			switch (getOverflowPolicy()) {
+				case DROP_NEWEST:
+					nbOfDroppedCollisions.increment();
+					return;
+				case DROP_OLDEST:
+					if (queue.poll() != null) {
+						size.decrementAndGet();
+						nbOfDroppedCollisions.increment();
+					}
+					break;
+				case BLOCK:
+					LockSupport.unpark(consumer);
+					LockSupport.parkNanos(this, BLOCKING_PARK_NANOS);
+					if (isClosed())
+						throw new IllegalStateException();
+					break;
+			}
+		}
+		queue.offer(record);
+		nbOfEnqueuedCollisions.increment();
+		if (consumerIdle)
+			LockSupport.unpark(consumer);
+	}
+
+	/**
+	 * The time a thread showing a collision waits before it checks again whether there is room in a full queue.
+	 */
+	private static final long BLOCKING_PARK_NANOS = 50_000;
+
+	/**
+	 * Deliver the collisions in the queue of this listener to its target, batch by batch, until this listener is closed and its
+	 * queue is empty.
+	 */
+	private void dispatch() {
+		List<CollisionRecord> batch = new ArrayList<>(getBatchSize());
+		while (true) {
+			CollisionRecord record;
+			while (batch.size() < getBatchSize() && (record = queue.poll()) != null)
+				batch.add(record);
+			if (batch.isEmpty()) {
+				if (isClosed() && queue.isEmpty())
+					return;
+				// The flag is set before the queue is checked again, such that a record added in the meantime unparks this thread.
+				consumerIdle = true;
+				if (queue.isEmpty())
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+				consumerIdle = false;
+				continue;
+			}
+			size.addAndGet(-batch.size());
+			for (CollisionRecord delivered : batch) {
+				try {
+					delivered.deliverTo(getTarget());
+				}
+				catch (RuntimeException exc) {
+					if (failure == null)
+						failure = exc;
+				}
+			}
+			synchronized (deliveryMonitor) {
+				nbOfDeliveredCollisions += batch.size();
+				nbOfBatches++;
+				deliveryMonitor.notifyAll();
+			}
+			batch.clear();
+		}
+	}
+
+	/**
+	 * The time the consumer thread waits at most for new collisions before it checks whether this listener is closed.
+	 */
+	private static final long IDLE_PARK_NANOS = 10_000_000;
+
+	private final Queue<CollisionRecord> queue = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * The number of collisions in the queue, including places reserved by threads that are about to add a collision.
+	 */
+	private final AtomicInteger size = new AtomicInteger();
+
+	private final Thread consumer;
+
+	private volatile boolean consumerIdle;
+
+	/**
+	 * Wait until all collisions enqueued so far have been delivered to the target of this listener or dropped, or until the given
+	 * timeout has elapsed.
+	 *
+	 * @return True if and only if all collisions enqueued so far have been delivered or dropped.
+	 */
+	public boolean flush(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (deliveryMonitor) {
+			while (nbOfDeliveredCollisions + getNbOfDroppedCollisions() < getNbOfShownCollisions()) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+					return false;
+				TimeUnit.NANOSECONDS.timedWait(deliveryMonitor, remaining);
+			}
+			return true;
+		}
+	}
+
+	private final Object deliveryMonitor = new Object();
+
+	/**
+	 * Return the number of collisions shown to this listener, whether they were delivered, dropped or are still waiting.
+	 */
+	public long getNbOfShownCollisions() {
+		// Collisions dropped under the policy DROP_NEWEST are never enqueued.
+		return nbOfEnqueuedCollisions.sum() + (getOverflowPolicy() == OverflowPolicy.DROP_NEWEST ? nbOfDroppedCollisions.sum() : 0);
+	}
+
+	private final LongAdder nbOfEnqueuedCollisions = new LongAdder();
+
+	public long getNbOfDroppedCollisions() {
+		return nbOfDroppedCollisions.sum();
+	}
+
+	private final LongAdder nbOfDroppedCollisions = new LongAdder();
+
+	public long getNbOfDeliveredCollisions() {
+		synchronized (deliveryMonitor) {
+			return nbOfDeliveredCollisions;
+		}
+	}
+
+	private long nbOfDeliveredCollisions;
+
+	/**
+	 * Return the number of batches the consumer thread of this listener has delivered.
+	 */
+	public long getNbOfBatches() {
+		synchronized (deliveryMonitor) {
+			return nbOfBatches;
+		}
+	}
+
+	private long nbOfBatches;
+
+	/**
+	 * Return the first exception thrown by the target of this listener, or null if there is none.
+	 * Collisions are still delivered after the target has thrown an exception.
+	 */
+	public RuntimeException getFailure() {
+		return this.failure;
+	}
+
+	private volatile RuntimeException failure;
+
+	/**
+	 * Close this listener: no collisions are accepted anymore. The collisions in the queue are still delivered before this method
+	 * returns, unless the current thread is interrupted.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		LockSupport.unpark(consumer);
+		try {
+			consumer.join();
+		}
+		catch (InterruptedException exc) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Basic
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	private volatile boolean closed;
+
+	/**
+	 * A class of records registering a single collision.
+	 */
+	private static final class CollisionRecord {
+
+		private CollisionRecord(Object entity1, Object entity2, double x, double y) {
+			this.entity1 = entity1;
+			this.entity2 = entity2;
+			this.x = x;
+			this.y = y;
+		}
+
+		private final Object entity1;
+
+		/**
+		 * The second entity of the collision, or null if the first entity collides with the boundary.
+		 */
+		private final Object entity2;
+
+		private final double x, y;
+
+		private void deliverTo(CollisionListener listener) {
+			if (entity2 == null)
+				listener.boundaryCollision(entity1, x, y);
+			else
+				listener.objectCollision(entity1, entity2, x, y);
+		}
+	}
+}
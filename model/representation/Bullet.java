@@ -155,7 +155,7 @@ public class Bullet extends Entity {
 	 * @throws IllegalArgumentException
 	 * 			| ! canHaveAsNbOfBounces(number)
 	 */
-	private void setNbOfBounces(int number) throws TerminatedException, IllegalArgumentException {
+	void setNbOfBounces(int number) throws TerminatedException, IllegalArgumentException {
 		if (isTerminated())
 			throw new TerminatedException();
 		if (!canHaveAsNbOfBounces(number))
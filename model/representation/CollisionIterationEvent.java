@@ -0,0 +1,31 @@
+package asteroids.model.representation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events registering a single iteration of the collision loop of an evolving world: advancing the world
+ * to the first collision and resolving all collisions at that time.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+@Name("asteroids.CollisionIteration")
+@Label("Collision Iteration")
+@Category({"Asteroids", "World"})
+@Description("Advancing a world to its first collision and resolving the collisions at that time")
+class CollisionIterationEvent extends jdk.jfr.Event {
+
+	@Label("Time To First Collision")
+	@Description("The simulated time the world was advanced with, in seconds")
+	double timeToFirstCollision;
+
+	@Label("Contacts")
+	@Description("The number of collisions resolved, including collisions with the boundary")
+	int nbOfContacts;
+
+	@Label("Entities")
+	int nbOfEntities;
+}
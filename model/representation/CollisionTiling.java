@@ -0,0 +1,237 @@
+package asteroids.model.representation;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * A class of tilings partitioning the space swept by a list of entities during a given horizon into a grid of tiles, such that
+ * pairs of entities can be examined tile by tile, in parallel.
+ *
+ * Every entity is registered in each tile overlapped by the bounding box of the disc it sweeps while moving with its current
+ * velocity during the horizon, enlarged to the distance at which two entities apparently collide, including the distance it moves
+ * during the collision batching window of the tiling. Two entities that touch at
+ * some moment during the horizon have intersecting boxes, hence they share at least one tile. A pair sharing several tiles is
+ * only examined by the tile containing the lower left corner of the intersection of their boxes, such that every pair is examined
+ * exactly once, whatever the borders between the tiles.
+ * Pairs of sleeping entities are not examined when the time to the first collision is computed, since they never collide.
+ * A tiling only reads the state of the entities; it must not be used after any of them has changed.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+class CollisionTiling {
+
+	/**
+	 * Initialize this new tiling for the given entities, of which the given entities are sleeping, the given horizon and the given
+	 * collision batching window.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| entities == null || sleepingEntities == null || !(horizon >= 0) || Double.isInfinite(horizon) ||
+	 * 			|	!World.isValidCollisionBatchingWindow(window)
+	 */
+	CollisionTiling(List<Entity> entities, double horizon, double window, Set<Entity> sleepingEntities)
+			throws IllegalArgumentException {
+		if (entities == null || sleepingEntities == null || !(horizon >= 0) || Double.isInfinite(horizon) ||
+				!World.isValidCollisionBatchingWindow(window))
+			throw new IllegalArgumentException();
+		this.entities = entities;
+		int n = entities.size();
+		sleeping = new boolean[n];
+		minX = new double[n];
+		minY = new double[n];
+		maxX = new double[n];
+		maxY = new double[n];
+		double left = Double.POSITIVE_INFINITY, bottom = Double.POSITIVE_INFINITY;
+		double right = Double.NEGATIVE_INFINITY, top = Double.NEGATIVE_INFINITY;
+		for (int i = 0; i < n; i++) {
+			Entity entity = entities.get(i);
+			sleeping[i] = sleepingEntities.contains(entity);
+			double x = entity.getPosition().getxComponent(), y = entity.getPosition().getyComponent();
+			double dx = entity.getVelocity().getxComponent() * horizon, dy = entity.getVelocity().getyComponent() * horizon;
+			double margin = entity.getRadius() * MARGIN_FACTOR + window * entity.getVelocity().getSpeed() +
+					ROUNDING_FACTOR * (Math.abs(x) + Math.abs(y) + Math.abs(dx) + Math.abs(dy));
+			minX[i] = Math.min(x, x + dx) - margin;
+			minY[i] = Math.min(y, y + dy) - margin;
+			maxX[i] = Math.max(x, x + dx) + margin;
+			maxY[i] = Math.max(y, y + dy) + margin;
+			left = Math.min(left, minX[i]);
+			bottom = Math.min(bottom, minY[i]);
+			right = Math.max(right, maxX[i]);
+			top = Math.max(top, maxY[i]);
+		}
+		this.left = left;
+		this.bottom = bottom;
+		this.nbOfTilesPerSide = Math.max(1, Math.min(MAXIMAL_NB_OF_TILES_PER_SIDE, (int)Math.sqrt(n / ENTITIES_PER_TILE)));
+		this.tileWidth = Math.max((right - left) / nbOfTilesPerSide, Double.MIN_NORMAL);
+		this.tileHeight = Math.max((top - bottom) / nbOfTilesPerSide, Double.MIN_NORMAL);
+		fillTiles();
+	}
+
+	/**
+	 * Initialize this new tiling for the given entities, none of which is sleeping, and the given horizon, without batching window.
+	 *
+	 * @effect | this(entities, horizon, 0, Collections.emptySet())
+	 */
+	CollisionTiling(List<Entity> entities, double horizon) throws IllegalArgumentException {
+		this(entities, horizon, 0, Collections.emptySet());
+	}
+
+	/**
+	 * The entities of this tiling. Entities are identified by their index in this list.
+	 */
+	private final List<Entity> entities;
+
+	/**
+	 * The bounding boxes of the space swept by the entities of this tiling.
+	 */
+	private final double[] minX, minY, maxX, maxY;
+
+	/**
+	 * Registers for each entity of this tiling whether it is sleeping.
+	 */
+	private final boolean[] sleeping;
+
+	private final double left, bottom, tileWidth, tileHeight;
+
+	private final int nbOfTilesPerSide;
+
+	/**
+	 * The indices of the entities registered in each tile, concatenated tile by tile. The indices registered in the tile with
+	 * index t are at the positions tileStarts[t] (inclusive) to tileStarts[t + 1] (exclusive), in increasing order.
+	 */
+	private int[] tileContents;
+
+	private int[] tileStarts;
+
+	/**
+	 * The enlargement of the radius of each entity: entities apparently collide up to a distance of (2 - ACCURACY_FACTOR) times
+	 * the sum of their radii.
+	 */
+	private static final double MARGIN_FACTOR = 2 - Entity.ACCURACY_FACTOR;
+
+	/**
+	 * A relative enlargement of each box covering rounding errors in the positions of the entities during the horizon.
+	 */
+	private static final double ROUNDING_FACTOR = 1e-9;
+
+	private static final int ENTITIES_PER_TILE = 16;
+
+	private static final int MAXIMAL_NB_OF_TILES_PER_SIDE = 1024;
+
+	private int getColumn(double x) {
+		return Math.max(0, Math.min(nbOfTilesPerSide - 1, (int)((x - left) / tileWidth)));
+	}
+
+	private int getRow(double y) {
+		return Math.max(0, Math.min(nbOfTilesPerSide - 1, (int)((y - bottom) / tileHeight)));
+	}
+
+	/**
+	 * Register every entity in the tiles overlapped by its box, using a counting pass followed by a filling pass.
+	 */
+	private void fillTiles() {
+		int nbOfTiles = nbOfTilesPerSide * nbOfTilesPerSide;
+		tileStarts = new int[nbOfTiles + 1];
+		for (int i = 0; i < entities.size(); i++) {
+			for (int row = getRow(minY[i]); row <= getRow(maxY[i]); row++)
+				for (int column = getColumn(minX[i]); column <= getColumn(maxX[i]); column++)
+					tileStarts[row * nbOfTilesPerSide + column + 1]++;
+		}
+		for (int t = 0; t < nbOfTiles; t++)
+			tileStarts[t + 1] += tileStarts[t];
+		tileContents = new int[tileStarts[nbOfTiles]];
+		int[] next = new int[nbOfTiles];
+		System.arraycopy(tileStarts, 0, next, 0, nbOfTiles);
+		for (int i = 0; i < entities.size(); i++) {
+			for (int row = getRow(minY[i]); row <= getRow(maxY[i]); row++)
+				for (int column = getColumn(minX[i]); column <= getColumn(maxX[i]); column++)
+					tileContents[next[row * nbOfTilesPerSide + column]++] = i;
+		}
+	}
+
+	/**
+	 * Check whether the pair of entities with the given indices, registered in the tile with the given index, must be examined by
+	 * that tile.
+	 */
+	private boolean isExaminedBy(int tile, int i, int j) {
+		if (minX[i] > maxX[j] || minX[j] > maxX[i] || minY[i] > maxY[j] || minY[j] > maxY[i])
+			return false;
+		return getRow(Math.max(minY[i], minY[j])) * nbOfTilesPerSide + getColumn(Math.max(minX[i], minX[j])) == tile;
+	}
+
+	/**
+	 * Return the time until the first collision between two entities of this tiling, if it occurs within the horizon.
+	 * The time is computed as by the world of the entities, for both orders of each pair of entities: overlapping entities
+	 * collide immediately. The pairs examined and the times of impact solved are added to the given metrics.
+	 *
+	 * @return Positive infinity if no two entities collide within the horizon, or a time that is at least the horizon.
+	 */
+	double getTimeToFirstCollision(WorldMetrics metrics) {
+		return IntStream.range(0, nbOfTilesPerSide * nbOfTilesPerSide).parallel().mapToDouble(tile -> {
+			double result = Double.POSITIVE_INFINITY;
+			int nbOfEntities = tileStarts[tile + 1] - tileStarts[tile];
+			metrics.addPairTests((long)nbOfEntities * (nbOfEntities - 1) / 2);
+			long nbOfImpactSolves = 0;
+			for (int a = tileStarts[tile]; a < tileStarts[tile + 1]; a++) {
+				for (int b = a + 1; b < tileStarts[tile + 1]; b++) {
+					int i = tileContents[a], j = tileContents[b];
+					if (!(sleeping[i] && sleeping[j]) && isExaminedBy(tile, i, j)) {
+						Entity entity = entities.get(i), other = entities.get(j);
+						if (Entity.overlap(entity, other)) {
+							metrics.addImpactSolves(nbOfImpactSolves);
+							return 0;
+						}
+						result = Math.min(result, Math.min(Entity.getTimeToCollision(entity, other),
+								Entity.getTimeToCollision(other, entity)));
+						nbOfImpactSolves += 2;
+					}
+				}
+			}
+			metrics.addImpactSolves(nbOfImpactSolves);
+			return result;
+		}).min().orElse(Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * Return the pairs of entities of this tiling that apparently collide, as pairs of indices ordered by their first and second
+	 * index, the first index of each pair being the smallest.
+	 */
+	List<int[]> getApparentCollisions() {
+		List<int[]> result = new ArrayList<>();
+		IntStream.range(0, nbOfTilesPerSide * nbOfTilesPerSide).parallel().mapToObj(tile -> {
+			List<int[]> pairs = new ArrayList<>();
+			for (int a = tileStarts[tile]; a < tileStarts[tile + 1]; a++) {
+				for (int b = a + 1; b < tileStarts[tile + 1]; b++) {
+					int i = tileContents[a], j = tileContents[b];
+					if (isExaminedBy(tile, i, j) && (Entity.apparentlyCollide(entities.get(i), entities.get(j)) ||
+							Entity.apparentlyCollide(entities.get(j), entities.get(i))))
+						pairs.add(new int[] {i, j});
+				}
+			}
+			return pairs;
+		}).forEachOrdered(result::addAll);
+		result.sort((pair1, pair2) -> (pair1[0] != pair2[0]) ? Integer.compare(pair1[0], pair2[0]) :
+				Integer.compare(pair1[1], pair2[1]));
+		return result;
+	}
+
+	/**
+	 * Check whether two entities of this tiling overlap.
+	 */
+	boolean hasOverlappingEntities() {
+		return IntStream.range(0, nbOfTilesPerSide * nbOfTilesPerSide).parallel().anyMatch(tile -> {
+			for (int a = tileStarts[tile]; a < tileStarts[tile + 1]; a++) {
+				for (int b = a + 1; b < tileStarts[tile + 1]; b++) {
+					int i = tileContents[a], j = tileContents[b];
+					if (isExaminedBy(tile, i, j) && (Entity.overlap(entities.get(i), entities.get(j)) ||
+							Entity.overlap(entities.get(j), entities.get(i))))
+						return true;
+				}
+			}
+			return false;
+		});
+	}
+}
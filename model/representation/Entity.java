@@ -237,8 +237,8 @@ public abstract class Entity {
 	 * 			still surround this entity. If, after this process, this entity overlaps with some other entity in its world, this
 	 * 			entity is terminated.
 	 * 			| let
-	 * 			|	newxComponent = getRadius() + Math.random() * (getWorld().getWidth() - 2 * getRadius())
-	 * 			|	newyComponent = getRadius() + Math.random() * (getWorld().getHeight() - 2 * getRadius())
+	 * 			|	newxComponent = getRadius() + getWorld().getRandom().nextDouble() * (getWorld().getWidth() - 2 * getRadius())
+	 * 			|	newyComponent = getRadius() + getWorld().getRandom().nextDouble() * (getWorld().getHeight() - 2 * getRadius())
 	 * 			| in
 	 * 			|	setPosition(newxComponent, newyComponent) ^ this.terminate()
 	 * @throws TerminatedException
@@ -253,12 +253,25 @@ public abstract class Entity {
 			throw new TerminatedException();
 		if (getWorld() == null)
 			throw new IllegalMethodCallException();
-		double newxComponent = getRadius() + Math.random() * (getWorld().getWidth() - 2 * getRadius());
-		double newyComponent = getRadius() + Math.random() * (getWorld().getHeight() - 2 * getRadius());
+		TeleportEvent event = new TeleportEvent();
+		event.begin();
+		Position oldPosition = getPosition();
+		double newxComponent = getRadius() + getWorld().getRandom().nextDouble() * (getWorld().getWidth() - 2 * getRadius());
+		double newyComponent = getRadius() + getWorld().getRandom().nextDouble() * (getWorld().getHeight() - 2 * getRadius());
 		setPosition(newxComponent, newyComponent);
 		getWorld().updatePosition(this);
-		if (!getWorld().hasProperEntities())
+		boolean destroyed = !getWorld().hasProperEntities();
+		if (destroyed)
 			terminate();
+		if (event.shouldCommit()) {
+			event.entityType = getClass();
+			event.fromX = oldPosition.getxComponent();
+			event.fromY = oldPosition.getyComponent();
+			event.toX = newxComponent;
+			event.toY = newyComponent;
+			event.destroyed = destroyed;
+			event.commit();
+		}
 	}
 	
 	/**
@@ -449,6 +462,8 @@ public abstract class Entity {
 			//have been thrown and caught such that canHaveAsVelocity(tempVelocity) is always true.
 		}
 		this.velocity = tempVelocity;
+		if (getWorld() != null)
+			getWorld().updateSleepingState(this);
 	}
 	
 	/**
@@ -456,6 +471,16 @@ public abstract class Entity {
 	 */
 	private Velocity velocity;
 	
+	/**
+	 * Check whether this entity is at rest, i.e. whether it does not move unless another entity collides with it.
+	 * 
+	 * @return | result == (getVelocity().getxComponent() == 0 && getVelocity().getyComponent() == 0)
+	 */
+	@Raw
+	public boolean isAtRest() {
+		return getVelocity().getxComponent() == 0 && getVelocity().getyComponent() == 0;
+	}
+	
 	
 	/**
 	 * Return the speed limit of this entity.
@@ -834,13 +859,22 @@ public abstract class Entity {
 	 * 			|	then result == false.
 	 * @return True if both entities are effective and associated to the same world and if the distance between the centres of the entities
 	 * 			lies within the range determined by the sum of their radii multiplied with ACCURACY_FACTOR and 2 - ACCURACY_FACTOR respectively,
-	 * 			and if both entities are moving towards each other.
+	 * 			and if both entities are moving towards each other. If their world batches collisions, the upper bound of that range
+	 * 			is increased with the distance over which the entities approach each other during the batching window of their world.
 	 * 			| @see implementation
 	 * @throws TerminatedException
 	 * 			One of the entities is terminated
 	 * 			| entity1.isTerminated() || entity2.isTerminated()
 	 */
 	public static boolean apparentlyCollide(Entity entity1, Entity entity2) throws TerminatedException {
+		return apparentlyCollide(entity1, entity2, true);
+	}
+	
+	/**
+	 * Check whether two entities apparently collide, taking the collision batching window of their world into account if and only
+	 * if the given flag is true.
+	 */
+	static boolean apparentlyCollide(Entity entity1, Entity entity2, boolean batching) throws TerminatedException {
 		if (entity1 == null || entity2 == null)
 			return false;
 		if (entity1.isTerminated() || entity2.isTerminated())
@@ -848,10 +882,14 @@ public abstract class Entity {
 		if (entity1.getWorld() == null || entity2.getWorld() == null ||
 				entity1.getWorld() != entity2.getWorld())
 			return false;
+		double dvDotdr = (entity1.getVelocity().vectorMinus(entity2.getVelocity())).scalarProductWith(
+											entity1.getPosition().vectorMinus(entity2.getPosition()));
+		boolean movingTowardsEachOther = dvDotdr < 0;
+		double maximalDistance = (2 - ACCURACY_FACTOR) * getSumOfRadii(entity1, entity2);
+		if (batching && movingTowardsEachOther && entity1.getWorld().getCollisionBatchingWindow() > 0)
+			maximalDistance += entity1.getWorld().getCollisionBatchingWindow() * -dvDotdr / getDistanceBetweenCentres(entity1, entity2);
 		boolean areCloseToEachOther = (ACCURACY_FACTOR * getSumOfRadii(entity1, entity2) <= getDistanceBetweenCentres(entity1, entity2)) &&
-				(getDistanceBetweenCentres(entity1, entity2) <= (2 - ACCURACY_FACTOR) * getSumOfRadii(entity1, entity2));
-		boolean movingTowardsEachOther = (entity1.getVelocity().vectorMinus(entity2.getVelocity())).scalarProductWith(
-											entity1.getPosition().vectorMinus(entity2.getPosition())) < 0;
+				(getDistanceBetweenCentres(entity1, entity2) <= maximalDistance);
 		return areCloseToEachOther && movingTowardsEachOther;
 	}
 	
@@ -1027,7 +1065,8 @@ public abstract class Entity {
 		
 		Position position1, position2;
 		
-		if (!apparentlyCollide(entity1, entity2)) {
+		// Entities that only apparently collide within the collision batching window of their world are still apart.
+		if (!apparentlyCollide(entity1, entity2, false) && Double.isFinite(timeToCollision)) {
 			position1 = entity1.getPosition().move(entity1.getVelocity(), timeToCollision);
 			position2 = entity2.getPosition().move(entity2.getVelocity(), timeToCollision);
 		}
@@ -1036,10 +1075,15 @@ public abstract class Entity {
 			position2 = entity2.getPosition();
 		}
 		
-		double radius1 = entity1.getRadius();
-		double radius2 = entity2.getRadius();
+		return getContactPosition(position1, entity1.getRadius(), position2, entity2.getRadius());
+	}
+	
+	/**
+	 * Return the position where two entities with the given positions and radii touch, i.e. the point dividing the line between
+	 * their centres in the ratio of their radii.
+	 */
+	static Position getContactPosition(Position position1, double radius1, Position position2, double radius2) {
 		double sumOfRadii = radius1 + radius2;
-		
 		return new Position( (position1.getxComponent() * radius2 + position2.getxComponent() * radius1) / sumOfRadii, 
 				(position1.getyComponent() * radius2 + position2.getyComponent() * radius1) / sumOfRadii);
 	}
@@ -1049,19 +1093,25 @@ public abstract class Entity {
 	 * 
 	 * @return True iff the world of this entity is effective and
 	 * 			the distance between the centre of this entity and a horizontal boundary of its world is less than or equal to
-	 * 			(2 - ACCURACY_FACTOR) times the radius of this entity, and this entity is moving towards the closest horizontal boundary.
+	 * 			(2 - ACCURACY_FACTOR) times the radius of this entity, increased with the distance over which this entity moves during
+	 * 			the collision batching window of its world, and this entity is moving towards the closest horizontal boundary.
 	 * 			| @see implementation
 	 * @throws TerminatedException
 	 * 			This entity is terminated.
 	 * 			| this.isTerminated()
 	 */
 	public boolean apparentlyCollidesWithHorizontalBoundary() throws TerminatedException {
+		return apparentlyCollidesWithHorizontalBoundary(true);
+	}
+	
+	private boolean apparentlyCollidesWithHorizontalBoundary(boolean batching) throws TerminatedException {
 		if (this.isTerminated())
 			throw new TerminatedException();
 		if (getWorld() == null)
 			return false;
-		return ( (getPosition().getyComponent() <= getRadius() * (2 - ACCURACY_FACTOR)) && getVelocity().getyComponent() < 0)
-				|| (getWorld().getHeight() - getPosition().getyComponent() <= getRadius() * (2 - ACCURACY_FACTOR) &&
+		double maximalDistance = getRadius() * (2 - ACCURACY_FACTOR) + getBatchingDistance(getVelocity().getyComponent(), batching);
+		return ( (getPosition().getyComponent() <= maximalDistance) && getVelocity().getyComponent() < 0)
+				|| (getWorld().getHeight() - getPosition().getyComponent() <= maximalDistance &&
 																								getVelocity().getyComponent() > 0);
 	}
 	
@@ -1070,19 +1120,25 @@ public abstract class Entity {
 	 * 
 	 * @return True iff the world of this entity is effective and
 	 * 			the distance between the centre of this entity and a vertical boundary of its world is less than or equal to
-	 * 			(2 - ACCURACY_FACTOR) times the radius of this entity, and this entity is moving towards the closest vertical boundary.
+	 * 			(2 - ACCURACY_FACTOR) times the radius of this entity, increased with the distance over which this entity moves during
+	 * 			the collision batching window of its world, and this entity is moving towards the closest vertical boundary.
 	 * 			| @see implementation
 	 * @throws TerminatedException
 	 * 			This entity is terminated.
 	 * 			| this.isTerminated()
 	 */
 	public boolean apparentlyCollidesWithVerticalBoundary() throws TerminatedException {
+		return apparentlyCollidesWithVerticalBoundary(true);
+	}
+	
+	private boolean apparentlyCollidesWithVerticalBoundary(boolean batching) throws TerminatedException {
 		if (this.isTerminated())
 			throw new TerminatedException();
 		if (getWorld() == null)
 			return false;
-    		return (getPosition().getxComponent() <= getRadius() * (2 - ACCURACY_FACTOR) && getVelocity().getxComponent() < 0)
-				|| (getWorld().getWidth() - getPosition().getxComponent() <= getRadius() * (2 - ACCURACY_FACTOR)
+		double maximalDistance = getRadius() * (2 - ACCURACY_FACTOR) + getBatchingDistance(getVelocity().getxComponent(), batching);
+    		return (getPosition().getxComponent() <= maximalDistance && getVelocity().getxComponent() < 0)
+				|| (getWorld().getWidth() - getPosition().getxComponent() <= maximalDistance
 																&& getVelocity().getxComponent() > 0);
 	}
   
@@ -1096,11 +1152,27 @@ public abstract class Entity {
 	 * 			| this.isTerminated()
 	 */
 	public boolean apparentlyCollidesWithBoundary() throws TerminatedException {
+		return apparentlyCollidesWithBoundary(true);
+	}
+	
+	/**
+	 * Check whether this entity apparently collides with the boundary of its world, taking the collision batching window of its
+	 * world into account if and only if the given flag is true.
+	 */
+	boolean apparentlyCollidesWithBoundary(boolean batching) throws TerminatedException {
 		if (this.isTerminated())
 			throw new TerminatedException();
 		if (getWorld() == null)
 			return false;
-		return apparentlyCollidesWithHorizontalBoundary() || apparentlyCollidesWithVerticalBoundary();
+		return apparentlyCollidesWithHorizontalBoundary(batching) || apparentlyCollidesWithVerticalBoundary(batching);
+	}
+	
+	/**
+	 * Return the distance over which this entity moves with the given velocity component during the collision batching window of
+	 * its world, or zero if the given flag is false.
+	 */
+	private double getBatchingDistance(double velocityComponent, boolean batching) {
+		return batching ? getWorld().getCollisionBatchingWindow() * Math.abs(velocityComponent) : 0;
 	}
 	
 	/**
@@ -1215,13 +1287,18 @@ public abstract class Entity {
 		dvx = this.getVelocity().getxComponent() - other.getVelocity().getxComponent();
 		dvy = this.getVelocity().getyComponent() - other.getVelocity().getyComponent();
 		sumOfRadii = this.getRadius() + other.getRadius();
+		double distance = sumOfRadii;
+		if (getWorld().getCollisionBatchingWindow() > 0)
+			//Batched collisions are resolved before the entities touch. The actual distance between their centres is used, such that
+			// the impulse is directed along the line through their centres and the kinetic energy is conserved.
+			distance = Math.hypot(dx, dy);
 		dvDotdr = dvx * dx + dvy * dy;
 		m1 = this.getTotalMass();
 		m2 = other.getTotalMass();
 		
-		double J = (2 * m1 * m2 * dvDotdr) / (sumOfRadii * (m1 + m2));
-		double Jx = J * dx / sumOfRadii;
-		double Jy = J * dy / sumOfRadii;
+		double J = (2 * m1 * m2 * dvDotdr) / (distance * (m1 + m2));
+		double Jx = J * dx / distance;
+		double Jy = J * dy / distance;
 		
 		this.setVelocity(this.getVelocity().getxComponent() - Jx / m1, this.getVelocity().getyComponent() - Jy / m1);
 		other.setVelocity(other.getVelocity().getxComponent() + Jx / m2, other.getVelocity().getyComponent() + Jy / m2);
@@ -0,0 +1,282 @@
+package asteroids.model.representation;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * A class of quadtrees indexing the entities of a world by the position of their centre.
+ *
+ * Each node of the tree registers the largest radius of the entities in its subtree and the number of entities of each class in
+ * its subtree. Hence, a nearest-neighbour query can bound the distance between the edges of a given entity and the edges of all
+ * entities in a node, and it can skip nodes that do not contain entities of the requested type.
+ * The largest radius of a node is never decreased while the node exists; since the radius of an entity never grows, it remains an
+ * upper bound of the radii of the entities in the node.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+class EntityQuadtree {
+
+	/**
+	 * Initialize this new quadtree for a world with the given width and height.
+	 */
+	EntityQuadtree(double width, double height) {
+		this.root = new Node(null, 0, 0, width, height, 0);
+	}
+
+	private final Node root;
+
+	/**
+	 * Return the number of entities in this quadtree.
+	 */
+	int size() {
+		return root.size;
+	}
+
+	/**
+	 * Add the given entity to this quadtree.
+	 */
+	void add(Entity entity) throws IllegalArgumentException {
+		if (entity == null || leaves.containsKey(entity))
+			throw new IllegalArgumentException();
+		root.insert(entity);
+	}
+
+	/**
+	 * Remove the given entity from this quadtree.
+	 */
+	void remove(Entity entity) throws IllegalArgumentException {
+		Node leaf = leaves.get(entity);
+		if (leaf == null)
+			throw new IllegalArgumentException();
+		leaf.entities.remove(entity);
+		leaves.remove(entity);
+		for (Node node = leaf; node != null; node = node.parent) {
+			node.size--;
+			node.decrementCount(entity.getClass());
+		}
+		// The sizes of the nodes increase towards the root, hence only the highest node that is small enough is collapsed.
+		Node toCollapse = null;
+		for (Node node = leaf.parent; node != null; node = node.parent) {
+			if (node.size <= BUCKET_CAPACITY)
+				toCollapse = node;
+		}
+		if (toCollapse != null)
+			toCollapse.collapse();
+	}
+
+	/**
+	 * Update the position of the given entity in this quadtree after its position or radius has changed.
+	 */
+	void update(Entity entity) throws IllegalArgumentException {
+		Node leaf = leaves.get(entity);
+		if (leaf == null)
+			throw new IllegalArgumentException();
+		if (leaf.contains(entity.getPosition())) {
+			for (Node node = leaf; node != null && node.maxRadius < entity.getRadius(); node = node.parent)
+				node.maxRadius = entity.getRadius();
+		}
+		else {
+			remove(entity);
+			add(entity);
+		}
+	}
+
+	/**
+	 * Return the given number of entities of the given type that are nearest to the given entity, ordered by increasing
+	 * distance between their edge and the edge of the given entity. The given entity itself is never part of the result.
+	 */
+	@SuppressWarnings("unchecked")
+	<T extends Entity> List<T> getNearest(Entity reference, Class<T> type, int number) {
+		List<T> result = new ArrayList<>(Math.min(number, size()));
+		if (number <= 0 || !root.containsEntitiesOfType(type))
+			return result;
+		double x = reference.getPosition().getxComponent();
+		double y = reference.getPosition().getyComponent();
+		PriorityQueue<Candidate> queue = new PriorityQueue<>();
+		queue.add(new Candidate(root.getDistanceLowerBound(x, y) - reference.getRadius(), root, null));
+		while (!queue.isEmpty() && result.size() < number) {
+			Candidate candidate = queue.poll();
+			if (candidate.entity != null) {
+				result.add((T)candidate.entity);
+			}
+			else if (candidate.node.children != null) {
+				for (Node child : candidate.node.children) {
+					if (child.containsEntitiesOfType(type))
+						queue.add(new Candidate(child.getDistanceLowerBound(x, y) - reference.getRadius(), child, null));
+				}
+			}
+			else {
+				for (Entity entity : candidate.node.entities) {
+					if (entity != reference && type.isInstance(entity))
+						queue.add(new Candidate(Entity.getDistanceBetween(entity, reference), null, entity));
+				}
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * A map registering the leaf containing each entity of this quadtree.
+	 */
+	private final Map<Entity, Node> leaves = new HashMap<>();
+
+	/**
+	 * The number of entities a leaf may contain before it is split.
+	 */
+	private static final int BUCKET_CAPACITY = 8;
+
+	/**
+	 * The maximal depth of a node; leaves at this depth are never split.
+	 */
+	private static final int MAXIMAL_DEPTH = 24;
+
+	/**
+	 * A class of nodes of a quadtree, covering a rectangular part of a world.
+	 */
+	private class Node {
+
+		private Node(Node parent, double minX, double minY, double maxX, double maxY, int depth) {
+			this.parent = parent;
+			this.minX = minX;
+			this.minY = minY;
+			this.maxX = maxX;
+			this.maxY = maxY;
+			this.depth = depth;
+		}
+
+		private final Node parent;
+
+		private final double minX, minY, maxX, maxY;
+
+		private final int depth;
+
+		/**
+		 * The children of this node, or null if this node is a leaf.
+		 */
+		private Node[] children;
+
+		/**
+		 * The entities contained in this node if it is a leaf.
+		 */
+		private List<Entity> entities = new ArrayList<>();
+
+		private int size;
+
+		private double maxRadius;
+
+		private final Map<Class<?>, Integer> counts = new HashMap<>();
+
+		private boolean contains(Position position) {
+			double x = position.getxComponent(), y = position.getyComponent();
+			return (parent == null) || (x >= minX && x < maxX && y >= minY && y < maxY);
+		}
+
+		private void insert(Entity entity) {
+			Node node = this;
+			while (true) {
+				node.size++;
+				node.maxRadius = Math.max(node.maxRadius, entity.getRadius());
+				node.counts.merge(entity.getClass(), 1, Integer::sum);
+				if (node.children == null)
+					break;
+				node = node.getChildFor(entity.getPosition());
+			}
+			node.entities.add(entity);
+			leaves.put(entity, node);
+			if (node.entities.size() > BUCKET_CAPACITY && node.depth < MAXIMAL_DEPTH)
+				node.split();
+		}
+
+		private Node getChildFor(Position position) {
+			double midX = (minX + maxX) / 2, midY = (minY + maxY) / 2;
+			return children[(position.getxComponent() < midX ? 0 : 1) + (position.getyComponent() < midY ? 0 : 2)];
+		}
+
+		private void split() {
+			double midX = (minX + maxX) / 2, midY = (minY + maxY) / 2;
+			children = new Node[] {
+				new Node(this, minX, minY, midX, midY, depth + 1), new Node(this, midX, minY, maxX, midY, depth + 1),
+				new Node(this, minX, midY, midX, maxY, depth + 1), new Node(this, midX, midY, maxX, maxY, depth + 1)};
+			List<Entity> toDistribute = entities;
+			entities = null;
+			for (Entity entity : toDistribute)
+				getChildFor(entity.getPosition()).insert(entity);
+		}
+
+		private void collapse() {
+			if (children == null)
+				return;
+			List<Entity> collected = new ArrayList<>(size);
+			collectEntities(collected);
+			children = null;
+			entities = collected;
+			for (Entity entity : collected)
+				leaves.put(entity, this);
+		}
+
+		private void collectEntities(List<Entity> collected) {
+			if (children == null)
+				collected.addAll(entities);
+			else {
+				for (Node child : children)
+					child.collectEntities(collected);
+			}
+		}
+
+		private void decrementCount(Class<?> entityClass) {
+			if (counts.merge(entityClass, -1, Integer::sum) == 0)
+				counts.remove(entityClass);
+		}
+
+		private boolean containsEntitiesOfType(Class<?> type) {
+			for (Class<?> entityClass : counts.keySet()) {
+				if (type.isAssignableFrom(entityClass))
+					return true;
+			}
+			return false;
+		}
+
+		/**
+		 * Return a lower bound on the distance between the given point and the edge of any entity in this node.
+		 */
+		private double getDistanceLowerBound(double x, double y) {
+			if (parent == null)
+				// Entities in the root are not guaranteed to lie within its bounds.
+				return -maxRadius;
+			double dx = Math.max(Math.max(minX - x, x - maxX), 0);
+			double dy = Math.max(Math.max(minY - y, y - maxY), 0);
+			return Math.sqrt(dx * dx + dy * dy) - maxRadius;
+		}
+	}
+
+	/**
+	 * A class of candidates of a nearest-neighbour query, ordered by their distance to the reference entity.
+	 */
+	private static class Candidate implements Comparable<Candidate> {
+
+		private Candidate(double distance, EntityQuadtree.Node node, Entity entity) {
+			this.distance = distance;
+			this.node = node;
+			this.entity = entity;
+		}
+
+		private final double distance;
+
+		private final EntityQuadtree.Node node;
+
+		private final Entity entity;
+
+		@Override
+		public int compareTo(Candidate other) {
+			int result = Double.compare(distance, other.distance);
+			if (result == 0 && (entity == null) != (other.entity == null))
+				// Entities precede nodes at the same distance, such that no node is expanded needlessly.
+				return (entity != null) ? -1 : 1;
+			return result;
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package asteroids.model.representation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events registering a single evolution of a world.
+ * The duration of the event is the time the evolution took; the duration of the evolution itself is simulated time.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+@Name("asteroids.Evolve")
+@Label("World Evolution")
+@Category({"Asteroids", "World"})
+@Description("An evolution of a world over a given duration")
+class EvolveEvent extends jdk.jfr.Event {
+
+	@Label("Simulated Duration")
+	@Description("The duration the world evolved with, in simulated seconds")
+	double simulatedDuration;
+
+	@Label("Entities")
+	int nbOfEntities;
+
+	@Label("Collision Iterations")
+	@Description("The number of times the world was advanced to the next collision and that collision was resolved")
+	long nbOfIterations;
+}
@@ -0,0 +1,135 @@
+package asteroids.model.representation;
+
+import asteroids.model.exceptions.*;
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of drivers letting a world evolve in steps of a fixed duration.
+ *
+ * The durations passed to a driver are accumulated, and the world evolves with the fixed timestep as many times as the accumulated
+ * duration allows. Hence, the trajectories in the world do not depend on how the elapsed time is divided over the calls of the
+ * driver. Combined with a deterministic world, identical inputs lead to identical trajectories.
+ * To prevent a slow simulation from falling further and further behind, a single call of a driver performs at most a given number of
+ * steps; the remaining accumulated duration is dropped and registered.
+ *
+ * @invar | isValidTimestep(getTimestep())
+ * @invar | 0 <= getAccumulatedDuration() && getAccumulatedDuration() < getTimestep()
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+public class FixedTimestepDriver {
+
+	/**
+	 * Initialize this new driver for the given world with the given timestep and the given maximal number of steps per call.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| world == null || !isValidTimestep(timestep) || maximalNbOfSteps <= 0
+	 */
+	public FixedTimestepDriver(World world, double timestep, int maximalNbOfSteps) throws IllegalArgumentException {
+		if (world == null || !isValidTimestep(timestep) || maximalNbOfSteps <= 0)
+			throw new IllegalArgumentException();
+		this.world = world;
+		this.timestep = timestep;
+		this.maximalNbOfSteps = maximalNbOfSteps;
+	}
+
+	public FixedTimestepDriver(World world, double timestep) throws IllegalArgumentException {
+		this(world, timestep, DEFAULT_MAXIMAL_NB_OF_STEPS);
+	}
+
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	private final World world;
+
+	@Basic @Immutable
+	public double getTimestep() {
+		return this.timestep;
+	}
+
+	public static boolean isValidTimestep(double timestep) {
+		return timestep > 0 && Double.isFinite(timestep);
+	}
+
+	private final double timestep;
+
+	/**
+	 * Return the maximal number of steps performed during a single call of evolve().
+	 */
+	@Basic @Immutable
+	public int getMaximalNbOfSteps() {
+		return this.maximalNbOfSteps;
+	}
+
+	private final int maximalNbOfSteps;
+
+	public static final int DEFAULT_MAXIMAL_NB_OF_STEPS = 8;
+
+	/**
+	 * Add the given duration to the accumulated duration of this driver and let the world of this driver evolve with the timestep
+	 * of this driver as long as the accumulated duration allows it.
+	 *
+	 * @return The number of steps performed.
+	 * @throws IllegalArgumentException
+	 * 			| duration < 0 || !Double.isFinite(duration)
+	 * @throws TerminatedException
+	 * 			| getWorld().isTerminated()
+	 */
+	public int evolve(double duration, CollisionListener collisionListener) throws IllegalArgumentException, TerminatedException {
+		if (duration < 0 || !Double.isFinite(duration))
+			throw new IllegalArgumentException();
+		accumulatedDuration += duration;
+		int nbOfSteps = 0;
+		while (accumulatedDuration >= getTimestep()) {
+			if (nbOfSteps == getMaximalNbOfSteps()) {
+				droppedDuration += accumulatedDuration - accumulatedDuration % getTimestep();
+				accumulatedDuration %= getTimestep();
+				break;
+			}
+			getWorld().evolve(getTimestep(), collisionListener);
+			accumulatedDuration -= getTimestep();
+			nbOfSteps++;
+		}
+		totalNbOfSteps += nbOfSteps;
+		return nbOfSteps;
+	}
+
+	/**
+	 * Return the duration that was passed to this driver but has not been simulated yet.
+	 */
+	@Basic
+	public double getAccumulatedDuration() {
+		return this.accumulatedDuration;
+	}
+
+	/**
+	 * Return the fraction of a timestep that was passed to this driver but has not been simulated yet.
+	 * This fraction can be used to interpolate between the last two states of the world when it is drawn.
+	 */
+	public double getInterpolationFactor() {
+		return getAccumulatedDuration() / getTimestep();
+	}
+
+	private double accumulatedDuration;
+
+	/**
+	 * Return the total duration that was dropped because more steps were needed during a single call than allowed.
+	 */
+	@Basic
+	public double getDroppedDuration() {
+		return this.droppedDuration;
+	}
+
+	private double droppedDuration;
+
+	@Basic
+	public long getTotalNbOfSteps() {
+		return this.totalNbOfSteps;
+	}
+
+	private long totalNbOfSteps;
+}
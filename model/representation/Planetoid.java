@@ -75,7 +75,7 @@ public class Planetoid extends MinorPlanet {
 	 * 
 	 * @effect	| if (! isTerminated() && getRadius() >= 30 && getWorld() != null)
 	 * 			|	then let
-	 * 			|		angle = Math.random() * 2 * Math.PI
+	 * 			|		angle = getWorld().getRandom().nextDouble() * 2 * Math.PI
 	 * 			|	in 
 	 * 			|		asteroid1 = new Asteroid(getPosition().vectorPlus(new Position(Math.cos(angle), Math.sin(angle)).
 	 * 			|			scalarMultiple(getRadius() / 2)), (new Velocity(Math.cos(angle), Math.sin(angle))).scalarMultiple(1.5 * getSpeed()),
@@ -94,7 +94,15 @@ public class Planetoid extends MinorPlanet {
 			World planetoidWorld = getWorld();
 			super.terminate();
 			if (getRadius() >= 30 && planetoidWorld != null) {
-				double angle = Math.random() * 2 * Math.PI;
+				PlanetoidSplitEvent event = new PlanetoidSplitEvent();
+				if (event.shouldCommit()) {
+					event.x = getPosition().getxComponent();
+					event.y = getPosition().getyComponent();
+					event.radius = getRadius();
+					event.speed = getSpeed();
+					event.commit();
+				}
+				double angle = planetoidWorld.getRandom().nextDouble() * 2 * Math.PI;
 				Position newPos1 = getPosition().vectorPlus(new Position(Math.cos(angle), Math.sin(angle)).scalarMultiple(getRadius() / 2));
 				Position newPos2 = getPosition().vectorMinus(new Position(Math.cos(angle), Math.sin(angle)).scalarMultiple(getRadius() / 2));
 				Velocity newVel1 = (new Velocity(Math.cos(angle), Math.sin(angle))).scalarMultiple(1.5 * getSpeed());
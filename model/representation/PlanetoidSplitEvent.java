@@ -0,0 +1,32 @@
+package asteroids.model.representation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events registering a planetoid that is terminated and splits into two asteroids.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+@Name("asteroids.PlanetoidSplit")
+@Label("Planetoid Split")
+@Category({"Asteroids", "Entities"})
+class PlanetoidSplitEvent extends jdk.jfr.Event {
+
+	@Label("X")
+	double x;
+
+	@Label("Y")
+	double y;
+
+	@Label("Radius")
+	@Description("The radius of the planetoid; each asteroid has half this radius")
+	double radius;
+
+	@Label("Speed")
+	@Description("The speed of the planetoid; each asteroid moves at one and a half times this speed")
+	double speed;
+}
@@ -0,0 +1,466 @@
+package asteroids.model.representation;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import asteroids.model.exceptions.*;
+import asteroids.model.programs.Program;
+import asteroids.model.programs.ProgramSerializer;
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of logs recording the mutations of a world in a memory-mapped file, such that the world can be replayed.
+ *
+ * A log starts with a snapshot of its world, as written by a world serializer, followed by a record for each mutation of the world
+ * from outside, in the order in which they were performed:
+ * 	- each entity added to or removed from the world;
+ * 	- each bullet fired or loaded, each activation or deactivation of a thruster, each turn and each program loaded by a ship in the
+ * 	  world;
+ * 	- each evolution of the world, with its duration.
+ * Mutations the world performs itself while it evolves or while a recorded mutation is performed, such as the actions of programs,
+ * the bullets leaving a ship that fires and the asteroids a planetoid splits into, are not recorded: replaying the recorded mutation
+ * performs them again. Entities of the world are referenced by their index in the world, entities entering the world are described
+ * completely.
+ * A replayed world follows the recorded world exactly if the recorded world is deterministic (see World.setRandomSeed). Entities that
+ * are terminated directly are replayed as entities that are removed from the world, and changes to the settings of the world after
+ * the log was started are not recorded.
+ * Records are written to a region of the file that is mapped in memory, such that recording a mutation amounts to copying a few bytes.
+ * The file is mapped further in chunks as the log grows. The type of a record is written after its contents and the log ends at the
+ * first record without a type, such that a log of which the writer did not close it can still be replayed up to its last complete
+ * record.
+ *
+ * @invar | isClosed() || getWorld().getReplayLog() == this
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+public class ReplayLog implements AutoCloseable {
+
+	/**
+	 * Initialize this new log recording the mutations of the given world to the file with the given path, replacing the file if it
+	 * exists, and start with a snapshot of the given world.
+	 *
+	 * @post | new.getWorld() == world && world.getReplayLog() == this
+	 * @throws IllegalArgumentException
+	 * 			| world == null || path == null || world.isTerminated() || world.getReplayLog() != null
+	 * @throws IOException
+	 * 			Writing to the file with the given path failed.
+	 */
+	public ReplayLog(World world, Path path) throws IllegalArgumentException, IOException {
+		if (world == null || path == null || world.isTerminated() || world.getReplayLog() != null)
+			throw new IllegalArgumentException();
+		this.world = world;
+		this.path = path;
+		this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			ByteArrayOutputStream snapshot = new ByteArrayOutputStream();
+			WorldSerializer.write(world, Channels.newChannel(snapshot));
+			ensure(4 + 2 + 4 + snapshot.size());
+			buffer.putInt(MAGIC_NUMBER);
+			buffer.putShort(FORMAT_VERSION);
+			buffer.putInt(snapshot.size());
+			buffer.put(snapshot.toByteArray());
+		}
+		catch (IOException | UncheckedIOException exc) {
+			channel.close();
+			throw exc;
+		}
+		world.setReplayLog(this);
+	}
+
+	/**
+	 * The magic number at the start of every log ("ASRL").
+	 */
+	public static final int MAGIC_NUMBER = 0x4153524c;
+
+	/**
+	 * The version of the format written by this class. Logs written in another version cannot be replayed.
+	 */
+	public static final short FORMAT_VERSION = 1;
+
+	private static final byte ADD_ENTITY = 1, REMOVE_ENTITY = 2, FIRE_BULLET = 3, LOAD_BULLET = 4, SET_THRUST = 5, TURN = 6,
+			LOAD_PROGRAM = 7, EVOLVE = 8;
+
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	private final World world;
+
+	@Basic @Immutable
+	public Path getPath() {
+		return this.path;
+	}
+
+	private final Path path;
+
+	private final FileChannel channel;
+
+	/**
+	 * Return the number of mutations recorded in this log.
+	 */
+	@Basic
+	public long getNbOfRecords() {
+		return this.nbOfRecords;
+	}
+
+	private long nbOfRecords;
+
+	/**
+	 * Return the number of bytes written to this log, including its header and snapshot.
+	 */
+	public long getSize() {
+		return mappedPosition + ((buffer == null) ? 0 : buffer.position());
+	}
+
+	/**
+	 * Record that the given entity is added to the world of this log.
+	 */
+	void recordAddEntity(Entity entity) {
+		byte[] program = getProgramBytes(entity);
+		int start = begin(getDescriptionSize(entity, program));
+		putDescription(entity, program);
+		putType(start, ADD_ENTITY);
+	}
+
+	/**
+	 * Record that the given entity of the world of this log is removed from it.
+	 */
+	void recordRemoveEntity(Entity entity) {
+		int start = begin(4);
+		buffer.putInt(getWorld().getIndexOf(entity));
+		putType(start, REMOVE_ENTITY);
+	}
+
+	/**
+	 * Record that the given ship of the world of this log fires a bullet.
+	 */
+	void recordFireBullet(Ship ship) {
+		int start = begin(4);
+		buffer.putInt(getWorld().getIndexOf(ship));
+		putType(start, FIRE_BULLET);
+	}
+
+	/**
+	 * Record that the given ship of the world of this log loads the given bullet.
+	 */
+	void recordLoadBullet(Ship ship, Bullet bullet) {
+		boolean inWorld = getWorld().hasAsEntity(bullet);
+		int start = begin(4 + 4 + (inWorld ? 0 : getDescriptionSize(bullet, null)));
+		buffer.putInt(getWorld().getIndexOf(ship));
+		if (inWorld)
+			buffer.putInt(getWorld().getIndexOf(bullet));
+		else {
+			buffer.putInt(-1);
+			putDescription(bullet, null);
+		}
+		putType(start, LOAD_BULLET);
+	}
+
+	/**
+	 * Record that the thruster of the given ship of the world of this log is activated or deactivated according to the given flag.
+	 */
+	void recordSetThrust(Ship ship, boolean flag) {
+		int start = begin(4 + 1);
+		buffer.putInt(getWorld().getIndexOf(ship));
+		buffer.put((byte)(flag ? 1 : 0));
+		putType(start, SET_THRUST);
+	}
+
+	/**
+	 * Record that the given ship of the world of this log turns over the given angle.
+	 */
+	void recordTurn(Ship ship, double angle) {
+		int start = begin(4 + 8);
+		buffer.putInt(getWorld().getIndexOf(ship));
+		buffer.putDouble(angle);
+		putType(start, TURN);
+	}
+
+	/**
+	 * Record that the given ship of the world of this log loads the given program.
+	 */
+	void recordLoadProgram(Ship ship, Program loadedProgram) {
+		byte[] program = ProgramSerializer.toBytes(loadedProgram);
+		int start = begin(4 + 4 + program.length);
+		buffer.putInt(getWorld().getIndexOf(ship));
+		buffer.putInt(program.length);
+		buffer.put(program);
+		putType(start, LOAD_PROGRAM);
+	}
+
+	/**
+	 * Record that the world of this log evolves with the given duration.
+	 */
+	void recordEvolve(double duration) {
+		int start = begin(8);
+		buffer.putDouble(duration);
+		putType(start, EVOLVE);
+	}
+
+	/**
+	 * Make sure the mapped region of this log can hold a record with contents of the given size, and skip the type of that record.
+	 *
+	 * @return The position of the type of the record in the mapped region.
+	 */
+	private int begin(int nbOfBytes) {
+		ensure(1 + nbOfBytes);
+		int start = buffer.position();
+		buffer.put((byte)0);
+		return start;
+	}
+
+	/**
+	 * Complete the record at the given position in the mapped region by writing its type.
+	 */
+	private void putType(int start, byte type) {
+		buffer.put(start, type);
+		nbOfRecords++;
+	}
+
+	/**
+	 * Make sure the mapped region of this log can hold the given number of additional bytes, mapping the file further if necessary.
+	 *
+	 * @throws UncheckedIOException
+	 * 			Mapping the file failed.
+	 */
+	private void ensure(int nbOfBytes) throws UncheckedIOException {
+		if (buffer != null && buffer.remaining() >= nbOfBytes)
+			return;
+		long position = getSize();
+		try {
+			buffer = channel.map(MapMode.READ_WRITE, position, Math.max(CHUNK_SIZE, nbOfBytes));
+		}
+		catch (IOException exc) {
+			throw new UncheckedIOException(exc);
+		}
+		mappedPosition = position;
+	}
+
+	private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+
+	private MappedByteBuffer buffer;
+
+	/**
+	 * The position in the file of the start of the mapped region.
+	 */
+	private long mappedPosition;
+
+	private static byte[] getProgramBytes(Entity entity) {
+		if (!(entity instanceof Ship) || ((Ship)entity).getProgram() == null)
+			return null;
+		return ProgramSerializer.toBytes(((Ship)entity).getProgram());
+	}
+
+	/**
+	 * Return the size of the description of the given entity with the given serialized program.
+	 */
+	private static int getDescriptionSize(Entity entity, byte[] program) {
+		int result = 1 + 8 * 8;
+		if (entity instanceof Ship)
+			result += 8 + 8 + 1 + 8 + 4 + ((Ship)entity).getNbOfBulletsInMagazine() * 4 * 8 + 4 + ((program == null) ? 0 : program.length);
+		else if (entity instanceof Bullet)
+			result += 4;
+		return result;
+	}
+
+	/**
+	 * Write the type and state of the given entity, including the magazine of a ship and the given serialized program of a ship.
+	 */
+	private void putDescription(Entity entity, byte[] program) {
+		buffer.put(WorldSerializer.getTag(entity));
+		buffer.putDouble(entity.getPosition().getxComponent());
+		buffer.putDouble(entity.getPosition().getyComponent());
+		buffer.putDouble(entity.getVelocity().getxComponent());
+		buffer.putDouble(entity.getVelocity().getyComponent());
+		buffer.putDouble(entity.getInitialRadius());
+		buffer.putDouble(entity.getRadius());
+		buffer.putDouble(entity.getDensity());
+		buffer.putDouble(entity.getTotalTravelledDistance());
+		if (entity instanceof Ship) {
+			Ship ship = (Ship)entity;
+			buffer.putDouble(ship.getOrientation());
+			buffer.putDouble(ship.getThrusterForce());
+			buffer.put((byte)(ship.hasThrusterActivated() ? 1 : 0));
+			buffer.putLong(ship.getInstructionBudget());
+			buffer.putInt(ship.getNbOfBulletsInMagazine());
+			for (Bullet bullet : ship.getMagazine()) {
+				buffer.putDouble(bullet.getInitialRadius());
+				buffer.putDouble(bullet.getRadius());
+				buffer.putDouble(bullet.getDensity());
+				buffer.putDouble(bullet.getTotalTravelledDistance());
+			}
+			buffer.putInt((program == null) ? -1 : program.length);
+			if (program != null)
+				buffer.put(program);
+		}
+		else if (entity instanceof Bullet)
+			buffer.putInt(((Bullet)entity).getNbOfBounces());
+	}
+
+	private static Entity getDescription(ByteBuffer log) throws IOException {
+		byte tag = log.get();
+		double x = log.getDouble(), y = log.getDouble(), vx = log.getDouble(), vy = log.getDouble();
+		double initialRadius = log.getDouble(), radius = log.getDouble(), density = log.getDouble();
+		double totalTravelledDistance = log.getDouble();
+		double orientation = (tag == WorldSerializer.SHIP) ? log.getDouble() : 0;
+		Entity result = WorldSerializer.createEntity(tag, x, y, vx, vy, initialRadius, orientation);
+		WorldSerializer.restoreState(result, radius, density, totalTravelledDistance);
+		if (result instanceof Ship) {
+			Ship ship = (Ship)result;
+			ship.setThrusterForce(log.getDouble());
+			ship.setThrust(log.get() != 0);
+			ship.setInstructionBudget(log.getLong());
+			for (int i = log.getInt(); i > 0; i--) {
+				Bullet bullet = new Bullet(x, y, 0, 0, log.getDouble());
+				WorldSerializer.restoreState(bullet, log.getDouble(), log.getDouble(), log.getDouble());
+				ship.loadBullet(bullet);
+			}
+			int length = log.getInt();
+			if (length >= 0)
+				ship.loadProgram(ProgramSerializer.fromBytes(slice(log, length)));
+		}
+		else if (result instanceof Bullet)
+			((Bullet)result).setNbOfBounces(log.getInt());
+		return result;
+	}
+
+	/**
+	 * Return the given number of bytes at the position of the given buffer as a buffer of its own, and skip them.
+	 */
+	private static ByteBuffer slice(ByteBuffer log, int length) {
+		ByteBuffer result = log.slice();
+		result.limit(length);
+		log.position(log.position() + length);
+		return result;
+	}
+
+	/**
+	 * Write the records of this log to its file and close this log: the mutations of its world are no longer recorded.
+	 * The file is truncated to the records that were written.
+	 *
+	 * @post | new.isClosed() && getWorld().getReplayLog() == null
+	 * @throws IOException
+	 * 			Writing to the file of this log failed.
+	 */
+	@Override
+	public void close() throws IOException {
+		if (isClosed())
+			return;
+		closed = true;
+		getWorld().setReplayLog(null);
+		try {
+			if (buffer != null)
+				buffer.force();
+			long size = getSize();
+			buffer = null;
+			channel.truncate(size);
+		}
+		finally {
+			channel.close();
+		}
+	}
+
+	@Basic
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	private boolean closed;
+
+	/**
+	 * Restore the world in the snapshot at the start of the log in the file with the given path and perform each mutation recorded
+	 * in that log, as fast as possible.
+	 *
+	 * @return The replayed world, in the state of the recorded world at the end of the log.
+	 * @throws IOException
+	 * 			Reading from the file with the given path failed, or the file is not a replay log in the current format.
+	 */
+	public static World replay(Path path) throws IOException {
+		return replay(path, null);
+	}
+
+	/**
+	 * Restore the world in the snapshot at the start of the log in the file with the given path and perform each mutation recorded
+	 * in that log, as fast as possible, showing the collisions of the replayed evolutions to the given collision listener.
+	 *
+	 * @return The replayed world, in the state of the recorded world at the end of the log.
+	 * @throws IOException
+	 * 			Reading from the file with the given path failed, or the file is not a replay log in the current format.
+	 */
+	public static World replay(Path path, CollisionListener collisionListener) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			ByteBuffer log = channel.map(MapMode.READ_ONLY, 0, channel.size());
+			try {
+				if (log.getInt() != MAGIC_NUMBER)
+					throw new IOException("Not a replay log.");
+				short version = log.getShort();
+				if (version != FORMAT_VERSION)
+					throw new IOException("Unsupported replay log format version: " + version);
+				int snapshotSize = log.getInt();
+				if (snapshotSize < 0 || snapshotSize > log.remaining())
+					throw new IOException("Corrupt replay log.");
+				byte[] snapshot = new byte[snapshotSize];
+				log.get(snapshot);
+				World world = WorldSerializer.read(Channels.newChannel(new ByteArrayInputStream(snapshot)));
+				byte type;
+				while (log.hasRemaining() && (type = log.get()) != 0)
+					replayRecord(world, type, log, collisionListener);
+				return world;
+			}
+			catch (BufferUnderflowException | IllegalArgumentException | ClassCastException | IndexOutOfBoundsException |
+					IllegalComponentException | IllegalPositionException | IllegalRadiusException | IllegalBulletException |
+					IllegalMethodCallException | OverlapException | TerminatedException exc) {
+				throw new IOException("Corrupt replay log.", exc);
+			}
+		}
+	}
+
+	private static void replayRecord(World world, byte type, ByteBuffer log, CollisionListener collisionListener)
+			throws IOException {
+		switch (type) {
+			case ADD_ENTITY:
+				world.addEntity(getDescription(log));
+				break;
+			case REMOVE_ENTITY:
+				world.removeEntity(world.getEntityAtIndex(log.getInt()));
+				break;
+			case FIRE_BULLET:
+				((Ship)world.getEntityAtIndex(log.getInt())).fireBullet();
+				break;
+			case LOAD_BULLET:
+				Ship ship = (Ship)world.getEntityAtIndex(log.getInt());
+				int bulletIndex = log.getInt();
+				ship.loadBullet((Bullet)((bulletIndex < 0) ? getDescription(log) : world.getEntityAtIndex(bulletIndex)));
+				break;
+			case SET_THRUST:
+				((Ship)world.getEntityAtIndex(log.getInt())).setThrust(log.get() != 0);
+				break;
+			case TURN:
+				((Ship)world.getEntityAtIndex(log.getInt())).turn(log.getDouble());
+				break;
+			case LOAD_PROGRAM:
+				Ship programmedShip = (Ship)world.getEntityAtIndex(log.getInt());
+				programmedShip.loadProgram(ProgramSerializer.fromBytes(slice(log, log.getInt())));
+				break;
+			case EVOLVE:
+				world.evolve(log.getDouble(), collisionListener);
+				break;
+			default:
+				throw new IOException("Corrupt replay log.");
+		}
+	}
+}
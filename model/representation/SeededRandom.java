@@ -0,0 +1,118 @@
+package asteroids.model.representation;
+
+import java.util.Random;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of sources of randomness whose state can be inspected and restored.
+ *
+ * A seeded random generates the same sequences of integers, longs, booleans and doubles as a java.util.Random created with the
+ * same seed. Unlike the state of such a random, the state of a seeded random is accessible, such that snapshots and copies of
+ * worlds continue with the same random sequences without relying on Java serialization.
+ * Gaussian values are not cached between invocations of nextGaussian(), such that they are fully determined by the state as well.
+ * A seeded random is not thread-safe; every world and every program executor has a source of its own.
+ *
+ * @invar | isValidState(getState())
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+public class SeededRandom extends Random {
+
+	/**
+	 * Initialize this new seeded random with the given seed.
+	 *
+	 * @effect | setSeed(seed)
+	 */
+	public SeededRandom(long seed) {
+		super(0);
+		setSeed(seed);
+	}
+
+	/**
+	 * Initialize this new seeded random with an arbitrary seed.
+	 */
+	public SeededRandom() {
+		this(new Random().nextLong());
+	}
+
+	/**
+	 * Return a new seeded random with the same state as this seeded random.
+	 */
+	public SeededRandom copy() {
+		SeededRandom result = new SeededRandom(0);
+		result.setState(getState());
+		return result;
+	}
+
+	/**
+	 * Set the state of this seeded random as java.util.Random does for the given seed.
+	 *
+	 * @post | new.getState() == ((seed ^ MULTIPLIER) & MASK)
+	 */
+	@Override
+	public void setSeed(long seed) {
+		this.state = (seed ^ MULTIPLIER) & MASK;
+	}
+
+	@Override
+	protected int next(int bits) {
+		state = (state * MULTIPLIER + ADDEND) & MASK;
+		return (int)(state >>> (48 - bits));
+	}
+
+	@Override
+	public double nextGaussian() {
+		double v1, v2, s;
+		do {
+			v1 = 2 * nextDouble() - 1;
+			v2 = 2 * nextDouble() - 1;
+			s = v1 * v1 + v2 * v2;
+		} while (s >= 1 || s == 0);
+		return v1 * StrictMath.sqrt(-2 * StrictMath.log(s) / s);
+	}
+
+	/**
+	 * Return the state of this seeded random, which determines all values it generates next.
+	 */
+	@Basic
+	public long getState() {
+		return this.state;
+	}
+
+	/**
+	 * Check whether the given state is a valid state for a seeded random.
+	 *
+	 * @return | result == ((state & ~MASK) == 0)
+	 */
+	public static boolean isValidState(long state) {
+		return (state & ~MASK) == 0;
+	}
+
+	/**
+	 * Set the state of this seeded random to the given state.
+	 *
+	 * @post | new.getState() == state
+	 * @throws IllegalArgumentException
+	 * 			| ! isValidState(state)
+	 */
+	public void setState(long state) throws IllegalArgumentException {
+		if (!isValidState(state))
+			throw new IllegalArgumentException();
+		this.state = state;
+	}
+
+	/*
+	 * No initializer may be given, since the constructor of java.util.Random already sets the state through setSeed().
+	 */
+	private long state;
+
+	private static final long MULTIPLIER = 0x5DEECE66DL;
+
+	private static final long ADDEND = 0xBL;
+
+	private static final long MASK = (1L << 48) - 1;
+
+	private static final long serialVersionUID = 1L;
+}
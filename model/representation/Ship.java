@@ -2,6 +2,7 @@ package asteroids.model.representation;
 
 import java.util.Set;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import asteroids.model.exceptions.*;
@@ -11,6 +12,7 @@ import asteroids.model.exceptions.programExceptions.NoReturnException;
 import asteroids.model.exceptions.programExceptions.ReturnException;
 import asteroids.model.programs.Program;
 import asteroids.model.programs.ProgramExecutor;
+import asteroids.model.programs.ProgramVerifier;
 import be.kuleuven.cs.som.annotate.*;
 
 /**
@@ -239,6 +241,9 @@ public class Ship extends Entity {
 	 * 			| setOrientation(getOrientation() + angle)
 	 */
 	public void turn(double angle) {
+		ReplayLog log = getRecordingReplayLog();
+		if (log != null)
+			log.recordTurn(this, angle);
 		setOrientation(getOrientation() + angle);
 	}
 	
@@ -369,7 +374,12 @@ public class Ship extends Entity {
 	 */
 	@Raw
 	public void setThrust(boolean flag) {
+		ReplayLog log = getRecordingReplayLog();
+		if (log != null)
+			log.recordSetThrust(this, flag);
 		thrusterStatus = flag;
+		if (getWorld() != null)
+			getWorld().updateSleepingState(this);
 	}
 	
 	/**
@@ -399,6 +409,16 @@ public class Ship extends Entity {
 	 */
 	private boolean thrusterStatus;
 	
+	/**
+	 * Check whether this ship is at rest.
+	 * 
+	 * @return | result == super.isAtRest() && !hasThrusterActivated()
+	 */
+	@Override @Raw
+	public boolean isAtRest() {
+		return super.isAtRest() && !hasThrusterActivated();
+	}
+	
 	/**
 	 * Accelerate this ship during the given time interval.
 	 * 
@@ -577,6 +597,19 @@ public class Ship extends Entity {
 		this.firedBullets.add(bullet);
 	}
 	
+	/**
+	 * Register the given bullet as fired by this ship.
+	 * 
+	 * @effect	| addAsFiredBullet(bullet)
+	 * @effect	| bullet.setSourceShip(this)
+	 * @note This method must only be invoked when a world is restored by a world serializer.
+	 */
+	@Raw
+	void restoreFiredBullet(Bullet bullet) throws IllegalBulletException, TerminatedException {
+		addAsFiredBullet(bullet);
+		bullet.setSourceShip(this);
+	}
+	
 	/**
 	 * Remove the given bullet from the collection of fired bullets of this ship.
 	 * 
@@ -759,7 +792,7 @@ public class Ship extends Entity {
 	 */
 	@Basic
 	public Set<Bullet> getMagazine() {
-		return new HashSet<Bullet>(this.magazine);
+		return new LinkedHashSet<Bullet>(this.magazine);
 	}
 	
 	/**
@@ -767,7 +800,7 @@ public class Ship extends Entity {
 	 */
 	@Basic
 	public Set<Bullet> getFiredBullets() {
-		return new HashSet<Bullet>(this.firedBullets);
+		return new LinkedHashSet<Bullet>(this.firedBullets);
 	}
 	
 	/**
@@ -801,6 +834,9 @@ public class Ship extends Entity {
 	public void fireBullet() {
 		if (! this.isTerminated()) {
 			if (getNbOfBulletsInMagazine() != 0 && getWorld() != null) {
+				ReplayLog log = getRecordingReplayLog();
+				if (log != null)
+					log.recordFireBullet(this);
 				Bullet bulletToFire = (Bullet)getMagazine().toArray()[0];
 				try {
 					bulletToFire.setToFireConfiguration();
@@ -813,8 +849,11 @@ public class Ship extends Entity {
 					// Cannot throw IllegalBulletException, since canHaveAsLoadedBullet(bulletToFire) was already true by class invariant
 					// and canHaveAsLoadedBullet(bulletToFire) implies canHaveAsFiredBullet(bulletToFire).
 					bulletToFire.setSourceShip(containingShip);
+					World world = getWorld();
+					// The bullet entering or leaving the world follows from the firing, which is recorded as a whole.
+					world.suspendRecording();
 					try {
-						getWorld().addEntity(bulletToFire);
+						world.addEntity(bulletToFire);
 					} catch (IllegalArgumentException exc) {
 						//The bullet to fire is placed outside of the boundaries of the world containing this ship. The bullet to fire is
 						//therefore destroyed.
@@ -823,6 +862,8 @@ public class Ship extends Entity {
 						//The bullet to fire overlaps with another entity in the world of this ship. Both the bullet and that entity are destroyed.
 						exc.getFirstEntity().terminate();
 						exc.getSecondEntity().terminate();
+					} finally {
+						world.resumeRecording();
 					}
 				} catch (IllegalComponentException exc) {
 					/* An IllegalComponentException can only thrown if the method setToFireConfiguration tried to set a component of the position
@@ -866,6 +907,9 @@ public class Ship extends Entity {
 				(bullet.getSourceShip() != null && bullet.getSourceShip() != this) ||
 				(!hasFired(bullet) && !surrounds(bullet)))
 			throw new IllegalBulletException();
+		ReplayLog log = getRecordingReplayLog();
+		if (log != null)
+			log.recordLoadBullet(this, bullet);
 		if (hasFired(bullet))
 			removeAsFiredBullet(bullet);
 		addAsLoadedBullet(bullet);
@@ -873,12 +917,27 @@ public class Ship extends Entity {
 		bullet.setContainingShip(this);
 		//Cannot throw IllegalMethodCallException because this ship is effective and the given bullet has been loaded in the magazine.
 		//Cannot throw TerminatedException because canHaveAsLoadedBullet(bullet) implies !bullet.isTerminated().
-		if (bullet.getWorld() != null)
-			getWorld().removeEntity(bullet);
-			//The method removeEntity() cannot throw an exception because all conditions to throw exceptions are false in this case.
+		if (bullet.getWorld() != null) {
+			World world = getWorld();
+			// The bullet leaving the world follows from the loading, which is recorded as a whole.
+			world.suspendRecording();
+			try {
+				world.removeEntity(bullet);
+				//The method removeEntity() cannot throw an exception because all conditions to throw exceptions are false in this case.
+			} finally {
+				world.resumeRecording();
+			}
+		}
 		bullet.setToLoadConfiguration();
 	}
 	
+	/**
+	 * Return the log to which a mutation of this ship performed now must be recorded, or null if there is none.
+	 */
+	private ReplayLog getRecordingReplayLog() {
+		return (getWorld() == null) ? null : getWorld().getRecordingReplayLog();
+	}
+	
 	/**
 	 * Load multiple bullets in the magazine of this ship.
 	 * 
@@ -907,7 +966,7 @@ public class Ship extends Entity {
 	 * @invar Each bullet in the magazine references this ship as the ship on which it is loaded.
 	 * 		| for each bullet in magazine: bullet.getContainingShip() == this
 	 */
-	private Set<Bullet> magazine = new HashSet<>();
+	private Set<Bullet> magazine = new LinkedHashSet<>();
 	
 	/**
 	 * Set representing the bullets fired by this ship.
@@ -921,7 +980,7 @@ public class Ship extends Entity {
 	 * 			as the ship by which it has been fired.
 	 * 		| for each bullet in firedBullets: bullet.getSourceShip() == this
 	 */
-	private Set<Bullet> firedBullets = new HashSet<>();
+	private Set<Bullet> firedBullets = new LinkedHashSet<>();
 	
 	
 	/**
@@ -996,8 +1055,8 @@ public class Ship extends Entity {
 	 * @post The program associated to this ship is equal to the given program.
 	 * 			| new.getProgram() == program
 	 * @throws IllegalArgumentException
-	 * 			The given program is not a valid program for any ship.
-	 * 			| ! isValidProgram(program)
+	 * 			The given program is not a valid program for any ship or it is not well-formed.
+	 * 			| ! isValidProgram(program) || ! ProgramVerifier.isWellFormed(program)
 	 * @throws TerminatedException
 	 * 			This ship is terminated.
 	 * 			| isTerminated()
@@ -1007,9 +1066,15 @@ public class Ship extends Entity {
 			throw new IllegalArgumentException();
 		if (isTerminated())
 			throw new TerminatedException();
+		ProgramVerifier.verify(program);
+		ReplayLog log = getRecordingReplayLog();
+		if (log != null)
+			log.recordLoadProgram(this, program);
 		ProgramExecutor executor = new ProgramExecutor(program);
 		setProgramExecutor(executor);
 		executor.setShip(this);
+		if (getWorld() != null && getWorld().isDeterministic())
+			getWorld().seedProgramExecutor(this);
 	}
 	
 	/**
@@ -1067,4 +1132,45 @@ public class Ship extends Entity {
 	 * A variable registering the program executor associated to this ship.
 	 */
 	private ProgramExecutor programExecutor;
+	
+	/**
+	 * Return the maximal number of statements the program of this ship may execute during a single execution.
+	 * 
+	 * @return Zero if the budget of the world of this ship applies.
+	 */
+	@Basic
+	public long getInstructionBudget() {
+		return this.instructionBudget;
+	}
+	
+	/**
+	 * Check whether the given budget is a valid instruction budget for any ship.
+	 * 
+	 * @param budget
+	 * 			The budget to check.
+	 * @return | result == (budget >= 0)
+	 */
+	public static boolean isValidInstructionBudget(long budget) {
+		return budget >= 0;
+	}
+	
+	/**
+	 * Set the instruction budget of this ship to the given budget.
+	 * 
+	 * @param budget
+	 * 			The new budget for this ship.
+	 * @post | new.getInstructionBudget() == budget
+	 * @throws IllegalArgumentException
+	 * 			| ! isValidInstructionBudget(budget)
+	 */
+	public void setInstructionBudget(long budget) throws IllegalArgumentException {
+		if (! isValidInstructionBudget(budget))
+			throw new IllegalArgumentException();
+		this.instructionBudget = budget;
+	}
+	
+	/**
+	 * A variable registering the instruction budget of this ship.
+	 */
+	private long instructionBudget;
 }
@@ -0,0 +1,37 @@
+package asteroids.model.representation;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A class of flight recorder events registering an entity that is teleported to a random position in its world.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+@Name("asteroids.Teleport")
+@Label("Teleport")
+@Category({"Asteroids", "Entities"})
+class TeleportEvent extends jdk.jfr.Event {
+
+	@Label("Entity Type")
+	Class<?> entityType;
+
+	@Label("From X")
+	double fromX;
+
+	@Label("From Y")
+	double fromY;
+
+	@Label("To X")
+	double toX;
+
+	@Label("To Y")
+	double toY;
+
+	@Label("Destroyed")
+	@Description("Whether the entity overlapped with another entity at its new position and was terminated")
+	boolean destroyed;
+}
@@ -1,11 +1,18 @@
 package asteroids.model.representation;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Random;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import asteroids.model.exceptions.*;
+import asteroids.model.programs.ProgramExecutor;
 import asteroids.part2.CollisionListener;
 import be.kuleuven.cs.som.annotate.*;
 
@@ -80,6 +87,7 @@ public class World {
 			for (Entity entity: entitiesClone) {
 				removeEntity(entity);
 			}
+			getMetrics().unregisterMBean();
 			this.isTerminated = true;
 		}
 	}
@@ -88,6 +96,25 @@ public class World {
 	 * Variable registering whether this world is terminated.
 	 */
 	private boolean isTerminated = false;
+	
+	/**
+	 * Return a fork of this world: a new world with the same dimensions and settings, containing a copy of each entity of this
+	 * world, in which the programs of the ships resume where they are in this world.
+	 * Evolving the fork does not affect this world, nor the other way around, such that the fork can be used to look ahead.
+	 * The fork is an eager copy, not a copy-on-write view of this world: forking takes time linear in the number of entities of
+	 * this world, and the state of the program executors is copied directly. Only the programs of the ships are shared with this
+	 * world.
+	 * If this world is deterministic, the fork continues with the same random sequences as this world.
+	 * 
+	 * @return	| result != this && result.getNbOfEntities() == getNbOfEntities()
+	 * @throws TerminatedException
+	 * 			| isTerminated()
+	 */
+	public World fork() throws TerminatedException {
+		if (isTerminated())
+			throw new TerminatedException();
+		return WorldSerializer.copy(this);
+	}
 	 
 	
 	/**
@@ -240,6 +267,13 @@ public class World {
 		if (getOccupiedPositions().size() != getEntities().size())
 			//This means that at least one entity is the value of at least two different keys.
 			return false;
+		if (getNbOfEntities() >= TILING_THRESHOLD) {
+			for (Entity entity: entityList) {
+				if (!canHaveAsEntity(entity) || (entity.getWorld() != this) || (getEntityAt(entity.getPosition()) != entity))
+					return false;
+			}
+			return !new CollisionTiling(new ArrayList<>(entityList), 0).hasOverlappingEntities();
+		}
 		for (Entity entity: getEntities()) {
 			if (!canHaveAsEntity(entity) || (entity.getWorld() != this) || (getEntityAt(entity.getPosition()) != entity))
 				return false;
@@ -288,7 +322,7 @@ public class World {
 	 */
 	@Raw
 	public boolean hasAsEntity(Entity entity) {
-		return getEntities().contains(entity);
+		return entityIndices.containsKey(entity);
 	}
 	
 	/**
@@ -298,7 +332,38 @@ public class World {
 	 */
 	@Raw
 	public Set<Entity> getEntities() {
-		return new HashSet<Entity>(entities.values());
+		return new LinkedHashSet<Entity>(entityList);
+	}
+	
+	/**
+	 * Return the number of entities contained in this world.
+	 * 
+	 * @return | result == getEntities().size()
+	 */
+	public int getNbOfEntities() {
+		return entityList.size();
+	}
+	
+	/**
+	 * Return an entity of this world, chosen uniformly at random with the given source of randomness.
+	 * 
+	 * @param random
+	 * 			The source of randomness to use.
+	 * @return Null if this world does not contain any entities.
+	 * 			| if (getNbOfEntities() == 0)
+	 * 			|	then result == null
+	 * @return Otherwise, an entity of this world.
+	 * 			| if (getNbOfEntities() > 0)
+	 * 			|	then hasAsEntity(result)
+	 * @throws NullPointerException
+	 * 			| random == null
+	 */
+	public Entity getRandomEntity(Random random) throws NullPointerException {
+		if (random == null)
+			throw new NullPointerException();
+		if (entityList.isEmpty())
+			return null;
+		return entityList.get(random.nextInt(entityList.size()));
 	}
 	
 	/**
@@ -308,7 +373,7 @@ public class World {
 	 */
 	@SuppressWarnings("unchecked")
 	public <T extends Entity> Set<T> getSpecificEntities(Class<T> classType) {
-		Set<T> result = new HashSet<>();
+		Set<T> result = new LinkedHashSet<>();
 		for (Entity entity: getEntities()) {
 			if (classType.isAssignableFrom(entity.getClass()))
 				result.add((T)entity);
@@ -339,8 +404,37 @@ public class World {
 					throw new OverlapException(entity, other);
 			}
 		}
+		ReplayLog log = getRecordingReplayLog();
+		if (log != null)
+			log.recordAddEntity(entity);
+		registerEntity(entity);
+	}
+	
+	/**
+	 * Add the given entity to this world without checking whether it overlaps with the entities of this world.
+	 * 
+	 * @effect	| registerEntity(entity)
+	 * @throws IllegalArgumentException
+	 * 			| !canHaveAsEntity(entity) || (entity.getWorld() != null) || hasAsEntity(entity)
+	 * @note This method must only be invoked when a world is restored by a world serializer: the restored entities were taken
+	 * 			from a valid world, hence they cannot overlap.
+	 */
+	void addRestoredEntity(Entity entity) throws IllegalArgumentException {
+		if (!canHaveAsEntity(entity) || (entity.getWorld() != null) || hasAsEntity(entity))
+			throw new IllegalArgumentException();
+		registerEntity(entity);
+	}
+	
+	private void registerEntity(Entity entity) {
 		entities.put(entity.getPosition(), entity);
+		entityIndices.put(entity, entityList.size());
+		entityList.add(entity);
+		if (spatialIndex != null)
+			spatialIndex.add(entity);
 		entity.setWorld(this);
+		updateSleepingState(entity);
+		if (isDeterministic() && entity instanceof Ship && ((Ship)entity).getProgramExecutor() != null)
+			seedProgramExecutor((Ship)entity);
 		//Cannot throw TerminatedException because at this point canHaveAsEntity(entity) implies !entity.isTerminated()
 	}
 	
@@ -365,7 +459,20 @@ public class World {
 			throw new IllegalArgumentException();
 		if (!entity.canBeRemovedFromWorld())
 			throw new IllegalMethodCallException();
+		ReplayLog log = getRecordingReplayLog();
+		if (log != null)
+			log.recordRemoveEntity(entity);
 		entities.remove(entity.getPosition());
+		// The last entity of the dense list takes the place of the removed entity.
+		int index = entityIndices.remove(entity);
+		Entity last = entityList.remove(entityList.size() - 1);
+		if (last != entity) {
+			entityList.set(index, last);
+			entityIndices.put(last, index);
+		}
+		if (spatialIndex != null)
+			spatialIndex.remove(entity);
+		sleepingEntities.remove(entity);
 		entity.setWorld(null);
 	}
 	
@@ -393,6 +500,8 @@ public class World {
 				entities.remove(pos);
 		}
 		entities.put(entity.getPosition(), entity);
+		if (spatialIndex != null)
+			spatialIndex.update(entity);
 	}
 	
 	/**
@@ -412,9 +521,127 @@ public class World {
 	 */
 	private Map<Position, Entity> entities = new HashMap<>();
 	
+	/**
+	 * A list containing the entities of this world without gaps, such that an entity can be chosen at random in constant time.
+	 * 
+	 * @invar	The list contains exactly the entities registered in the map entities, each of them exactly once.
+	 * 			| entityList.size() == entities.size() && new HashSet<>(entityList).equals(new HashSet<>(entities.values()))
+	 */
+	private final List<Entity> entityList = new ArrayList<>();
+	
+	/**
+	 * A map registering the index of each entity of this world in the list entityList.
+	 * 
+	 * @invar	| for each entity in entityList : entityList.get(entityIndices.get(entity)) == entity
+	 */
+	private final Map<Entity, Integer> entityIndices = new HashMap<>();
+	
+	/**
+	 * Return the index of the given entity in this world. The indices of the entities of this world range from zero up to the number
+	 * of entities, in the order in which getEntities() iterates them.
+	 */
+	int getIndexOf(Entity entity) {
+		return entityIndices.get(entity);
+	}
+	
+	/**
+	 * Return the entity with the given index in this world.
+	 */
+	Entity getEntityAtIndex(int index) throws IndexOutOfBoundsException {
+		return entityList.get(index);
+	}
+	
+	/**
+	 * Check whether the given entity sleeps in this world.
+	 * Entities at rest never move towards each other, hence pairs of sleeping entities are skipped when the time to the first
+	 * collision in this world is calculated.
+	 * 
+	 * @return | result == hasAsEntity(entity) && entity.isAtRest()
+	 */
+	public boolean isSleeping(Entity entity) {
+		return sleepingEntities.contains(entity);
+	}
+	
+	/**
+	 * Return the number of sleeping entities in this world.
+	 */
+	public int getNbOfSleepingEntities() {
+		return sleepingEntities.size();
+	}
+	
+	/**
+	 * Let the given entity of this world fall asleep if it is at rest, and wake it up otherwise.
+	 * This method must be invoked whenever the velocity or the thruster status of an entity of this world changes.
+	 */
+	void updateSleepingState(Entity entity) {
+		if (entity.isAtRest())
+			sleepingEntities.add(entity);
+		else
+			sleepingEntities.remove(entity);
+	}
+	
+	/**
+	 * A set registering the entities of this world that are at rest.
+	 * 
+	 * @invar	| for each entity in entityList : sleepingEntities.contains(entity) == entity.isAtRest()
+	 */
+	private final Set<Entity> sleepingEntities = new HashSet<>();
+	
+	/**
+	 * Return the entity of the given type in this world that is nearest to the given entity, where the distance between
+	 * two entities is the distance between their edges.
+	 * 
+	 * @param entity
+	 * 			The entity whose nearest entity is to be returned.
+	 * @param type
+	 * 			The type of the entity to return.
+	 * @return Null if this world contains no entity of the given type other than the given entity.
+	 * 			Otherwise, an entity of the given type different from the given entity for which no other such entity is nearer.
+	 * 			| result == null || (result != entity && type.isInstance(result) && hasAsEntity(result) &&
+	 * 			|	for each other in getSpecificEntities(type) :
+	 * 			|		other == entity || Entity.getDistanceBetween(result, entity) <= Entity.getDistanceBetween(other, entity))
+	 * @throws IllegalArgumentException
+	 * 			| entity == null || type == null
+	 */
+	public <T extends Entity> T getNearestEntity(Entity entity, Class<T> type) throws IllegalArgumentException {
+		List<T> result = getNearestEntities(entity, type, 1);
+		return result.isEmpty() ? null : result.get(0);
+	}
+	
+	/**
+	 * Return the given number of entities of the given type in this world that are nearest to the given entity, ordered by
+	 * increasing distance between their edge and the edge of the given entity.
+	 * If this world contains fewer such entities, all of them are returned. The given entity itself is never returned.
+	 * 
+	 * @throws IllegalArgumentException
+	 * 			| entity == null || type == null
+	 */
+	public <T extends Entity> List<T> getNearestEntities(Entity entity, Class<T> type, int number) throws IllegalArgumentException {
+		if (entity == null || type == null)
+			throw new IllegalArgumentException();
+		if (spatialIndex == null) {
+			spatialIndex = new EntityQuadtree(getWidth(), getHeight());
+			for (Entity each: entityList)
+				spatialIndex.add(each);
+		}
+		return spatialIndex.getNearest(entity, type, number);
+	}
+	
+	/**
+	 * A quadtree indexing the entities of this world by their position, or null if no nearest entities have been looked up in
+	 * this world yet. The quadtree is only built when it is needed, such that worlds that are never queried, such as most forks,
+	 * do not maintain it while their entities move.
+	 * 
+	 * @invar	The quadtree contains exactly the entities of this world.
+	 * 			| spatialIndex == null || spatialIndex.size() == entities.size()
+	 */
+	private EntityQuadtree spatialIndex;
+	
 	
 	/**
 	 * Calculate the time until the first collision (between entities or of an entity against the boundary) in this world.
+	 * The result is NaN if the time until an entity collides with the boundary is NaN, which is the case for an entity that touches
+	 * the right or upper boundary of this world while the corresponding component of its velocity is zero.
 	 * 
 	 * @return  | if (Double.isFinite(result))
 	 * 			|	then if (! getEntities().isEmpty())
@@ -436,25 +663,56 @@ public class World {
 	public double getTimeToFirstCollision() throws TerminatedException {
 		if (isTerminated())
 			throw new TerminatedException();
+		if (getNbOfEntities() >= TILING_THRESHOLD)
+			return getTimeToFirstCollisionUsingTiles();
 		double result = Double.POSITIVE_INFINITY;
+		long nbOfImpactSolves = 0;
 		for (Entity entity: getEntities()) {
 			result = Math.min(result, entity.getTimeToCollisionWithBoundary());
+			boolean sleeping = isSleeping(entity);
 			for (Entity other: getEntities()) {
-				if (other != entity) {
+				if ((other != entity) && !(sleeping && isSleeping(other))) {
 					if (Entity.overlap(entity, other))
 						result = 0;
-					else
+					else {
 						result = Math.min(result, Entity.getTimeToCollision(entity, other));
+						nbOfImpactSolves++;
+					}
 					//The method getTimeToCollision cannot throw an exception because of the class invariants of world.
 				}
 			}
 		}
+		getMetrics().addPairTests((long)getNbOfEntities() * (getNbOfEntities() - 1));
+		getMetrics().addImpactSolves(nbOfImpactSolves);
+		if (result < 0)
+			//result can be negative due to rounding errors.
+			result = 0;
+		return result;
+	}
+	
+	/**
+	 * Calculate the time until the first collision in this world, examining only pairs of entities that can collide before the
+	 * first collision of an entity against the boundary, tile by tile in parallel.
+	 * The result is the same as the result of examining all pairs of entities, including the case in which the time to a
+	 * collision with the boundary is NaN: the minimum is NaN then, and the tiles are only examined for overlapping entities.
+	 */
+	private double getTimeToFirstCollisionUsingTiles() {
+		List<Entity> entities = new ArrayList<>(entityList);
+		double result = entities.parallelStream().mapToDouble(Entity::getTimeToCollisionWithBoundary).min().getAsDouble();
+		// If no entity ever collides with the boundary, no entity moves, and only overlapping entities collide.
+		double horizon = Double.isFinite(result) ? Math.max(result, 0) : 0;
+		result = Math.min(result, new CollisionTiling(entities, horizon, 0, sleepingEntities).getTimeToFirstCollision(getMetrics()));
 		if (result < 0)
 			//result can be negative due to rounding errors.
 			result = 0;
 		return result;
 	}
 	
+	/**
+	 * The minimal number of entities in a world for which collisions are detected tile by tile.
+	 */
+	private static final int TILING_THRESHOLD = 128;
+	
 	/**
 	 * Determine the position in this world where the first collision between two entities in this world will take place.
 	 * 
@@ -507,16 +765,21 @@ public class World {
 	 * 				{ (entity1, entity2) in getEntities() x getEntities() | Entity.apperentlyCollide(entity1, entity2) : {entity1, entity2} }
 	 */
 	public Set<Set<Entity>> getCollisions() {
-		Set<Set<Entity>> result = new HashSet<>();
+		// Linked sets are used such that the collisions are resolved in the same order in every run.
+		Set<Set<Entity>> result = new LinkedHashSet<>();
+		if (getNbOfEntities() >= TILING_THRESHOLD) {
+			addCollisionsUsingTiles(result);
+			return result;
+		}
 		for (Entity entity: getEntities()) {
 			if (entity.apparentlyCollidesWithBoundary()) {
-				Set<Entity> tempSet = new HashSet<>();
+				Set<Entity> tempSet = new LinkedHashSet<>();
 				tempSet.add(entity);
 				result.add(tempSet);
 			}
 			for (Entity other: getEntities()) {
 				if ((other != entity) && Entity.apparentlyCollide(entity, other)){
-					Set<Entity> tempSet = new HashSet<>();
+					Set<Entity> tempSet = new LinkedHashSet<>();
 					tempSet.add(entity);
 					tempSet.add(other);
 					result.add(tempSet);
@@ -526,6 +789,33 @@ public class World {
 		return result;
 	}
 	
+	/**
+	 * Add the collisions occurring in this world to the given set, in the same order as they are found by examining all pairs of
+	 * entities, detecting the collisions between entities tile by tile in parallel.
+	 */
+	private void addCollisionsUsingTiles(Set<Set<Entity>> result) {
+		List<Entity> entities = new ArrayList<>(entityList);
+		boolean[] collidesWithBoundary = new boolean[entities.size()];
+		IntStream.range(0, entities.size()).parallel().forEach(i ->
+				collidesWithBoundary[i] = entities.get(i).apparentlyCollidesWithBoundary());
+		List<int[]> pairs = new CollisionTiling(entities, 0, getCollisionBatchingWindow(), Collections.emptySet())
+				.getApparentCollisions();
+		int next = 0;
+		for (int i = 0; i < entities.size(); i++) {
+			if (collidesWithBoundary[i]) {
+				Set<Entity> tempSet = new LinkedHashSet<>();
+				tempSet.add(entities.get(i));
+				result.add(tempSet);
+			}
+			for (; next < pairs.size() && pairs.get(next)[0] == i; next++) {
+				Set<Entity> tempSet = new LinkedHashSet<>();
+				tempSet.add(entities.get(i));
+				tempSet.add(entities.get(pairs.get(next)[1]));
+				result.add(tempSet);
+			}
+		}
+	}
+	
 	/**
 	 * Show the collision of the given entity with the boundary of this world.
 	 * This method does not check whether the collision actually occurs.
@@ -543,7 +833,11 @@ public class World {
 																								OverlapException, TerminatedException {
 		if (collisionListener != null && !isTerminated()) {
 			if (entity1.mustShowCollisionWith(entity2)) {
-				Position collisionPosition = Entity.getCollisionPosition(entity1, entity2);
+				// Entities that apparently collide, not taking the batching window into account, touch at their current positions, such
+				// that the time to their collision need not be computed. Entities batched by the window are moved to their contact first.
+				Position collisionPosition = Entity.apparentlyCollide(entity1, entity2, false) ?
+						Entity.getContactPosition(entity1.getPosition(), entity1.getRadius(), entity2.getPosition(), entity2.getRadius()) :
+						Entity.getCollisionPosition(entity1, entity2);
 				collisionListener.objectCollision(entity1, entity2, collisionPosition.getxComponent(), collisionPosition.getyComponent());
 			}
 		}
@@ -557,18 +851,60 @@ public class World {
 			throw new TerminatedException();
 		if (duration < 0 || !Double.isFinite(duration))
 			throw new IllegalArgumentException();
+		ReplayLog log = getRecordingReplayLog();
+		if (log != null)
+			log.recordEvolve(duration);
 		if (getEntities().isEmpty())
 			return;
-		double timeToFirstCollision = getTimeToFirstCollision();
-		while (timeToFirstCollision <= duration) {
-			advance(timeToFirstCollision);
-			resolveCollisions(collisionListener);
-			duration -= timeToFirstCollision;
-			timeToFirstCollision = getTimeToFirstCollision();
+		EvolveEvent event = new EvolveEvent();
+		event.begin();
+		double simulatedDuration = duration;
+		// The mutations performed while this world evolves follow from the evolution itself, hence they are not recorded.
+		suspendRecording();
+		long nbOfIterations = 0;
+		try {
+			long detectionStart = System.nanoTime();
+			double timeToFirstCollision = getTimeToFirstCollision();
+			getMetrics().addResolveCollisionsNanos(System.nanoTime() - detectionStart);
+			while (timeToFirstCollision <= duration) {
+				CollisionIterationEvent iterationEvent = new CollisionIterationEvent();
+				iterationEvent.begin();
+				long start = System.nanoTime();
+				advance(timeToFirstCollision);
+				long advanced = System.nanoTime();
+				int nbOfContacts = resolveCollisions(collisionListener);
+				if (iterationEvent.shouldCommit()) {
+					iterationEvent.timeToFirstCollision = timeToFirstCollision;
+					iterationEvent.nbOfContacts = nbOfContacts;
+					iterationEvent.nbOfEntities = getNbOfEntities();
+					iterationEvent.commit();
+				}
+				duration -= timeToFirstCollision;
+				timeToFirstCollision = getTimeToFirstCollision();
+				getMetrics().addAdvanceNanos(advanced - start);
+				getMetrics().addResolveCollisionsNanos(System.nanoTime() - advanced);
+				nbOfIterations++;
+			}
+			if (duration > 0) {
+				long start = System.nanoTime();
+				advance(duration);
+				getMetrics().addAdvanceNanos(System.nanoTime() - start);
+			}
+		}
+		finally {
+			resumeRecording();
+			getMetrics().addEvolution(nbOfIterations);
+		}
+		long start = System.nanoTime();
+		boolean properEntities = hasProperEntities();
+		getMetrics().addInvariantCheckNanos(System.nanoTime() - start);
+		if (event.shouldCommit()) {
+			event.simulatedDuration = simulatedDuration;
+			event.nbOfEntities = getNbOfEntities();
+			event.nbOfIterations = nbOfIterations;
+			event.commit();
 		}
-		if (duration > 0)
-			advance(duration);
-		if (!hasProperEntities())
+		if (!properEntities)
 			throw new IllegalStateException();
 	}
 	
@@ -583,26 +919,336 @@ public class World {
 		if ((duration > timeToFirstCollision && timeToFirstCollision >= 1e-10) || !Double.isFinite(duration))
 			//It is possible that due to rounding issues, timeToFirstCollision is smaller than 1e-10 and we still want to advance this world.
 			throw new IllegalArgumentException(Double.toString(getTimeToFirstCollision()));
+		if (isExecutingProgramsInParallel()) {
+			advanceExecutingProgramsInParallel(duration);
+			return;
+		}
 		for (Entity entity: getEntities()) {
 			entity.move(duration);
 			if (entity instanceof Ship) {
 				Ship entityAsShip = (Ship)entity;
 				entityAsShip.thrust(duration);
 				if (entityAsShip.getProgramExecutor() != null)
-					entityAsShip.executeProgram(duration);
+					getMetrics().addProgramExecution(entityAsShip.executeProgram(duration) == null);
+			}
+		}
+	}
+	
+	/**
+	 * Advance this world with the given duration, executing the programs of its ships in parallel.
+	 * All entities are moved first. Next, the programs of all ships are executed in parallel against this unchanging world, with
+	 * the commands of each program deferred. Finally, the deferred commands are performed ship by ship, in the order of the list of
+	 * entities of this world. That order only depends on the order in which entities were added to and removed from this world, hence
+	 * identical worlds perform the commands of their ships in the same order. The commands of a ship that is terminated by the
+	 * commands of a preceding ship are discarded.
+	 * If the execution of some programs fails, the commands of the ships preceding the first failing ship are still performed,
+	 * the commands of all other ships are discarded, and the exception of the first failing ship is thrown.
+	 */
+	private void advanceExecutingProgramsInParallel(double duration) throws TerminatedException {
+		// The executors are kept instead of the ships, since a terminated ship no longer refers to its executor.
+		List<ProgramExecutor> executors = new ArrayList<>();
+		for (Entity entity: new ArrayList<>(entityList)) {
+			entity.move(duration);
+			if (entity instanceof Ship) {
+				Ship entityAsShip = (Ship)entity;
+				entityAsShip.thrust(duration);
+				if (entityAsShip.getProgramExecutor() != null)
+					executors.add(entityAsShip.getProgramExecutor());
+			}
+		}
+		RuntimeException[] failures = new RuntimeException[executors.size()];
+		IntStream.range(0, executors.size()).parallel().forEach(i -> {
+			ProgramExecutor executor = executors.get(i);
+			executor.setDeferringCommands(true);
+			try {
+				getMetrics().addProgramExecution(executor.getShip().executeProgram(duration) == null);
+			}
+			catch (RuntimeException exc) {
+				failures[i] = exc;
 			}
+		});
+		RuntimeException failure = null;
+		for (int i = 0; i < executors.size(); i++) {
+			if (failure == null)
+				failure = failures[i];
+			if (failure == null)
+				executors.get(i).applyDeferredCommands();
+			else
+				executors.get(i).discardDeferredCommands();
+		}
+		if (failure != null)
+			throw failure;
+	}
+	
+	/**
+	 * Check whether the programs of the ships in this world are executed in parallel when this world evolves.
+	 * In that case, all programs observe the state of this world after its entities have moved, and the actions of all programs
+	 * only take effect after all programs have been executed. In particular, a program does not observe the effect of its own actions
+	 * during the same execution.
+	 */
+	@Basic
+	public boolean isExecutingProgramsInParallel() {
+		return this.executingProgramsInParallel;
+	}
+	
+	/**
+	 * Set whether the programs of the ships in this world are executed in parallel.
+	 * 
+	 * @param flag
+	 * 			The new value of the flag.
+	 * @post | new.isExecutingProgramsInParallel() == flag
+	 */
+	public void setExecutingProgramsInParallel(boolean flag) {
+		this.executingProgramsInParallel = flag;
+	}
+	
+	/**
+	 * A variable registering whether the programs of the ships in this world are executed in parallel.
+	 */
+	private boolean executingProgramsInParallel;
+	
+	/**
+	 * Return the collision batching window of this world.
+	 * When this world evolves up to its first collision, all collisions that would occur within this window after the first one are
+	 * resolved in the same pass, instead of advancing this world to each of them in turn. Entities that are about to collide within
+	 * the window apparently collide already.
+	 * Batched collisions are resolved before the entities touch: at that moment, two entities are at most the window times the
+	 * speed at which they approach each other apart, and an entity is at most the window times its speed away from the boundary.
+	 * Hence, batching never makes entities overlap, but a batched entity changes its course up to that distance early. Bounces
+	 * between entities use the actual line through their centres, such that momentum and kinetic energy are conserved up to
+	 * rounding errors.
+	 * 
+	 * @return Zero if collisions are not batched.
+	 */
+	@Basic
+	public double getCollisionBatchingWindow() {
+		return this.collisionBatchingWindow;
+	}
+	
+	public static boolean isValidCollisionBatchingWindow(double window) {
+		return window >= 0 && Double.isFinite(window);
+	}
+	
+	/**
+	 * Set the collision batching window of this world to the given window.
+	 * 
+	 * @param window
+	 * 			The new window for this world.
+	 * @post | new.getCollisionBatchingWindow() == window
+	 * @throws IllegalArgumentException
+	 * 			| ! isValidCollisionBatchingWindow(window)
+	 */
+	public void setCollisionBatchingWindow(double window) throws IllegalArgumentException {
+		if (! isValidCollisionBatchingWindow(window))
+			throw new IllegalArgumentException();
+		this.collisionBatchingWindow = window;
+	}
+	
+	/**
+	 * A variable registering the collision batching window of this world.
+	 */
+	private double collisionBatchingWindow;
+	
+	/**
+	 * Return the number of iterations of evolve() that were saved by batching collisions in this world.
+	 * Each distinct time at which batched collisions would have occurred accounts for one iteration, in which this world would have
+	 * advanced to that time, resolved the collisions and computed the time to the next collision.
+	 */
+	@Basic
+	public long getNbOfSavedIterations() {
+		return this.nbOfSavedIterations;
+	}
+	
+	private long nbOfSavedIterations;
+	
+	/**
+	 * Return the metrics counting the work this world performs while it evolves.
+	 */
+	@Basic @Immutable
+	public WorldMetrics getMetrics() {
+		return this.metrics;
+	}
+	
+	private final WorldMetrics metrics = new WorldMetrics();
+	
+	/**
+	 * Return the log recording the mutations of this world, if any.
+	 */
+	@Basic
+	public ReplayLog getReplayLog() {
+		return this.replayLog;
+	}
+	
+	/**
+	 * Set the log recording the mutations of this world to the given log.
+	 * 
+	 * @note This method must only be invoked when a replay log is started or closed.
+	 */
+	void setReplayLog(ReplayLog log) {
+		this.replayLog = log;
+	}
+	
+	private ReplayLog replayLog;
+	
+	/**
+	 * Return the log to which a mutation of this world performed now must be recorded.
+	 * 
+	 * @return Null if this world has no replay log, or if the mutation is performed while another recorded mutation is performed.
+	 */
+	ReplayLog getRecordingReplayLog() {
+		return (recordingSuspensions == 0) ? replayLog : null;
+	}
+	
+	/**
+	 * Stop recording the mutations of this world until resumeRecording() is invoked.
+	 * Invocations of this method and of resumeRecording() must be paired, and may be nested.
+	 */
+	void suspendRecording() {
+		recordingSuspensions++;
+	}
+	
+	void resumeRecording() {
+		recordingSuspensions--;
+	}
+	
+	private int recordingSuspensions;
+	
+	/**
+	 * Return the source of randomness of this world.
+	 * All random decisions in this world, such as the positions of teleported entities and the directions in which planetoids
+	 * split, are taken using this source.
+	 */
+	@Basic
+	public SeededRandom getRandom() {
+		return this.random;
+	}
+	
+	/**
+	 * Make this world deterministic, using a source of randomness seeded with the given seed.
+	 * The programs of the ships in this world, and of ships added to this world or loaded with a program later on, get a source of
+	 * randomness of their own, seeded from the source of this world. Hence, identical worlds evolving with identical durations
+	 * follow identical trajectories, even if the programs of their ships are executed in parallel.
+	 * 
+	 * @param seed
+	 * 			The seed for the source of randomness of this world.
+	 * @post | new.isDeterministic()
+	 */
+	public void setRandomSeed(long seed) {
+		this.random = new SeededRandom(seed);
+		this.deterministic = true;
+		for (Entity entity : entityList) {
+			if (entity instanceof Ship && ((Ship)entity).getProgramExecutor() != null)
+				seedProgramExecutor((Ship)entity);
+		}
+	}
+	
+	/**
+	 * Give the program executor of the given ship a source of randomness seeded from the source of this world.
+	 */
+	void seedProgramExecutor(Ship ship) {
+		ship.getProgramExecutor().setRandom(new SeededRandom(getRandom().nextLong()));
+	}
+	
+	/**
+	 * Make this world deterministic, using the given source of randomness, without seeding the program executors of its ships.
+	 * 
+	 * @note This method must only be invoked when a world is restored by a world serializer.
+	 */
+	void restoreRandom(SeededRandom random) {
+		this.random = random;
+		this.deterministic = true;
+	}
+	
+	/**
+	 * Check whether the source of randomness of this world was seeded explicitly.
+	 */
+	@Basic
+	public boolean isDeterministic() {
+		return this.deterministic;
+	}
+	
+	private SeededRandom random = new SeededRandom();
+	
+	private boolean deterministic;
+	
+	/**
+	 * Return the maximal number of statements the program of a ship in this world may execute during a single execution, unless
+	 * that ship has a budget of its own.
+	 * 
+	 * @return Zero if the default budget of program executors applies.
+	 */
+	@Basic
+	public long getInstructionBudget() {
+		return this.instructionBudget;
+	}
+	
+	/**
+	 * Set the instruction budget of this world to the given budget.
+	 * 
+	 * @param budget
+	 * 			The new budget for this world.
+	 * @post | new.getInstructionBudget() == budget
+	 * @throws IllegalArgumentException
+	 * 			| ! Ship.isValidInstructionBudget(budget)
+	 */
+	public void setInstructionBudget(long budget) throws IllegalArgumentException {
+		if (! Ship.isValidInstructionBudget(budget))
+			throw new IllegalArgumentException();
+		this.instructionBudget = budget;
+	}
+	
+	/**
+	 * A variable registering the instruction budget of this world.
+	 */
+	private long instructionBudget;
+	
+	/**
+	 * Return the set of all ships in this world whose program has exhausted its instruction budget at least once, including the
+	 * ships whose program was aborted because a function call exceeded the budget.
+	 * 
+	 * @return | result == { ship in getSpecificEntities(Ship.class) | ship.getProgramExecutor() != null &&
+	 * 			|				ship.getProgramExecutor().getNbOfBudgetExhaustions() > 0 }
+	 */
+	public Set<Ship> getShipsExceedingInstructionBudget() {
+		Set<Ship> result = new HashSet<>();
+		for (Ship ship : getSpecificEntities(Ship.class)) {
+			if (ship.getProgramExecutor() != null && ship.getProgramExecutor().getNbOfBudgetExhaustions() > 0)
+				result.add(ship);
+		}
+		return result;
+	}
+	
+	/**
+	 * Return the number of distinct times at which the given collisions that apparently collide only because of the collision batching
+	 * window of this world would occur.
+	 */
+	private int getNbOfBatchedCollisionTimes(Set<Set<Entity>> collisionSet) {
+		Set<Double> times = new HashSet<>();
+		for (Set<Entity> collision: collisionSet) {
+			Object[] collisionArray = collision.toArray();
+			Entity entity1 = (Entity)collisionArray[0];
+			if (collisionArray.length == 1 && !entity1.apparentlyCollidesWithBoundary(false))
+				times.add(entity1.getTimeToCollisionWithBoundary());
+			else if (collisionArray.length == 2 && !Entity.apparentlyCollide(entity1, (Entity)collisionArray[1], false))
+				times.add(Entity.getTimeToCollision(entity1, (Entity)collisionArray[1]));
 		}
+		return times.size();
 	}
 	
 	/**
 	 * Resolve the collisions (both between entities as between an entity and the boundary) in this world.
+	 * 
+	 * @return The number of collisions that were resolved.
 	 */
-	private void resolveCollisions(CollisionListener collisionListener) throws TerminatedException, IllegalCollisionException {
+	private int resolveCollisions(CollisionListener collisionListener) throws TerminatedException, IllegalCollisionException {
 		if (isTerminated())
 			throw new TerminatedException();
 		Set<Set<Entity>> collisionSet = getCollisions();
 		if (collisionSet.isEmpty())
 			throw new IllegalMethodCallException();
+		if (getCollisionBatchingWindow() > 0)
+			nbOfSavedIterations += getNbOfBatchedCollisionTimes(collisionSet);
+		int result = 0;
 		for (Set<Entity> collision: collisionSet) {
 			if (collision.size() == 1) {
 				Entity entity = (Entity)collision.toArray()[0];
@@ -610,7 +1256,9 @@ public class World {
 					//It is possible that entity is terminated in a previous collision (that is handled in this invocation of resolveCollsions),
 					// such that it still belongs to the collisionSet.
 					showCollision(collisionListener, entity);
+					getMetrics().addResolvedCollision(entity);
 					entity.bounceOffBoundary();
+					result++;
 				}
 			}
 			else if (collision.size() == 2) {
@@ -621,11 +1269,14 @@ public class World {
 					//It is possible that entity1 or entity2 is terminated in a previous collision (that is handled in this invocation
 					// of resolveCollsions), such that it still belongs to the collisionSet.
 					showCollision(collisionListener, entity1, entity2);
+					getMetrics().addResolvedCollision(entity1, entity2);
 					entity1.resolveCollision(entity2);
+					result++;
 				}
 			}
 			else
 				throw new IllegalCollisionException();
 		}
+		return result;
 	}
 }
\ No newline at end of file
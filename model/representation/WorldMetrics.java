@@ -0,0 +1,293 @@
+package asteroids.model.representation;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of metrics counting the work a world performs while it evolves.
+ *
+ * The metrics of a world register the pairs of entities examined while the time to the first collision is computed and the times
+ * of impact that are solved for them, the collisions that are resolved per pair of types of colliding entities, the evolutions of
+ * the world and the iterations of their collision loop, the time spent advancing the entities, resolving collisions and checking
+ * the invariants of the world, and the executions of the programs of its ships, including the executions that ended holding.
+ * The metrics are always registered. Every counter is a striped adder, such that the tiles and programs of a world that are
+ * processed in parallel, and worlds evolving in parallel, do not contend for the same memory; loops add their counts once they are
+ * done rather than once per pair.
+ * The metrics of a world can be registered as a JMX MBean. They are not registered by default, since the platform MBean server
+ * would keep the world reachable.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+public class WorldMetrics implements WorldMetricsMXBean {
+
+	/**
+	 * Initialize these new metrics with all counters equal to zero.
+	 */
+	WorldMetrics() {
+		for (int i = 0; i < resolvedCollisions.length; i++)
+			resolvedCollisions[i] = new LongAdder();
+	}
+
+	/**
+	 * Return the number of pairs of entities examined while the time to the first collision was computed, including pairs that
+	 * were skipped because both entities sleep.
+	 */
+	@Override
+	public long getNbOfPairTests() {
+		return nbOfPairTests.sum();
+	}
+
+	void addPairTests(long number) {
+		nbOfPairTests.add(number);
+	}
+
+	private final LongAdder nbOfPairTests = new LongAdder();
+
+	/**
+	 * Return the number of times of impact of pairs of entities that were solved while the time to the first collision was computed.
+	 */
+	@Override
+	public long getNbOfImpactSolves() {
+		return nbOfImpactSolves.sum();
+	}
+
+	void addImpactSolves(long number) {
+		nbOfImpactSolves.add(number);
+	}
+
+	private final LongAdder nbOfImpactSolves = new LongAdder();
+
+	@Override
+	public long getNbOfEvolutions() {
+		return nbOfEvolutions.sum();
+	}
+
+	/**
+	 * Return the number of iterations of the collision loop of all evolutions, each iteration advancing the world to the next
+	 * collision and resolving it.
+	 */
+	@Override
+	public long getNbOfEvolveIterations() {
+		return nbOfEvolveIterations.sum();
+	}
+
+	/**
+	 * Return the mean number of iterations of the collision loop per evolution.
+	 *
+	 * @return | if (getNbOfEvolutions() == 0) then result == 0
+	 * 			| else result == (double)getNbOfEvolveIterations() / getNbOfEvolutions()
+	 */
+	@Override
+	public double getMeanNbOfEvolveIterations() {
+		long nbOfEvolutions = getNbOfEvolutions();
+		return (nbOfEvolutions == 0) ? 0 : (double)getNbOfEvolveIterations() / nbOfEvolutions;
+	}
+
+	/**
+	 * Register an evolution of the world of these metrics with the given number of iterations of its collision loop.
+	 */
+	void addEvolution(long nbOfIterations) {
+		nbOfEvolutions.increment();
+		nbOfEvolveIterations.add(nbOfIterations);
+	}
+
+	private final LongAdder nbOfEvolutions = new LongAdder();
+
+	private final LongAdder nbOfEvolveIterations = new LongAdder();
+
+	/**
+	 * Return the time, in nanoseconds, spent advancing the entities of the world, including the execution of programs.
+	 */
+	@Override
+	public long getAdvanceNanos() {
+		return advanceNanos.sum();
+	}
+
+	void addAdvanceNanos(long nanos) {
+		advanceNanos.add(nanos);
+	}
+
+	private final LongAdder advanceNanos = new LongAdder();
+
+	/**
+	 * Return the time, in nanoseconds, spent detecting and resolving the collisions of the world.
+	 */
+	@Override
+	public long getResolveCollisionsNanos() {
+		return resolveCollisionsNanos.sum();
+	}
+
+	void addResolveCollisionsNanos(long nanos) {
+		resolveCollisionsNanos.add(nanos);
+	}
+
+	private final LongAdder resolveCollisionsNanos = new LongAdder();
+
+	/**
+	 * Return the time, in nanoseconds, spent checking whether the entities of the world are proper after each evolution.
+	 */
+	@Override
+	public long getInvariantCheckNanos() {
+		return invariantCheckNanos.sum();
+	}
+
+	void addInvariantCheckNanos(long nanos) {
+		invariantCheckNanos.add(nanos);
+	}
+
+	private final LongAdder invariantCheckNanos = new LongAdder();
+
+	@Override
+	public long getNbOfProgramExecutions() {
+		return nbOfProgramExecutions.sum();
+	}
+
+	/**
+	 * Return the number of executions of programs that ended holding at an action, rather than finishing the program.
+	 */
+	@Override
+	public long getNbOfProgramHolds() {
+		return nbOfProgramHolds.sum();
+	}
+
+	/**
+	 * Register an execution of a program that ended holding if and only if the given flag is true.
+	 */
+	void addProgramExecution(boolean held) {
+		nbOfProgramExecutions.increment();
+		if (held)
+			nbOfProgramHolds.increment();
+	}
+
+	private final LongAdder nbOfProgramExecutions = new LongAdder();
+
+	private final LongAdder nbOfProgramHolds = new LongAdder();
+
+	/**
+	 * Return the number of resolved collisions between entities of the given types, or between an entity of the first given type
+	 * and the boundary if the second given type is null. The order of the given types is irrelevant.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| type1 == null || (getTypeIndex(type1) < 0) || ((type2 != null) && (getTypeIndex(type2) < 0))
+	 */
+	public long getNbOfResolvedCollisions(Class<? extends Entity> type1, Class<? extends Entity> type2)
+			throws IllegalArgumentException {
+		if (type1 == null)
+			throw new IllegalArgumentException();
+		int index1 = getTypeIndex(type1), index2 = (type2 == null) ? BOUNDARY : getTypeIndex(type2);
+		if (index1 < 0 || index2 < 0)
+			throw new IllegalArgumentException();
+		return resolvedCollisions[getPairIndex(index1, index2)].sum();
+	}
+
+	@Override
+	public Map<String, Long> getResolvedCollisions() {
+		Map<String, Long> result = new LinkedHashMap<>();
+		for (int i = 0; i < TYPE_NAMES.length; i++) {
+			for (int j = i; j < TYPE_NAMES.length; j++) {
+				long number = resolvedCollisions[getPairIndex(i, j)].sum();
+				if (number > 0)
+					result.put(TYPE_NAMES[i] + "-" + TYPE_NAMES[j], number);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Register a resolved collision of the given entity with the boundary.
+	 */
+	void addResolvedCollision(Entity entity) {
+		resolvedCollisions[getPairIndex(getTypeIndex(entity.getClass()), BOUNDARY)].increment();
+	}
+
+	/**
+	 * Register a resolved collision between the given entities.
+	 */
+	void addResolvedCollision(Entity entity1, Entity entity2) {
+		resolvedCollisions[getPairIndex(getTypeIndex(entity1.getClass()), getTypeIndex(entity2.getClass()))].increment();
+	}
+
+	/**
+	 * Return the index of the given type of entities among the types for which collisions are counted, or -1 if collisions of
+	 * entities of the given type are not counted.
+	 */
+	private static int getTypeIndex(Class<?> type) {
+		for (int i = 0; i < TYPES.length; i++) {
+			if (TYPES[i].isAssignableFrom(type))
+				return i;
+		}
+		return -1;
+	}
+
+	private static int getPairIndex(int index1, int index2) {
+		return Math.min(index1, index2) * TYPE_NAMES.length + Math.max(index1, index2);
+	}
+
+	private static final Class<?>[] TYPES = {Ship.class, Bullet.class, Asteroid.class, Planetoid.class};
+
+	private static final String[] TYPE_NAMES = {"Ship", "Bullet", "Asteroid", "Planetoid", "Boundary"};
+
+	private static final int BOUNDARY = TYPES.length;
+
+	private final LongAdder[] resolvedCollisions = new LongAdder[TYPE_NAMES.length * TYPE_NAMES.length];
+
+	/**
+	 * Register these metrics with the platform MBean server, under a name unique to these metrics.
+	 *
+	 * @return The name under which these metrics are registered.
+	 * @throws IllegalStateException
+	 * 			| getObjectName() != null
+	 * @throws JMException
+	 * 			The MBean server refused to register these metrics.
+	 */
+	public ObjectName registerMBean() throws IllegalStateException, JMException {
+		if (getObjectName() != null)
+			throw new IllegalStateException();
+		ObjectName name = new ObjectName(OBJECT_NAME_DOMAIN + ":type=World,id=" + nextIdentifier.getAndIncrement());
+		ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+		this.objectName = name;
+		return name;
+	}
+
+	/**
+	 * Unregister these metrics from the platform MBean server, if they are registered.
+	 *
+	 * @post | new.getObjectName() == null
+	 */
+	public void unregisterMBean() {
+		if (getObjectName() == null)
+			return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			server.unregisterMBean(getObjectName());
+		}
+		catch (JMException exc) {
+			// The metrics were unregistered through the MBean server directly.
+		}
+		this.objectName = null;
+	}
+
+	/**
+	 * Return the name under which these metrics are registered with the platform MBean server, or null if they are not registered.
+	 */
+	@Basic
+	public ObjectName getObjectName() {
+		return this.objectName;
+	}
+
+	private volatile ObjectName objectName;
+
+	public static final String OBJECT_NAME_DOMAIN = "asteroids.model";
+
+	private static final AtomicLong nextIdentifier = new AtomicLong();
+}
@@ -0,0 +1,38 @@
+package asteroids.model.representation;
+
+import java.util.Map;
+
+/**
+ * The management interface of the metrics of a world, as exposed through JMX.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+public interface WorldMetricsMXBean {
+
+	long getNbOfPairTests();
+
+	long getNbOfImpactSolves();
+
+	long getNbOfEvolutions();
+
+	long getNbOfEvolveIterations();
+
+	double getMeanNbOfEvolveIterations();
+
+	long getAdvanceNanos();
+
+	long getResolveCollisionsNanos();
+
+	long getInvariantCheckNanos();
+
+	long getNbOfProgramExecutions();
+
+	long getNbOfProgramHolds();
+
+	/**
+	 * Return the number of resolved collisions for each pair of types of colliding entities, labelled as "Ship-Bullet" or, for
+	 * collisions with the boundary, as "Ship-Boundary".
+	 */
+	Map<String, Long> getResolvedCollisions();
+}
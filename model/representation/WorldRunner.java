@@ -0,0 +1,356 @@
+package asteroids.model.representation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import asteroids.part2.CollisionListener;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of runners letting several independent worlds evolve on a shared pool of threads.
+ *
+ * Every call of tick() adds the given duration to each world of the runner, after which the world evolves with the fixed timestep
+ * of its driver on the pool. A world is never evolved by two threads at the same time, and a world only evolves once each time it
+ * is scheduled: if more time is pending afterwards, it is scheduled again behind the worlds that are already waiting, such that a
+ * slow world cannot starve the others. The runner keeps the worlds that are waiting in a queue of its own and every task it
+ * submits evolves the world at the head of that queue, hence worlds are evolved in the order in which they were scheduled,
+ * whatever the order in which the pool runs its tasks.
+ * A world that is still evolving when the next tick arrives falls behind: the new duration is added to its pending duration
+ * instead of submitting another task, and the driver of the world performs at most its maximal number of steps for it, dropping
+ * the remaining time. Hence, the amount of work queued for a world is bounded, however far it falls behind.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+public class WorldRunner implements AutoCloseable {
+
+	/**
+	 * Initialize this new runner, evolving its worlds on the given pool.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| pool == null
+	 */
+	public WorldRunner(ForkJoinPool pool) throws IllegalArgumentException {
+		if (pool == null)
+			throw new IllegalArgumentException();
+		this.pool = pool;
+	}
+
+	/**
+	 * Initialize this new runner, evolving its worlds on the common pool.
+	 */
+	public WorldRunner() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	@Basic @Immutable
+	public ForkJoinPool getPool() {
+		return this.pool;
+	}
+
+	private final ForkJoinPool pool;
+
+	/**
+	 * Add the given world to this runner, evolving it with the given timestep and reporting its collisions to the given listener.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| world == null || hasAsWorld(world) || !FixedTimestepDriver.isValidTimestep(timestep)
+	 */
+	public void addWorld(World world, double timestep, CollisionListener collisionListener) throws IllegalArgumentException {
+		if (world == null || hasAsWorld(world))
+			throw new IllegalArgumentException();
+		Lane lane = new Lane(new FixedTimestepDriver(world, timestep), collisionListener);
+		lanes.put(world, lane);
+		laneList.add(lane);
+	}
+
+	/**
+	 * Remove the given world from this runner. A step of the world that is in progress is completed.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| !hasAsWorld(world)
+	 */
+	public void removeWorld(World world) throws IllegalArgumentException {
+		Lane lane = lanes.remove(world);
+		if (lane == null)
+			throw new IllegalArgumentException();
+		laneList.remove(lane);
+	}
+
+	public boolean hasAsWorld(World world) {
+		return lanes.containsKey(world);
+	}
+
+	public int getNbOfWorlds() {
+		return laneList.size();
+	}
+
+	private final Map<World, Lane> lanes = new ConcurrentHashMap<>();
+
+	/**
+	 * The lanes of this runner in the order in which their worlds were added, such that tasks are submitted in a fixed order.
+	 */
+	private final List<Lane> laneList = new CopyOnWriteArrayList<>();
+
+	/**
+	 * Schedule the given lane behind the lanes that are already waiting, and submit a task evolving the lane at the head.
+	 */
+	private void schedule(Lane lane) {
+		readyLanes.add(lane);
+		pool.execute(this::evolveNextLane);
+	}
+
+	/**
+	 * Evolve the lane that has been waiting the longest.
+	 * Tasks of a fork/join pool that are submitted by one of its workers run in the reverse order, hence a task does not evolve the
+	 * lane that submitted it.
+	 */
+	private void evolveNextLane() {
+		Lane lane = readyLanes.poll();
+		if (lane != null)
+			lane.evolve();
+	}
+
+	/**
+	 * The lanes that are scheduled and not evolving, in the order in which they were scheduled.
+	 * There are as many tasks of this runner in its pool as there are lanes in this queue.
+	 */
+	private final Queue<Lane> readyLanes = new ConcurrentLinkedQueue<>();
+
+	/**
+	 * Add the given duration to the pending duration of each world of this runner, and schedule the worlds that are not evolving.
+	 * This method does not wait for the worlds to evolve.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| duration < 0 || !Double.isFinite(duration)
+	 * @throws IllegalStateException
+	 * 			| isClosed()
+	 */
+	public void tick(double duration) throws IllegalArgumentException, IllegalStateException {
+		if (duration < 0 || !Double.isFinite(duration))
+			throw new IllegalArgumentException();
+		if (isClosed())
+			throw new IllegalStateException();
+		long now = System.nanoTime();
+		for (Lane lane : laneList)
+			lane.offer(duration, now);
+	}
+
+	/**
+	 * Wait until no world of this runner is evolving or scheduled, or until the given timeout has elapsed.
+	 *
+	 * @return True if and only if no world is evolving or scheduled.
+	 */
+	public boolean awaitIdle(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		synchronized (idleMonitor) {
+			while (nbOfBusyLanes > 0) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0)
+					return false;
+				TimeUnit.NANOSECONDS.timedWait(idleMonitor, remaining);
+			}
+			return true;
+		}
+	}
+
+	private void registerBusy(boolean busy) {
+		synchronized (idleMonitor) {
+			nbOfBusyLanes += busy ? 1 : -1;
+			if (nbOfBusyLanes == 0)
+				idleMonitor.notifyAll();
+		}
+	}
+
+	private final Object idleMonitor = new Object();
+
+	private int nbOfBusyLanes;
+
+	/**
+	 * Return the tick latency of the given world at the given percentile, in nanoseconds, over its most recent ticks.
+	 * The latency of a tick is the time between the call of tick() and the moment the world has evolved over the given duration.
+	 *
+	 * @param percentile
+	 * 			The percentile, between 0 and 100.
+	 * @return Zero if the given world has not evolved yet.
+	 * @throws IllegalArgumentException
+	 * 			| !hasAsWorld(world) || percentile < 0 || percentile > 100
+	 */
+	public long getTickLatency(World world, double percentile) throws IllegalArgumentException {
+		if (percentile < 0 || percentile > 100)
+			throw new IllegalArgumentException();
+		return getLane(world).getLatency(percentile);
+	}
+
+	/**
+	 * Return the number of times the given world has evolved since it was added to this runner.
+	 */
+	public long getNbOfEvolutions(World world) throws IllegalArgumentException {
+		return getLane(world).nbOfEvolutions;
+	}
+
+	/**
+	 * Return the number of ticks that arrived while the given world was still evolving or scheduled.
+	 */
+	public long getNbOfDelayedTicks(World world) throws IllegalArgumentException {
+		return getLane(world).nbOfDelayedTicks;
+	}
+
+	/**
+	 * Return the total duration that was dropped for the given world because it fell behind too far.
+	 */
+	public double getDroppedDuration(World world) throws IllegalArgumentException {
+		return getLane(world).driver.getDroppedDuration();
+	}
+
+	/**
+	 * Return the exception or error thrown while the given world evolved, or null if there is none.
+	 * A world for which an exception or error was thrown is not evolved anymore. Errors are rethrown to the pool as well.
+	 */
+	public Throwable getFailure(World world) throws IllegalArgumentException {
+		return getLane(world).failure;
+	}
+
+	private Lane getLane(World world) throws IllegalArgumentException {
+		Lane lane = (world == null) ? null : lanes.get(world);
+		if (lane == null)
+			throw new IllegalArgumentException();
+		return lane;
+	}
+
+	/**
+	 * Close this runner: no ticks are accepted anymore. Worlds that are evolving complete their current step.
+	 * The pool of this runner is not shut down, since it may be shared.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+	}
+
+	@Basic
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	private volatile boolean closed;
+
+	/**
+	 * The number of most recent tick latencies kept per world.
+	 */
+	public static final int LATENCY_WINDOW = 1024;
+
+	/**
+	 * A class of lanes registering the scheduling state of a single world of this runner.
+	 */
+	private final class Lane {
+
+		private Lane(FixedTimestepDriver driver, CollisionListener collisionListener) {
+			this.driver = driver;
+			this.collisionListener = collisionListener;
+		}
+
+		private final FixedTimestepDriver driver;
+
+		private final CollisionListener collisionListener;
+
+		/**
+		 * Add the given duration, offered at the given time, to the pending duration of this lane and submit this lane if it is idle.
+		 */
+		private void offer(double duration, long time) {
+			synchronized (this) {
+				if (failure != null)
+					return;
+				pendingDuration += duration;
+				if (pendingSince < 0)
+					pendingSince = time;
+				if (scheduled) {
+					nbOfDelayedTicks++;
+					return;
+				}
+				scheduled = true;
+			}
+			registerBusy(true);
+			schedule(this);
+		}
+
+		private void evolve() {
+			double duration;
+			long since;
+			synchronized (this) {
+				duration = pendingDuration;
+				since = pendingSince;
+				pendingDuration = 0;
+				pendingSince = -1;
+			}
+			try {
+				if (!isClosed() && hasAsWorld(driver.getWorld()) && !driver.getWorld().isTerminated()) {
+					driver.evolve(duration, collisionListener);
+					nbOfEvolutions++;
+					recordLatency(System.nanoTime() - since);
+				}
+			}
+			catch (RuntimeException exc) {
+				fail(exc);
+			}
+			catch (Error exc) {
+				fail(exc);
+				throw exc;
+			}
+			finally {
+				boolean reschedule;
+				synchronized (this) {
+					// Time that became pending in the meantime is handled behind the worlds that are already waiting.
+					reschedule = failure == null && pendingSince >= 0 && !isClosed();
+					scheduled = reschedule;
+				}
+				if (reschedule)
+					schedule(this);
+				else
+					registerBusy(false);
+			}
+		}
+
+		private synchronized void fail(Throwable exc) {
+			failure = exc;
+		}
+
+		private synchronized void recordLatency(long latency) {
+			latencies[(int)(nbOfLatencies++ % LATENCY_WINDOW)] = latency;
+		}
+
+		private synchronized long getLatency(double percentile) {
+			int size = (int)Math.min(nbOfLatencies, LATENCY_WINDOW);
+			if (size == 0)
+				return 0;
+			long[] sorted = Arrays.copyOf(latencies, size);
+			Arrays.sort(sorted);
+			return sorted[Math.min(size - 1, (int)Math.ceil(percentile / 100 * size) - (percentile > 0 ? 1 : 0))];
+		}
+
+		private double pendingDuration;
+
+		/**
+		 * The time at which the oldest pending duration was offered, or -1 if no duration is pending.
+		 */
+		private long pendingSince = -1;
+
+		private boolean scheduled;
+
+		private volatile long nbOfEvolutions;
+
+		private volatile long nbOfDelayedTicks;
+
+		private volatile Throwable failure;
+
+		private final long[] latencies = new long[LATENCY_WINDOW];
+
+		private long nbOfLatencies;
+	}
+}
@@ -0,0 +1,520 @@
+package asteroids.model.representation;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import asteroids.model.exceptions.*;
+import asteroids.model.programs.Program;
+import asteroids.model.programs.ProgramExecutor;
+import asteroids.model.programs.ProgramSerializer;
+
+/**
+ * A class of utilities writing snapshots of worlds to channels and restoring worlds from them.
+ *
+ * A snapshot contains the dimensions and settings of a world, the state of each of its entities (position, velocity, radius,
+ * density and travelled distance, as well as the bounces of bullets and the orientation, thruster and magazine of ships), the
+ * bullets fired by each ship and the program of each ship together with the execution state of its executor.
+ * Every entity gets an index in the order in which it is written, the bullets in the magazine of a ship directly following that
+ * ship. References to entities, such as the source ships of bullets and entities stored in program variables, are written as
+ * these indices. Programs shared by several ships are written only once.
+ * Snapshots are written and read in fixed-size chunks, such that the snapshot of a world never has to fit in memory as a whole.
+ * Worlds can also be copied directly, without writing a snapshot.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+public class WorldSerializer {
+
+	private WorldSerializer() {
+	}
+
+	/**
+	 * The magic number at the start of every snapshot ("ASTW").
+	 */
+	public static final int MAGIC_NUMBER = 0x41535457;
+
+	/**
+	 * The version of the format written by this class. Snapshots written in another version cannot be restored.
+	 */
+	public static final short FORMAT_VERSION = 4;
+
+	/**
+	 * Write a snapshot of the given world to the file with the given path, replacing the file if it exists.
+	 */
+	public static void write(World world, Path path) throws IllegalArgumentException, IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(world, channel);
+		}
+	}
+
+	/**
+	 * Write a snapshot of the given world to the given channel.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| world == null || channel == null || world.isTerminated()
+	 * @throws IOException
+	 * 			Writing to the given channel failed.
+	 */
+	public static void write(World world, WritableByteChannel channel) throws IllegalArgumentException, IOException {
+		if (world == null || channel == null || world.isTerminated())
+			throw new IllegalArgumentException();
+		Output out = new Output(channel);
+		out.ensure(HEADER_SIZE);
+		out.buffer.putInt(MAGIC_NUMBER);
+		out.buffer.putShort(FORMAT_VERSION);
+		out.buffer.putDouble(world.getWidth());
+		out.buffer.putDouble(world.getHeight());
+		out.buffer.putLong(world.getInstructionBudget());
+		out.buffer.put((byte)(world.isExecutingProgramsInParallel() ? 1 : 0));
+		out.buffer.putDouble(world.getCollisionBatchingWindow());
+		out.buffer.put((byte)(world.isDeterministic() ? 1 : 0));
+		out.buffer.putLong(world.getRandom().getState());
+
+		Map<Entity, Integer> indices = new IdentityHashMap<>();
+		Map<Program, Integer> programIndices = new IdentityHashMap<>();
+		List<Ship> ships = new ArrayList<>();
+		out.ensure(4);
+		out.buffer.putInt(world.getNbOfEntities());
+		for (Entity entity : world.getEntities()) {
+			indices.put(entity, indices.size());
+			writeEntity(out, entity);
+			if (entity instanceof Ship) {
+				Ship ship = (Ship)entity;
+				ships.add(ship);
+				writeShip(out, ship, indices);
+				Program program = ship.getProgram();
+				Integer programIndex = (program == null) ? Integer.valueOf(-1) : programIndices.get(program);
+				out.ensure(4);
+				if (programIndex == null) {
+					out.buffer.putInt(programIndices.size());
+					programIndices.put(program, programIndices.size());
+					out.putBytes(ProgramSerializer.toBytes(program));
+				}
+				else
+					out.buffer.putInt(programIndex);
+			}
+			else if (entity instanceof Bullet) {
+				out.ensure(4);
+				out.buffer.putInt(((Bullet)entity).getNbOfBounces());
+			}
+		}
+
+		for (Ship ship : ships) {
+			List<Integer> fired = new ArrayList<>();
+			for (Bullet bullet : ship.getFiredBullets()) {
+				Integer index = indices.get(bullet);
+				if (index != null)
+					fired.add(index);
+			}
+			out.ensure(4);
+			out.buffer.putInt(fired.size());
+			for (int index : fired) {
+				out.ensure(4);
+				out.buffer.putInt(index);
+			}
+			if (ship.getProgramExecutor() != null)
+				out.putBytes(ProgramSerializer.executorStateToBytes(ship.getProgramExecutor(),
+						entity -> indices.getOrDefault(entity, -1)));
+		}
+		out.flush();
+	}
+
+	/**
+	 * Restore the world in the snapshot in the file with the given path.
+	 */
+	public static World read(Path path) throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			return read(channel);
+		}
+	}
+
+	/**
+	 * Restore the world in the snapshot read from the given channel.
+	 * The programs of the ships of the restored world resume where they were when the snapshot was written. If the world was
+	 * deterministic, the restored world and the program executors of its ships continue with the same random sequences.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| channel == null
+	 * @throws IOException
+	 * 			Reading from the given channel failed, or the data read is not a snapshot in the current format.
+	 */
+	public static World read(ReadableByteChannel channel) throws IllegalArgumentException, IOException {
+		if (channel == null)
+			throw new IllegalArgumentException();
+		Input in = new Input(channel);
+		try {
+			in.require(HEADER_SIZE);
+			if (in.buffer.getInt() != MAGIC_NUMBER)
+				throw new IOException("Not a world snapshot.");
+			short version = in.buffer.getShort();
+			if (version != FORMAT_VERSION)
+				throw new IOException("Unsupported snapshot format version: " + version);
+			double width = in.buffer.getDouble();
+			double height = in.buffer.getDouble();
+			World world = new World(height, width);
+			world.setInstructionBudget(in.buffer.getLong());
+			world.setExecutingProgramsInParallel(in.buffer.get() != 0);
+			world.setCollisionBatchingWindow(in.buffer.getDouble());
+			boolean deterministic = (in.buffer.get() != 0);
+			long randomState = in.buffer.getLong();
+
+			List<Entity> entities = new ArrayList<>();
+			List<Ship> ships = new ArrayList<>();
+			List<Program> programs = new ArrayList<>();
+			in.require(4);
+			for (int i = in.buffer.getInt(); i > 0; i--) {
+				Entity entity = readEntity(in);
+				entities.add(entity);
+				if (entity instanceof Ship) {
+					Ship ship = (Ship)entity;
+					ships.add(ship);
+					readShip(in, ship, entities);
+					world.addRestoredEntity(ship);
+					in.require(4);
+					int programIndex = in.buffer.getInt();
+					if (programIndex == programs.size())
+						programs.add(ProgramSerializer.fromBytes(ByteBuffer.wrap(in.getBytes())));
+					else if (programIndex > programs.size())
+						throw new IOException("Corrupt world snapshot.");
+					if (programIndex >= 0)
+						ship.loadProgram(programs.get(programIndex));
+				}
+				else {
+					if (entity instanceof Bullet) {
+						in.require(4);
+						((Bullet)entity).setNbOfBounces(in.buffer.getInt());
+					}
+					world.addRestoredEntity(entity);
+				}
+			}
+
+			for (Ship ship : ships) {
+				in.require(4);
+				for (int i = in.buffer.getInt(); i > 0; i--) {
+					in.require(4);
+					ship.restoreFiredBullet((Bullet)entities.get(in.buffer.getInt()));
+				}
+				if (ship.getProgramExecutor() != null)
+					ProgramSerializer.readExecutorState(ship.getProgramExecutor(), ByteBuffer.wrap(in.getBytes()), entities::get);
+			}
+			// The executors were restored with their own sources of randomness, hence they must not be seeded again.
+			if (deterministic) {
+				SeededRandom random = new SeededRandom(0);
+				random.setState(randomState);
+				world.restoreRandom(random);
+			}
+			return world;
+		}
+		catch (IllegalArgumentException | ClassCastException | IndexOutOfBoundsException | IllegalComponentException |
+				IllegalPositionException | IllegalRadiusException | IllegalBulletException | IllegalMethodCallException exc) {
+			throw new IOException("Corrupt world snapshot.", exc);
+		}
+	}
+
+	/**
+	 * Return a copy of the given world, containing a copy of each of its entities.
+	 * The copy is made directly, without writing a snapshot: the programs of the ships are shared with the given world, the state
+	 * of their executors is copied from executor to executor, and the entities are not checked for overlaps again. The print sinks
+	 * of the program executors are not copied: the executors of the copy print to the standard output.
+	 * All entities are copied eagerly, nothing is shared with the given world copy-on-write.
+	 */
+	static World copy(World world) {
+		World result = new World(world.getHeight(), world.getWidth());
+		result.setInstructionBudget(world.getInstructionBudget());
+		result.setExecutingProgramsInParallel(world.isExecutingProgramsInParallel());
+		result.setCollisionBatchingWindow(world.getCollisionBatchingWindow());
+		int nbOfEntities = world.getNbOfEntities();
+		Map<Entity, Integer> indices = new IdentityHashMap<>(2 * nbOfEntities);
+		List<Entity> copies = new ArrayList<>(2 * nbOfEntities);
+		List<Ship> ships = new ArrayList<>();
+		for (int i = 0; i < nbOfEntities; i++) {
+			Entity entity = world.getEntityAtIndex(i);
+			Entity copy = copyEntity(entity);
+			indices.put(entity, copies.size());
+			copies.add(copy);
+			if (entity instanceof Ship) {
+				Ship ship = (Ship)entity, shipCopy = (Ship)copy;
+				ships.add(ship);
+				shipCopy.setThrusterForce(ship.getThrusterForce());
+				shipCopy.setThrust(ship.hasThrusterActivated());
+				shipCopy.setInstructionBudget(ship.getInstructionBudget());
+				for (Bullet bullet : ship.getMagazine()) {
+					Bullet bulletCopy = (Bullet)copyEntity(bullet);
+					shipCopy.loadBullet(bulletCopy);
+					indices.put(bullet, copies.size());
+					copies.add(bulletCopy);
+				}
+				if (ship.getProgramExecutor() != null) {
+					// The program was verified when it was loaded on the given ship.
+					ProgramExecutor executor = new ProgramExecutor(ship.getProgram());
+					shipCopy.setProgramExecutor(executor);
+					executor.setShip(shipCopy);
+				}
+			}
+			else if (entity instanceof Bullet)
+				((Bullet)copy).setNbOfBounces(((Bullet)entity).getNbOfBounces());
+			result.addRestoredEntity(copy);
+		}
+		for (Ship ship : ships) {
+			Ship shipCopy = (Ship)copies.get(indices.get(ship));
+			for (Bullet bullet : ship.getFiredBullets()) {
+				Integer index = indices.get(bullet);
+				if (index != null)
+					shipCopy.restoreFiredBullet((Bullet)copies.get(index));
+			}
+			if (ship.getProgramExecutor() != null)
+				ProgramSerializer.copyExecutorState(ship.getProgramExecutor(), shipCopy.getProgramExecutor(), entity -> {
+					Integer index = indices.get(entity);
+					return (index == null) ? null : copies.get(index);
+				});
+		}
+		if (world.isDeterministic())
+			result.restoreRandom(world.getRandom().copy());
+		return result;
+	}
+
+	/**
+	 * Return a new entity with the same type and state as the given entity, not associated with any world or ship.
+	 */
+	private static Entity copyEntity(Entity entity) {
+		Entity result = createEntity(getTag(entity), entity.getPosition().getxComponent(), entity.getPosition().getyComponent(),
+				entity.getVelocity().getxComponent(), entity.getVelocity().getyComponent(), entity.getInitialRadius(),
+				(entity instanceof Ship) ? ((Ship)entity).getOrientation() : 0);
+		restoreState(result, entity.getRadius(), entity.getDensity(), entity.getTotalTravelledDistance());
+		return result;
+	}
+
+	private static final int HEADER_SIZE = 4 + 2 + 8 + 8 + 8 + 1 + 8 + 1 + 8;
+
+	static final byte SHIP = 1, BULLET = 2, ASTEROID = 3, PLANETOID = 4;
+
+	private static final int ENTITY_SIZE = 1 + 8 * 8;
+
+	private static final int SHIP_SIZE = 8 + 8 + 1 + 8 + 4;
+
+	private static final int LOADED_BULLET_SIZE = 4 * 8;
+
+	private static void writeEntity(Output out, Entity entity) throws IOException {
+		out.ensure(ENTITY_SIZE);
+		ByteBuffer buffer = out.buffer;
+		buffer.put(getTag(entity));
+		buffer.putDouble(entity.getPosition().getxComponent());
+		buffer.putDouble(entity.getPosition().getyComponent());
+		buffer.putDouble(entity.getVelocity().getxComponent());
+		buffer.putDouble(entity.getVelocity().getyComponent());
+		buffer.putDouble(entity.getInitialRadius());
+		buffer.putDouble(entity.getRadius());
+		buffer.putDouble(entity.getDensity());
+		buffer.putDouble(entity.getTotalTravelledDistance());
+	}
+
+	private static Entity readEntity(Input in) throws IOException {
+		in.require(ENTITY_SIZE);
+		ByteBuffer buffer = in.buffer;
+		byte tag = buffer.get();
+		double x = buffer.getDouble(), y = buffer.getDouble(), vx = buffer.getDouble(), vy = buffer.getDouble();
+		double initialRadius = buffer.getDouble(), radius = buffer.getDouble(), density = buffer.getDouble();
+		double totalTravelledDistance = buffer.getDouble();
+		double orientation = 0;
+		if (tag == SHIP) {
+			// The orientation of a ship is the first attribute following its entity state.
+			in.require(8);
+			orientation = buffer.getDouble();
+		}
+		Entity result = createEntity(tag, x, y, vx, vy, initialRadius, orientation);
+		restoreState(result, radius, density, totalTravelledDistance);
+		return result;
+	}
+
+	/**
+	 * Return the tag identifying the type of the given entity in snapshots and state streams.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			Entities of the type of the given entity cannot be written.
+	 */
+	static byte getTag(Entity entity) throws IllegalArgumentException {
+		if (entity instanceof Ship)
+			return SHIP;
+		if (entity instanceof Bullet)
+			return BULLET;
+		if (entity instanceof Asteroid)
+			return ASTEROID;
+		if (entity instanceof Planetoid)
+			return PLANETOID;
+		throw new IllegalArgumentException("Entities of this type cannot be written.");
+	}
+
+	/**
+	 * Return a new entity of the type with the given tag with the given position, velocity, initial radius and, in case of a
+	 * ship, orientation.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			The given tag is unknown, or the given orientation is not a valid orientation for a ship.
+	 */
+	static Entity createEntity(byte tag, double x, double y, double vx, double vy, double initialRadius, double orientation)
+			throws IllegalArgumentException {
+		switch (tag) {
+			case SHIP:
+				if (!Ship.isValidOrientation(orientation))
+					throw new IllegalArgumentException();
+				return new Ship(x, y, vx, vy, initialRadius, orientation, 0, false);
+			case BULLET:
+				return new Bullet(x, y, vx, vy, initialRadius);
+			case ASTEROID:
+				return new Asteroid(x, y, vx, vy, initialRadius);
+			case PLANETOID:
+				return new Planetoid(x, y, vx, vy, initialRadius);
+			default:
+				throw new IllegalArgumentException("Unknown entity tag: " + tag);
+		}
+	}
+
+	/**
+	 * Set the radius, density and travelled distance of the given newly created entity to the given values.
+	 */
+	static void restoreState(Entity entity, double radius, double density, double totalTravelledDistance) {
+		if (radius != entity.getRadius())
+			entity.setRadius(radius);
+		entity.setDensity(density);
+		entity.addToTotalTravelledDistance(totalTravelledDistance);
+	}
+
+	private static void writeShip(Output out, Ship ship, Map<Entity, Integer> indices) throws IOException {
+		out.ensure(SHIP_SIZE);
+		out.buffer.putDouble(ship.getOrientation());
+		out.buffer.putDouble(ship.getThrusterForce());
+		out.buffer.put((byte)(ship.hasThrusterActivated() ? 1 : 0));
+		out.buffer.putLong(ship.getInstructionBudget());
+		// The kinematic state of a loaded bullet follows from the ship containing it.
+		out.buffer.putInt(ship.getNbOfBulletsInMagazine());
+		for (Bullet bullet : ship.getMagazine()) {
+			indices.put(bullet, indices.size());
+			out.ensure(LOADED_BULLET_SIZE);
+			out.buffer.putDouble(bullet.getInitialRadius());
+			out.buffer.putDouble(bullet.getRadius());
+			out.buffer.putDouble(bullet.getDensity());
+			out.buffer.putDouble(bullet.getTotalTravelledDistance());
+		}
+	}
+
+	private static void readShip(Input in, Ship ship, List<Entity> entities) throws IOException {
+		in.require(SHIP_SIZE - 8);
+		ship.setThrusterForce(in.buffer.getDouble());
+		ship.setThrust(in.buffer.get() != 0);
+		ship.setInstructionBudget(in.buffer.getLong());
+		for (int i = in.buffer.getInt(); i > 0; i--) {
+			in.require(LOADED_BULLET_SIZE);
+			Bullet bullet = new Bullet(ship.getPosition().getxComponent(), ship.getPosition().getyComponent(), 0, 0,
+					in.buffer.getDouble());
+			restoreState(bullet, in.buffer.getDouble(), in.buffer.getDouble(), in.buffer.getDouble());
+			ship.loadBullet(bullet);
+			entities.add(bullet);
+		}
+	}
+
+	private static final int CHUNK_SIZE = 64 * 1024;
+
+	/**
+	 * A buffer written to a channel whenever it cannot hold the next record.
+	 */
+	private static class Output {
+
+		private Output(WritableByteChannel channel) {
+			this.channel = channel;
+		}
+
+		private void ensure(int nbOfBytes) throws IOException {
+			if (buffer.remaining() < nbOfBytes)
+				flush();
+		}
+
+		/**
+		 * Write the length of the given bytes followed by the bytes themselves, or a negative length if the given bytes are null.
+		 */
+		private void putBytes(byte[] bytes) throws IOException {
+			ensure(4);
+			buffer.putInt(bytes == null ? -1 : bytes.length);
+			if (bytes == null)
+				return;
+			if (bytes.length <= buffer.remaining())
+				buffer.put(bytes);
+			else {
+				flush();
+				writeFully(ByteBuffer.wrap(bytes));
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			writeFully(buffer);
+			buffer.clear();
+		}
+
+		private void writeFully(ByteBuffer bytes) throws IOException {
+			while (bytes.hasRemaining())
+				channel.write(bytes);
+		}
+
+		private final WritableByteChannel channel;
+
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+	}
+
+	/**
+	 * A buffer refilled from a channel whenever it does not hold the next record completely.
+	 */
+	private static class Input {
+
+		private Input(ReadableByteChannel channel) {
+			this.channel = channel;
+			this.buffer.flip();
+		}
+
+		private void require(int nbOfBytes) throws IOException {
+			if (nbOfBytes < 0 || nbOfBytes > buffer.capacity())
+				throw new IOException("Corrupt world snapshot.");
+			if (buffer.remaining() >= nbOfBytes)
+				return;
+			buffer.compact();
+			while (buffer.position() < nbOfBytes) {
+				if (channel.read(buffer) < 0)
+					throw new EOFException("Truncated world snapshot.");
+			}
+			buffer.flip();
+		}
+
+		/**
+		 * Read bytes written as by putBytes().
+		 */
+		private byte[] getBytes() throws IOException {
+			require(4);
+			int length = buffer.getInt();
+			if (length < 0)
+				return null;
+			byte[] result = new byte[length];
+			int nbOfBuffered = Math.min(length, buffer.remaining());
+			buffer.get(result, 0, nbOfBuffered);
+			ByteBuffer rest = ByteBuffer.wrap(result, nbOfBuffered, length - nbOfBuffered);
+			while (rest.hasRemaining()) {
+				if (channel.read(rest) < 0)
+					throw new EOFException("Truncated world snapshot.");
+			}
+			return result;
+		}
+
+		private final ReadableByteChannel channel;
+
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(CHUNK_SIZE);
+	}
+}
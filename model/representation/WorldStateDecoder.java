@@ -0,0 +1,327 @@
+package asteroids.model.representation;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of decoders reconstructing the state of a world from a stream written by a world state encoder.
+ *
+ * After each frame that is read, a decoder holds the state of every entity of the world, identified by the identifier the encoder
+ * gave it, as well as the identifiers of the entities that entered and left the world in that frame. A decoder can join a stream
+ * that is already running: frames preceding the first keyframe it reads are skipped.
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+public class WorldStateDecoder {
+
+	/**
+	 * Initialize this new decoder reading from the given channel.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| channel == null
+	 */
+	public WorldStateDecoder(ReadableByteChannel channel) throws IllegalArgumentException {
+		if (channel == null)
+			throw new IllegalArgumentException();
+		this.channel = channel;
+	}
+
+	private final ReadableByteChannel channel;
+
+	/**
+	 * Read the next frame of the stream of this decoder and apply it to the state held by this decoder.
+	 *
+	 * @return False if and only if the stream has ended before the next frame.
+	 * @throws IOException
+	 * 			Reading from the channel of this decoder failed, or the stream is not a valid world state stream.
+	 */
+	public boolean readFrame() throws IOException {
+		if (!headerRead) {
+			ByteBuffer header = ByteBuffer.allocate(4 + 2 + 8);
+			if (!readFully(header, true))
+				return false;
+			if (header.getInt() != WorldStateEncoder.MAGIC_NUMBER)
+				throw new IOException("Not a world state stream.");
+			short version = header.getShort();
+			if (version != WorldStateEncoder.FORMAT_VERSION)
+				throw new IOException("Unsupported world state format version: " + version);
+			threshold = header.getDouble();
+			headerRead = true;
+		}
+		ByteBuffer length = ByteBuffer.allocate(4);
+		if (!readFully(length, true))
+			return false;
+		int frameLength = length.getInt();
+		if (frameLength < 1 + 8 || frameLength > MAXIMAL_FRAME_LENGTH)
+			throw new IOException("Corrupt world state stream.");
+		ByteBuffer frame = ByteBuffer.allocate(frameLength);
+		readFully(frame, false);
+		try {
+			applyFrame(frame);
+		}
+		catch (BufferUnderflowException | IllegalArgumentException exc) {
+			throw new IOException("Corrupt world state stream.", exc);
+		}
+		return true;
+	}
+
+	/**
+	 * The length of the largest frame a decoder accepts.
+	 */
+	private static final int MAXIMAL_FRAME_LENGTH = 1 << 30;
+
+	private boolean headerRead;
+
+	/**
+	 * Fill the given buffer from the channel of this decoder and flip it.
+	 *
+	 * @return False if and only if the given flag is true and the stream has ended before the first byte.
+	 * @throws EOFException
+	 * 			The stream has ended after the first byte, or before the first byte while the given flag is false.
+	 */
+	private boolean readFully(ByteBuffer buffer, boolean endAllowed) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer) < 0) {
+				if (endAllowed && buffer.position() == 0)
+					return false;
+				throw new EOFException("Truncated world state stream.");
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+
+	private void applyFrame(ByteBuffer frame) throws IOException {
+		byte type = frame.get();
+		long number = frame.getLong();
+		spawned.clear();
+		terminated.clear();
+		if (type == WorldStateEncoder.KEYFRAME) {
+			width = frame.getDouble();
+			height = frame.getDouble();
+			int nbOfEntities = frame.getInt();
+			Map<Integer, EntityState> previous = new LinkedHashMap<>(states);
+			states.clear();
+			for (int i = 0; i < nbOfEntities; i++) {
+				int identifier = frame.getInt();
+				states.put(identifier, readState(frame, getType(frame.get())));
+				if (previous.remove(identifier) == null && synchronised)
+					spawned.add(identifier);
+			}
+			if (synchronised)
+				terminated.addAll(previous.keySet());
+			synchronised = true;
+		}
+		else if (type == WorldStateEncoder.DELTA) {
+			if (!synchronised)
+				// Deltas are meaningless without the keyframe they build upon.
+				return;
+			int nbOfTerminated = frame.getInt();
+			for (int i = 0; i < nbOfTerminated; i++) {
+				int identifier = frame.getInt();
+				if (states.remove(identifier) == null)
+					throw new IOException("Corrupt world state stream.");
+				terminated.add(identifier);
+			}
+			int nbOfSpawned = frame.getInt();
+			for (int i = 0; i < nbOfSpawned; i++) {
+				int identifier = frame.getInt();
+				states.put(identifier, readState(frame, getType(frame.get())));
+				spawned.add(identifier);
+			}
+			int nbOfChanged = frame.getInt();
+			for (int i = 0; i < nbOfChanged; i++) {
+				int identifier = frame.getInt();
+				EntityState state = states.get(identifier);
+				if (state == null)
+					throw new IOException("Corrupt world state stream.");
+				states.put(identifier, readChangedState(frame, state));
+			}
+		}
+		else
+			throw new IOException("Corrupt world state stream.");
+		if (frame.hasRemaining())
+			throw new IOException("Corrupt world state stream.");
+		frameNumber = number;
+		keyframe = (type == WorldStateEncoder.KEYFRAME);
+	}
+
+	private static EntityState readState(ByteBuffer frame, Class<? extends Entity> type) {
+		return new EntityState(type, frame.getDouble(), frame.getDouble(), frame.getDouble(), frame.getDouble(), frame.getDouble());
+	}
+
+	/**
+	 * Read the changes of the given state from the given frame, and return the changed state.
+	 * Quantized changes are whole numbers of thresholds, added to the components of the given state in the same way the encoder
+	 * adds them, such that the decoder holds exactly the state the encoder registered as written.
+	 */
+	private EntityState readChangedState(ByteBuffer frame, EntityState state) throws IOException {
+		byte encoding = frame.get();
+		if (encoding == WorldStateEncoder.EXACT_STATE)
+			return readState(frame, state.getType());
+		if (encoding != WorldStateEncoder.SHORT_STEPS && encoding != WorldStateEncoder.INT_STEPS)
+			throw new IOException("Corrupt world state stream.");
+		double[] components = { state.getX(), state.getY(), state.getVx(), state.getVy(), state.getRadius() };
+		for (int i = 0; i < components.length; i++) {
+			double step = (encoding == WorldStateEncoder.SHORT_STEPS) ? frame.getShort() : frame.getInt();
+			components[i] = components[i] + step * getThreshold();
+		}
+		return new EntityState(state.getType(), components[0], components[1], components[2], components[3], components[4]);
+	}
+
+	private static Class<? extends Entity> getType(byte tag) throws IOException {
+		switch (tag) {
+			case WorldSerializer.SHIP:
+				return Ship.class;
+			case WorldSerializer.BULLET:
+				return Bullet.class;
+			case WorldSerializer.ASTEROID:
+				return Asteroid.class;
+			case WorldSerializer.PLANETOID:
+				return Planetoid.class;
+			default:
+				throw new IOException("Corrupt world state stream.");
+		}
+	}
+
+	/**
+	 * Check whether this decoder has read a keyframe, such that the state it holds reflects the state of the world.
+	 */
+	@Basic
+	public boolean isSynchronised() {
+		return this.synchronised;
+	}
+
+	private boolean synchronised;
+
+	/**
+	 * Return the threshold of the encoder that wrote the stream of this decoder.
+	 * Every component of the state held by this decoder differs at most this threshold from the state of the world.
+	 */
+	@Basic
+	public double getThreshold() {
+		return this.threshold;
+	}
+
+	private double threshold;
+
+	/**
+	 * Return the number of the last frame that was applied, counting from zero at the start of the stream.
+	 */
+	@Basic
+	public long getFrameNumber() {
+		return this.frameNumber;
+	}
+
+	private long frameNumber = -1;
+
+	/**
+	 * Check whether the last frame that was applied is a keyframe.
+	 */
+	@Basic
+	public boolean isKeyframe() {
+		return this.keyframe;
+	}
+
+	private boolean keyframe;
+
+	@Basic
+	public double getWidth() {
+		return this.width;
+	}
+
+	@Basic
+	public double getHeight() {
+		return this.height;
+	}
+
+	private double width, height;
+
+	/**
+	 * Return the state of each entity of the world, by identifier, in the order in which the entities entered the stream.
+	 */
+	public Map<Integer, EntityState> getEntityStates() {
+		return Collections.unmodifiableMap(states);
+	}
+
+	private final Map<Integer, EntityState> states = new LinkedHashMap<>();
+
+	/**
+	 * Return the identifiers of the entities that entered the world in the last frame that was applied.
+	 */
+	public List<Integer> getSpawned() {
+		return Collections.unmodifiableList(spawned);
+	}
+
+	private final List<Integer> spawned = new ArrayList<>();
+
+	/**
+	 * Return the identifiers of the entities that left the world in the last frame that was applied.
+	 */
+	public List<Integer> getTerminated() {
+		return Collections.unmodifiableList(terminated);
+	}
+
+	private final List<Integer> terminated = new ArrayList<>();
+
+	/**
+	 * A class of immutable states of entities, as reconstructed by a decoder.
+	 */
+	@Value
+	public static final class EntityState {
+
+		private EntityState(Class<? extends Entity> type, double x, double y, double vx, double vy, double radius) {
+			this.type = type;
+			this.x = x;
+			this.y = y;
+			this.vx = vx;
+			this.vy = vy;
+			this.radius = radius;
+		}
+
+		@Basic @Immutable
+		public Class<? extends Entity> getType() {
+			return this.type;
+		}
+
+		private final Class<? extends Entity> type;
+
+		@Basic @Immutable
+		public double getX() {
+			return this.x;
+		}
+
+		@Basic @Immutable
+		public double getY() {
+			return this.y;
+		}
+
+		@Basic @Immutable
+		public double getVx() {
+			return this.vx;
+		}
+
+		@Basic @Immutable
+		public double getVy() {
+			return this.vy;
+		}
+
+		@Basic @Immutable
+		public double getRadius() {
+			return this.radius;
+		}
+
+		private final double x, y, vx, vy, radius;
+	}
+}
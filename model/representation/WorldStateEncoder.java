@@ -0,0 +1,304 @@
+package asteroids.model.representation;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import asteroids.model.exceptions.*;
+import be.kuleuven.cs.som.annotate.*;
+
+/**
+ * A class of encoders writing the state of a world to a channel, one frame per tick, for spectators and analytics.
+ *
+ * Every entity gets an identifier the first time it is written, which it keeps as long as it is part of the world. A frame is either
+ * a keyframe, holding the dimensions of the world and the state (type, position, velocity and radius) of all its entities, or a
+ * delta, holding only the changes since the previous frame:
+ * 	- the identifiers of the entities that have left the world, for instance because they were destroyed or split;
+ * 	- the state of the entities that have entered the world, such as fired bullets and the asteroids a planetoid split into;
+ * 	- the changes in the state of the entities of which a component of the position, the velocity or the radius differs more than
+ * 	  the threshold of the encoder from the last state written for that entity.
+ * The state in a keyframe and the state of an entity that has entered the world are written exactly. The changes in the state of an
+ * entity are quantized to the threshold: every component is written as a whole number of thresholds relative to the value last
+ * written for that component, as a short if all five numbers fit in a short and as an int if they fit in an int. If they do not fit,
+ * or if the threshold is zero, the changed state is written exactly. The encoder registers the quantized state as written, such
+ * that the next delta is relative to the state the decoder holds.
+ * Hence, the state reconstructed from a delta differs at most the threshold from the actual state in every component. A keyframe is
+ * written every given number of frames, such that a decoder can join a stream at a keyframe.
+ * A stream starts with a header holding a magic number, the format version and the threshold, after which every frame is written
+ * as its length followed by its contents.
+ *
+ * @invar | getThreshold() >= 0
+ * @invar | getKeyframeInterval() > 0
+ *
+ * @author Joris Ceulemans & Pieter Senden
+ * @version 3.0
+ */
+public class WorldStateEncoder {
+
+	/**
+	 * Initialize this new encoder writing the state of the given world to the given channel, with the given threshold and a
+	 * keyframe every given number of frames.
+	 *
+	 * @throws IllegalArgumentException
+	 * 			| world == null || channel == null || !(threshold >= 0) || Double.isInfinite(threshold) || keyframeInterval <= 0
+	 */
+	public WorldStateEncoder(World world, WritableByteChannel channel, double threshold, int keyframeInterval)
+			throws IllegalArgumentException {
+		if (world == null || channel == null || !(threshold >= 0) || Double.isInfinite(threshold) || keyframeInterval <= 0)
+			throw new IllegalArgumentException();
+		this.world = world;
+		this.channel = channel;
+		this.threshold = threshold;
+		this.keyframeInterval = keyframeInterval;
+	}
+
+	/**
+	 * The magic number at the start of every stream ("ASTD").
+	 */
+	public static final int MAGIC_NUMBER = 0x41535444;
+
+	/**
+	 * The version of the format written by this class. Streams written in another version cannot be decoded.
+	 */
+	public static final short FORMAT_VERSION = 2;
+
+	static final byte KEYFRAME = 1, DELTA = 2;
+
+	/**
+	 * The encodings of the changed state of an entity in a delta.
+	 */
+	static final byte EXACT_STATE = 1, SHORT_STEPS = 2, INT_STEPS = 3;
+
+	@Basic @Immutable
+	public World getWorld() {
+		return this.world;
+	}
+
+	private final World world;
+
+	private final WritableByteChannel channel;
+
+	/**
+	 * Return the largest difference in a component of the position, velocity or radius of an entity that is not written in a delta.
+	 */
+	@Basic @Immutable
+	public double getThreshold() {
+		return this.threshold;
+	}
+
+	private final double threshold;
+
+	@Basic @Immutable
+	public int getKeyframeInterval() {
+		return this.keyframeInterval;
+	}
+
+	private final int keyframeInterval;
+
+	/**
+	 * Return the number of frames written by this encoder.
+	 */
+	@Basic
+	public long getNbOfFrames() {
+		return this.nbOfFrames;
+	}
+
+	private long nbOfFrames;
+
+	/**
+	 * Return the number of bytes written by this encoder, including the header of the stream.
+	 */
+	@Basic
+	public long getNbOfBytesWritten() {
+		return this.nbOfBytesWritten;
+	}
+
+	private long nbOfBytesWritten;
+
+	/**
+	 * Write a frame with the current state of the world of this encoder. The first frame, and every frame of which the number is a
+	 * multiple of the keyframe interval, is a keyframe.
+	 *
+	 * @throws TerminatedException
+	 * 			| getWorld().isTerminated()
+	 * @throws IOException
+	 * 			Writing to the channel of this encoder failed.
+	 */
+	public void writeFrame() throws TerminatedException, IOException {
+		if (getWorld().isTerminated())
+			throw new TerminatedException();
+		buffer.clear();
+		if (getNbOfFrames() == 0) {
+			ensure(4 + 2 + 8);
+			buffer.putInt(MAGIC_NUMBER);
+			buffer.putShort(FORMAT_VERSION);
+			buffer.putDouble(getThreshold());
+		}
+		int start = buffer.position();
+		ensure(4 + 1 + 8);
+		buffer.putInt(0);
+		if (getNbOfFrames() % getKeyframeInterval() == 0)
+			putKeyframe();
+		else
+			putDelta();
+		buffer.putInt(start, buffer.position() - start - 4);
+		buffer.flip();
+		nbOfBytesWritten += buffer.remaining();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		nbOfFrames++;
+	}
+
+	private void putKeyframe() {
+		buffer.put(KEYFRAME);
+		buffer.putLong(getNbOfFrames());
+		ensure(8 + 8 + 4);
+		buffer.putDouble(getWorld().getWidth());
+		buffer.putDouble(getWorld().getHeight());
+		buffer.putInt(getWorld().getNbOfEntities());
+		// Entities that have left the world are forgotten; the others keep their identifier.
+		writtenStates.keySet().removeIf(entity -> !getWorld().hasAsEntity(entity));
+		identifiers.keySet().removeIf(entity -> !getWorld().hasAsEntity(entity));
+		for (Entity entity : getWorld().getEntities())
+			putEntity(entity, getIdentifier(entity));
+	}
+
+	private void putDelta() {
+		buffer.put(DELTA);
+		buffer.putLong(getNbOfFrames());
+		List<Integer> terminated = new ArrayList<>();
+		for (Iterator<Entity> iterator = writtenStates.keySet().iterator(); iterator.hasNext(); ) {
+			Entity entity = iterator.next();
+			if (!getWorld().hasAsEntity(entity)) {
+				terminated.add(identifiers.remove(entity));
+				iterator.remove();
+			}
+		}
+		ensure(4 + 4 * terminated.size());
+		buffer.putInt(terminated.size());
+		for (int identifier : terminated)
+			buffer.putInt(identifier);
+		List<Entity> spawned = new ArrayList<>();
+		List<Entity> changed = new ArrayList<>();
+		for (Entity entity : getWorld().getEntities()) {
+			double[] writtenState = writtenStates.get(entity);
+			if (writtenState == null)
+				spawned.add(entity);
+			else if (hasChanged(entity, writtenState))
+				changed.add(entity);
+		}
+		ensure(4);
+		buffer.putInt(spawned.size());
+		for (Entity entity : spawned)
+			putEntity(entity, getIdentifier(entity));
+		ensure(4);
+		buffer.putInt(changed.size());
+		for (Entity entity : changed)
+			putChangedEntity(entity, identifiers.get(entity), writtenStates.get(entity));
+	}
+
+	/**
+	 * Check whether a component of the state of the given entity differs more than the threshold of this encoder from the given
+	 * state.
+	 */
+	private boolean hasChanged(Entity entity, double[] writtenState) {
+		double[] state = getState(entity);
+		for (int i = 0; i < state.length; i++) {
+			if (Math.abs(state[i] - writtenState[i]) > getThreshold())
+				return true;
+		}
+		return false;
+	}
+
+	private static double[] getState(Entity entity) {
+		return new double[] {entity.getPosition().getxComponent(), entity.getPosition().getyComponent(),
+				entity.getVelocity().getxComponent(), entity.getVelocity().getyComponent(), entity.getRadius()};
+	}
+
+	/**
+	 * Write the identifier, the type and the state of the given entity, and register that state as written.
+	 */
+	private void putEntity(Entity entity, int identifier) {
+		double[] state = getState(entity);
+		ensure(ENTITY_SIZE);
+		buffer.putInt(identifier);
+		buffer.put(WorldSerializer.getTag(entity));
+		for (double component : state)
+			buffer.putDouble(component);
+		writtenStates.put(entity, state);
+	}
+
+	/**
+	 * Write the identifier of the given entity and the changes of its state with respect to the given written state, quantized to
+	 * the threshold of this encoder if possible, and register the state the decoder reconstructs from them as written.
+	 */
+	private void putChangedEntity(Entity entity, int identifier, double[] writtenState) {
+		double[] state = getState(entity);
+		double[] steps = new double[state.length];
+		double[] quantizedState = new double[state.length];
+		double maximalStep = 0;
+		boolean quantized = getThreshold() > 0;
+		for (int i = 0; quantized && i < state.length; i++) {
+			steps[i] = Math.rint((state[i] - writtenState[i]) / getThreshold());
+			// The decoder computes the same sum, such that the encoder knows the state the decoder holds exactly.
+			quantizedState[i] = writtenState[i] + steps[i] * getThreshold();
+			maximalStep = Math.max(maximalStep, Math.abs(steps[i]));
+			// Rounding the sum may add an error for large components, in which case the component is not quantized.
+			quantized = (maximalStep <= Integer.MAX_VALUE) && (Math.abs(state[i] - quantizedState[i]) <= getThreshold());
+		}
+		ensure(ENTITY_SIZE);
+		buffer.putInt(identifier);
+		if (!quantized) {
+			buffer.put(EXACT_STATE);
+			for (double component : state)
+				buffer.putDouble(component);
+			writtenStates.put(entity, state);
+			return;
+		}
+		buffer.put((maximalStep <= Short.MAX_VALUE) ? SHORT_STEPS : INT_STEPS);
+		for (double step : steps) {
+			if (maximalStep <= Short.MAX_VALUE)
+				buffer.putShort((short)step);
+			else
+				buffer.putInt((int)step);
+		}
+		writtenStates.put(entity, quantizedState);
+	}
+
+	static final int ENTITY_SIZE = 4 + 1 + 5 * 8;
+
+	private int getIdentifier(Entity entity) {
+		return identifiers.computeIfAbsent(entity, key -> nextIdentifier++);
+	}
+
+	/**
+	 * The identifiers of the entities of the world of this encoder that have been written.
+	 */
+	private final Map<Entity, Integer> identifiers = new IdentityHashMap<>();
+
+	private int nextIdentifier;
+
+	/**
+	 * The state last written for each entity of the world of this encoder that has been written, as the decoder reconstructs it.
+	 */
+	private final Map<Entity, double[]> writtenStates = new IdentityHashMap<>();
+
+	/**
+	 * Make sure the buffer of this encoder can hold the given number of additional bytes, doubling its capacity if necessary.
+	 */
+	private void ensure(int nbOfBytes) {
+		if (buffer.remaining() >= nbOfBytes)
+			return;
+		ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(2 * buffer.capacity(), buffer.position() + nbOfBytes));
+		buffer.flip();
+		larger.put(buffer);
+		buffer = larger;
+	}
+
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+}
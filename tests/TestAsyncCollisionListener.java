@@ -0,0 +1,115 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.representation.*;
+import asteroids.model.representation.AsyncCollisionListener.OverflowPolicy;
+import asteroids.part2.CollisionListener;
+
+public class TestAsyncCollisionListener {
+
+	private static final double EPSILON = 0.0001;
+
+	private final List<double[]> delivered = new ArrayList<>();
+
+	private CountDownLatch gate;
+
+	private CollisionListener recorder;
+
+	private AsyncCollisionListener listener;
+
+	@Before
+	public void setUp() {
+		gate = new CountDownLatch(0);
+		recorder = new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+				record(x, y);
+			}
+
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+				record(x, y);
+			}
+
+			private void record(double x, double y) {
+				try {
+					gate.await();
+				}
+				catch (InterruptedException exc) {
+					Thread.currentThread().interrupt();
+				}
+				synchronized (delivered) {
+					delivered.add(new double[] {x, y});
+				}
+			}
+		};
+	}
+
+	@After
+	public void tearDown() {
+		if (listener != null)
+			listener.close();
+	}
+
+	@Test
+	public void evolve_CollisionDelivered() throws InterruptedException {
+		listener = new AsyncCollisionListener(recorder);
+		World world = new World(1000, 1000);
+		world.addEntity(new Ship(400, 500, 10, 0, 10, 0));
+		world.addEntity(new Ship(600, 500, -10, 0, 10, 0));
+		world.evolve(50, listener);
+		assertTrue(listener.flush(5, TimeUnit.SECONDS));
+		assertEquals(listener.getNbOfShownCollisions(), listener.getNbOfDeliveredCollisions());
+		assertEquals(500, delivered.get(0)[0], EPSILON);
+		assertEquals(500, delivered.get(0)[1], EPSILON);
+		assertEquals(1, delivered.size());
+	}
+
+	@Test
+	public void overflow_DropNewest() throws InterruptedException {
+		gate = new CountDownLatch(1);
+		listener = new AsyncCollisionListener(recorder, 2, 1, OverflowPolicy.DROP_NEWEST);
+		for (int i = 0; i < 10; i++)
+			listener.boundaryCollision(null, i, 0);
+		gate.countDown();
+		assertTrue(listener.flush(5, TimeUnit.SECONDS));
+		assertEquals(10, listener.getNbOfShownCollisions());
+		assertEquals(10, listener.getNbOfDeliveredCollisions() + listener.getNbOfDroppedCollisions());
+		assertTrue(listener.getNbOfDroppedCollisions() >= 7);
+		assertEquals(0, delivered.get(0)[0], EPSILON);
+	}
+
+	@Test
+	public void overflow_DropOldest() throws InterruptedException {
+		gate = new CountDownLatch(1);
+		listener = new AsyncCollisionListener(recorder, 2, 1, OverflowPolicy.DROP_OLDEST);
+		for (int i = 0; i < 10; i++)
+			listener.boundaryCollision(null, i, 0);
+		gate.countDown();
+		assertTrue(listener.flush(5, TimeUnit.SECONDS));
+		assertTrue(listener.getNbOfDroppedCollisions() >= 7);
+		assertEquals(9, delivered.get(delivered.size() - 1)[0], EPSILON);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void boundaryCollision_Closed() {
+		listener = new AsyncCollisionListener(recorder);
+		listener.close();
+		listener.boundaryCollision(null, 0, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_IllegalCapacity() {
+		new AsyncCollisionListener(recorder, 0, 1, OverflowPolicy.BLOCK);
+	}
+}
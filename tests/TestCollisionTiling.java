@@ -0,0 +1,200 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import asteroids.model.exceptions.OverlapException;
+import asteroids.model.representation.*;
+
+/**
+ * Worlds with at least 128 entities detect their collisions tile by tile. The results must equal those of examining all pairs of
+ * entities, which are computed here as worlds with fewer entities compute them.
+ */
+public class TestCollisionTiling {
+
+	private static final int NB_OF_ENTITIES = 400;
+
+	private static double getTimeToFirstCollisionOfAllPairs(World world) {
+		double result = Double.POSITIVE_INFINITY;
+		for (Entity entity: world.getEntities()) {
+			result = Math.min(result, entity.getTimeToCollisionWithBoundary());
+			boolean sleeping = world.isSleeping(entity);
+			for (Entity other: world.getEntities()) {
+				if ((other != entity) && !(sleeping && world.isSleeping(other))) {
+					if (Entity.overlap(entity, other))
+						result = 0;
+					else
+						result = Math.min(result, Entity.getTimeToCollision(entity, other));
+				}
+			}
+		}
+		return Math.max(result, 0);
+	}
+
+	private static Set<Set<Entity>> getCollisionsOfAllPairs(World world) {
+		Set<Set<Entity>> result = new LinkedHashSet<>();
+		for (Entity entity: world.getEntities()) {
+			if (entity.apparentlyCollidesWithBoundary()) {
+				Set<Entity> collision = new LinkedHashSet<>();
+				collision.add(entity);
+				result.add(collision);
+			}
+			for (Entity other: world.getEntities()) {
+				if ((other != entity) && Entity.apparentlyCollide(entity, other)) {
+					Set<Entity> collision = new LinkedHashSet<>();
+					collision.add(entity);
+					collision.add(other);
+					result.add(collision);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static boolean hasProperEntitiesOfAllPairs(World world) {
+		for (Entity entity: world.getEntities()) {
+			if (!world.canHaveAsEntity(entity) || (entity.getWorld() != world) || (world.getEntityAt(entity.getPosition()) != entity))
+				return false;
+			for (Entity other: world.getEntities()) {
+				if ((other != entity) && Entity.overlap(entity, other))
+					return false;
+			}
+		}
+		return true;
+	}
+
+	private static void assertSameAsAllPairs(World world) {
+		assertTrue(world.getNbOfEntities() >= 128);
+		assertEquals(getTimeToFirstCollisionOfAllPairs(world), world.getTimeToFirstCollision(), 0);
+		// The collisions are compared as lists, since they must be found in the same order.
+		assertEquals(new ArrayList<>(getCollisionsOfAllPairs(world)), new ArrayList<>(world.getCollisions()));
+		assertEquals(hasProperEntitiesOfAllPairs(world), world.hasProperEntities());
+	}
+
+	private static boolean addIfPossible(World world, Entity entity) {
+		if (!world.canHaveAsEntity(entity)) {
+			entity.terminate();
+			return false;
+		}
+		try {
+			world.addEntity(entity);
+			return true;
+		}
+		catch (OverlapException exc) {
+			entity.terminate();
+			return false;
+		}
+	}
+
+	/**
+	 * Return a world of the given size with entities at random positions. Some entities are at rest, some touch the boundary of
+	 * the world, and some pairs of entities touch each other while moving towards each other.
+	 */
+	private static World createWorld(long seed, double size, double maximalSpeed) {
+		Random random = new Random(seed);
+		World world = new World(size, size);
+		while (world.getNbOfEntities() < NB_OF_ENTITIES) {
+			double radius = 10 + 10 * random.nextDouble();
+			double x = radius + (size - 2 * radius) * random.nextDouble();
+			double y = radius + (size - 2 * radius) * random.nextDouble();
+			// Adding zero avoids components of negative zero, which would not be at rest with respect to the boundary.
+			double xVelocity = maximalSpeed * (2 * random.nextDouble() - 1) + 0.0;
+			double yVelocity = maximalSpeed * (2 * random.nextDouble() - 1) + 0.0;
+			switch (random.nextInt(6)) {
+				case 0:
+					xVelocity = yVelocity = 0;
+					break;
+				case 1:
+					x = radius;
+					if (xVelocity > 0)
+						xVelocity = -xVelocity;
+					break;
+				case 2:
+					// Two entities touching each other, moving towards each other.
+					if (addIfPossible(world, new Asteroid(x, y, xVelocity, 0, radius)))
+						addIfPossible(world, new Asteroid(x + 2 * radius, y, -xVelocity + 0.0, 0, radius));
+					continue;
+				default:
+					break;
+			}
+			addIfPossible(world, new Asteroid(x, y, xVelocity, yVelocity, radius));
+		}
+		return world;
+	}
+
+	@Test
+	public void randomWorlds_SameAsAllPairs() {
+		for (long seed = 0; seed < 3; seed++) {
+			World world = createWorld(seed, 3000, 50);
+			assertSameAsAllPairs(world);
+			assertFalse(world.getCollisions().isEmpty());
+			for (int i = 0; i < 6; i++) {
+				world.evolve(0.2, null);
+				assertSameAsAllPairs(world);
+			}
+		}
+	}
+
+	@Test
+	public void denseWorld_SameAsAllPairs() {
+		World world = createWorld(7, 1000, 500);
+		assertSameAsAllPairs(world);
+		for (int i = 0; i < 5; i++) {
+			world.evolve(0.01, null);
+			assertSameAsAllPairs(world);
+		}
+	}
+
+	@Test
+	public void batchingWindow_SameAsAllPairs() {
+		World world = createWorld(11, 1500, 200);
+		int nbOfCollisions = world.getCollisions().size();
+		world.setCollisionBatchingWindow(0.05);
+		assertSameAsAllPairs(world);
+		assertTrue(world.getCollisions().size() > nbOfCollisions);
+	}
+
+	@Test
+	public void worldAtRest_SameAsAllPairs() {
+		World world = createWorld(3, 3000, 0);
+		assertEquals(NB_OF_ENTITIES, world.getNbOfSleepingEntities());
+		assertEquals(Double.POSITIVE_INFINITY, world.getTimeToFirstCollision(), 0);
+		assertSameAsAllPairs(world);
+	}
+
+	@Test
+	public void restingEntityTouchingBoundary_SameAsAllPairs() {
+		World world = createWorld(13, 3000, 50);
+		// The time until this asteroid collides with the right boundary is zero divided by zero.
+		Asteroid asteroid = new Asteroid(2990, 1500, 0, 10, 10);
+		assertTrue(addIfPossible(world, asteroid));
+		assertTrue(Double.isNaN(asteroid.getTimeToCollisionWithBoundary()));
+		assertTrue(Double.isNaN(world.getTimeToFirstCollision()));
+		assertSameAsAllPairs(world);
+	}
+
+	@Test
+	public void overlappingEntities_SameAsAllPairs() {
+		World world = createWorld(5, 3000, 50);
+		// Move an asteroid into an entity at rest, ignoring all collisions.
+		for (Entity entity: new ArrayList<>(world.getEntities())) {
+			if (world.isSleeping(entity)) {
+				double x = entity.getPosition().getxComponent(), y = entity.getPosition().getyComponent();
+				Asteroid asteroid = new Asteroid(x - entity.getRadius() - 11, y, 100, 0, 10);
+				if (addIfPossible(world, asteroid)) {
+					assertTrue(world.hasProperEntities());
+					asteroid.move(0.1);
+					break;
+				}
+			}
+		}
+		assertFalse(world.hasProperEntities());
+		assertSameAsAllPairs(world);
+	}
+}
@@ -0,0 +1,143 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import asteroids.model.exceptions.OverlapException;
+import asteroids.model.representation.*;
+
+public class TestEntityQuadtree {
+
+	private static final List<Class<? extends Entity>> TYPES = new ArrayList<>();
+
+	static {
+		TYPES.add(Entity.class);
+		TYPES.add(Ship.class);
+		TYPES.add(MinorPlanet.class);
+		TYPES.add(Asteroid.class);
+		TYPES.add(Bullet.class);
+	}
+
+	/**
+	 * Add the given entity to the given world, unless it does not fit in that world or overlaps with an entity of that world.
+	 */
+	private static void addIfPossible(World world, Entity entity) {
+		if (!world.canHaveAsEntity(entity))
+			return;
+		try {
+			world.addEntity(entity);
+		}
+		catch (OverlapException exc) {
+			entity.terminate();
+		}
+	}
+
+	/**
+	 * Add the given number of entities to the given world at random positions within the given range of coordinates.
+	 * Some entities touch the boundaries of the world, and some are centred on the lines along which the quadtree is split.
+	 */
+	private static void populate(World world, Random random, int number, double range) {
+		double width = world.getWidth(), height = world.getHeight();
+		for (int i = 0; i < number; i++) {
+			double radius = 10 + 10 * random.nextDouble();
+			double edge = radius * Entity.ACCURACY_FACTOR;
+			double x = edge + (range - 2 * edge) * random.nextDouble();
+			double y = edge + (range - 2 * edge) * random.nextDouble();
+			switch (random.nextInt(8)) {
+				case 0: x = width - edge; break;
+				case 1: y = height - edge; break;
+				case 2: x = edge; y = height - edge; break;
+				case 3: x = Math.min(width / 2, width - edge); break;
+				default: break;
+			}
+			switch (random.nextInt(4)) {
+				case 0: addIfPossible(world, new Ship(x, y, 0, 0, radius, 0, 5E15)); break;
+				case 1: addIfPossible(world, new Bullet(x, y, 0, 0, radius)); break;
+				default: addIfPossible(world, new Asteroid(x, y, 0, 0, radius)); break;
+			}
+		}
+	}
+
+	/**
+	 * Check that the nearest entities of each type returned by the given world are as near as those found by brute force.
+	 */
+	private static void assertNearestAsBruteForce(World world) {
+		for (Entity entity : world.getEntities()) {
+			for (Class<? extends Entity> type : TYPES) {
+				List<Double> distances = new ArrayList<>();
+				for (Entity other : world.getEntities()) {
+					if (other != entity && type.isInstance(other))
+						distances.add(Entity.getDistanceBetween(entity, other));
+				}
+				Collections.sort(distances);
+				Entity nearest = world.getNearestEntity(entity, type);
+				if (distances.isEmpty())
+					assertNull(nearest);
+				else
+					assertEquals(distances.get(0), Entity.getDistanceBetween(entity, nearest), 0);
+				List<? extends Entity> nearestEntities = world.getNearestEntities(entity, type, 5);
+				assertEquals(Math.min(5, distances.size()), nearestEntities.size());
+				for (int i = 0; i < nearestEntities.size(); i++) {
+					assertNotSame(entity, nearestEntities.get(i));
+					assertTrue(type.isInstance(nearestEntities.get(i)));
+					assertEquals(distances.get(i), Entity.getDistanceBetween(entity, nearestEntities.get(i)), 0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void getNearestEntity_RandomWorlds() {
+		Random random = new Random(1);
+		for (int i = 0; i < 10; i++) {
+			World world = new World(1000, 1000);
+			populate(world, random, 100, 1000);
+			assertNearestAsBruteForce(world);
+		}
+	}
+
+	@Test
+	public void getNearestEntity_AfterRemovals() {
+		Random random = new Random(2);
+		World world = new World(800, 1200);
+		populate(world, random, 150, 800);
+		List<Entity> entities = new ArrayList<>(world.getEntities());
+		Collections.shuffle(entities, random);
+		for (int i = 0; i < entities.size() - 3; i++) {
+			world.removeEntity(entities.get(i));
+			if (i % 10 == 0)
+				assertNearestAsBruteForce(world);
+		}
+		assertNearestAsBruteForce(world);
+	}
+
+	@Test
+	public void getNearestEntity_AfterMoves() {
+		Random random = new Random(3);
+		World world = new World(1000, 1000);
+		for (int i = 0; i < 60; i++)
+			addIfPossible(world, new Asteroid(30 + 940 * random.nextDouble(), 30 + 940 * random.nextDouble(),
+					200 * random.nextDouble() - 100, 200 * random.nextDouble() - 100, 10 + 10 * random.nextDouble()));
+		for (int i = 0; i < 20; i++) {
+			world.evolve(0.1, null);
+			assertNearestAsBruteForce(world);
+		}
+	}
+
+	@Test
+	public void getNearestEntity_MaximalWorld() {
+		Random random = new Random(4);
+		World world = new World(Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY);
+		assertEquals(Double.MAX_VALUE, world.getWidth(), 0);
+		// Apart from the entities centred on the middle of the world, the distances between the entities remain finite.
+		populate(world, random, 60, 1E150);
+		populate(world, random, 60, 1000);
+		assertNearestAsBruteForce(world);
+	}
+}
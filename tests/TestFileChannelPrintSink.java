@@ -0,0 +1,117 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestFileChannelPrintSink {
+
+	private Path path;
+
+	@Before
+	public void setUp() throws IOException {
+		path = Files.createTempFile("prints", ".txt");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(path);
+	}
+
+	private List<String> readLines() throws IOException {
+		return Files.readAllLines(path, StandardCharsets.UTF_8);
+	}
+
+	@Test
+	public void print_AllValuesWritten() throws IOException {
+		List<String> expected = new ArrayList<>();
+		try (FileChannelPrintSink sink = FileChannelPrintSink.open(path)) {
+			for (int i = 0; i < 5000; i++) {
+				sink.print(null, (double)i);
+				expected.add(Double.toString(i));
+			}
+			sink.print(null, null);
+			expected.add("null");
+			// Values longer than the buffer of the sink are written as well.
+			char[] longValue = new char[100000];
+			Arrays.fill(longValue, 'x');
+			sink.print(null, new String(longValue));
+			expected.add(new String(longValue));
+			assertEquals(0, sink.getNbOfDroppedItems());
+		}
+		assertEquals(expected, readLines());
+	}
+
+	@Test
+	public void open_Appends() throws IOException {
+		try (FileChannelPrintSink sink = FileChannelPrintSink.open(path)) {
+			sink.print(null, 1.0);
+		}
+		try (FileChannelPrintSink sink = FileChannelPrintSink.open(path)) {
+			sink.print(null, 2.0);
+		}
+		assertEquals(Arrays.asList("1.0", "2.0"), readLines());
+	}
+
+	@Test
+	public void print_AfterClose() throws IOException {
+		FileChannelPrintSink sink = FileChannelPrintSink.open(path);
+		sink.print(null, 1.0);
+		sink.close();
+		assertTrue(sink.isClosed());
+		sink.print(null, 2.0);
+		assertEquals(1, sink.getNbOfDroppedItems());
+		// Closing a closed sink has no effect.
+		sink.close();
+		assertEquals(Arrays.asList("1.0"), readLines());
+	}
+
+	@Test
+	public void print_QueueFull() throws IOException {
+		FileChannelPrintSink sink = new FileChannelPrintSink(FileChannel.open(path, StandardOpenOption.WRITE), 1);
+		int nbOfValues = 100000;
+		for (int i = 0; i < nbOfValues; i++)
+			sink.print(null, i);
+		sink.close();
+		// Every value is either written or counted as dropped.
+		assertEquals(nbOfValues, readLines().size() + sink.getNbOfDroppedItems());
+	}
+
+	@Test
+	public void print_ProgramsOfShips() throws IOException {
+		World world = new World(1000, 1000);
+		try (FileChannelPrintSink sink = FileChannelPrintSink.open(path)) {
+			for (int i = 0; i < 2; i++) {
+				Ship ship = new Ship(100 + 200 * i, 120, 10);
+				world.addEntity(ship);
+				ship.loadProgram(ProgramParser.parseProgramFromString("print " + i + ".0; skip; print 5.0;", new ProgramFactory()));
+				ship.getProgramExecutor().setPrintSink(sink);
+				assertEquals(Arrays.asList(i + 0.0, 5.0), ship.executeProgram(1.0));
+			}
+		}
+		assertEquals(Arrays.asList("0.0", "5.0", "1.0", "5.0"), readLines());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_IllegalQueueCapacity() throws IOException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			new FileChannelPrintSink(channel, 0);
+		}
+	}
+}
@@ -0,0 +1,109 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.representation.*;
+
+public class TestFixedTimestepDriver {
+
+	/**
+	 * A timestep that is exactly representable, such that accumulated durations are exact.
+	 */
+	private static final double TIMESTEP = 1.0 / 64;
+
+	private World world;
+
+	private Ship ship;
+
+	@Before
+	public void setUp() {
+		world = new World(10000, 10000);
+		ship = new Ship(100, 100, 64, 0, 10, 0);
+		world.addEntity(ship);
+	}
+
+	@Test
+	public void evolve_Accumulate() {
+		FixedTimestepDriver driver = new FixedTimestepDriver(world, TIMESTEP);
+		assertEquals(0, driver.evolve(TIMESTEP / 4, null));
+		assertEquals(0, driver.evolve(TIMESTEP / 2, null));
+		assertEquals(TIMESTEP * 3 / 4, driver.getAccumulatedDuration(), 0);
+		assertEquals(0.75, driver.getInterpolationFactor(), 0);
+		assertEquals(100, ship.getPosition().getxComponent(), 0);
+		assertEquals(1, driver.evolve(TIMESTEP / 2, null));
+		assertEquals(TIMESTEP / 4, driver.getAccumulatedDuration(), 0);
+		assertEquals(101, ship.getPosition().getxComponent(), 0);
+		assertEquals(3, driver.evolve(3 * TIMESTEP, null));
+		assertEquals(4, driver.getTotalNbOfSteps());
+		assertEquals(104, ship.getPosition().getxComponent(), 0);
+		assertEquals(0, driver.getDroppedDuration(), 0);
+	}
+
+	@Test
+	public void evolve_DurationsDividedDifferently() {
+		World otherWorld = new World(10000, 10000);
+		Ship otherShip = new Ship(100, 100, 64, 0, 10, 0);
+		otherWorld.addEntity(otherShip);
+		FixedTimestepDriver driver = new FixedTimestepDriver(world, TIMESTEP, 1000);
+		FixedTimestepDriver otherDriver = new FixedTimestepDriver(otherWorld, TIMESTEP, 1000);
+		for (int i = 0; i < 100; i++) {
+			ship.setThrust(i % 3 == 0);
+			otherShip.setThrust(i % 3 == 0);
+			driver.evolve(5 * TIMESTEP / 2, null);
+			otherDriver.evolve(TIMESTEP / 2, null);
+			otherDriver.evolve(2 * TIMESTEP, null);
+			assertEquals(driver.getTotalNbOfSteps(), otherDriver.getTotalNbOfSteps());
+			assertEquals(ship.getPosition(), otherShip.getPosition());
+			assertEquals(ship.getVelocity(), otherShip.getVelocity());
+		}
+	}
+
+	@Test
+	public void evolve_DropExcessSteps() {
+		FixedTimestepDriver driver = new FixedTimestepDriver(world, TIMESTEP, 3);
+		assertEquals(3, driver.evolve(10 * TIMESTEP + TIMESTEP / 4, null));
+		assertEquals(7 * TIMESTEP, driver.getDroppedDuration(), 0);
+		// The fraction of a timestep that remains is kept.
+		assertEquals(TIMESTEP / 4, driver.getAccumulatedDuration(), 0);
+		assertEquals(103, ship.getPosition().getxComponent(), 0);
+		assertEquals(1, driver.evolve(TIMESTEP * 3 / 4, null));
+		assertEquals(7 * TIMESTEP, driver.getDroppedDuration(), 0);
+		assertEquals(4, driver.getTotalNbOfSteps());
+	}
+
+	@Test
+	public void evolve_ExactlyMaximalNbOfSteps() {
+		FixedTimestepDriver driver = new FixedTimestepDriver(world, TIMESTEP, 3);
+		assertEquals(3, driver.evolve(3 * TIMESTEP, null));
+		assertEquals(0, driver.getDroppedDuration(), 0);
+		assertEquals(0, driver.getAccumulatedDuration(), 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void evolve_NegativeDuration() {
+		new FixedTimestepDriver(world, TIMESTEP).evolve(-1, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void evolve_InfiniteDuration() {
+		new FixedTimestepDriver(world, TIMESTEP).evolve(Double.POSITIVE_INFINITY, null);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_IllegalTimestep() {
+		new FixedTimestepDriver(world, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_IllegalMaximalNbOfSteps() {
+		new FixedTimestepDriver(world, TIMESTEP, 0);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_NullWorld() {
+		new FixedTimestepDriver(null, TIMESTEP);
+	}
+}
@@ -0,0 +1,93 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.representation.*;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+public class TestFlightRecorderEvents {
+
+	private World world;
+
+	private Recording recording;
+
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		world = new World(2000, 2000);
+		world.addEntity(new Asteroid(100, 100, 50, 0, 20));
+		world.addEntity(new Asteroid(400, 100, -50, 0, 20));
+		world.addEntity(new Planetoid(1000, 1000, 0, 0, 60));
+		recording = new Recording();
+		recording.enable("asteroids.Evolve").withThreshold(Duration.ZERO);
+		recording.enable("asteroids.CollisionIteration").withThreshold(Duration.ZERO);
+		recording.enable("asteroids.PlanetoidSplit");
+		recording.enable("asteroids.Teleport");
+		file = Files.createTempFile("recording", ".jfr");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		recording.close();
+		Files.deleteIfExists(file);
+	}
+
+	private List<RecordedEvent> stop() throws IOException {
+		recording.stop();
+		recording.dump(file);
+		return RecordingFile.readAllEvents(file);
+	}
+
+	private static long count(List<RecordedEvent> events, String name) {
+		return events.stream().filter(event -> event.getEventType().getName().equals(name)).count();
+	}
+
+	@Test
+	public void evolve_EventsCommitted() throws IOException {
+		recording.start();
+		for (int i = 0; i < 10; i++)
+			world.evolve(0.5, null);
+		List<RecordedEvent> events = stop();
+		assertEquals(10, count(events, "asteroids.Evolve"));
+		assertTrue(count(events, "asteroids.CollisionIteration") > 0);
+		for (RecordedEvent event : events) {
+			if (event.getEventType().getName().equals("asteroids.CollisionIteration"))
+				assertTrue(event.getInt("nbOfContacts") > 0);
+		}
+	}
+
+	@Test
+	public void teleportAndSplit_EventsCommitted() throws IOException {
+		Ship ship = new Ship(1000, 1500, 0, -200, 30, 1.5);
+		world.addEntity(ship);
+		recording.start();
+		world.evolve(3, null);
+		for (Entity entity : world.getEntities().toArray(new Entity[0])) {
+			if (entity instanceof Planetoid)
+				entity.terminate();
+		}
+		List<RecordedEvent> events = stop();
+		assertEquals(1, count(events, "asteroids.Teleport"));
+		assertEquals(1, count(events, "asteroids.PlanetoidSplit"));
+	}
+
+	@Test
+	public void evolve_NoEventsWithoutRecording() throws IOException {
+		world.evolve(1, null);
+		recording.start();
+		assertEquals(0, count(stop(), "asteroids.Evolve"));
+	}
+}
@@ -0,0 +1,118 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.programs.expressions.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestFunctionInliner {
+
+	private static final String[] PROGRAMS = {
+		"def f { return $1 + $2; } print f(3.0, 4.0); print f(f(1.0, 2.0), -1.0);",
+		"def g { return x + 1.0; } x := 5.0; print g(); x := 7.0; print g();",
+		"def g { return x * $1; } def h { x := 3.0; return g($1); } x := 2.0; print h(4.0); print x;",
+		"def sq { return $1 * $1; } def h { return sqrt(sq($1) + sq($2)); } print h(3.0, 4.0);",
+		"def g { return $1 + 1.0; } def f { return $1 + g($1 * 2.0); } print f(1.0); print g(f(0.5));",
+		"def fac { if $1 < 2.0 { return 1.0; } return $1 * fac($1 + -1.0); } print fac(5.0);",
+		"def step { return 1.0 + down($1 + -1.0); } def down { if $1 < 1.0 { return 0.0; } return step($1); } print down(4.0);",
+		"def near { return getx self + $1 < getx any; } print near(100.0); print near(-2000.0);",
+		"def none { x := 1.0; } print 1.0; print none();"
+	};
+
+	private static Program parse(String code, boolean inlining) {
+		ProgramFactory factory = new ProgramFactory();
+		factory.setCaching(false);
+		factory.setOptimizing(false);
+		factory.setInlining(inlining);
+		return ProgramParser.parseProgramFromString(code, factory);
+	}
+
+	/**
+	 * Execute the given program on a new ship and return the values it printed, or the class of the exception it raised.
+	 */
+	private static Object execute(Program program) {
+		World world = new World(1000, 1000);
+		Ship ship = new Ship(100, 120, 10);
+		world.addEntity(ship);
+		try {
+			ship.loadProgram(program);
+			return ship.executeProgram(1.0);
+		}
+		catch (RuntimeException exc) {
+			return exc.getClass();
+		}
+	}
+
+	/**
+	 * Return the names of the functions whose calls are inlined in the given program.
+	 */
+	private static Set<String> getInlinedFunctionNames(Program program) {
+		Set<String> result = new HashSet<>();
+		new ProgramTransformer() {
+			@Override
+			protected Expression<?> transformExpression(Expression<?> expression) {
+				if (expression instanceof InlinedFunctionCallExpression)
+					result.add(((InlinedFunctionCallExpression<?>)expression).getName());
+				return super.transformExpression(expression);
+			}
+		}.transform(program);
+		return result;
+	}
+
+	@Test
+	public void inline_SameBehaviour() {
+		for (String code : PROGRAMS)
+			assertEquals(code, execute(parse(code, false)), execute(parse(code, true)));
+	}
+
+	@Test
+	public void inline_GlobalsRead() {
+		Program program = parse(PROGRAMS[1], true);
+		assertEquals(Collections.singleton("g"), getInlinedFunctionNames(program));
+		assertEquals(Arrays.asList(6.0, 8.0), execute(program));
+		assertEquals(Arrays.asList(8.0, 2.0), execute(parse(PROGRAMS[2], true)));
+	}
+
+	@Test
+	public void inline_NestedCalls() {
+		Program program = parse(PROGRAMS[3], true);
+		assertEquals(new HashSet<>(Arrays.asList("sq", "h")), getInlinedFunctionNames(program));
+		assertEquals(Arrays.asList(5.0), execute(program));
+	}
+
+	@Test
+	public void inline_RecursiveFunctionsNotInlined() {
+		assertTrue(getInlinedFunctionNames(parse(PROGRAMS[5], true)).isEmpty());
+		assertEquals(Collections.singleton("step"), getInlinedFunctionNames(parse(PROGRAMS[6], true)));
+		assertTrue(getInlinedFunctionNames(parse("def r { return 1.0 + r($1); } print 1.0;", true)).isEmpty());
+		Set<String> inlined = getInlinedFunctionNames(parse("def a { return b($1); } def b { return a($1); } print 1.0;", true));
+		assertFalse(inlined.contains("a") && inlined.contains("b"));
+		assertEquals(Arrays.asList(4.0), execute(parse(PROGRAMS[6], true)));
+	}
+
+	@Test
+	public void inline_SizeLimit() {
+		String atLimit = "def f { return -($1 + 1.0 + 1.0 + 1.0 + 1.0 + 1.0 + 1.0 + 1.0); } print f(1.0);";
+		String overLimit = "def f { return $1 + 1.0 + 1.0 + 1.0 + 1.0 + 1.0 + 1.0 + 1.0 + 1.0; } print f(1.0);";
+		assertEquals(16, FunctionInliner.DEFAULT_MAXIMAL_INLINED_SIZE);
+		assertEquals(Collections.singleton("f"), getInlinedFunctionNames(parse(atLimit, true)));
+		assertTrue(getInlinedFunctionNames(parse(overLimit, true)).isEmpty());
+		assertEquals(Arrays.asList(-8.0), execute(parse(atLimit, true)));
+		assertEquals(Arrays.asList(9.0), execute(parse(overLimit, true)));
+	}
+
+	@Test
+	public void inline_FunctionWithoutReturnNotInlined() {
+		assertTrue(getInlinedFunctionNames(parse(PROGRAMS[8], true)).isEmpty());
+		assertTrue(execute(parse(PROGRAMS[8], true)) instanceof Class);
+	}
+}
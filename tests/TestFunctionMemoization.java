@@ -0,0 +1,83 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestFunctionMemoization {
+
+	private static final String[] PROGRAMS = {
+		"def f { return $1 == x; } x := 1.0; print f(x); print f(1.0); print f(x); print f(x + 0.0);",
+		"def eq { return $1 == $2; } def g { if eq($1, x) { return 1.0; } return 0.0; } x := 1.0; print g(x); print g(1.0); print g(x);",
+		"def sq { return $1 * $1; } x := 3.0; print sq(x); print sq(x) + sq(3.0); print sq(x) == sq(x); y := sq(x); print y == y;",
+		"def g { return x * 2.0; } x := 1.0; print g(); print g(); x := 2.0; print g();",
+		"def d { return getdir + $1; } print d(1.0); print d(1.0); turn 0.1; print d(1.0);",
+		"def fac { if $1 < 2.0 { return 1.0; } return $1 * fac($1 + -1.0); } print fac(5.0); print fac(5.0); print fac(4.0);"
+	};
+
+	private static Ship load(String code, boolean memoizing) {
+		World world = new World(1000, 1000);
+		Ship ship = new Ship(100, 120, 10);
+		world.addEntity(ship);
+		ProgramFactory factory = new ProgramFactory();
+		// Inlined calls are not memoized.
+		factory.setInlining(false);
+		ship.loadProgram(ProgramParser.parseProgramFromString(code, factory));
+		ship.getProgramExecutor().setMemoizing(memoizing);
+		return ship;
+	}
+
+	private static List<Object> execute(String code, boolean memoizing) {
+		return load(code, memoizing).executeProgram(1.0);
+	}
+
+	@Test
+	public void memoize_SameResultsAsUncached() {
+		for (String code : PROGRAMS)
+			assertEquals(code, execute(code, false), execute(code, true));
+	}
+
+	@Test
+	public void memoize_ReferenceComparisonsNotMemoized() {
+		assertEquals(Arrays.asList(true, false, true, false), execute(PROGRAMS[0], true));
+		assertEquals(Arrays.asList(1.0, 0.0, 1.0), execute(PROGRAMS[1], true));
+		Program program = load(PROGRAMS[1], true).getProgram();
+		assertFalse(program.getPurityAnalyzer().isMemoizable(program.getFunctionWithName("eq")));
+		assertFalse(program.getPurityAnalyzer().isMemoizable(program.getFunctionWithName("g")));
+	}
+
+	@Test
+	public void memoize_CacheHits() {
+		Ship ship = load(PROGRAMS[2], true);
+		// Programs with the same structure share their functions, and hence their counters.
+		Function function = ship.getProgram().getFunctionWithName("sq");
+		long nbOfCacheHits = function.getNbOfCacheHits();
+		assertEquals(Arrays.asList(9.0, 18.0, false, true), ship.executeProgram(1.0));
+		assertTrue(ship.getProgram().getPurityAnalyzer().isMemoizable(function));
+		assertTrue(function.getNbOfCacheHits() > nbOfCacheHits);
+	}
+
+	@Test
+	public void memoize_InvalidatedByAssignmentsAndActions() {
+		assertEquals(Arrays.asList(2.0, 2.0, 4.0), execute(PROGRAMS[3], true));
+		List<Object> printed = execute(PROGRAMS[4], true);
+		assertEquals(printed.get(0), printed.get(1));
+		assertEquals((Double)printed.get(0) + 0.1, (Double)printed.get(2), 1e-9);
+	}
+
+	@Test
+	public void memoize_NotMemoizingExecutor() {
+		Ship ship = load(PROGRAMS[2], false);
+		Function function = ship.getProgram().getFunctionWithName("sq");
+		long nbOfCacheHits = function.getNbOfCacheHits();
+		ship.executeProgram(1.0);
+		assertEquals(nbOfCacheHits, function.getNbOfCacheHits());
+	}
+}
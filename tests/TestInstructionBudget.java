@@ -0,0 +1,147 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestInstructionBudget {
+
+	private World world;
+
+	private Ship ship;
+
+	@Before
+	public void setUp() {
+		world = new World(1000, 1000);
+		ship = new Ship(100, 120, 10);
+		world.addEntity(ship);
+	}
+
+	private void load(String code) {
+		ProgramFactory factory = new ProgramFactory();
+		// Inlined calls do not execute the statements in the body of their function.
+		factory.setInlining(false);
+		ship.loadProgram(ProgramParser.parseProgramFromString(code, factory));
+	}
+
+	/**
+	 * Execute the program of the ship until it finishes, and return the values it printed.
+	 */
+	private List<Object> executeUntilFinished(int maxNbOfExecutions) {
+		for (int i = 0; i < maxNbOfExecutions; i++) {
+			List<Object> printed = ship.executeProgram(1.0);
+			if (printed != null)
+				return printed;
+		}
+		fail("The program did not finish within " + maxNbOfExecutions + " executions.");
+		return null;
+	}
+
+	@Test
+	public void executeProgram_BudgetExhausted() {
+		load("i := 0.0; while i < 10.0 { i := i + 1.0; print i; }");
+		ship.setInstructionBudget(7);
+		assertNull(ship.executeProgram(1.0));
+		ProgramExecutor executor = ship.getProgramExecutor();
+		assertEquals(7, executor.getNbOfExecutedInstructions());
+		assertEquals(1, executor.getNbOfBudgetExhaustions());
+		assertFalse(executor.isProgramFinished());
+		assertTrue(world.getShipsExceedingInstructionBudget().contains(ship));
+	}
+
+	@Test
+	public void executeProgram_ResumedAtSameStatement() {
+		load("i := 0.0; while i < 10.0 { i := i + 1.0; print i; }");
+		ship.setInstructionBudget(7);
+		ProgramExecutor executor = ship.getProgramExecutor();
+		List<Object> printed = null;
+		for (int i = 0; i < 20 && printed == null; i++) {
+			printed = ship.executeProgram(1.0);
+			assertTrue(executor.getNbOfExecutedInstructions() <= 7);
+		}
+		assertEquals(Arrays.asList(1.0, 2.0, 3.0, 4.0, 5.0, 6.0, 7.0, 8.0, 9.0, 10.0), printed);
+		assertTrue(executor.getNbOfBudgetExhaustions() > 1);
+		// Without suspensions, the program executes 2 + 10 * 3 statements.
+		assertTrue(executor.getTotalNbOfExecutedInstructions() >= 2 + 10 * 3);
+	}
+
+	@Test
+	public void executeProgram_WorldBudget() {
+		load("i := 0.0; while i < 10.0 { i := i + 1.0; } print i;");
+		world.setInstructionBudget(5);
+		assertEquals(5, ship.getProgramExecutor().getInstructionBudget());
+		assertEquals(Arrays.asList(10.0), executeUntilFinished(20));
+		ship.setInstructionBudget(1000);
+		assertEquals(1000, ship.getProgramExecutor().getInstructionBudget());
+	}
+
+	@Test
+	public void executeProgram_FunctionCallCompleted() {
+		// The second call of sum starts when the budget is nearly exhausted, but it is completed within the same execution.
+		load("def sum { s := 0.0; i := 0.0; while i < $1 { i := i + 1.0; s := s + i; } return s; } "
+				+ "print sum(5.0); print sum(6.0); print sum(7.0);");
+		ship.setInstructionBudget(30);
+		assertNull(ship.executeProgram(1.0));
+		ProgramExecutor executor = ship.getProgramExecutor();
+		assertTrue(executor.getNbOfExecutedInstructions() > 30);
+		assertFalse(executor.isAborted());
+		assertEquals(Arrays.asList(15.0, 21.0, 28.0), executeUntilFinished(2));
+	}
+
+	@Test
+	public void executeProgram_FunctionWithLoopCompleted() {
+		load("def sum { s := 0.0; i := 0.0; while i < $1 { i := i + 1.0; s := s + i; } return s; } "
+				+ "j := 0.0; while j < 4.0 { j := j + 1.0; print sum(j * 10.0); }");
+		ship.setInstructionBudget(150);
+		assertEquals(Arrays.asList(55.0, 210.0, 465.0, 820.0), executeUntilFinished(10));
+		assertTrue(ship.getProgramExecutor().getNbOfBudgetExhaustions() > 0);
+		assertFalse(ship.getProgramExecutor().isAborted());
+	}
+
+	@Test
+	public void executeProgram_FunctionExceedingBudgetAborted() {
+		load("def fac { if $1 < 2.0 { return 1.0; } return $1 * fac($1 + -1.0); } print 1.0; print fac(10.0);");
+		ship.setInstructionBudget(3);
+		assertNull(ship.executeProgram(1.0));
+		ProgramExecutor executor = ship.getProgramExecutor();
+		assertTrue(executor.isAborted());
+		assertTrue(world.getShipsExceedingInstructionBudget().contains(ship));
+		// An aborted program is not executed anymore.
+		long nbOfExecutedInstructions = executor.getTotalNbOfExecutedInstructions();
+		for (int i = 0; i < 5; i++)
+			assertNull(ship.executeProgram(1.0));
+		assertEquals(nbOfExecutedInstructions, executor.getTotalNbOfExecutedInstructions());
+		assertEquals(Arrays.asList(1.0), executor.getPrintList());
+	}
+
+	@Test(timeout = 10000)
+	public void executeProgram_EndlessLoopInFunction() {
+		// Actions are not allowed in the body of a function, hence the loop only assigns a variable.
+		load("def f { while 0.0 < 1.0 { x := 1.0; } return 1.0; } print f();");
+		assertEquals(0, ship.getInstructionBudget());
+		assertNull(ship.executeProgram(1.0));
+		assertTrue(ship.getProgramExecutor().isAborted());
+		assertEquals(ProgramExecutor.DEFAULT_INSTRUCTION_BUDGET, ship.getProgramExecutor().getNbOfExecutedInstructions());
+		assertTrue(world.getShipsExceedingInstructionBudget().contains(ship));
+	}
+
+	@Test(timeout = 10000)
+	public void evolve_FunctionNeverReturning() {
+		load("def f { x := 0.0; while x < 1.0 { x := x * 2.0; } return x; } x := f(); print x;");
+		world.setInstructionBudget(1000);
+		world.evolve(0.5, null);
+		world.evolve(0.5, null);
+		assertTrue(ship.getProgramExecutor().isAborted());
+		assertEquals(1, ship.getProgramExecutor().getNbOfBudgetExhaustions());
+		assertEquals(Collections.singleton(ship), world.getShipsExceedingInstructionBudget());
+	}
+}
@@ -0,0 +1,196 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.programs.PrintBuffer.DropPolicy;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestPrintBuffer {
+
+	private static PrintBuffer fill(PrintBuffer buffer, int from, int to) {
+		for (int i = from; i < to; i++)
+			buffer.add(i);
+		return buffer;
+	}
+
+	private static List<Object> range(int from, int to) {
+		List<Object> result = new ArrayList<>();
+		for (int i = from; i < to; i++)
+			result.add(i);
+		return result;
+	}
+
+	@Test
+	public void add_DropOldest() {
+		PrintBuffer buffer = fill(new PrintBuffer(4, DropPolicy.DROP_OLDEST), 0, 3);
+		assertEquals(range(0, 3), buffer.toList());
+		assertEquals(0, buffer.getNbOfDroppedItems());
+		// The buffer wraps around several times.
+		fill(buffer, 3, 11);
+		assertEquals(4, buffer.size());
+		assertEquals(range(7, 11), buffer.toList());
+		assertEquals(7, buffer.getNbOfDroppedItems());
+		assertEquals(7, buffer.get(0));
+		assertEquals(10, buffer.get(3));
+	}
+
+	@Test
+	public void add_DropNewest() {
+		PrintBuffer buffer = fill(new PrintBuffer(4, DropPolicy.DROP_NEWEST), 0, 11);
+		assertEquals(range(0, 4), buffer.toList());
+		assertEquals(7, buffer.getNbOfDroppedItems());
+	}
+
+	@Test
+	public void add_Unbounded() {
+		PrintBuffer buffer = new PrintBuffer();
+		assertFalse(buffer.isBounded());
+		assertEquals(Integer.MAX_VALUE, buffer.getCapacity());
+		fill(buffer, 0, 10000);
+		assertEquals(range(0, 10000), buffer.toList());
+		assertEquals(0, buffer.getNbOfDroppedItems());
+	}
+
+	@Test
+	public void add_UnboundedAfterDrain() {
+		// Growing a buffer whose oldest value is not at the start of its array keeps the order of the values.
+		PrintBuffer buffer = fill(new PrintBuffer(), 0, 10);
+		List<Object> drained = new ArrayList<>();
+		buffer.drain(drained::add);
+		fill(buffer, 10, 100);
+		assertEquals(range(0, 10), drained);
+		assertEquals(range(10, 100), buffer.toList());
+	}
+
+	@Test
+	public void drain_Order() {
+		PrintBuffer buffer = fill(new PrintBuffer(5, DropPolicy.DROP_OLDEST), 0, 8);
+		List<Object> drained = new ArrayList<>();
+		buffer.drain(drained::add);
+		assertEquals(range(3, 8), drained);
+		assertTrue(buffer.isEmpty());
+		// Draining does not reset the number of dropped values.
+		assertEquals(3, buffer.getNbOfDroppedItems());
+		fill(buffer, 8, 10);
+		assertEquals(range(8, 10), buffer.toList());
+	}
+
+	@Test
+	public void forEach_Order() {
+		PrintBuffer buffer = fill(new PrintBuffer(3, DropPolicy.DROP_OLDEST), 0, 5);
+		List<Object> visited = new ArrayList<>();
+		buffer.forEach(visited::add);
+		assertEquals(range(2, 5), visited);
+		assertEquals(3, buffer.size());
+	}
+
+	@Test
+	public void clear_ResetsDroppedItems() {
+		PrintBuffer buffer = fill(new PrintBuffer(2, DropPolicy.DROP_NEWEST), 0, 5);
+		buffer.clear();
+		assertTrue(buffer.isEmpty());
+		assertEquals(0, buffer.getNbOfDroppedItems());
+		fill(buffer, 5, 7);
+		assertEquals(range(5, 7), buffer.toList());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void get_IndexTooLarge() {
+		fill(new PrintBuffer(4, DropPolicy.DROP_OLDEST), 0, 2).get(2);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_IllegalCapacity() {
+		new PrintBuffer(0, DropPolicy.DROP_OLDEST);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_NullPolicy() {
+		new PrintBuffer(4, null);
+	}
+
+	private static Ship loadShip(String code) {
+		World world = new World(1000, 1000);
+		Ship ship = new Ship(100, 120, 10);
+		world.addEntity(ship);
+		ship.loadProgram(ProgramParser.parseProgramFromString(code, new ProgramFactory()));
+		return ship;
+	}
+
+	@Test
+	public void executeProgram_AllValuesReturned() {
+		Ship ship = loadShip("i := 0.0; while i < 5000.0 { print i; i := i + 1.0; }");
+		List<Object> printed = ship.executeProgram(1.0);
+		assertEquals(5000, printed.size());
+		assertEquals(0.0, printed.get(0));
+		assertEquals(4999.0, printed.get(4999));
+	}
+
+	@Test
+	public void executeProgram_BoundedBuffer() {
+		Ship ship = loadShip("i := 0.0; while i < 10.0 { print i; i := i + 1.0; }");
+		ship.getProgramExecutor().setPrintBuffer(new PrintBuffer(3, DropPolicy.DROP_OLDEST));
+		assertEquals(Arrays.asList(7.0, 8.0, 9.0), ship.executeProgram(1.0));
+		assertEquals(7, ship.getProgramExecutor().getPrintBuffer().getNbOfDroppedItems());
+	}
+
+	@Test
+	public void executeProgram_PrintSink() {
+		Ship ship = loadShip("print 1.0; skip; print 2.0;");
+		List<Object> received = new ArrayList<>();
+		ship.getProgramExecutor().setPrintSink((executor, item) -> received.add(item));
+		assertNull(ship.executeProgram(0.1));
+		assertEquals(Arrays.asList(1.0), received);
+		List<Object> printed = ship.executeProgram(1.0);
+		assertEquals(Arrays.asList(1.0, 2.0), printed);
+		assertEquals(printed, received);
+		// The returned list is not affected by later executions.
+		ship.executeProgram(1.0);
+		assertEquals(Arrays.asList(1.0, 2.0), printed);
+	}
+
+	@Test
+	public void executeProgram_StandardOutputByDefault() {
+		Ship ship = loadShip("print 1.0; print null;");
+		assertSame(PrintSink.STANDARD_OUTPUT, ship.getProgramExecutor().getPrintSink());
+		assertEquals("1.0\nnull\n", captureStandardOutput(ship));
+	}
+
+	@Test
+	public void executeProgram_PrintSinkReplacesStandardOutput() {
+		Ship ship = loadShip("print 1.0; print null;");
+		List<Object> received = new ArrayList<>();
+		ship.getProgramExecutor().setPrintSink((executor, item) -> received.add(item));
+		assertEquals("", captureStandardOutput(ship));
+		assertEquals(Arrays.asList(1.0, null), received);
+		// Without a sink, the printed values are only returned.
+		ship.getProgramExecutor().setPrintSink(null);
+		assertEquals("", captureStandardOutput(ship));
+	}
+
+	/**
+	 * Execute the program of the given ship and return what it wrote to the standard output.
+	 */
+	private static String captureStandardOutput(Ship ship) {
+		PrintStream standardOutput = System.out;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(bytes, true));
+		try {
+			assertEquals(Arrays.asList(1.0, null), ship.executeProgram(1.0));
+		}
+		finally {
+			System.setOut(standardOutput);
+		}
+		return bytes.toString().replace(System.lineSeparator(), "\n");
+	}
+}
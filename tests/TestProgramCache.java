@@ -0,0 +1,132 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+import java.util.function.UnaryOperator;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestProgramCache {
+
+	private ProgramFactory plainFactory;
+
+	private ProgramCache cache;
+
+	private int nbOfAnalyses;
+
+	private UnaryOperator<Program> analysis;
+
+	@Before
+	public void setUp() {
+		plainFactory = new ProgramFactory();
+		plainFactory.setCaching(false);
+		plainFactory.setInlining(false);
+		plainFactory.setOptimizing(false);
+		cache = new ProgramCache(ProgramCache.DEFAULT_CAPACITY);
+		nbOfAnalyses = 0;
+		analysis = program -> {
+			nbOfAnalyses++;
+			return new FunctionInliner().transform(program);
+		};
+	}
+
+	private Program parse(String code) {
+		return ProgramParser.parseProgramFromString(code, plainFactory);
+	}
+
+	@Test
+	public void getAnalysedProgram_Hit() {
+		String code = "def f { return $1 * 2.0; } x := 1.0; while x < 10.0 { x := f(x); } print x;";
+		Program analysed = cache.getAnalysedProgram(parse(code), "config", analysis);
+		assertSame(analysed, cache.getAnalysedProgram(parse(code), "config", analysis));
+		assertEquals(1, nbOfAnalyses);
+		assertEquals(1, cache.getNbOfHits());
+		assertEquals(1, cache.getNbOfMisses());
+		assertEquals(1, cache.getNbOfPrograms());
+	}
+
+	@Test
+	public void getAnalysedProgram_DifferentStructures() {
+		String[] programs = {"print 1.0;", "print 2.0;", "print 1.0 + 1.0;", "x := 1.0; print x;", "y := 1.0; print y;",
+				"def f { return 1.0; } print f();", "def g { return 1.0; } print g();", "print getx self;", "print gety self;"};
+		for (String code : programs)
+			cache.getAnalysedProgram(parse(code), "config", analysis);
+		assertEquals(programs.length, nbOfAnalyses);
+		assertEquals(programs.length, cache.getNbOfPrograms());
+	}
+
+	@Test
+	public void getAnalysedProgram_DifferentConfigurations() {
+		Program analysed = cache.getAnalysedProgram(parse("print 1.0;"), "inlining=true", analysis);
+		assertNotSame(analysed, cache.getAnalysedProgram(parse("print 1.0;"), "inlining=false", analysis));
+		assertEquals(2, nbOfAnalyses);
+	}
+
+	@Test
+	public void getAnalysedProgram_DifferentSourceLocations() {
+		Program analysed = cache.getAnalysedProgram(parse("print 1.0;"), "config", analysis);
+		Program moved = cache.getAnalysedProgram(parse("\n  print 1.0;"), "config", analysis);
+		assertNotSame(analysed, moved);
+		assertEquals(2, moved.getBodyStatement().getSourceLocation().getLine());
+		assertEquals(2, moved.getBodyStatement().getSourceLocation().getColumn());
+	}
+
+	@Test
+	public void getAnalysedProgram_Eviction() {
+		for (int i = 0; i < ProgramCache.DEFAULT_CAPACITY; i++)
+			cache.getAnalysedProgram(parse("print " + i + ".0;"), "config", analysis);
+		assertEquals(ProgramCache.DEFAULT_CAPACITY, cache.getNbOfPrograms());
+		assertEquals(0, cache.getNbOfEvictions());
+		// Use the first program, such that the second one becomes the least recently used program.
+		Program first = cache.getAnalysedProgram(parse("print 0.0;"), "config", analysis);
+		cache.getAnalysedProgram(parse("print -1.0;"), "config", analysis);
+		assertEquals(ProgramCache.DEFAULT_CAPACITY, cache.getNbOfPrograms());
+		assertEquals(1, cache.getNbOfEvictions());
+		assertSame(first, cache.getAnalysedProgram(parse("print 0.0;"), "config", analysis));
+		int nbOfAnalysesBefore = nbOfAnalyses;
+		cache.getAnalysedProgram(parse("print 1.0;"), "config", analysis);
+		assertEquals(nbOfAnalysesBefore + 1, nbOfAnalyses);
+	}
+
+	@Test
+	public void createProgram_FactoryConfigurations() {
+		String code = "def f { return $1 + 1.0; } print f(2.0);";
+		ProgramFactory inlining = new ProgramFactory();
+		ProgramFactory notInlining = new ProgramFactory();
+		notInlining.setInlining(false);
+		ProgramFactory notOptimizing = new ProgramFactory();
+		notOptimizing.setOptimizing(false);
+		Program program = ProgramParser.parseProgramFromString(code, inlining);
+		assertSame(program, ProgramParser.parseProgramFromString(code, new ProgramFactory()));
+		assertNotSame(program, ProgramParser.parseProgramFromString(code, notInlining));
+		assertNotSame(program, ProgramParser.parseProgramFromString(code, notOptimizing));
+		assertNotSame(ProgramParser.parseProgramFromString(code, notInlining),
+				ProgramParser.parseProgramFromString(code, notOptimizing));
+	}
+
+	@Test
+	public void createProgram_SharedBetweenShips() {
+		World world = new World(1000, 1000);
+		Ship ship1 = new Ship(100, 100, 10);
+		Ship ship2 = new Ship(300, 300, 10);
+		world.addEntity(ship1);
+		world.addEntity(ship2);
+		String code = "x := 0.0; while x < 3.0 { x := x + 1.0; print x; }";
+		ship1.loadProgram(ProgramParser.parseProgramFromString(code, new ProgramFactory()));
+		ship2.loadProgram(ProgramParser.parseProgramFromString(code, new ProgramFactory()));
+		assertSame(ship1.getProgram(), ship2.getProgram());
+		assertEquals(Arrays.asList(1.0, 2.0, 3.0), ship1.executeProgram(1.0));
+		assertEquals(Arrays.asList(1.0, 2.0, 3.0), ship2.executeProgram(1.0));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_IllegalCapacity() {
+		new ProgramCache(0);
+	}
+}
@@ -0,0 +1,105 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestProgramExecutor {
+
+	/**
+	 * The time needed to execute an action.
+	 */
+	private static final double ACTION_TIME = 0.2;
+
+	private static Ship loadShip(World world, double x, double y, String code) {
+		Ship ship = new Ship(x, y, 10);
+		world.addEntity(ship);
+		ship.loadProgram(ProgramParser.parseProgramFromString(code, new ProgramFactory()));
+		return ship;
+	}
+
+	@Test
+	public void executeProgram_BankedExecutions() {
+		Ship ship = loadShip(new World(1000, 1000), 100, 120, "while 0.0 < 1.0 { skip; print 1.0; }");
+		ProgramExecutor executor = ship.getProgramExecutor();
+		Random random = new Random(8);
+		// The remaining time is accumulated exactly as the executor does, hence the number of actions must match exactly.
+		double remaining = 0;
+		int nbOfActions = 0;
+		long nbOfCoalescedExecutions = 0;
+		boolean holding = false;
+		for (int i = 0; i < 2000; i++) {
+			double duration = (i % 7 == 0) ? 0 : 0.05 * random.nextDouble();
+			assertNull(ship.executeProgram(duration));
+			remaining = remaining + duration;
+			if (holding && ACTION_TIME > remaining)
+				nbOfCoalescedExecutions++;
+			else {
+				while (ACTION_TIME <= remaining) {
+					remaining = remaining - ACTION_TIME;
+					nbOfActions++;
+				}
+				holding = true;
+			}
+			assertEquals(nbOfActions, executor.getPrintList().size());
+			assertEquals(remaining, executor.getRemainingExecutionTime(), 0);
+			assertEquals(nbOfCoalescedExecutions, executor.getNbOfCoalescedExecutions());
+		}
+		assertEquals(2000, executor.getNbOfExecutions());
+		assertEquals(2000, executor.getNbOfHolds());
+		assertTrue(nbOfCoalescedExecutions > 1000);
+	}
+
+	@Test
+	public void executeProgram_NoCoalescingWithoutPendingAction() {
+		// Without actions, every execution runs the program.
+		Ship ship = loadShip(new World(1000, 1000), 100, 120, "print 1.0;");
+		for (int i = 0; i < 10; i++)
+			assertNotNull(ship.executeProgram(0.01));
+		assertEquals(0, ship.getProgramExecutor().getNbOfCoalescedExecutions());
+	}
+
+	/**
+	 * Evolve a world in steps of the given duration and return the values printed by a ship after each step. If colliding,
+	 * asteroids collide with each other and with the boundaries of the world far away from the ship.
+	 */
+	private static List<Integer> evolve(boolean colliding, List<Long> nbOfExecutions) {
+		World world = new World(2000, 2000);
+		Ship ship = loadShip(world, 1000, 1500, "while 0.0 < 1.0 { turn 0.1; print getdir; skip; }");
+		if (colliding) {
+			for (int i = 0; i < 14; i++)
+				world.addEntity(new Asteroid(60 + 140 * i, 100, (i % 2 == 0) ? 500 : -500, 0, 20));
+		}
+		List<Integer> result = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			// The ends of the steps never coincide with the moment at which an action can be executed.
+			world.evolve(0.0731, null);
+			result.add(ship.getProgramExecutor().getPrintList().size());
+		}
+		result.add((int)Math.round(ship.getOrientation() * 10));
+		nbOfExecutions.add(ship.getProgramExecutor().getNbOfExecutions());
+		nbOfExecutions.add(ship.getProgramExecutor().getNbOfCoalescedExecutions());
+		return result;
+	}
+
+	@Test
+	public void evolve_TimingUnchangedByCollisions() {
+		List<Long> withoutCollisions = new ArrayList<>(), withCollisions = new ArrayList<>();
+		List<Integer> expected = evolve(false, withoutCollisions);
+		assertEquals(expected, evolve(true, withCollisions));
+		// A value is printed after each turn, and every second action is a turn.
+		assertEquals((int)((60 * 0.0731 + ACTION_TIME) / (2 * ACTION_TIME)), (int)expected.get(59));
+		assertEquals(60, (long)withoutCollisions.get(0));
+		// The collisions split the steps in many sub-steps, most of which only bank their duration.
+		assertTrue(withCollisions.get(0) > 2 * 60);
+		assertTrue(withCollisions.get(1) > withoutCollisions.get(1));
+	}
+}
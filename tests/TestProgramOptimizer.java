@@ -0,0 +1,235 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.programs.expressions.*;
+import asteroids.model.programs.statements.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestProgramOptimizer {
+
+	private static final String[] PROGRAMS = {
+		"print 1.0 + 2.0 * 3.0; print -(-4.0); print !(!(1.0 < 2.0)); print sqrt(16.0) + -(2.0); print 3.0 == 3.0; print null == null;",
+		"if 1.0 < 2.0 { print 1.0; } else { print 2.0; } if 2.0 < 1.0 { print 3.0; } while 2.0 < 1.0 { print 4.0; } "
+				+ "if !(1.0 < 2.0) { print 5.0; } else { print 6.0; }",
+		"x := 0.0; y := 3.0; while x < y + 2.0 * y { x := x + 1.0; turn 0.1; } print x; print getdir;",
+		"y := 1.0; x := 0.0; while x < y * 4.0 { x := x + 1.0; if 1.5 < x { y := 2.0; } } print x;",
+		"def f { return $1 * (2.0 + 1.0); } i := 0.0; while i < f(2.0) + 1.0 { i := i + 1.0; } print i; print f(f(1.0));",
+		"while getx self < 560.0 { thrust; skip; } thrust_off; print getx self < 560.0;",
+		"fire; fire; turn 1.0 * 0.5; thrust; skip; thrust_off; print getvx self; print getvy self;",
+		"print 1.0; print 2.0 + self;",
+		"print 1.0; print !(!(self));",
+		"print -(-(self));",
+		"a := 1.0 < 2.0; if a { print 2.0 * 2.0; } else { print 0.0; } while !(!(a)) { a := 3.0 < 1.0; print a; }"
+	};
+
+	/**
+	 * Execute the program with the given code on a new ship, and return the values it printed followed by the state of the ship.
+	 * If the execution fails, the class of the exception is recorded instead of the state of the ship.
+	 */
+	private static List<Object> execute(String code, boolean optimizing, boolean inlining) {
+		return execute(code, createFactory(optimizing, inlining, false));
+	}
+
+	private static List<Object> execute(String code, ProgramFactory factory) {
+		World world = new World(2000, 2000);
+		Ship ship = new Ship(500, 500, 10, 0, 20, 0);
+		world.addEntity(ship);
+		ship.loadBullets(new Bullet(500, 500, 0, 0, 4), new Bullet(500, 500, 0, 0, 4), new Bullet(500, 500, 0, 0, 4));
+		world.addEntity(new Asteroid(1500, 1500, -5, 0, 30));
+		List<Object> result = new ArrayList<>();
+		try {
+			ship.loadProgram(ProgramParser.parseProgramFromString(code, factory));
+			for (int i = 0; i < 40 && !ship.getProgramExecutor().isProgramFinished(); i++)
+				world.evolve(0.1, null);
+			for (Object printed : ship.getProgramExecutor().getPrintList())
+				result.add((printed instanceof Entity) ? printed.getClass() : printed);
+			result.add(ship.getPosition());
+			result.add(ship.getVelocity());
+			result.add(ship.getOrientation());
+			result.add(ship.hasThrusterActivated());
+			result.add(ship.getNbOfBulletsInMagazine());
+		}
+		catch (RuntimeException exc) {
+			if (ship.getProgramExecutor() != null)
+				result.add(ship.getProgramExecutor().getPrintList());
+			result.add(exc.getClass());
+		}
+		return result;
+	}
+
+	private static ProgramFactory createFactory(boolean optimizing, boolean inlining, boolean verifying) {
+		ProgramFactory factory = new ProgramFactory();
+		factory.setCaching(false);
+		factory.setOptimizing(optimizing);
+		factory.setInlining(inlining);
+		factory.setVerifying(verifying);
+		return factory;
+	}
+
+	/**
+	 * Return the optimized program with the given code.
+	 */
+	private static Program optimize(String code, boolean verifying) {
+		return ProgramParser.parseProgramFromString(code, createFactory(true, false, verifying));
+	}
+
+	/**
+	 * Return the statements of the given program, in the order in which they appear, including the enclosing statements.
+	 */
+	private static List<Statement> getStatements(Program program) {
+		List<Statement> result = new ArrayList<>();
+		addStatements(program.getBodyStatement(), result);
+		return result;
+	}
+
+	private static void addStatements(Statement statement, List<Statement> statements) {
+		statements.add(statement);
+		if (statement instanceof SequenceStatement) {
+			for (int i = 1; i <= ((SequenceStatement)statement).getNbOfEnclosedStatements(); i++)
+				addStatements(((SequenceStatement)statement).getEnclosedStatementAt(i), statements);
+		}
+		else if (statement instanceof WhileStatement)
+			addStatements(((WhileStatement)statement).getBodyStatement(), statements);
+		else if (statement instanceof IfThenElseStatement) {
+			addStatements(((IfThenElseStatement)statement).getIfStatement(), statements);
+			if (((IfThenElseStatement)statement).getElseStatement() != null)
+				addStatements(((IfThenElseStatement)statement).getElseStatement(), statements);
+		}
+	}
+
+	private static <T extends Statement> List<T> getStatements(Program program, Class<T> type) {
+		List<T> result = new ArrayList<>();
+		for (Statement statement : getStatements(program)) {
+			if (type.isInstance(statement))
+				result.add(type.cast(statement));
+		}
+		return result;
+	}
+
+	@Test
+	public void optimize_SameBehaviour() {
+		for (String code : PROGRAMS)
+			assertEquals(code, execute(code, false, false), execute(code, true, false));
+	}
+
+	@Test
+	public void optimize_SameBehaviourWithInlining() {
+		for (String code : PROGRAMS)
+			assertEquals(code, execute(code, false, false), execute(code, true, true));
+	}
+
+	@Test
+	public void optimize_ConstantFolded() {
+		List<PrintStatement> prints = getStatements(optimize(PROGRAMS[0], false), PrintStatement.class);
+		assertEquals(6, prints.size());
+		double[] values = { 7.0, 4.0, 2.0 };
+		for (int i = 0; i < 3; i++) {
+			Expression<?> folded = prints.get((i == 2) ? 3 : i).getExpression();
+			assertTrue(folded instanceof ConstantExpression);
+			assertEquals(values[i], ((ConstantExpression)folded).getValue(), 0);
+		}
+		for (int i : new int[] { 2, 4 })
+			assertTrue(prints.get(i).getExpression() instanceof BooleanConstantExpression);
+		assertTrue(((BooleanConstantExpression)prints.get(2).getExpression()).getValue());
+	}
+
+	@Test
+	public void optimize_DeadBranchesRemoved() {
+		Program program = optimize(PROGRAMS[1], false);
+		assertTrue(getStatements(program, IfThenElseStatement.class).isEmpty());
+		assertTrue(getStatements(program, WhileStatement.class).isEmpty());
+		List<PrintStatement> prints = getStatements(program, PrintStatement.class);
+		assertEquals(2, prints.size());
+		assertEquals(1.0, ((ConstantExpression)prints.get(0).getExpression()).getValue(), 0);
+		assertEquals(6.0, ((ConstantExpression)prints.get(1).getExpression()).getValue(), 0);
+	}
+
+	@Test
+	public void optimize_LoopInvariantHoisted() {
+		Program program = optimize(PROGRAMS[2], false);
+		List<AssignmentStatement> assignments = getStatements(program, AssignmentStatement.class);
+		// The hoisted assignment precedes the loop, after the assignments of x and y.
+		assertEquals(4, assignments.size());
+		String name = assignments.get(2).getVariableName();
+		assertTrue(name.startsWith(ProgramOptimizer.HOISTED_VARIABLE_PREFIX));
+		assertTrue(assignments.get(2).getExpression() instanceof AdditionExpression);
+		WhileStatement loop = getStatements(program, WhileStatement.class).get(0);
+		Expression<?> bound = ((LessThanExpression)loop.getExpression()).getRightSubExpression();
+		assertTrue(bound instanceof ReadVariableExpression);
+		assertEquals(name, ((ReadVariableExpression<?>)bound).getName());
+		// The variable assigned in the body of the loop is not hoisted.
+		assertEquals(0, getStatements(optimize(PROGRAMS[3], false), AssignmentStatement.class).stream()
+				.filter(each -> each.getVariableName().startsWith(ProgramOptimizer.HOISTED_VARIABLE_PREFIX)).count());
+	}
+
+	@Test
+	public void verify_SameBehaviour() {
+		for (String code : PROGRAMS)
+			assertEquals(code, execute(code, false, false), execute(code, createFactory(true, true, true)));
+	}
+
+	@Test
+	public void verify_OptimizedExpressionsChecked() {
+		Program program = optimize(PROGRAMS[1], true);
+		// Constant conditions are checked at run time instead of removing their branches.
+		List<IfThenElseStatement> ifStatements = getStatements(program, IfThenElseStatement.class);
+		assertEquals(3, ifStatements.size());
+		for (IfThenElseStatement ifStatement : ifStatements) {
+			VerifiedExpression<?> condition = (VerifiedExpression<?>)ifStatement.getExpression();
+			assertTrue(condition.getOptimizedExpression() instanceof BooleanConstantExpression);
+			assertTrue(condition.getOriginalExpression() instanceof LessThanExpression
+					|| condition.getOriginalExpression() instanceof NotExpression);
+		}
+		program = optimize(PROGRAMS[2], true);
+		WhileStatement loop = getStatements(program, WhileStatement.class).get(0);
+		VerifiedExpression<?> bound = (VerifiedExpression<?>)((LessThanExpression)loop.getExpression()).getRightSubExpression();
+		assertTrue(bound.getOptimizedExpression() instanceof ReadVariableExpression);
+		assertTrue(bound.getOriginalExpression() instanceof AdditionExpression);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void verify_MismatchDetected() {
+		new VerifiedExpression<>(new ConstantExpression(1.0), new AdditionExpression(new ConstantExpression(1.0),
+				new ConstantExpression(1.0))).evaluate(null);
+	}
+
+	private static Expression<Double> read(String name) {
+		return new ReadVariableExpression<>(name);
+	}
+
+	@Test
+	public void verify_MismatchInLoopDetected() {
+		// A hoisted variable that is changed in the loop, as if the optimizer wrongly considered it invariant.
+		Statement loop = new WhileStatement(new LessThanExpression(read("x"),
+				new VerifiedExpression<>(read("%invariant0"), read("y"))),
+				new SequenceStatement(new AssignmentStatement("x", new AdditionExpression(read("x"),
+						new ConstantExpression(1.0))), new AssignmentStatement("y", new ConstantExpression(5.0))));
+		Program program = new Program(new SequenceStatement(new AssignmentStatement("x", new ConstantExpression(0.0)),
+				new AssignmentStatement("y", new ConstantExpression(3.0)),
+				new AssignmentStatement("%invariant0", read("y")), loop), new ArrayList<>());
+		Ship ship = new Ship(500, 500, 0, 0, 20, 0);
+		ship.loadProgram(program);
+		try {
+			ship.executeProgram(1);
+			fail();
+		}
+		catch (IllegalStateException exc) {
+		}
+	}
+
+	@Test
+	public void optimize_TypeErrorsKept() {
+		for (int i = 7; i <= 9; i++) {
+			List<Object> result = execute(PROGRAMS[i], true, false);
+			assertTrue(RuntimeException.class.isAssignableFrom((Class<?>)result.get(result.size() - 1)));
+		}
+	}
+}
@@ -0,0 +1,159 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.programs.ProgramProfiler.Entry;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.SourceLocation;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestProgramProfiler {
+
+	private static final String PROGRAM =
+			"def fac {\n" +
+			"  if $1 < 2.0 { return 1.0; }\n" +
+			"  return $1 * fac($1 + -1.0);\n" +
+			"}\n" +
+			"x := 0.0;\n" +
+			"while x < 5.0 {\n" +
+			"  x := x + 1.0;\n" +
+			"}\n" +
+			"print fac(8.0);";
+
+	private Ship ship;
+
+	private ProgramProfiler profiler;
+
+	@Before
+	public void setUp() {
+		World world = new World(1000, 1000);
+		ship = new Ship(100, 120, 10);
+		world.addEntity(ship);
+		profiler = new ProgramProfiler();
+	}
+
+	private void load(String code) {
+		ProgramFactory factory = new ProgramFactory();
+		// Inlined calls do not enter their function.
+		factory.setInlining(false);
+		ship.loadProgram(ProgramParser.parseProgramFromString(code, factory));
+		ship.getProgramExecutor().setProfiler(profiler);
+	}
+
+	private Entry getEntry(String kind, int line, int column) {
+		for (Entry entry : profiler.getEntriesAt(new SourceLocation(line, column))) {
+			if (entry.getLabel().startsWith(kind + "@"))
+				return entry;
+		}
+		fail("No entry for " + kind + " at " + line + ":" + column);
+		return null;
+	}
+
+	/**
+	 * Return the entry of the body of the program, which encloses all other entries.
+	 */
+	private Entry getBodyEntry() {
+		Entry result = null;
+		for (Entry entry : profiler.getEntries()) {
+			if (result == null || entry.getTotalTime() > result.getTotalTime())
+				result = entry;
+		}
+		assertTrue(result.getLabel().startsWith("SequenceStatement@"));
+		return result;
+	}
+
+	@Test
+	public void profile_InvocationsAndSourceLocations() {
+		load(PROGRAM);
+		assertEquals(Arrays.asList(40320.0), ship.executeProgram(1.0));
+		assertEquals(5, getEntry("AssignmentStatement", 7, 2).getNbOfInvocations());
+		assertEquals(1, getEntry("WhileStatement", 6, 0).getNbOfInvocations());
+		assertEquals(1, getEntry("PrintStatement", 9, 0).getNbOfInvocations());
+		assertEquals(8, getEntry("function:fac", 1, 0).getNbOfInvocations());
+		assertEquals(8, getEntry("IfThenElseStatement", 2, 2).getNbOfInvocations());
+		assertEquals(7, getEntry("ReturnStatement", 3, 2).getNbOfInvocations());
+		for (Entry entry : profiler.getEntries())
+			assertTrue(entry.getLabel(), entry.getLabel().endsWith("@" + entry.getSourceLocation().getLine() + ":"
+					+ entry.getSourceLocation().getColumn()));
+	}
+
+	@Test
+	public void profile_SelfTimesAddUp() {
+		load(PROGRAM);
+		ship.executeProgram(1.0);
+		Entry body = getBodyEntry();
+		long totalSelfTime = 0;
+		for (Entry entry : profiler.getEntries()) {
+			assertTrue(entry.getLabel(), entry.getSelfTime() >= 0);
+			assertTrue(entry.getLabel(), entry.getSelfTime() <= entry.getTotalTime());
+			totalSelfTime += entry.getSelfTime();
+		}
+		assertEquals(body.getTotalTime(), totalSelfTime);
+		List<Entry> entries = profiler.getEntries();
+		for (int i = 1; i < entries.size(); i++)
+			assertTrue(entries.get(i - 1).getSelfTime() >= entries.get(i).getSelfTime());
+	}
+
+	@Test
+	public void profile_FunctionTimeAttributedToCaller() {
+		load(PROGRAM);
+		ship.executeProgram(1.0);
+		Entry print = getEntry("PrintStatement", 9, 0);
+		Entry fac = getEntry("function:fac", 1, 0);
+		// The time of the recursive invocations of fac is only counted once.
+		assertTrue(fac.getTotalTime() <= print.getTotalTime());
+		assertTrue(print.getSelfTime() < print.getTotalTime());
+		assertTrue(fac.getSelfTime() < fac.getTotalTime());
+	}
+
+	@Test
+	public void writeFoldedStacks_Format() throws IOException {
+		load(PROGRAM);
+		ship.executeProgram(1.0);
+		StringWriter writer = new StringWriter();
+		profiler.writeFoldedStacks(writer);
+		String[] lines = writer.toString().split("\n");
+		long totalSelfTime = 0;
+		boolean recursiveStackFound = false;
+		for (String line : lines) {
+			int separator = line.lastIndexOf(' ');
+			String[] stack = line.substring(0, separator).split(";");
+			assertEquals(getBodyEntry().getLabel(), stack[0]);
+			totalSelfTime += Long.parseLong(line.substring(separator + 1));
+			if (line.matches(".*function:fac@1:0;.*function:fac@1:0;.*"))
+				recursiveStackFound = true;
+		}
+		assertTrue(recursiveStackFound);
+		assertEquals(getBodyEntry().getTotalTime(), totalSelfTime);
+	}
+
+	@Test
+	public void profile_SuspendedExecution() {
+		load("skip; skip; print 1.0;");
+		assertNull(ship.executeProgram(0.3));
+		// All entries have been exited, even though the execution was suspended.
+		profiler.reset();
+		assertTrue(profiler.getEntries().isEmpty());
+		assertEquals(Arrays.asList(1.0), ship.executeProgram(1.0));
+		assertEquals(1, getEntry("PrintStatement", 1, 12).getNbOfInvocations());
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void exit_NothingEntered() {
+		profiler.exit();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getEntriesAt_NullLocation() {
+		profiler.getEntriesAt(null);
+	}
+}
@@ -0,0 +1,106 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestProgramSerializer {
+
+	private static final String[] PROGRAMS = {
+		"x := 1.0; while x < 100.0 { x := x * 2.0; } print x;",
+		"def f { return $1 + $2; } print f(3.0, 4.0); print f(-1.0, 0.5);",
+		"def fac { if $1 < 2.0 { return 1.0; } return $1 * fac($1 + -1.0); } print fac(5.0);",
+		"a := 0.0; while a < 10.0 { a := a + 1.0; if a == 4.0 { break; } } print a; print !(a < 2.0);",
+		"print self == self; print null; print getx self + gety self; print sqrt(16.0); print getradius self;",
+		"turn 0.2; print getdir; thrust; skip; thrust_off; print getvx self;"
+	};
+
+	private ProgramFactory programFactory;
+
+	@Before
+	public void setUp() {
+		programFactory = new ProgramFactory();
+	}
+
+	private Program parse(String code) {
+		return ProgramParser.parseProgramFromString(code, programFactory);
+	}
+
+	private static List<Object> execute(Program program) {
+		World world = new World(1000, 1000);
+		Ship ship = new Ship(100, 120, 10);
+		world.addEntity(ship);
+		ship.loadProgram(program);
+		return ship.executeProgram(1.0);
+	}
+
+	@Test
+	public void roundTrip_SameBehaviour() throws IOException {
+		for (String code : PROGRAMS) {
+			Program program = parse(code);
+			Program loaded = ProgramSerializer.fromBytes(ByteBuffer.wrap(ProgramSerializer.toBytes(program)));
+			assertEquals(code, execute(parse(code)), execute(loaded));
+		}
+	}
+
+	@Test
+	public void roundTrip_SameStructure() throws IOException {
+		for (String code : PROGRAMS) {
+			byte[] bytes = ProgramSerializer.toBytes(parse(code));
+			Program loaded = ProgramSerializer.fromBytes(ByteBuffer.wrap(bytes));
+			assertArrayEquals(code, bytes, ProgramSerializer.toBytes(loaded));
+		}
+	}
+
+	@Test
+	public void roundTrip_SourceLocations() throws IOException {
+		Program program = parse("def f { return 1.0; } print f();");
+		Program loaded = ProgramSerializer.fromBytes(ByteBuffer.wrap(ProgramSerializer.toBytes(program)));
+		assertNotNull(loaded.getBodyStatement().getSourceLocation());
+		assertEquals(program.getBodyStatement().getSourceLocation().getLine(), loaded.getBodyStatement().getSourceLocation().getLine());
+		assertEquals(program.getBodyStatement().getSourceLocation().getColumn(), loaded.getBodyStatement().getSourceLocation().getColumn());
+		assertEquals(program.getFunctions().get(0).getSourceLocation().getColumn(),
+				loaded.getFunctions().get(0).getSourceLocation().getColumn());
+	}
+
+	@Test
+	public void writeRead_File() throws IOException {
+		Path file = Files.createTempFile("program", ".bin");
+		try {
+			ProgramSerializer.write(parse(PROGRAMS[2]), file);
+			assertEquals(execute(parse(PROGRAMS[2])), execute(ProgramSerializer.read(file)));
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void fromBytes_OtherVersion() throws IOException {
+		ByteBuffer buffer = ByteBuffer.wrap(ProgramSerializer.toBytes(parse(PROGRAMS[0])));
+		buffer.putShort(4, (short)(ProgramSerializer.FORMAT_VERSION + 1));
+		ProgramSerializer.fromBytes(buffer);
+	}
+
+	@Test(expected = IOException.class)
+	public void fromBytes_NoProgram() throws IOException {
+		ProgramSerializer.fromBytes(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6, 7, 8}));
+	}
+
+	@Test(expected = IOException.class)
+	public void fromBytes_Truncated() throws IOException {
+		byte[] bytes = ProgramSerializer.toBytes(parse(PROGRAMS[1]));
+		ProgramSerializer.fromBytes(ByteBuffer.wrap(bytes, 0, bytes.length - 3));
+	}
+}
@@ -0,0 +1,126 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.exceptions.IllegalMethodCallException;
+import asteroids.model.programs.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestProgramVerifier {
+
+	private static final String[] ILL_FORMED_PROGRAMS = {
+		"def f { fire; return 1.0; } print f();",
+		"def f { print 1.0; return 1.0; } print f();",
+		"def f { if 1.0 < 2.0 { turn 0.1; } return 1.0; } print f();",
+		"break;",
+		"if 1.0 < 2.0 { break; } print 1.0;",
+		"print g();",
+		"def f { return g(); } print 1.0;",
+		"print 2.0 + self;",
+		"turn self;",
+		"if 1.0 { print 1.0; }",
+		"while self { skip; }",
+		"print getx 1.0;",
+		"print !(2.0);"
+	};
+
+	private static final String[] WELL_FORMED_PROGRAMS = {
+		"print 1.0;",
+		"while 1.0 < 2.0 { if 3.0 < 4.0 { break; } } print 2.0;",
+		"def f { break; return 1.0; } while 1.0 < 2.0 { print f(); }",
+		"def f { return g($1); } def g { return $1 * 2.0; } print f(1.0);",
+		"x := self; print getx x + 1.0;",
+		"def f { return self; } print getradius f();"
+	};
+
+	private ProgramFactory programFactory;
+
+	private Ship ship;
+
+	@Before
+	public void setUp() {
+		programFactory = new ProgramFactory();
+		programFactory.setCaching(false);
+		World world = new World(1000, 1000);
+		ship = new Ship(100, 120, 10);
+		world.addEntity(ship);
+		ship.loadBullets(new Bullet(100, 120, 0, 0, 2));
+	}
+
+	private Program parse(String code) {
+		return ProgramParser.parseProgramFromString(code, programFactory);
+	}
+
+	@Test
+	public void isWellFormed_IllFormedPrograms() {
+		for (String code : ILL_FORMED_PROGRAMS)
+			assertFalse(code, ProgramVerifier.isWellFormed(parse(code)));
+	}
+
+	@Test
+	public void isWellFormed_WellFormedPrograms() {
+		for (String code : WELL_FORMED_PROGRAMS)
+			assertTrue(code, ProgramVerifier.isWellFormed(parse(code)));
+	}
+
+	@Test
+	public void loadProgram_IllFormedProgramsRejected() {
+		for (String code : ILL_FORMED_PROGRAMS) {
+			Program program = parse(code);
+			try {
+				ship.loadProgram(program);
+				fail(code);
+			}
+			catch (IllegalArgumentException exc) {
+				assertFalse(program.isVerified());
+				assertNull(ship.getProgram());
+			}
+		}
+	}
+
+	@Test
+	public void loadProgram_Verified() {
+		Program program = parse("print 4.0; turn 0.2; fire; print getdir;");
+		assertFalse(program.isVerified());
+		ship.loadProgram(program);
+		assertTrue(program.isVerified());
+		assertEquals(Arrays.asList(4.0, 0.2), ship.executeProgram(1.0));
+		assertEquals(1, ship.getNbOfFiredBullets());
+	}
+
+	@Test
+	public void verify_Idempotent() {
+		Program program = parse(WELL_FORMED_PROGRAMS[0]);
+		ProgramVerifier.verify(program);
+		ProgramVerifier.verify(program);
+		assertTrue(program.isVerified());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void verify_IllFormedProgram() {
+		ProgramVerifier.verify(parse(ILL_FORMED_PROGRAMS[0]));
+	}
+
+	@Test(expected = IllegalMethodCallException.class)
+	public void execute_UnverifiedActionInFunction() {
+		// Without verification, the action still checks whether it is executed in the body of the program.
+		ProgramExecutor executor = new ProgramExecutor(parse("def f { turn 0.1; return 1.0; } print f();"));
+		ship.setProgramExecutor(executor);
+		executor.setShip(ship);
+		ship.executeProgram(1.0);
+	}
+
+	@Test(expected = IllegalMethodCallException.class)
+	public void execute_UnverifiedPrintInFunction() {
+		ProgramExecutor executor = new ProgramExecutor(parse("def f { print 1.0; return 1.0; } print f();"));
+		ship.setProgramExecutor(executor);
+		executor.setShip(ship);
+		ship.executeProgram(1.0);
+	}
+}
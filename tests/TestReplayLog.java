@@ -0,0 +1,110 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestReplayLog {
+
+	private World world;
+
+	private Ship ship;
+
+	private Asteroid asteroid;
+
+	private Path file;
+
+	@Before
+	public void setUp() throws IOException {
+		world = new World(5000, 5000);
+		world.setRandomSeed(42);
+		ship = new Ship(1000, 1000, 10, -5, 30, 1.5);
+		ship.loadBullets(new Bullet(1000, 1000, 0, 0, 4), new Bullet(1000, 1000, 0, 0, 5), new Bullet(1000, 1000, 0, 0, 6));
+		world.addEntity(ship);
+		asteroid = new Asteroid(3000, 3000, -20, 15, 40);
+		world.addEntity(asteroid);
+		world.addEntity(new Planetoid(4000, 1000, 0, 30, 60));
+		file = Files.createTempFile("replay", ".log");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	private static void assertSameEntities(World expected, World actual) {
+		assertEquals(expected.getNbOfEntities(), actual.getNbOfEntities());
+		Iterator<Entity> iterator = actual.getEntities().iterator();
+		for (Entity entity : expected.getEntities()) {
+			Entity other = iterator.next();
+			assertEquals(entity.getClass(), other.getClass());
+			assertEquals(entity.getPosition(), other.getPosition());
+			assertEquals(entity.getVelocity(), other.getVelocity());
+			assertEquals(entity.getRadius(), other.getRadius(), 0);
+		}
+	}
+
+	@Test
+	public void replay_SameState() throws IOException {
+		try (ReplayLog log = new ReplayLog(world, file)) {
+			assertSame(log, world.getReplayLog());
+			ship.turn(0.5);
+			world.evolve(0.5, null);
+			ship.fireBullet();
+			ship.loadProgram(ProgramParser.parseProgramFromString("while 0.0 < 1.0 { turn 0.2; fire; skip; }", new ProgramFactory()));
+			world.evolve(1.5, null);
+			ship.thrustOn();
+			world.removeEntity(asteroid);
+			world.addEntity(new Asteroid(2500, 4000, 5, 5, 20));
+			for (int i = 0; i < 20; i++)
+				world.evolve(0.1, null);
+		}
+		assertNull(world.getReplayLog());
+		assertSameEntities(world, ReplayLog.replay(file));
+	}
+
+	@Test
+	public void evolve_MutationsByProgramsNotRecorded() throws IOException {
+		ship.loadProgram(ProgramParser.parseProgramFromString("while 0.0 < 1.0 { turn 0.2; fire; skip; }", new ProgramFactory()));
+		try (ReplayLog log = new ReplayLog(world, file)) {
+			world.evolve(1, null);
+			assertTrue(ship.getNbOfFiredBullets() > 0);
+			assertEquals(1, log.getNbOfRecords());
+			ship.fireBullet();
+			assertEquals(2, log.getNbOfRecords());
+		}
+	}
+
+	@Test
+	public void replay_UnclosedLog() throws IOException {
+		ReplayLog log = new ReplayLog(world, file);
+		ship.thrustOn();
+		world.evolve(2, null);
+		assertSameEntities(world, ReplayLog.replay(file));
+		log.close();
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_WorldWithLog() throws IOException {
+		try (ReplayLog log = new ReplayLog(world, file)) {
+			new ReplayLog(world, file);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void replay_NoLog() throws IOException {
+		Files.write(file, new byte[64]);
+		ReplayLog.replay(file);
+	}
+}
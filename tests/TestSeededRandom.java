@@ -0,0 +1,56 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import asteroids.model.representation.SeededRandom;
+
+public class TestSeededRandom {
+
+	@Test
+	public void next_SameAsRandom() {
+		SeededRandom seeded = new SeededRandom(42);
+		Random random = new Random(42);
+		for (int i = 0; i < 100; i++) {
+			assertEquals(random.nextInt(), seeded.nextInt());
+			assertEquals(random.nextInt(17), seeded.nextInt(17));
+			assertEquals(random.nextLong(), seeded.nextLong());
+			assertEquals(random.nextDouble(), seeded.nextDouble(), 0);
+			assertEquals(random.nextBoolean(), seeded.nextBoolean());
+		}
+		seeded.setSeed(7);
+		random.setSeed(7);
+		assertEquals(random.nextLong(), seeded.nextLong());
+	}
+
+	@Test
+	public void setState_SameSequence() {
+		SeededRandom random = new SeededRandom();
+		random.nextGaussian();
+		SeededRandom restored = new SeededRandom(0);
+		restored.setState(random.getState());
+		for (int i = 0; i < 100; i++) {
+			assertEquals(random.nextLong(), restored.nextLong());
+			assertEquals(random.nextGaussian(), restored.nextGaussian(), 0);
+		}
+	}
+
+	@Test
+	public void copy_Independent() {
+		SeededRandom random = new SeededRandom(3);
+		SeededRandom copy = random.copy();
+		assertEquals(random.getState(), copy.getState());
+		long next = random.nextLong();
+		assertEquals(next, copy.nextLong());
+		copy.nextLong();
+		assertNotEquals(random.getState(), copy.getState());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void setState_IllegalState() {
+		new SeededRandom(0).setState(1L << 48);
+	}
+}
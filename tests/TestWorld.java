@@ -2,15 +2,28 @@ package asteroids.tests;
 
 import static org.junit.Assert.*;
 
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
 import org.junit.Before;
 import org.junit.BeforeClass;
 import org.junit.Test;
 
 import asteroids.model.exceptions.*;
+import asteroids.model.programs.ProgramFactory;
 import asteroids.model.representation.*;
+import asteroids.part2.CollisionListener;
+import asteroids.part3.programs.internal.ProgramParser;
 
 public class TestWorld {
 	
@@ -312,4 +325,336 @@ public class TestWorld {
 	public void evolve_TerminatedWorld() {
 		terminatedWorld.evolve(1, null);
 	}
+	
+	@Test
+	public void fork_LegalCase() {
+		World fork = testWorld.fork();
+		assertNotSame(testWorld, fork);
+		assertEquals(testWorld.getNbOfEntities(), fork.getNbOfEntities());
+		assertTrue(fork.hasProperEntities());
+		Ship forkedShip = (Ship)fork.getEntityAt(testShip.getPosition());
+		assertNotSame(testShip, forkedShip);
+		assertEquals(1, forkedShip.getNbOfBulletsInMagazine());
+		assertFalse(forkedShip.getMagazine().contains(bulletOnShip));
+	}
+	
+	@Test
+	public void fork_Independent() {
+		World fork = evolvingWorld.fork();
+		fork.evolve(4, null);
+		assertEquals(ship1.getPosition().getxComponent(), 400, EPSILON);
+		evolvingWorld.evolve(4, null);
+		assertNotNull(fork.getEntityAt(ship1.getPosition()));
+		assertNotSame(ship1, fork.getEntityAt(ship1.getPosition()));
+	}
+	
+	@Test(expected=TerminatedException.class)
+	public void fork_TerminatedWorld() {
+		terminatedWorld.fork();
+	}
+	
+	@Test
+	public void isSleeping_EntitiesAtRest() {
+		assertTrue(testWorld.isSleeping(testShip));
+		assertTrue(testWorld.isSleeping(bulletInWorld));
+		assertEquals(3, testWorld.getNbOfSleepingEntities());
+		assertFalse(evolvingWorld.isSleeping(ship1));
+		assertEquals(0, evolvingWorld.getNbOfSleepingEntities());
+	}
+	
+	@Test
+	public void isSleeping_Thruster() {
+		testShip.thrustOn();
+		assertFalse(testWorld.isSleeping(testShip));
+		testShip.thrustOff();
+		assertTrue(testWorld.isSleeping(testShip));
+	}
+	
+	@Test
+	public void isSleeping_WakeUpByCollision() {
+		World world = new World(1000, 1000);
+		Asteroid asteroid = new Asteroid(300, 500, 0, 0, 10);
+		world.addEntity(asteroid);
+		world.addEntity(new Asteroid(600, 500, 0, 0, 10));
+		assertEquals(Double.POSITIVE_INFINITY, world.getTimeToFirstCollision(), EPSILON);
+		world.addEntity(new Asteroid(100, 500, 10, 0, 10));
+		assertEquals(18, world.getTimeToFirstCollision(), EPSILON);
+		world.evolve(20, null);
+		assertFalse(world.isSleeping(asteroid));
+		world.removeEntity(asteroid);
+		assertFalse(world.isSleeping(asteroid));
+	}
+	
+	@Test
+	public void evolve_CollisionBatching() {
+		World world = new World(1000, 1000);
+		world.setCollisionBatchingWindow(0.1);
+		world.addEntity(new Asteroid(100, 500, 10, 0, 10));
+		world.addEntity(new Asteroid(300, 500, 0, 0, 10));
+		Asteroid asteroid = new Asteroid(100, 800, 10, 0, 10);
+		Asteroid target = new Asteroid(300.5, 800, 0, 0, 10);
+		world.addEntity(asteroid);
+		world.addEntity(target);
+		world.evolve(20, null);
+		assertEquals(1, world.getNbOfSavedIterations());
+		assertEquals(0, asteroid.getVelocity().getxComponent(), EPSILON);
+		assertEquals(10, target.getVelocity().getxComponent(), EPSILON);
+		assertEquals(320.5, target.getPosition().getxComponent(), EPSILON);
+	}
+	
+	@Test
+	public void evolve_CollisionBatchingShowsContact() {
+		World world = new World(1000, 1000);
+		world.setCollisionBatchingWindow(0.1);
+		world.addEntity(new Asteroid(100, 500, 10, 0, 10));
+		world.addEntity(new Asteroid(300, 500, 0, 0, 10));
+		world.addEntity(new Asteroid(100, 800, 10, 0, 10));
+		world.addEntity(new Asteroid(300.5, 800, 0, 0, 10));
+		List<double[]> positions = new ArrayList<>();
+		world.evolve(20, new CollisionListener() {
+			@Override
+			public void boundaryCollision(Object entity, double x, double y) {
+			}
+			@Override
+			public void objectCollision(Object entity1, Object entity2, double x, double y) {
+				positions.add(new double[] { x, y });
+			}
+		});
+		assertEquals(1, world.getNbOfSavedIterations());
+		assertEquals(2, positions.size());
+		Collections.sort(positions, (position1, position2) -> Double.compare(position1[1], position2[1]));
+		assertEquals(290, positions.get(0)[0], EPSILON);
+		assertEquals(500, positions.get(0)[1], EPSILON);
+		// The batched collision is shown where the entities will touch, not between their centres at the time of the batch.
+		assertEquals(290.5, positions.get(1)[0], EPSILON);
+		assertEquals(800, positions.get(1)[1], EPSILON);
+	}
+	
+	@Test(expected=IllegalArgumentException.class)
+	public void setCollisionBatchingWindow_IllegalCase() {
+		testWorld.setCollisionBatchingWindow(-1);
+	}
+	
+	@Test
+	public void getMetrics_Evolution() {
+		World world = new World(1000, 1000);
+		world.addEntity(new Ship(400, 500, 10, 0, 10, 0));
+		world.addEntity(new Ship(600, 500, -10, 0, 10, 0));
+		world.evolve(20, null);
+		WorldMetrics metrics = world.getMetrics();
+		assertEquals(1, metrics.getNbOfEvolutions());
+		assertEquals(1, metrics.getNbOfEvolveIterations());
+		assertTrue(metrics.getNbOfImpactSolves() > 0);
+		assertTrue(metrics.getNbOfImpactSolves() <= metrics.getNbOfPairTests());
+		assertEquals(1, metrics.getNbOfResolvedCollisions(Ship.class, Ship.class));
+		assertEquals(0, metrics.getNbOfResolvedCollisions(Ship.class, null));
+		assertEquals(Long.valueOf(1), metrics.getResolvedCollisions().get("Ship-Ship"));
+	}
+	
+	@Test
+	public void getMetrics_MBean() throws Exception {
+		World world = new World(1000, 1000);
+		ObjectName name = world.getMetrics().registerMBean();
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		assertEquals(0L, server.getAttribute(name, "NbOfEvolutions"));
+		world.terminate();
+		assertFalse(server.isRegistered(name));
+		assertNull(world.getMetrics().getObjectName());
+	}
+	
+	/**
+	 * A source of randomness returning successive integers, such that successive random entities enumerate all entities of a world.
+	 */
+	private static class CountingRandom extends Random {
+		private static final long serialVersionUID = 1L;
+		private int next;
+		@Override
+		public int nextInt(int bound) {
+			return next++ % bound;
+		}
+	}
+	
+	/**
+	 * Check that the random entities of the given world are exactly its entities, each one at exactly one index.
+	 */
+	private static void assertRandomEntitiesConsistent(World world) {
+		Random random = new CountingRandom();
+		Set<Entity> sampled = new HashSet<>();
+		for (int i = 0; i < world.getNbOfEntities(); i++)
+			assertTrue(sampled.add(world.getRandomEntity(random)));
+		assertEquals(world.getEntities(), sampled);
+	}
+	
+	@Test
+	public void getRandomEntity_ConsistentAfterRemovals() {
+		World world = new World(1000, 1000);
+		List<Entity> entities = new ArrayList<>();
+		for (int i = 0; i < 40; i++) {
+			Entity entity = (i % 3 == 0) ? new Ship(50 + 100 * (i % 8), 50 + 100 * (i / 8), 10) :
+					new Asteroid(50 + 100 * (i % 8), 50 + 100 * (i / 8), 0, 0, 10);
+			world.addEntity(entity);
+			entities.add(entity);
+		}
+		assertRandomEntitiesConsistent(world);
+		Collections.shuffle(entities, new Random(5));
+		for (int i = 0; i < entities.size(); i++) {
+			if (i % 2 == 0)
+				world.removeEntity(entities.get(i));
+			else
+				entities.get(i).terminate();
+			assertEquals(entities.size() - i - 1, world.getNbOfEntities());
+			assertRandomEntitiesConsistent(world);
+		}
+		assertNull(world.getRandomEntity(new Random()));
+		Entity added = new Asteroid(500, 500, 0, 0, 10);
+		world.addEntity(added);
+		assertSame(added, world.getRandomEntity(new Random()));
+	}
+	
+	@Test
+	public void getRandomEntity_Uniform() {
+		World world = new World(1000, 1000);
+		List<Entity> entities = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			Entity entity = new Asteroid(50 + 70 * i, 500, 0, 0, 10);
+			world.addEntity(entity);
+			entities.add(entity);
+		}
+		// Removals move the last entities to other indices.
+		world.removeEntity(entities.remove(0));
+		world.removeEntity(entities.remove(4));
+		Map<Entity, Integer> counts = new HashMap<>();
+		Random random = new Random(6);
+		int nbOfSamples = 50000;
+		for (int i = 0; i < nbOfSamples; i++)
+			counts.merge(world.getRandomEntity(random), 1, Integer::sum);
+		assertEquals(new HashSet<>(entities), counts.keySet());
+		double expected = (double)nbOfSamples / entities.size();
+		for (int count : counts.values())
+			assertEquals(expected, count, 0.1 * expected);
+	}
+	
+	@Test
+	public void getRandomEntity_SameSeedSameEntities() {
+		for (int i = 0; i < 5; i++)
+			testWorld.addEntity(new Asteroid(100 + 100 * i, 800, 0, 0, 10));
+		Random random1 = new Random(7), random2 = new Random(7);
+		for (int i = 0; i < 100; i++)
+			assertSame(testWorld.getRandomEntity(random1), testWorld.getRandomEntity(random2));
+	}
+	
+	@Test(expected = NullPointerException.class)
+	public void getRandomEntity_NullRandom() {
+		testWorld.getRandomEntity(null);
+	}
+	
+	/**
+	 * Evolve a world with ships executing programs that do not observe each other, and return the values printed by each ship
+	 * followed by its final state.
+	 */
+	private static List<Object> evolveShipsWithPrograms(boolean parallel) {
+		World world = new World(5000, 5000);
+		world.setExecutingProgramsInParallel(parallel);
+		List<Ship> ships = new ArrayList<>();
+		for (int i = 0; i < 12; i++) {
+			Ship ship = new Ship(500 + 1200 * (i % 4), 1000 + 1500 * (i / 4), 10 * (i % 3), 0, 10, 0.5 * i);
+			world.addEntity(ship);
+			ship.loadProgram(ProgramParser.parseProgramFromString("x := 0.0; while x < 1000.0 { turn " + (0.05 * i - 0.3)
+					+ "; skip; print getdir; thrust; skip; print getx self; thrust_off; skip; print getvy self; x := x + 1.0; }",
+					new ProgramFactory()));
+			ships.add(ship);
+		}
+		for (int i = 0; i < 100; i++)
+			world.evolve(0.05, null);
+		List<Object> result = new ArrayList<>();
+		for (Ship ship : ships) {
+			result.addAll(ship.getProgramExecutor().getPrintList());
+			result.add(ship.getPosition());
+			result.add(ship.getVelocity());
+			result.add(ship.getOrientation());
+		}
+		return result;
+	}
+	
+	@Test
+	public void evolve_ParallelProgramsAsSequential() {
+		List<Object> sequential = evolveShipsWithPrograms(false);
+		// Each ship has printed values besides its final state.
+		assertTrue(sequential.size() > 12 * 6);
+		assertEquals(sequential, evolveShipsWithPrograms(true));
+		assertEquals(evolveShipsWithPrograms(true), evolveShipsWithPrograms(true));
+	}
+	
+	@Test
+	public void evolve_ParallelProgramsShipDestroyedByDeferredFire() {
+		World world = new World(1000, 1000);
+		world.setExecutingProgramsInParallel(true);
+		Ship firing = new Ship(300, 300, 0, 0, 10, 0);
+		Ship target = new Ship(330, 300, 0, 0, 15, Math.PI);
+		world.addEntity(firing);
+		world.addEntity(target);
+		firing.loadBullets(new Bullet(300, 300, 0, 0, 3));
+		target.loadBullets(new Bullet(330, 300, 0, 0, 3));
+		firing.loadProgram(ProgramParser.parseProgramFromString("fire;", new ProgramFactory()));
+		target.loadProgram(ProgramParser.parseProgramFromString("turn 0.1; fire;", new ProgramFactory()));
+		// The bullet fired by the first ship overlaps with the second ship, destroying it before its own commands are performed.
+		world.evolve(0.3, null);
+		assertTrue(target.isTerminated());
+		assertNull(target.getProgramExecutor());
+		assertEquals(Math.PI, target.getOrientation(), EPSILON);
+		assertEquals(0, firing.getNbOfBulletsInMagazine());
+		assertEquals(Collections.singleton(firing), world.getEntities());
+	}
+	
+	/**
+	 * Evolve a deterministic world with the given seed, in which a ship is teleported, a planetoid is split and programs use
+	 * random entities. Return the bits of the positions and velocities of all entities after each step, and the printed values.
+	 */
+	private static List<Object> evolveDeterministicWorld(long seed) {
+		World world = new World(2000, 2000);
+		world.setRandomSeed(seed);
+		Ship firing = new Ship(300, 300, 10);
+		world.addEntity(firing);
+		for (int i = 0; i < 15; i++)
+			firing.loadBullets(new Bullet(300, 300, 0, 0, 3));
+		firing.loadProgram(ProgramParser.parseProgramFromString(
+				"while 0.0 < 1.0 { a := any; print getx a; turn 0.4; fire; thrust; skip; thrust_off; }", new ProgramFactory()));
+		Ship teleported = new Ship(1500, 1500, -200, 0, 10, 0);
+		world.addEntity(teleported);
+		teleported.loadProgram(ProgramParser.parseProgramFromString("while 0.0 < 1.0 { print gety any; skip; }", new ProgramFactory()));
+		world.addEntity(new Planetoid(1000, 1500, 0, 0, 40));
+		Planetoid split = new Planetoid(600, 300, 0, 10, 60);
+		world.addEntity(split);
+		world.addEntity(new Asteroid(1500, 400, 80, 60, 30));
+		List<Object> printed = new ArrayList<>();
+		firing.getProgramExecutor().setPrintSink((executor, item) -> printed.add(item));
+		teleported.getProgramExecutor().setPrintSink((executor, item) -> printed.add(item));
+		List<Object> result = new ArrayList<>();
+		boolean teleportedOnce = false;
+		for (int i = 0; i < 300; i++) {
+			Position position = teleported.getPosition();
+			world.evolve(0.05, null);
+			if (Position.getDistanceBetween(position, teleported.getPosition()) > 50)
+				teleportedOnce = true;
+			for (Entity entity : world.getEntities()) {
+				result.add(entity.getClass());
+				result.add(Double.doubleToRawLongBits(entity.getPosition().getxComponent()));
+				result.add(Double.doubleToRawLongBits(entity.getPosition().getyComponent()));
+				result.add(Double.doubleToRawLongBits(entity.getVelocity().getxComponent()));
+				result.add(Double.doubleToRawLongBits(entity.getVelocity().getyComponent()));
+			}
+		}
+		assertTrue(teleportedOnce);
+		assertTrue(split.isTerminated());
+		assertFalse(world.getSpecificEntities(Asteroid.class).size() == 1);
+		result.addAll(printed);
+		return result;
+	}
+	
+	@Test
+	public void evolve_DeterministicTrajectories() {
+		List<Object> trajectories = evolveDeterministicWorld(1);
+		assertEquals(trajectories, evolveDeterministicWorld(1));
+		assertFalse(trajectories.equals(evolveDeterministicWorld(2)));
+	}
 }
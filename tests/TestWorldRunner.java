@@ -0,0 +1,303 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.representation.*;
+import asteroids.part2.CollisionListener;
+
+public class TestWorldRunner {
+
+	/**
+	 * A timestep that is exactly representable, such that accumulated durations are exact.
+	 */
+	private static final double TIMESTEP = 1.0 / 64;
+
+	/**
+	 * A class of worlds recording their name each time they evolve, and running a given action before they do.
+	 */
+	private static class RecordingWorld extends World {
+
+		private RecordingWorld(String name, List<String> evolutions) {
+			super(10000, 10000);
+			this.name = name;
+			this.evolutions = evolutions;
+		}
+
+		private final String name;
+
+		private final List<String> evolutions;
+
+		private Runnable action;
+
+		@Override
+		public void evolve(double duration, CollisionListener collisionListener) {
+			evolutions.add(name);
+			Runnable action = this.action;
+			this.action = null;
+			if (action != null)
+				action.run();
+			super.evolve(duration, collisionListener);
+		}
+	}
+
+	private ForkJoinPool pool;
+
+	private List<Throwable> uncaught;
+
+	private CountDownLatch release;
+
+	@Before
+	public void setUp() {
+		uncaught = Collections.synchronizedList(new ArrayList<>());
+		pool = new ForkJoinPool(1, ForkJoinPool.defaultForkJoinWorkerThreadFactory, (thread, exc) -> uncaught.add(exc), false);
+		release = new CountDownLatch(1);
+	}
+
+	@After
+	public void tearDown() {
+		release.countDown();
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Occupy the single thread of the pool until the latch is released.
+	 */
+	private void blockPool() throws InterruptedException {
+		CountDownLatch started = new CountDownLatch(1);
+		pool.execute(() -> {
+			started.countDown();
+			try {
+				release.await();
+			}
+			catch (InterruptedException exc) {
+				Thread.currentThread().interrupt();
+			}
+		});
+		started.await();
+	}
+
+	private static Ship addShip(World world) {
+		Ship ship = new Ship(100, 100, 64, 0, 10, 0);
+		world.addEntity(ship);
+		return ship;
+	}
+
+	@Test
+	public void tick_EvolvesAllWorlds() throws InterruptedException {
+		try (WorldRunner runner = new WorldRunner()) {
+			List<World> worlds = new ArrayList<>();
+			List<Ship> ships = new ArrayList<>();
+			for (int i = 0; i < 3; i++) {
+				World world = new World(10000, 10000);
+				ships.add(addShip(world));
+				runner.addWorld(world, TIMESTEP, null);
+				worlds.add(world);
+			}
+			assertEquals(3, runner.getNbOfWorlds());
+			for (int i = 0; i < 10; i++) {
+				runner.tick(4 * TIMESTEP);
+				assertTrue(runner.awaitIdle(10, TimeUnit.SECONDS));
+			}
+			for (int i = 0; i < 3; i++) {
+				assertEquals(140, ships.get(i).getPosition().getxComponent(), 0);
+				assertEquals(10, runner.getNbOfEvolutions(worlds.get(i)));
+				assertEquals(0, runner.getNbOfDelayedTicks(worlds.get(i)));
+				assertEquals(0, runner.getDroppedDuration(worlds.get(i)), 0);
+				assertNull(runner.getFailure(worlds.get(i)));
+			}
+		}
+	}
+
+	@Test
+	public void tick_BackpressureBoundsWork() throws InterruptedException {
+		World world = new World(10000, 10000);
+		Ship ship = addShip(world);
+		try (WorldRunner runner = new WorldRunner(pool)) {
+			runner.addWorld(world, TIMESTEP, null);
+			blockPool();
+			for (int i = 0; i < 100; i++)
+				runner.tick(4 * TIMESTEP);
+			Thread.sleep(20);
+			release.countDown();
+			assertTrue(runner.awaitIdle(10, TimeUnit.SECONDS));
+			// All ticks are handled by a single evolution, performing the maximal number of steps of the driver.
+			assertEquals(99, runner.getNbOfDelayedTicks(world));
+			assertEquals(1, runner.getNbOfEvolutions(world));
+			int nbOfSteps = FixedTimestepDriver.DEFAULT_MAXIMAL_NB_OF_STEPS;
+			assertEquals(100 + 64 * nbOfSteps * TIMESTEP, ship.getPosition().getxComponent(), 0);
+			assertEquals((400 - nbOfSteps) * TIMESTEP, runner.getDroppedDuration(world), 0);
+			// The latency is measured from the oldest tick that was pending.
+			assertTrue(runner.getTickLatency(world, 100) >= TimeUnit.MILLISECONDS.toNanos(20));
+		}
+	}
+
+	@Test
+	public void getTickLatency_Percentiles() throws InterruptedException {
+		World world = new World(10000, 10000);
+		addShip(world);
+		try (WorldRunner runner = new WorldRunner(pool)) {
+			runner.addWorld(world, TIMESTEP, null);
+			assertEquals(0, runner.getTickLatency(world, 50));
+			for (int i = 0; i < 50; i++) {
+				runner.tick(TIMESTEP);
+				assertTrue(runner.awaitIdle(10, TimeUnit.SECONDS));
+			}
+			// A single slow tick only shows up in the highest percentiles.
+			blockPool();
+			runner.tick(TIMESTEP);
+			Thread.sleep(20);
+			release.countDown();
+			assertTrue(runner.awaitIdle(10, TimeUnit.SECONDS));
+			long previous = 0;
+			for (double percentile : new double[] { 0, 10, 50, 90, 99, 100 }) {
+				long latency = runner.getTickLatency(world, percentile);
+				assertTrue(latency >= previous);
+				previous = latency;
+			}
+			long slowest = runner.getTickLatency(world, 100);
+			assertTrue(slowest >= TimeUnit.MILLISECONDS.toNanos(20));
+			assertTrue(runner.getTickLatency(world, 50) < slowest);
+			assertEquals(slowest, runner.getTickLatency(world, 99.5));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getTickLatency_IllegalPercentile() {
+		World world = new World(10000, 10000);
+		try (WorldRunner runner = new WorldRunner(pool)) {
+			runner.addWorld(world, TIMESTEP, null);
+			runner.getTickLatency(world, 100.5);
+		}
+	}
+
+	@Test
+	public void evolve_FairAcrossWorlds() throws InterruptedException {
+		List<String> evolutions = Collections.synchronizedList(new ArrayList<>());
+		RecordingWorld first = new RecordingWorld("first", evolutions);
+		RecordingWorld second = new RecordingWorld("second", evolutions);
+		try (WorldRunner runner = new WorldRunner(pool)) {
+			runner.addWorld(first, TIMESTEP, null);
+			runner.addWorld(second, TIMESTEP, null);
+			// A tick arriving while the first world evolves, schedules it again behind the second world, which was already waiting.
+			first.action = () -> runner.tick(TIMESTEP);
+			blockPool();
+			runner.tick(TIMESTEP);
+			release.countDown();
+			assertTrue(runner.awaitIdle(10, TimeUnit.SECONDS));
+			assertEquals(Arrays.asList("first", "second", "second", "first"), evolutions);
+			assertEquals(1, runner.getNbOfDelayedTicks(first));
+			assertEquals(1, runner.getNbOfDelayedTicks(second));
+			assertEquals(2, runner.getNbOfEvolutions(first));
+			assertEquals(1, runner.getNbOfEvolutions(second));
+		}
+	}
+
+	@Test
+	public void evolve_Exception() throws InterruptedException {
+		List<String> evolutions = Collections.synchronizedList(new ArrayList<>());
+		RecordingWorld failing = new RecordingWorld("failing", evolutions);
+		RecordingWorld other = new RecordingWorld("other", evolutions);
+		IllegalStateException exception = new IllegalStateException();
+		failing.action = () -> { throw exception; };
+		try (WorldRunner runner = new WorldRunner(pool)) {
+			runner.addWorld(failing, TIMESTEP, null);
+			runner.addWorld(other, TIMESTEP, null);
+			runner.tick(TIMESTEP);
+			assertTrue(runner.awaitIdle(10, TimeUnit.SECONDS));
+			assertSame(exception, runner.getFailure(failing));
+			// The failing world is not evolved anymore, the other world is.
+			runner.tick(TIMESTEP);
+			assertTrue(runner.awaitIdle(10, TimeUnit.SECONDS));
+			assertEquals(Arrays.asList("failing", "other", "other"), evolutions);
+			assertNull(runner.getFailure(other));
+			assertTrue(uncaught.isEmpty());
+		}
+	}
+
+	@Test
+	public void evolve_Error() throws InterruptedException {
+		List<String> evolutions = Collections.synchronizedList(new ArrayList<>());
+		RecordingWorld failing = new RecordingWorld("failing", evolutions);
+		AssertionError error = new AssertionError();
+		failing.action = () -> { throw error; };
+		try (WorldRunner runner = new WorldRunner(pool)) {
+			runner.addWorld(failing, TIMESTEP, null);
+			blockPool();
+			runner.tick(TIMESTEP);
+			// A tick arriving while the world is scheduled does not keep the runner busy after the error.
+			runner.tick(TIMESTEP);
+			release.countDown();
+			assertTrue(runner.awaitIdle(10, TimeUnit.SECONDS));
+			assertSame(error, runner.getFailure(failing));
+			runner.tick(TIMESTEP);
+			assertTrue(runner.awaitIdle(10, TimeUnit.SECONDS));
+			assertEquals(Arrays.asList("failing"), evolutions);
+			// The error is rethrown to the pool as well.
+			for (int i = 0; i < 1000 && uncaught.isEmpty(); i++)
+				Thread.sleep(10);
+			assertEquals(Arrays.asList(error), uncaught);
+		}
+	}
+
+	@Test
+	public void removeWorld_NotEvolvedAnymore() throws InterruptedException {
+		World world = new World(10000, 10000);
+		Ship ship = addShip(world);
+		try (WorldRunner runner = new WorldRunner(pool)) {
+			runner.addWorld(world, TIMESTEP, null);
+			runner.removeWorld(world);
+			assertFalse(runner.hasAsWorld(world));
+			runner.tick(TIMESTEP);
+			assertTrue(runner.awaitIdle(10, TimeUnit.SECONDS));
+			assertEquals(100, ship.getPosition().getxComponent(), 0);
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void tick_Closed() {
+		WorldRunner runner = new WorldRunner(pool);
+		runner.close();
+		assertTrue(runner.isClosed());
+		runner.tick(TIMESTEP);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void tick_NegativeDuration() {
+		try (WorldRunner runner = new WorldRunner(pool)) {
+			runner.tick(-TIMESTEP);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void addWorld_Twice() {
+		World world = new World(10000, 10000);
+		try (WorldRunner runner = new WorldRunner(pool)) {
+			runner.addWorld(world, TIMESTEP, null);
+			runner.addWorld(world, TIMESTEP, null);
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void getNbOfEvolutions_UnknownWorld() {
+		try (WorldRunner runner = new WorldRunner(pool)) {
+			runner.getNbOfEvolutions(new World(10000, 10000));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void constructor_NullPool() {
+		new WorldRunner(null);
+	}
+}
@@ -0,0 +1,168 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.programs.*;
+import asteroids.model.representation.*;
+import asteroids.part3.programs.internal.ProgramParser;
+
+public class TestWorldSerializer {
+
+	private World world;
+
+	private Ship ship;
+
+	private Bullet firedBullet;
+
+	@Before
+	public void setUp() {
+		world = new World(5000, 5000);
+		world.setInstructionBudget(5000);
+		ship = new Ship(1000, 1000, 10, -5, 30, 1.5, 5e16, true);
+		world.addEntity(ship);
+		ship.loadBullets(new Bullet(1000, 1000, 0, 0, 4), new Bullet(1000, 1000, 0, 0, 5));
+		ship.fireBullet();
+		firedBullet = ship.getFiredBullets().iterator().next();
+		world.addEntity(new Asteroid(3000, 3000, -20, 15, 40));
+		world.addEntity(new Planetoid(4000, 1000, 0, 30, 60, 2e6));
+	}
+
+	private static World restore(World world) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		WorldSerializer.write(world, Channels.newChannel(bytes));
+		return WorldSerializer.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+	}
+
+	private static <T extends Entity> T getOnly(World world, Class<T> type) {
+		assertEquals(1, world.getSpecificEntities(type).size());
+		return world.getSpecificEntities(type).iterator().next();
+	}
+
+	@Test
+	public void restore_Entities() throws IOException {
+		World restored = restore(world);
+		assertEquals(world.getWidth(), restored.getWidth(), 0);
+		assertEquals(world.getHeight(), restored.getHeight(), 0);
+		assertEquals(5000, restored.getInstructionBudget());
+		assertEquals(world.getNbOfEntities(), restored.getNbOfEntities());
+		Planetoid planetoid = getOnly(world, Planetoid.class);
+		Planetoid restoredPlanetoid = getOnly(restored, Planetoid.class);
+		assertEquals(planetoid.getRadius(), restoredPlanetoid.getRadius(), 0);
+		assertEquals(planetoid.getTotalTravelledDistance(), restoredPlanetoid.getTotalTravelledDistance(), 0);
+		assertEquals(planetoid.getVelocity(), restoredPlanetoid.getVelocity());
+		Ship restoredShip = getOnly(restored, Ship.class);
+		assertEquals(ship.getPosition(), restoredShip.getPosition());
+		assertEquals(ship.getOrientation(), restoredShip.getOrientation(), 0);
+		assertEquals(ship.getMass(), restoredShip.getMass(), 0);
+		assertTrue(restoredShip.hasThrusterActivated());
+	}
+
+	@Test
+	public void restore_Bullets() throws IOException {
+		World restored = restore(world);
+		Ship restoredShip = getOnly(restored, Ship.class);
+		Bullet restoredBullet = getOnly(restored, Bullet.class);
+		assertEquals(1, restoredShip.getNbOfBulletsInMagazine());
+		assertEquals(ship.getMagazine().iterator().next().getRadius(), restoredShip.getMagazine().iterator().next().getRadius(), 0);
+		assertTrue(restoredShip.hasFired(restoredBullet));
+		assertSame(restoredShip, restoredBullet.getSourceShip());
+		assertEquals(firedBullet.getPosition(), restoredBullet.getPosition());
+		assertEquals(firedBullet.getNbOfBounces(), restoredBullet.getNbOfBounces());
+	}
+
+	@Test
+	public void restore_ProgramState() throws IOException {
+		Program program = ProgramParser.parseProgramFromString(
+				"n := 0.0; target := self; while n < 3.0 { n := n + 1.0; print n; turn 0.1; } print target;", new ProgramFactory());
+		ship.loadProgram(program);
+		assertNull(ship.executeProgram(0.25));
+		World restored = restore(world);
+		Ship restoredShip = getOnly(restored, Ship.class);
+		assertEquals(ship.getProgramExecutor().getRemainingExecutionTime(),
+				restoredShip.getProgramExecutor().getRemainingExecutionTime(), 0);
+		List<Object> printed = restoredShip.executeProgram(0.4);
+		assertEquals(4, printed.size());
+		assertEquals(3.0, printed.get(2));
+		assertSame(restoredShip, printed.get(3));
+	}
+
+	@Test
+	public void fork_ProgramState() {
+		Program program = ProgramParser.parseProgramFromString(
+				"n := 0.0; target := self; while n < 3.0 { n := n + 1.0; print n; turn 0.1; } print target;", new ProgramFactory());
+		ship.loadProgram(program);
+		assertNull(ship.executeProgram(0.25));
+		World fork = world.fork();
+		Ship forkedShip = getOnly(fork, Ship.class);
+		assertEquals(ship.getProgramExecutor().getRemainingExecutionTime(),
+				forkedShip.getProgramExecutor().getRemainingExecutionTime(), 0);
+		List<Object> printed = forkedShip.executeProgram(0.4);
+		assertEquals(4, printed.size());
+		assertEquals(3.0, printed.get(2));
+		// Variables referring to entities refer to the corresponding entity of the fork.
+		assertSame(forkedShip, printed.get(3));
+		// The program in the given world resumes where it was forked.
+		printed = ship.executeProgram(0.4);
+		assertEquals(4, printed.size());
+		assertEquals(1.0, printed.get(0));
+		assertSame(ship, printed.get(3));
+	}
+
+	@Test
+	public void restore_DeterministicWorld() throws IOException {
+		world.setRandomSeed(42);
+		World restored = restore(world);
+		assertTrue(restored.isDeterministic());
+		assertEquals(world.getRandom().nextLong(), restored.getRandom().nextLong());
+	}
+
+	@Test
+	public void restore_DeterministicProgramExecutors() throws IOException {
+		world.setRandomSeed(42);
+		ship.loadProgram(ProgramParser.parseProgramFromString("print getx any;", new ProgramFactory()));
+		ship.getProgramExecutor().getRandom().nextInt();
+		World restored = restore(world);
+		Ship restoredShip = getOnly(restored, Ship.class);
+		for (int i = 0; i < 10; i++)
+			assertEquals(ship.getProgramExecutor().getRandom().nextLong(), restoredShip.getProgramExecutor().getRandom().nextLong());
+		World fork = world.fork();
+		assertEquals(world.getRandom().nextLong(), fork.getRandom().nextLong());
+		assertEquals(ship.getProgramExecutor().getRandom().nextLong(),
+				getOnly(fork, Ship.class).getProgramExecutor().getRandom().nextLong());
+	}
+
+	@Test
+	public void writeRead_File() throws IOException {
+		Path file = Files.createTempFile("world", ".bin");
+		try {
+			WorldSerializer.write(world, file);
+			assertEquals(world.getNbOfEntities(), WorldSerializer.read(file).getNbOfEntities());
+		}
+		finally {
+			Files.delete(file);
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void read_NoSnapshot() throws IOException {
+		WorldSerializer.read(Channels.newChannel(new ByteArrayInputStream(new byte[64])));
+	}
+
+	@Test(expected = IOException.class)
+	public void read_Truncated() throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		WorldSerializer.write(world, Channels.newChannel(bytes));
+		WorldSerializer.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray(), 0, bytes.size() - 5)));
+	}
+}
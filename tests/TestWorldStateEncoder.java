@@ -0,0 +1,174 @@
+package asteroids.tests;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import asteroids.model.representation.*;
+import asteroids.model.representation.WorldStateDecoder.EntityState;
+
+public class TestWorldStateEncoder {
+
+	private static final double EPSILON = 0.0001;
+
+	private World world;
+
+	private Asteroid movingAsteroid, restingAsteroid;
+
+	private ByteArrayOutputStream bytes;
+
+	private WorldStateEncoder encoder;
+
+	@Before
+	public void setUp() {
+		world = new World(1000, 1000);
+		movingAsteroid = new Asteroid(100, 100, 10, 0, 20);
+		restingAsteroid = new Asteroid(500, 500, 0, 0, 20);
+		world.addEntity(movingAsteroid);
+		world.addEntity(restingAsteroid);
+		bytes = new ByteArrayOutputStream();
+		encoder = new WorldStateEncoder(world, Channels.newChannel(bytes), 0.5, 10);
+	}
+
+	private WorldStateDecoder decoder() {
+		return new WorldStateDecoder(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+	}
+
+	@Test
+	public void writeFrame_Keyframe() throws IOException {
+		encoder.writeFrame();
+		WorldStateDecoder decoder = decoder();
+		assertTrue(decoder.readFrame());
+		assertTrue(decoder.isKeyframe());
+		assertEquals(1000, decoder.getWidth(), EPSILON);
+		assertEquals(2, decoder.getEntityStates().size());
+		EntityState state = decoder.getEntityStates().get(0);
+		assertEquals(Asteroid.class, state.getType());
+		assertEquals(100, state.getX(), EPSILON);
+		assertEquals(10, state.getVx(), EPSILON);
+		assertFalse(decoder.readFrame());
+	}
+
+	@Test
+	public void writeFrame_DeltaWithChangedEntitiesOnly() throws IOException {
+		encoder.writeFrame();
+		long keyframeSize = encoder.getNbOfBytesWritten();
+		world.evolve(0.01, null);
+		encoder.writeFrame();
+		world.evolve(0.1, null);
+		encoder.writeFrame();
+		assertTrue(encoder.getNbOfBytesWritten() < 3 * keyframeSize);
+		WorldStateDecoder decoder = decoder();
+		assertTrue(decoder.readFrame());
+		assertTrue(decoder.readFrame());
+		assertFalse(decoder.isKeyframe());
+		assertEquals(100, decoder.getEntityStates().get(0).getX(), EPSILON);
+		assertTrue(decoder.readFrame());
+		// The change is quantized to the threshold.
+		assertEquals(101.0, decoder.getEntityStates().get(0).getX(), EPSILON);
+		assertEquals(101.1, decoder.getEntityStates().get(0).getX(), encoder.getThreshold());
+		assertEquals(500, decoder.getEntityStates().get(1).getX(), EPSILON);
+	}
+
+	@Test
+	public void writeFrame_ChangesQuantized() throws IOException {
+		encoder.writeFrame();
+		long size = encoder.getNbOfBytesWritten();
+		world.evolve(0.1, null);
+		encoder.writeFrame();
+		// The frame length, type and number, the numbers of terminated, spawned and changed entities, and the identifier, the
+		// encoding and five shorts for the moving asteroid.
+		assertEquals(4 + 1 + 8 + 3 * 4 + 4 + 1 + 5 * 2, encoder.getNbOfBytesWritten() - size);
+	}
+
+	@Test
+	public void writeFrame_QuantizationErrorsBounded() throws IOException {
+		encoder = new WorldStateEncoder(world, Channels.newChannel(bytes), 0.3, 1000);
+		Asteroid asteroid = new Asteroid(300, 700, 17.3, -4.1, 20);
+		world.addEntity(asteroid);
+		for (int i = 0; i < 200; i++) {
+			encoder.writeFrame();
+			world.evolve(0.037, null);
+		}
+		encoder.writeFrame();
+		WorldStateDecoder decoder = decoder();
+		while (decoder.readFrame())
+			;
+		for (EntityState each : decoder.getEntityStates().values())
+			assertEquals(Asteroid.class, each.getType());
+		EntityState state = decoder.getEntityStates().get(2);
+		assertEquals(asteroid.getPosition().getxComponent(), state.getX(), encoder.getThreshold());
+		assertEquals(asteroid.getPosition().getyComponent(), state.getY(), encoder.getThreshold());
+		assertEquals(movingAsteroid.getPosition().getxComponent(), decoder.getEntityStates().get(0).getX(), encoder.getThreshold());
+		assertEquals(17.3, state.getVx(), EPSILON);
+		assertEquals(-4.1, state.getVy(), EPSILON);
+	}
+
+	@Test
+	public void writeFrame_ChangesQuantizedToInts() throws IOException {
+		encoder = new WorldStateEncoder(world, Channels.newChannel(bytes), 0.001, 10);
+		encoder.writeFrame();
+		long size = encoder.getNbOfBytesWritten();
+		world.evolve(50, null);
+		encoder.writeFrame();
+		assertEquals(4 + 1 + 8 + 3 * 4 + 4 + 1 + 5 * 4, encoder.getNbOfBytesWritten() - size);
+		WorldStateDecoder decoder = decoder();
+		decoder.readFrame();
+		decoder.readFrame();
+		assertEquals(600, decoder.getEntityStates().get(0).getX(), 0.001);
+	}
+
+	@Test
+	public void writeFrame_LargeChangesWrittenExactly() throws IOException {
+		// A change of 500 is five billion thresholds, which does not fit in an int.
+		encoder = new WorldStateEncoder(world, Channels.newChannel(bytes), 1e-7, 10);
+		encoder.writeFrame();
+		world.evolve(50, null);
+		encoder.writeFrame();
+		WorldStateDecoder decoder = decoder();
+		decoder.readFrame();
+		decoder.readFrame();
+		assertEquals(600, decoder.getEntityStates().get(0).getX(), 1e-7);
+		assertEquals(movingAsteroid.getPosition().getxComponent(), decoder.getEntityStates().get(0).getX(), 0);
+	}
+
+	@Test
+	public void writeFrame_ZeroThresholdExact() throws IOException {
+		encoder = new WorldStateEncoder(world, Channels.newChannel(bytes), 0, 10);
+		encoder.writeFrame();
+		world.evolve(0.0123, null);
+		encoder.writeFrame();
+		WorldStateDecoder decoder = decoder();
+		decoder.readFrame();
+		decoder.readFrame();
+		assertEquals(movingAsteroid.getPosition().getxComponent(), decoder.getEntityStates().get(0).getX(), 0);
+	}
+
+	@Test
+	public void writeFrame_SpawnsAndTerminations() throws IOException {
+		encoder.writeFrame();
+		restingAsteroid.terminate();
+		world.addEntity(new Asteroid(800, 800, 0, 0, 30));
+		encoder.writeFrame();
+		WorldStateDecoder decoder = decoder();
+		decoder.readFrame();
+		decoder.readFrame();
+		assertEquals(1, decoder.getTerminated().size());
+		assertEquals(1, (int)decoder.getTerminated().get(0));
+		assertEquals(1, decoder.getSpawned().size());
+		EntityState spawned = decoder.getEntityStates().get(decoder.getSpawned().get(0));
+		assertEquals(30, spawned.getRadius(), EPSILON);
+		assertEquals(2, decoder.getEntityStates().size());
+	}
+
+	@Test(expected = IOException.class)
+	public void readFrame_NoStream() throws IOException {
+		new WorldStateDecoder(Channels.newChannel(new ByteArrayInputStream(new byte[64]))).readFrame();
+	}
+}